@@ -22,13 +22,32 @@
 package evaluation;
 
 import uk.ac.manchester.tornado.qsim.circuit.Circuit;
-import uk.ac.manchester.tornado.qsim.circuit.State;
-import uk.ac.manchester.tornado.qsim.circuit.utils.StateConverter;
 import uk.ac.manchester.tornado.qsim.simulator.Simulator;
+import uk.ac.manchester.tornado.qsim.simulator.decisiondiagram.DecisionDiagramSimulator;
+import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSimulatorAccelerated;
+import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSimulatorDensityMatrix;
+import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSimulatorDistributed;
+import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSimulatorOffHeap;
+import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSimulatorOutOfCore;
+import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSimulatorParallel;
+import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSimulatorSharded;
+import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSimulatorSparse;
+import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSimulatorStandard;
+import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSimulatorTrajectories;
+import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSocketTransport;
+import uk.ac.manchester.tornado.qsim.simulator.mps.MpsSimulator;
+import uk.ac.manchester.tornado.qsim.simulator.noise.KrausChannel;
+import uk.ac.manchester.tornado.qsim.simulator.noise.NoiseModel;
+import uk.ac.manchester.tornado.qsim.simulator.stabilizer.StabilizerSimulator;
+import uk.ac.manchester.tornado.qsim.simulator.tensornetwork.TensorNetworkSimulator;
+import uk.ac.manchester.tornado.qsim.simulator.unitary.UnitarySimulatorAccelerated;
+import uk.ac.manchester.tornado.qsim.simulator.unitary.UnitarySimulatorStandard;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryPoolMXBean;
+import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.LongSummaryStatistics;
 
@@ -41,6 +60,8 @@ import java.util.LongSummaryStatistics;
 public class Common {
     private static final int WARMUP_ITERATIONS = 0;
     private static final int TIMING_ITERATIONS = 1;
+    private static final int MAX_TRAJECTORIES = 100000;
+    private static final double TARGET_ERROR = 0.01;
 
     /**
      * Parses number of qubits from supplied program arguments.
@@ -72,7 +93,7 @@ public class Common {
         if (args.length >= 2) {
             try {
                 simulatorType = Integer.parseInt(args[0]);
-                if (simulatorType < 1 || simulatorType > 4)
+                if (simulatorType < 1 || simulatorType > 16)
                     throw new NumberFormatException();
             } catch (NumberFormatException ignored) {
                 System.out.println("Invalid simulator type - circuit will be simulated with default fsv simulator.");
@@ -81,6 +102,86 @@ public class Common {
         return simulatorType;
     }
 
+    /**
+     * Creates the quantum simulator backend of the supplied type.
+     * 
+     * @param simulatorType
+     *            simulator type (1-16, see getSimulatorType).
+     * @param noQubits
+     *            number of qubits of the simulated circuit.
+     * @param args
+     *            full program arguments (rank and number of ranks of the
+     *            distributed simulator).
+     * @return quantum simulator.
+     */
+    protected static Simulator createSimulator(int simulatorType, int noQubits, String[] args) {
+        switch (simulatorType) {
+            case 1:
+                return new UnitarySimulatorStandard();
+            case 2:
+                return new UnitarySimulatorAccelerated(noQubits);
+            case 3:
+                return new FsvSimulatorStandard();
+            case 4:
+                return new FsvSimulatorAccelerated();
+            case 5:
+                return new FsvSimulatorParallel();
+            case 6:
+                return new FsvSimulatorOffHeap();
+            case 7:
+                return new FsvSimulatorOutOfCore(Paths.get(System.getProperty("java.io.tmpdir")));
+            case 8:
+                return createDistributedSimulator(args);
+            case 9:
+                return new FsvSimulatorSharded();
+            case 10:
+                return new FsvSimulatorSparse();
+            case 11:
+                return new StabilizerSimulator();
+            case 12:
+                return new MpsSimulator();
+            case 13:
+                return new TensorNetworkSimulator();
+            case 14:
+                return new DecisionDiagramSimulator();
+            case 15:
+                return new FsvSimulatorDensityMatrix(createNoiseModel());
+            case 16:
+                return new FsvSimulatorTrajectories(createNoiseModel());
+            default:
+                throw new UnsupportedOperationException("Simulator type not supported.");
+        }
+    }
+
+    /**
+     * Creates distributed full state vector simulator for the rank supplied in the
+     * program arguments. The ranks are connected over the loopback interface (see
+     * FsvSocketTransport), so each rank is started as a separate process.
+     * 
+     * @param args
+     *            full program arguments (args[2] - rank, default = 0, args[3] -
+     *            number of ranks, default = 1).
+     * @return distributed simulator.
+     */
+    protected static Simulator createDistributedSimulator(String[] args) {
+        int rank = args.length >= 3 ? Integer.parseInt(args[2]) : 0;
+        int ranks = args.length >= 4 ? Integer.parseInt(args[3]) : 1;
+        return new FsvSimulatorDistributed(new FsvSocketTransport(rank, ranks));
+    }
+
+    /**
+     * Creates the noise model of the noisy simulators (depolarizing noise after
+     * every operation and readout error).
+     * 
+     * @return evaluation noise model.
+     */
+    protected static NoiseModel createNoiseModel() {
+        NoiseModel noiseModel = new NoiseModel();
+        noiseModel.addGateNoise(KrausChannel.depolarizing(0.001));
+        noiseModel.setReadoutError(0.01, 0.02);
+        return noiseModel;
+    }
+
     /**
      * Simulate supplied quantum circuit on supplied quantum simulator. Including
      * timing and peak memory measurement.
@@ -92,14 +193,14 @@ public class Common {
      */
     protected static void simulateAndPrint(Simulator simulator, Circuit circuit) {
         for (int i = 0; i < WARMUP_ITERATIONS; i++)
-            simulator.simulateFullState(circuit);
+            simulate(simulator, circuit);
 
         long start,stop;
         long[] execTimes = new long[TIMING_ITERATIONS];
 
         for (int i = 0; i < TIMING_ITERATIONS; i++) {
             start = System.currentTimeMillis();
-            simulator.simulateFullState(circuit);
+            simulate(simulator, circuit);
             stop = System.currentTimeMillis();
             execTimes[i] = stop - start;
         }
@@ -107,6 +208,30 @@ public class Common {
         LongSummaryStatistics stats = Arrays.stream(execTimes).summaryStatistics();
         long peakMemory = measurePeakMemory();
         System.out.printf("[%d, %d, %.4f, %d, %d], \n", circuit.qubitCount(), stats.getMax(), stats.getAverage(), stats.getMin(), peakMemory);
+        String statistics = simulator.describeStatistics();
+        if (!statistics.isEmpty())
+            System.out.println(statistics);
+    }
+
+    private static void simulate(Simulator simulator, Circuit circuit) {
+        // Stabilizer tableau, MPS and decision diagram are the final states (state
+        // vectors are limited), tensor network computes the amplitude of the state
+        // 00...0, density matrix of a noisy circuit is mixed, trajectories estimate
+        // <Z0> of a noisy circuit
+        if (simulator instanceof StabilizerSimulator)
+            ((StabilizerSimulator) simulator).simulateTableau(circuit);
+        else if (simulator instanceof MpsSimulator)
+            ((MpsSimulator) simulator).simulateMps(circuit);
+        else if (simulator instanceof TensorNetworkSimulator)
+            ((TensorNetworkSimulator) simulator).amplitude(circuit, new BitSet());
+        else if (simulator instanceof DecisionDiagramSimulator)
+            ((DecisionDiagramSimulator) simulator).simulateDiagram(circuit);
+        else if (simulator instanceof FsvSimulatorDensityMatrix)
+            ((FsvSimulatorDensityMatrix) simulator).simulateDensityMatrix(circuit);
+        else if (simulator instanceof FsvSimulatorTrajectories)
+            ((FsvSimulatorTrajectories) simulator).estimateExpectation(circuit, MAX_TRAJECTORIES, TARGET_ERROR, 0);
+        else
+            simulator.simulateFullState(circuit);
     }
 
     private static long measurePeakMemory() {
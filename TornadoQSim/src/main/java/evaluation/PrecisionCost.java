@@ -0,0 +1,135 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package evaluation;
+
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.DoubleState;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.simulator.Precision;
+import uk.ac.manchester.tornado.qsim.simulator.Simulator;
+import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvOptions;
+import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSimulatorAccelerated;
+import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSimulatorParallel;
+import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSimulatorStandard;
+import uk.ac.manchester.tornado.qsim.simulator.unitary.UnitarySimulatorStandard;
+
+/**
+ * Evaluate the throughput, the memory cost and the accuracy of the single and
+ * the double precision simulation of the Quantum Fourier Transform (repeated
+ * forward and inverse QFT, which returns the system to its initial state).
+ */
+public class PrecisionCost {
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final int TIMING_ITERATIONS = 5;
+    private static final int QFT_REPETITIONS = 4;
+
+    /**
+     * Run the evaluation using: "tornado evaluation.PrecisionCost".
+     * 
+     * @param args
+     *            args[0] simulator type (1, 3-5; the accelerated unitary simulator
+     *            has no double precision mode), args[1] - number of qubits in the
+     *            quantum circuit.
+     */
+    public static void main(String[] args) {
+        int noQubits = Common.getQubitCount(args);
+        int simulatorType = Common.getSimulatorType(args);
+
+        Circuit circuit = new Circuit(noQubits);
+        circuit.X(0, noQubits - 1);
+        for (int i = 0; i < QFT_REPETITIONS; i++) {
+            qft(circuit, false);
+            qft(circuit, true);
+        }
+
+        State singleState = measure(createSimulator(simulatorType, noQubits, Precision.SINGLE), circuit, Precision.SINGLE);
+        State doubleState = measure(createSimulator(simulatorType, noQubits, Precision.DOUBLE), circuit, Precision.DOUBLE);
+
+        // Deviation of the single precision result from the double precision result
+        DoubleState reference = (DoubleState) doubleState;
+        double[] referenceReal = reference.getDoubleStateVector().getRawRealData();
+        double[] referenceImag = reference.getDoubleStateVector().getRawImagData();
+        float[] real = singleState.getStateVector().getRawRealData();
+        float[] imag = singleState.getStateVector().getRawImagData();
+        double maxDifference = 0;
+        for (int i = 0; i < referenceReal.length; i++)
+            maxDifference = Math.max(maxDifference, Math.hypot(real[i] - referenceReal[i], imag[i] - referenceImag[i]));
+        System.out.printf("Max amplitude difference (single vs double): %.3e%n", maxDifference);
+    }
+
+    private static Simulator createSimulator(int simulatorType, int noQubits, Precision precision) {
+        switch (simulatorType) {
+            case 1:
+                return new UnitarySimulatorStandard(precision);
+            case 4:
+                return new FsvSimulatorAccelerated(new FsvOptions().precision(precision));
+            case 5:
+                return new FsvSimulatorParallel(Runtime.getRuntime().availableProcessors(), FsvSimulatorParallel.DEFAULT_SEQUENTIAL_CUTOFF, new FsvOptions().precision(precision));
+            default:
+                return new FsvSimulatorStandard(new FsvOptions().precision(precision));
+        }
+    }
+
+    private static State measure(Simulator simulator, Circuit circuit, Precision precision) {
+        State state = null;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+            state = simulator.simulateFullState(circuit);
+
+        long totalTime = 0;
+        for (int i = 0; i < TIMING_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            state = simulator.simulateFullState(circuit);
+            totalTime += System.nanoTime() - start;
+        }
+
+        double averageMs = totalTime / (TIMING_ITERATIONS * 1e6);
+        long amplitudes = 1L << circuit.qubitCount();
+        long stateBytes = amplitudes * (precision == Precision.DOUBLE ? 16 : 8);
+        double updatesPerSecond = (double) amplitudes * gateCount(circuit.qubitCount()) / (averageMs / 1e3);
+        double probability = precision == Precision.DOUBLE ? ((DoubleState) state).getDoubleStateProbability(1 | (1 << (circuit.qubitCount() - 1))) : state.getStateProbability(1 | (1 << (circuit.qubitCount() - 1)));
+        // [precision, qubits, avg time (ms), amplitude updates / s, state bytes, error of the expected state probability]
+        System.out.printf("[%s, %d, %.4f, %.3e, %d, %.3e], %n", precision, circuit.qubitCount(), averageMs, updatesPerSecond, stateBytes, Math.abs(1 - probability));
+        return state;
+    }
+
+    private static void qft(Circuit circuit, boolean inverse) {
+        if (!inverse) {
+            for (int targetQubit = circuit.qubitCount() - 1; targetQubit >= 0; targetQubit--) {
+                circuit.H(targetQubit);
+                for (int controlQubit = 0; controlQubit < targetQubit; controlQubit++)
+                    circuit.CR(controlQubit, targetQubit, (float) (Math.PI / Math.pow(2, targetQubit - controlQubit)));
+            }
+        } else {
+            // Reversed order of the gates with the conjugated phases
+            for (int targetQubit = 0; targetQubit < circuit.qubitCount(); targetQubit++) {
+                for (int controlQubit = targetQubit - 1; controlQubit >= 0; controlQubit--)
+                    circuit.CR(controlQubit, targetQubit, (float) (-Math.PI / Math.pow(2, targetQubit - controlQubit)));
+                circuit.H(targetQubit);
+            }
+        }
+    }
+
+    private static long gateCount(int noQubits) {
+        // Two initial X gates and n H gates with n(n-1)/2 CR gates per QFT
+        return 2 + QFT_REPETITIONS * 2L * (noQubits + noQubits * (noQubits - 1) / 2);
+    }
+}
@@ -23,10 +23,6 @@ package evaluation;
 
 import uk.ac.manchester.tornado.qsim.circuit.Circuit;
 import uk.ac.manchester.tornado.qsim.simulator.Simulator;
-import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSimulatorAccelerated;
-import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSimulatorStandard;
-import uk.ac.manchester.tornado.qsim.simulator.unitary.UnitarySimulatorAccelerated;
-import uk.ac.manchester.tornado.qsim.simulator.unitary.UnitarySimulatorStandard;
 
 /**
  * Evaluate a simulation of Quantum Fourier Transform quantum algorithm.
@@ -39,8 +35,9 @@ public class QFT {
      * Run the evaluation using: "tornado evaluation.QFT".
      * 
      * @param args
-     *            args[0] simulator type (1-4), args[1] - number of qubits in the
-     *            quantum circuit.
+     *            args[0] simulator type (1-16), args[1] - number of qubits in the
+     *            quantum circuit, args[2] - rank, args[3] - number of ranks
+     *            (distributed simulator only).
      */
     public static void main(String[] args) {
         int noQubits = Common.getQubitCount(args);
@@ -51,21 +48,7 @@ public class QFT {
         qftRotations(circuit);
         qftSwaps(circuit);
 
-        Simulator simulator = new FsvSimulatorStandard();
-        switch (simulatorType) {
-            case 1:
-                simulator = new UnitarySimulatorStandard();
-                break;
-            case 2:
-                simulator = new UnitarySimulatorAccelerated(noQubits);
-                break;
-            case 3:
-                simulator = new FsvSimulatorStandard();
-                break;
-            case 4:
-                simulator = new FsvSimulatorAccelerated(noQubits);
-                break;
-        }
+        Simulator simulator = Common.createSimulator(simulatorType, noQubits, args);
 
         Common.simulateAndPrint(simulator, circuit);
     }
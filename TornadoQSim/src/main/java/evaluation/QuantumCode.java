@@ -24,10 +24,6 @@ package evaluation;
 import uk.ac.manchester.tornado.qsim.circuit.Circuit;
 import uk.ac.manchester.tornado.qsim.circuit.State;
 import uk.ac.manchester.tornado.qsim.simulator.Simulator;
-import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSimulatorAccelerated;
-import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSimulatorStandard;
-import uk.ac.manchester.tornado.qsim.simulator.unitary.UnitarySimulatorAccelerated;
-import uk.ac.manchester.tornado.qsim.simulator.unitary.UnitarySimulatorStandard;
 
 import java.util.Arrays;
 
@@ -50,23 +46,7 @@ public class QuantumCode {
         Circuit circuit = GetCircuitA(noQubits);
 
         // Quantum simulator backends
-        Simulator simulator;
-        switch (simulatorVersion) {
-            case 1:
-                simulator = new UnitarySimulatorStandard();
-                break;
-            case 2:
-                simulator = new UnitarySimulatorAccelerated(noQubits);
-                break;
-            case 3:
-                simulator = new FsvSimulatorStandard();
-                break;
-            case 4:
-                simulator = new FsvSimulatorAccelerated(noQubits);
-                break;
-            default:
-                throw new UnsupportedOperationException("Simulator type not supported.");
-        }
+        Simulator simulator = Common.createSimulator(simulatorVersion, noQubits, args);
 
         // Evaluation
         simulateAndPrint(simulator, circuit);
@@ -25,6 +25,7 @@ import uk.ac.manchester.tornado.qsim.circuit.operation.*;
 import uk.ac.manchester.tornado.qsim.circuit.operation.enums.FunctionType;
 import uk.ac.manchester.tornado.qsim.circuit.operation.enums.GateType;
 import uk.ac.manchester.tornado.qsim.circuit.operation.enums.InstructionType;
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.OperationType;
 
 import java.util.LinkedList;
 import java.util.List;
@@ -328,6 +329,43 @@ public class Circuit {
         addInstruction(InstructionType.Reset, qubits);
     }
 
+    /**
+     * Applies the operations of the supplied circuit, each conditioned on the
+     * outcome of the last measurement of the condition qubit (e.g. the
+     * corrections of quantum teleportation).
+     * 
+     * @param conditionQubit
+     *            qubit whose measurement outcome conditions the operations.
+     * @param value
+     *            measurement outcome (0 or 1) that applies the operations.
+     * @param circuit
+     *            quantum circuit of unitary operations to be conditioned.
+     */
+    public void conditional(int conditionQubit, int value, Circuit circuit) {
+        if (!areQubitsValid(conditionQubit))
+            throw new IllegalArgumentException("Invalid condition qubit supplied.");
+        if (circuit == null)
+            throw new IllegalArgumentException("Invalid circuit supplied (NULL).");
+        if (circuit.qubitCount() != noQubits)
+            throw new IllegalArgumentException("Incompatible circuits (qubit count).");
+        List<Operation> operations = new LinkedList<>();
+        for (Step step : circuit.getSteps()) {
+            for (int qubit = 0; qubit < noQubits;) {
+                Operation operation = step.getOperation(qubit);
+                if (operation == null) {
+                    qubit++;
+                    continue;
+                }
+                if (operation.operationType() == OperationType.Instruction)
+                    throw new IllegalArgumentException("Conditional circuit can contain unitary operations only.");
+                operations.add(operation);
+                qubit += operation.size();
+            }
+        }
+        for (Operation operation : operations)
+            addOperation(new ConditionalOperation(operation, conditionQubit, value));
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
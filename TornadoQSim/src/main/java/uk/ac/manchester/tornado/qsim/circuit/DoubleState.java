@@ -0,0 +1,237 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.circuit;
+
+import uk.ac.manchester.tornado.qsim.circuit.utils.StateConverter;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.math.DoubleComplexTensor;
+
+import java.util.Objects;
+
+/**
+ * Represents a state of a quantum system, in which the amplitudes are held in
+ * double precision. All probabilities are computed in double precision, the
+ * single precision view of the state (eg. getStateVector()) is rounded on
+ * demand. A double precision state takes twice the memory of a single
+ * precision state (16 bytes per amplitude).
+ */
+public class DoubleState extends State {
+    private DoubleComplexTensor stateVector;
+
+    /**
+     * Constructs a double precision quantum state of 2^noQubits amplitudes.
+     * 
+     * @param noQubits
+     *            number of qubits.
+     */
+    public DoubleState(int noQubits) {
+        super(noQubits, false);
+        stateVector = new DoubleComplexTensor(1 << noQubits);
+        stateVector.insertElement(1, 0, 0);
+    }
+
+    /**
+     * Constructs a double precision quantum state based on supplied initial state
+     * vector (must be normalized).
+     * 
+     * @param initialStateVector
+     *            normalized double precision state vector.
+     */
+    public DoubleState(DoubleComplexTensor initialStateVector) {
+        super(getQubitCount(initialStateVector), false);
+        stateVector = initialStateVector;
+        if (!isNormalized())
+            throw new IllegalArgumentException("Supplied state vector is not normalized.");
+    }
+
+    /**
+     * Gets the full double precision state vector.
+     * 
+     * @return full state vector.
+     */
+    public DoubleComplexTensor getDoubleStateVector() {
+        return stateVector;
+    }
+
+    /**
+     * Sets the full double precision state vector (must be normalized).
+     * 
+     * @param stateVector
+     *            normalized double precision state vector.
+     */
+    public void setDoubleStateVector(DoubleComplexTensor stateVector) {
+        if (stateVector == null || stateVector.rank() != 1 || stateVector.size() != this.stateVector.size())
+            throw new IllegalArgumentException("Invalid state vector supplied (NULL / not a vector / size).");
+        DoubleComplexTensor previous = this.stateVector;
+        this.stateVector = stateVector;
+        if (!isNormalized()) {
+            this.stateVector = previous;
+            throw new IllegalArgumentException("Supplied state vector is not normalized.");
+        }
+    }
+
+    /**
+     * Gets the full state vector rounded to single precision. The returned vector
+     * is a copy, changes to it are not reflected in this state.
+     * 
+     * @return full state vector (single precision copy).
+     */
+    @Override
+    public ComplexTensor getStateVector() {
+        return stateVector.toComplexTensor();
+    }
+
+    @Override
+    public void setStateVector(ComplexTensor stateVector) {
+        if (stateVector == null)
+            throw new IllegalArgumentException("Invalid state vector supplied (NULL / not a vector / size).");
+        setDoubleStateVector(new DoubleComplexTensor(stateVector));
+    }
+
+    @Override
+    public int size() {
+        return stateVector.size();
+    }
+
+    @Override
+    public boolean isNormalized() {
+        double sum = 0;
+        for (int i = 0; i < stateVector.size(); i++)
+            sum += getProbabilityForState(i);
+        // Tolerate some precision loss
+        return sum > 0.99 && sum < 1.01;
+    }
+
+    @Override
+    public int getQubitCollapsed(int qubit) {
+        return random().nextDouble() < getDoubleQubitProbability(qubit) ? 1 : 0;
+    }
+
+    @Override
+    public float getQubitProbability(int qubit) {
+        return (float) getDoubleQubitProbability(qubit);
+    }
+
+    /**
+     * Gets the probability of collapsing to the state 1 in double precision.
+     * 
+     * @param qubit
+     *            qubit for which to retrieve the probability.
+     * @return probability value (0.0 - 1.0).
+     */
+    public double getDoubleQubitProbability(int qubit) {
+        if (qubit < 0 || qubit >= qubitCount())
+            throw new IllegalArgumentException("Invalid qubit supplied.");
+        double probability = 0;
+        for (int state = 0; state < stateVector.size(); state++)
+            if ((state & (1 << qubit)) != 0)
+                probability += getProbabilityForState(state);
+        return probability;
+    }
+
+    @Override
+    public Complex getStateAmplitude(int state) {
+        if (!isValidState(state))
+            throw new IllegalArgumentException("Invalid state supplied");
+        return stateVector.getElement(state);
+    }
+
+    @Override
+    public float getStateProbability(int state) {
+        return (float) getDoubleStateProbability(state);
+    }
+
+    /**
+     * Gets the probability of the quantum system to collapse to the supplied state
+     * (eg. state '0010' → 2) in double precision.
+     * 
+     * @param state
+     *            single quantum state of the state vector.
+     * @return probability value (0.0 - 1.0).
+     */
+    public double getDoubleStateProbability(int state) {
+        if (!isValidState(state))
+            throw new IllegalArgumentException("Invalid state supplied");
+        return getProbabilityForState(state);
+    }
+
+    @Override
+    public int collapse() {
+        double randomNumber = random().nextDouble();
+        int collapsedState = 0;
+        double totalWeight = 0;
+        for (int state = 0; state < stateVector.size(); state++) {
+            totalWeight += getProbabilityForState(state);
+            if (randomNumber < totalWeight) {
+                collapsedState = state;
+                break;
+            }
+        }
+        return collapsedState;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        DoubleState state = (DoubleState) o;
+        return qubitCount() == state.qubitCount() && stateVector.equals(state.stateVector);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(stateVector, qubitCount());
+    }
+
+    @Override
+    public String toString() {
+        int noQubits = qubitCount();
+        if (noQubits > 6)
+            return "Not supported for states with more than 6 qubits.";
+        StringBuilder result = new StringBuilder();
+        for (int state = 0; state < stateVector.size(); state++) {
+            result.append(StateConverter.stateToBitstring(state, noQubits));
+            result.append(String.format("  %.2f", getProbabilityForState(state)));
+            result.append("  (" + stateVector.getElement(state) + ")\n");
+        }
+        return result.toString();
+    }
+
+    private double getProbabilityForState(int state) {
+        double real = stateVector.getRawRealData()[state];
+        double imag = stateVector.getRawImagData()[state];
+        return real * real + imag * imag;
+    }
+
+    private boolean isValidState(int state) {
+        return state >= 0 && state < stateVector.size();
+    }
+
+    private static int getQubitCount(DoubleComplexTensor vector) {
+        if (vector == null || vector.rank() != 1 || vector.size() < 2 || (vector.size() & (vector.size() - 1)) != 0)
+            throw new IllegalArgumentException("Invalid state vector supplied (NULL / not a vector / size).");
+        return Integer.numberOfTrailingZeros(vector.size());
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.circuit;
+
+import uk.ac.manchester.tornado.qsim.circuit.utils.StateConverter;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.math.OffHeapComplexVector;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Objects;
+
+/**
+ * Represents a state of a quantum system, in which the amplitudes are held
+ * outside of the Java heap (see OffHeapComplexVector) and indexed by long. This
+ * allows states beyond 30 qubits. The int based methods of State are supported
+ * as long as the state fits into their range (up to 30 qubits), the long based
+ * variants work for any state size. All probabilities are accumulated in
+ * double precision. The state vector can also be memory-mapped from a file
+ * (out-of-core state), which allows states larger than the memory.
+ */
+public class OffHeapState extends State {
+    /**
+     * Maximum number of qubits of an off-heap state.
+     */
+    public static final int MAX_QUBITS = 40;
+
+    private final OffHeapComplexVector stateVector;
+
+    /**
+     * Constructs an off-heap quantum state of 2^noQubits amplitudes with the
+     * default chunk size.
+     * 
+     * @param noQubits
+     *            number of qubits.
+     */
+    public OffHeapState(int noQubits) {
+        this(noQubits, OffHeapComplexVector.DEFAULT_CHUNK_BITS);
+    }
+
+    /**
+     * Constructs an off-heap quantum state of 2^noQubits amplitudes.
+     * 
+     * @param noQubits
+     *            number of qubits.
+     * @param chunkBits
+     *            number of bits of the chunk size of the off-heap state vector.
+     */
+    public OffHeapState(int noQubits, int chunkBits) {
+        this(noQubits, chunkBits, null);
+    }
+
+    /**
+     * Constructs a quantum state of 2^noQubits amplitudes memory-mapped from the
+     * supplied file (8 bytes per amplitude).
+     * 
+     * @param noQubits
+     *            number of qubits.
+     * @param chunkBits
+     *            number of bits of the chunk size of the state vector.
+     * @param stateFile
+     *            empty file channel opened for reading and writing.
+     */
+    public OffHeapState(int noQubits, int chunkBits, FileChannel stateFile) {
+        super(noQubits, false);
+        if (noQubits > MAX_QUBITS)
+            throw new IllegalArgumentException("Number of qubits in an off-heap state must not be greater than " + MAX_QUBITS + ".");
+        if (stateFile != null && fileSize(stateFile) != 0)
+            throw new IllegalArgumentException("State file must be empty.");
+        stateVector = new OffHeapComplexVector(1L << noQubits, chunkBits, stateFile);
+        stateVector.insertElement(new Complex(1, 0), 0);
+    }
+
+    /**
+     * Gets the full off-heap state vector.
+     * 
+     * @return full state vector.
+     */
+    public OffHeapComplexVector getOffHeapStateVector() {
+        return stateVector;
+    }
+
+    /**
+     * Gets a copy of the full state vector on the Java heap (up to 30 qubits).
+     * Changes to the returned vector are not reflected in this state.
+     * 
+     * @return full state vector (copy).
+     */
+    @Override
+    public ComplexTensor getStateVector() {
+        return stateVector.toComplexTensor();
+    }
+
+    @Override
+    public void setStateVector(ComplexTensor stateVector) {
+        if (stateVector == null || stateVector.rank() != 1 || stateVector.size() != this.stateVector.size())
+            throw new IllegalArgumentException("Invalid state vector supplied (NULL / not a vector / size).");
+        ComplexTensor previous = getStateVector();
+        this.stateVector.copyFrom(stateVector);
+        if (!isNormalized()) {
+            this.stateVector.copyFrom(previous);
+            throw new IllegalArgumentException("Supplied state vector is not normalized.");
+        }
+    }
+
+    /**
+     * Gets the size (number of amplitudes) of the state vector (up to 30 qubits).
+     * 
+     * @return state vector size.
+     */
+    @Override
+    public int size() {
+        if (qubitCount() > 30)
+            throw new UnsupportedOperationException("State of " + qubitCount() + " qubits does not fit into int size (use longSize).");
+        return (int) stateVector.size();
+    }
+
+    /**
+     * Gets the size (number of amplitudes) of the state vector.
+     * 
+     * @return state vector size.
+     */
+    public long longSize() {
+        return stateVector.size();
+    }
+
+    @Override
+    public boolean isNormalized() {
+        double sum = 0;
+        for (int chunk = 0; chunk < stateVector.chunkCount(); chunk++) {
+            FloatBuffer real = stateVector.getRealChunk(chunk);
+            FloatBuffer imag = stateVector.getImagChunk(chunk);
+            for (int i = 0; i < real.capacity(); i++)
+                sum += (double) real.get(i) * real.get(i) + (double) imag.get(i) * imag.get(i);
+        }
+        // Tolerate some precision loss
+        return sum > 0.99 && sum < 1.01;
+    }
+
+    @Override
+    public int getQubitCollapsed(int qubit) {
+        return random().nextDouble() < getQubitProbability(qubit) ? 1 : 0;
+    }
+
+    @Override
+    public float getQubitProbability(int qubit) {
+        if (qubit < 0 || qubit >= qubitCount())
+            throw new IllegalArgumentException("Invalid qubit supplied.");
+        double probability = 0;
+        for (int chunk = 0; chunk < stateVector.chunkCount(); chunk++) {
+            FloatBuffer real = stateVector.getRealChunk(chunk);
+            FloatBuffer imag = stateVector.getImagChunk(chunk);
+            long base = (long) chunk << stateVector.chunkBits();
+            for (int i = 0; i < real.capacity(); i++)
+                if (((base + i) & (1L << qubit)) != 0)
+                    probability += (double) real.get(i) * real.get(i) + (double) imag.get(i) * imag.get(i);
+        }
+        return (float) probability;
+    }
+
+    @Override
+    public Complex getStateAmplitude(int state) {
+        return getStateAmplitude((long) state);
+    }
+
+    /**
+     * Gets the aplitude (complex number) of the supplied state (eg. state '0010' →
+     * 2).
+     * 
+     * @param state
+     *            single quantum state of the state vector.
+     * @return complex amplitude of the state.
+     */
+    public Complex getStateAmplitude(long state) {
+        if (!isValidState(state))
+            throw new IllegalArgumentException("Invalid state supplied");
+        return stateVector.getElement(state);
+    }
+
+    @Override
+    public float getStateProbability(int state) {
+        return getStateProbability((long) state);
+    }
+
+    /**
+     * Gets the probability of the quantum system to collapse to the supplied state
+     * (eg. state '0010' → 2).
+     * 
+     * @param state
+     *            single quantum state of the state vector.
+     * @return probability value (0.0 - 1.0).
+     */
+    public float getStateProbability(long state) {
+        if (!isValidState(state))
+            throw new IllegalArgumentException("Invalid state supplied");
+        return (float) getProbabilityForState(state);
+    }
+
+    /**
+     * Gets the collapsed state of the whole quantum system (up to 31 qubits).
+     * 
+     * @return collapsed quantum state (eg. 2 → '0010');
+     */
+    @Override
+    public int collapse() {
+        if (qubitCount() > 31)
+            throw new UnsupportedOperationException("State of " + qubitCount() + " qubits does not fit into int (use collapseLong).");
+        return (int) collapseLong();
+    }
+
+    /**
+     * Gets the collapsed state of the whole quantum system.
+     * 
+     * @return collapsed quantum state (eg. 2 → '0010');
+     */
+    public long collapseLong() {
+        double randomNumber = random().nextDouble();
+        double totalWeight = 0;
+        for (int chunk = 0; chunk < stateVector.chunkCount(); chunk++) {
+            FloatBuffer real = stateVector.getRealChunk(chunk);
+            FloatBuffer imag = stateVector.getImagChunk(chunk);
+            for (int i = 0; i < real.capacity(); i++) {
+                totalWeight += (double) real.get(i) * real.get(i) + (double) imag.get(i) * imag.get(i);
+                if (randomNumber < totalWeight)
+                    return ((long) chunk << stateVector.chunkBits()) + i;
+            }
+        }
+        return 0;
+    }
+
+    private static long fileSize(FileChannel file) {
+        try {
+            return file.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Size of the state file could not be read.", e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        OffHeapState state = (OffHeapState) o;
+        return qubitCount() == state.qubitCount() && stateVector.equals(state.stateVector);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(stateVector, qubitCount());
+    }
+
+    @Override
+    public String toString() {
+        int noQubits = qubitCount();
+        if (noQubits > 6)
+            return "Not supported for states with more than 6 qubits.";
+        StringBuilder result = new StringBuilder();
+        for (int state = 0; state < stateVector.size(); state++) {
+            result.append(StateConverter.stateToBitstring(state, noQubits));
+            result.append(String.format("  %.2f", getProbabilityForState(state)));
+            result.append("  (" + stateVector.getElement(state) + ")\n");
+        }
+        return result.toString();
+    }
+
+    private double getProbabilityForState(long state) {
+        double real = stateVector.getReal(state);
+        double imag = stateVector.getImag(state);
+        return real * real + imag * imag;
+    }
+
+    private boolean isValidState(long state) {
+        return state >= 0 && state < stateVector.size();
+    }
+}
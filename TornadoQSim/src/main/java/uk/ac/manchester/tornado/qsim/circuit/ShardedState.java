@@ -0,0 +1,285 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.circuit;
+
+import uk.ac.manchester.tornado.qsim.circuit.utils.StateConverter;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+
+/**
+ * Represents a state of a quantum system, in which the state vector is split
+ * into 2^g shards of equal size (eg. one shard per worker thread or socket).
+ * The top g qubits select the shard and the shard s holds the amplitudes s *
+ * 2^shardQubits to (s + 1) * 2^shardQubits - 1 in separate arrays, which can be
+ * allocated (and zeroed) by the thread that owns the shard. All probabilities
+ * are accumulated in double precision.
+ */
+public class ShardedState extends State {
+    /**
+     * Maximum number of qubits of a sharded state.
+     */
+    public static final int MAX_QUBITS = 30;
+
+    private final float[][] shardReal;
+    private final float[][] shardImag;
+    private final int shardQubits;
+
+    /**
+     * Constructs a sharded quantum state of 2^noQubits amplitudes. All shards are
+     * allocated by the calling thread.
+     * 
+     * @param noQubits
+     *            number of qubits.
+     * @param shards
+     *            number of shards (power of two, not greater than 2^noQubits).
+     */
+    public ShardedState(int noQubits, int shards) {
+        this(noQubits, allocate(noQubits, shards), allocate(noQubits, shards));
+    }
+
+    /**
+     * Constructs a sharded quantum state of 2^noQubits amplitudes from the supplied
+     * zeroed shards, which are used directly (not copied). The state is
+     * initialized to the state '00...0'.
+     * 
+     * @param noQubits
+     *            number of qubits.
+     * @param shardReal
+     *            real parts of the shards (power of two number of zeroed arrays of
+     *            2^noQubits / shards amplitudes).
+     * @param shardImag
+     *            imaginary parts of the shards (same layout as the real parts).
+     */
+    public ShardedState(int noQubits, float[][] shardReal, float[][] shardImag) {
+        super(noQubits, false);
+        if (noQubits > MAX_QUBITS)
+            throw new IllegalArgumentException("Number of qubits in a sharded state must not be greater than " + MAX_QUBITS + ".");
+        if (!isValidShards(noQubits, shardReal) || !isValidShards(noQubits, shardImag) || shardReal.length != shardImag.length)
+            throw new IllegalArgumentException("Invalid shards supplied (NULL / number of shards / size).");
+        this.shardReal = shardReal;
+        this.shardImag = shardImag;
+        shardQubits = noQubits - Integer.numberOfTrailingZeros(shardReal.length);
+        shardReal[0][0] = 1;
+    }
+
+    /**
+     * Gets the number of shards.
+     * 
+     * @return number of shards.
+     */
+    public int shardCount() {
+        return shardReal.length;
+    }
+
+    /**
+     * Gets the number of qubits within a shard (the shard holds 2^shardQubits
+     * amplitudes).
+     * 
+     * @return number of qubits of a shard.
+     */
+    public int shardQubits() {
+        return shardQubits;
+    }
+
+    /**
+     * Gets the real parts of the supplied shard (changes are reflected in this
+     * state).
+     * 
+     * @param shard
+     *            index of the shard.
+     * @return real parts of the shard amplitudes.
+     */
+    public float[] getShardReal(int shard) {
+        return shardReal[shard];
+    }
+
+    /**
+     * Gets the imaginary parts of the supplied shard (changes are reflected in this
+     * state).
+     * 
+     * @param shard
+     *            index of the shard.
+     * @return imaginary parts of the shard amplitudes.
+     */
+    public float[] getShardImag(int shard) {
+        return shardImag[shard];
+    }
+
+    /**
+     * Gets a copy of the full state vector. Changes to the returned vector are not
+     * reflected in this state.
+     * 
+     * @return full state vector (copy).
+     */
+    @Override
+    public ComplexTensor getStateVector() {
+        ComplexTensor stateVector = new ComplexTensor(size());
+        int shardSize = 1 << shardQubits;
+        for (int shard = 0; shard < shardCount(); shard++) {
+            System.arraycopy(shardReal[shard], 0, stateVector.getRawRealData(), shard * shardSize, shardSize);
+            System.arraycopy(shardImag[shard], 0, stateVector.getRawImagData(), shard * shardSize, shardSize);
+        }
+        return stateVector;
+    }
+
+    @Override
+    public void setStateVector(ComplexTensor stateVector) {
+        if (stateVector == null || stateVector.rank() != 1 || stateVector.size() != size())
+            throw new IllegalArgumentException("Invalid state vector supplied (NULL / not a vector / size).");
+        ComplexTensor previous = getStateVector();
+        copyFrom(stateVector);
+        if (!isNormalized()) {
+            copyFrom(previous);
+            throw new IllegalArgumentException("Supplied state vector is not normalized.");
+        }
+    }
+
+    @Override
+    public int size() {
+        return 1 << qubitCount();
+    }
+
+    @Override
+    public boolean isNormalized() {
+        double sum = 0;
+        for (int state = 0; state < size(); state++)
+            sum += getProbabilityForState(state);
+        // Tolerate some precision loss
+        return sum > 0.99 && sum < 1.01;
+    }
+
+    @Override
+    public int getQubitCollapsed(int qubit) {
+        return random().nextDouble() < getQubitProbability(qubit) ? 1 : 0;
+    }
+
+    @Override
+    public float getQubitProbability(int qubit) {
+        if (qubit < 0 || qubit >= qubitCount())
+            throw new IllegalArgumentException("Invalid qubit supplied.");
+        double probability = 0;
+        for (int state = 0; state < size(); state++)
+            if ((state & (1 << qubit)) != 0)
+                probability += getProbabilityForState(state);
+        return (float) probability;
+    }
+
+    @Override
+    public Complex getStateAmplitude(int state) {
+        if (!isValidState(state))
+            throw new IllegalArgumentException("Invalid state supplied");
+        return new Complex(real(state), imag(state));
+    }
+
+    @Override
+    public float getStateProbability(int state) {
+        if (!isValidState(state))
+            throw new IllegalArgumentException("Invalid state supplied");
+        return (float) getProbabilityForState(state);
+    }
+
+    @Override
+    public int collapse() {
+        double randomNumber = random().nextDouble();
+        double totalWeight = 0;
+        for (int state = 0; state < size(); state++) {
+            totalWeight += getProbabilityForState(state);
+            if (randomNumber < totalWeight)
+                return state;
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        ShardedState state = (ShardedState) o;
+        // States are equal regardless of the number of shards
+        return qubitCount() == state.qubitCount() && getStateVector().equals(state.getStateVector());
+    }
+
+    @Override
+    public int hashCode() {
+        return getStateVector().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        int noQubits = qubitCount();
+        if (noQubits > 6)
+            return "Not supported for states with more than 6 qubits.";
+        StringBuilder result = new StringBuilder();
+        for (int state = 0; state < size(); state++) {
+            result.append(StateConverter.stateToBitstring(state, noQubits));
+            result.append(String.format("  %.2f", getProbabilityForState(state)));
+            result.append("  (" + getStateAmplitude(state) + ")\n");
+        }
+        return result.toString();
+    }
+
+    private void copyFrom(ComplexTensor stateVector) {
+        int shardSize = 1 << shardQubits;
+        for (int shard = 0; shard < shardCount(); shard++) {
+            System.arraycopy(stateVector.getRawRealData(), shard * shardSize, shardReal[shard], 0, shardSize);
+            System.arraycopy(stateVector.getRawImagData(), shard * shardSize, shardImag[shard], 0, shardSize);
+        }
+    }
+
+    private float real(int state) {
+        return shardReal[state >>> shardQubits][state & ((1 << shardQubits) - 1)];
+    }
+
+    private float imag(int state) {
+        return shardImag[state >>> shardQubits][state & ((1 << shardQubits) - 1)];
+    }
+
+    private double getProbabilityForState(int state) {
+        double real = real(state);
+        double imag = imag(state);
+        return real * real + imag * imag;
+    }
+
+    private boolean isValidState(int state) {
+        return state >= 0 && state < size();
+    }
+
+    private static float[][] allocate(int noQubits, int shards) {
+        if (noQubits < 1 || noQubits > MAX_QUBITS || shards < 1 || Integer.bitCount(shards) != 1 || shards > 1 << noQubits)
+            throw new IllegalArgumentException("Invalid number of qubits or shards supplied.");
+        float[][] shardData = new float[shards][];
+        for (int shard = 0; shard < shards; shard++)
+            shardData[shard] = new float[(1 << noQubits) / shards];
+        return shardData;
+    }
+
+    private static boolean isValidShards(int noQubits, float[][] shardData) {
+        if (shardData == null || shardData.length == 0 || Integer.bitCount(shardData.length) != 1 || shardData.length > 1 << noQubits)
+            return false;
+        for (float[] shard : shardData)
+            if (shard == null || shard.length != (1 << noQubits) / shardData.length)
+                return false;
+        return true;
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.circuit;
+
+import uk.ac.manchester.tornado.qsim.circuit.utils.StateConverter;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.math.SparseComplexVector;
+
+/**
+ * Represents a state of a quantum system, in which only the non-zero amplitudes
+ * are stored (see SparseComplexVector) and indexed by long. The memory of the
+ * state depends on the number of non-zero amplitudes only, so states of
+ * circuits with few non-zero amplitudes (eg. GHZ states) are possible for up to
+ * 62 qubits. The int based methods of State are supported as long as the state
+ * fits into their range (up to 30 qubits), the long based variants work for
+ * any state size. All probabilities are accumulated in double precision.
+ */
+public class SparseState extends State {
+    /**
+     * Maximum number of qubits of a sparse state.
+     */
+    public static final int MAX_QUBITS = 62;
+
+    private final SparseComplexVector stateVector;
+
+    /**
+     * Constructs a sparse quantum state of 2^noQubits amplitudes in the state
+     * '00...0'.
+     * 
+     * @param noQubits
+     *            number of qubits.
+     */
+    public SparseState(int noQubits) {
+        this(noQubits, initialStateVector(noQubits));
+    }
+
+    /**
+     * Constructs a sparse quantum state based on the supplied sparse state vector
+     * (must be normalized), which is used directly (not copied).
+     * 
+     * @param noQubits
+     *            number of qubits.
+     * @param stateVector
+     *            normalized sparse state vector of 2^noQubits amplitudes.
+     */
+    public SparseState(int noQubits, SparseComplexVector stateVector) {
+        super(noQubits, false);
+        if (noQubits > MAX_QUBITS)
+            throw new IllegalArgumentException("Number of qubits in a sparse state must not be greater than " + MAX_QUBITS + ".");
+        if (stateVector == null || stateVector.size() != 1L << noQubits)
+            throw new IllegalArgumentException("Invalid state vector supplied (NULL / size).");
+        this.stateVector = stateVector;
+        if (!isNormalized())
+            throw new IllegalArgumentException("Supplied state vector is not normalized.");
+    }
+
+    /**
+     * Gets the number of stored (non-zero) amplitudes.
+     * 
+     * @return number of stored amplitudes.
+     */
+    public int nonZeroCount() {
+        return stateVector.count();
+    }
+
+    /**
+     * Gets the sparse state vector.
+     * 
+     * @return sparse state vector.
+     */
+    public SparseComplexVector getSparseStateVector() {
+        return stateVector;
+    }
+
+    /**
+     * Gets a dense copy of the full state vector (up to 30 qubits). Changes to the
+     * returned vector are not reflected in this state.
+     * 
+     * @return full state vector (copy).
+     */
+    @Override
+    public ComplexTensor getStateVector() {
+        return stateVector.toComplexTensor();
+    }
+
+    @Override
+    public void setStateVector(ComplexTensor stateVector) {
+        if (stateVector == null || stateVector.rank() != 1 || stateVector.size() != this.stateVector.size())
+            throw new IllegalArgumentException("Invalid state vector supplied (NULL / not a vector / size).");
+        ComplexTensor previous = getStateVector();
+        this.stateVector.copyFrom(stateVector);
+        if (!isNormalized()) {
+            this.stateVector.copyFrom(previous);
+            throw new IllegalArgumentException("Supplied state vector is not normalized.");
+        }
+    }
+
+    /**
+     * Gets the size (number of amplitudes) of the state vector (up to 30 qubits).
+     * 
+     * @return state vector size.
+     */
+    @Override
+    public int size() {
+        if (qubitCount() > 30)
+            throw new UnsupportedOperationException("State of " + qubitCount() + " qubits does not fit into int size (use longSize).");
+        return (int) stateVector.size();
+    }
+
+    /**
+     * Gets the size (number of amplitudes) of the state vector.
+     * 
+     * @return state vector size.
+     */
+    public long longSize() {
+        return stateVector.size();
+    }
+
+    @Override
+    public boolean isNormalized() {
+        double sum = 0;
+        for (int slot = 0; slot < stateVector.capacity(); slot++)
+            if (stateVector.indexAt(slot) != SparseComplexVector.EMPTY)
+                sum += getProbabilityForSlot(slot);
+        // Tolerate some precision loss
+        return sum > 0.99 && sum < 1.01;
+    }
+
+    @Override
+    public int getQubitCollapsed(int qubit) {
+        return random().nextDouble() < getQubitProbability(qubit) ? 1 : 0;
+    }
+
+    @Override
+    public float getQubitProbability(int qubit) {
+        if (qubit < 0 || qubit >= qubitCount())
+            throw new IllegalArgumentException("Invalid qubit supplied.");
+        double probability = 0;
+        for (int slot = 0; slot < stateVector.capacity(); slot++) {
+            long index = stateVector.indexAt(slot);
+            if (index != SparseComplexVector.EMPTY && (index & (1L << qubit)) != 0)
+                probability += getProbabilityForSlot(slot);
+        }
+        return (float) probability;
+    }
+
+    @Override
+    public Complex getStateAmplitude(int state) {
+        return getStateAmplitude((long) state);
+    }
+
+    /**
+     * Gets the aplitude (complex number) of the supplied state (eg. state '0010' →
+     * 2).
+     * 
+     * @param state
+     *            single quantum state of the state vector.
+     * @return complex amplitude of the state.
+     */
+    public Complex getStateAmplitude(long state) {
+        if (!isValidState(state))
+            throw new IllegalArgumentException("Invalid state supplied");
+        return stateVector.getElement(state);
+    }
+
+    @Override
+    public float getStateProbability(int state) {
+        return getStateProbability((long) state);
+    }
+
+    /**
+     * Gets the probability of the quantum system to collapse to the supplied state
+     * (eg. state '0010' → 2).
+     * 
+     * @param state
+     *            single quantum state of the state vector.
+     * @return probability value (0.0 - 1.0).
+     */
+    public float getStateProbability(long state) {
+        if (!isValidState(state))
+            throw new IllegalArgumentException("Invalid state supplied");
+        double real = stateVector.getReal(state);
+        double imag = stateVector.getImag(state);
+        return (float) (real * real + imag * imag);
+    }
+
+    /**
+     * Gets the collapsed state of the whole quantum system (up to 31 qubits).
+     * 
+     * @return collapsed quantum state (eg. 2 → '0010');
+     */
+    @Override
+    public int collapse() {
+        if (qubitCount() > 31)
+            throw new UnsupportedOperationException("State of " + qubitCount() + " qubits does not fit into int (use collapseLong).");
+        return (int) collapseLong();
+    }
+
+    /**
+     * Gets the collapsed state of the whole quantum system.
+     * 
+     * @return collapsed quantum state (eg. 2 → '0010');
+     */
+    public long collapseLong() {
+        double randomNumber = random().nextDouble();
+        double totalWeight = 0;
+        long lastState = 0;
+        for (int slot = 0; slot < stateVector.capacity(); slot++)
+            if (stateVector.indexAt(slot) != SparseComplexVector.EMPTY) {
+                lastState = stateVector.indexAt(slot);
+                totalWeight += getProbabilityForSlot(slot);
+                if (randomNumber < totalWeight)
+                    return lastState;
+            }
+        return lastState;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        SparseState state = (SparseState) o;
+        return qubitCount() == state.qubitCount() && stateVector.equals(state.stateVector);
+    }
+
+    @Override
+    public int hashCode() {
+        return stateVector.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        int noQubits = qubitCount();
+        if (noQubits > 6)
+            return "Not supported for states with more than 6 qubits.";
+        StringBuilder result = new StringBuilder();
+        for (int state = 0; state < stateVector.size(); state++) {
+            result.append(StateConverter.stateToBitstring(state, noQubits));
+            result.append(String.format("  %.2f", getStateProbability(state)));
+            result.append("  (" + stateVector.getElement(state) + ")\n");
+        }
+        return result.toString();
+    }
+
+    private double getProbabilityForSlot(int slot) {
+        double real = stateVector.realAt(slot);
+        double imag = stateVector.imagAt(slot);
+        return real * real + imag * imag;
+    }
+
+    private boolean isValidState(long state) {
+        return state >= 0 && state < stateVector.size();
+    }
+
+    private static SparseComplexVector initialStateVector(int noQubits) {
+        if (noQubits < 1 || noQubits > MAX_QUBITS)
+            throw new IllegalArgumentException("Number of qubits in a sparse state must be between 1 and " + MAX_QUBITS + ".");
+        SparseComplexVector stateVector = new SparseComplexVector(1L << noQubits);
+        stateVector.insertElement(new Complex(1, 0), 0);
+        return stateVector;
+    }
+}
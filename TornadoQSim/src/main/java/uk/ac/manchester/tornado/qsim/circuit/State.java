@@ -33,7 +33,9 @@ import java.util.Random;
  * of qubits). The state can be queried to retrive information for particular
  * qubit, particular state or to obtain the whole state vector. Information
  * about the collapsed state of the whole system or single qubit can also be
- * obtained.
+ * obtained. The amplitudes are held in single precision on the Java heap,
+ * subclasses can hold them in a different representation (eg. DoubleState in
+ * double precision).
  * 
  * @author Ales Kubicek
  */
@@ -49,11 +51,28 @@ public class State {
      *            number of qubits.
      */
     public State(int noQubits) {
+        this(noQubits, true);
+    }
+
+    /**
+     * Constructs a quantum state of 2^noQubits amplitudes. States that hold the
+     * amplitudes in a different representation (eg. double precision) do not
+     * allocate the single precision state vector and must override all methods
+     * accessing the amplitudes.
+     * 
+     * @param noQubits
+     *            number of qubits.
+     * @param allocateStateVector
+     *            flag to allocate the single precision state vector.
+     */
+    protected State(int noQubits, boolean allocateStateVector) {
         if (noQubits < 1)
             throw new IllegalArgumentException("Number of qubits in a state must be greater than 0.");
         this.noQubits = noQubits;
-        stateVector = new ComplexTensor((int) Math.pow(2, noQubits));
-        stateVector.insertElement(new Complex(1, 0), 0);
+        if (allocateStateVector) {
+            stateVector = new ComplexTensor((int) Math.pow(2, noQubits));
+            stateVector.insertElement(new Complex(1, 0), 0);
+        }
         random = new Random();
     }
 
@@ -86,7 +105,27 @@ public class State {
     }
 
     /**
-     * Gets the full state vector.
+     * Gets the random generator used for collapsing states / qubits.
+     * 
+     * @return random generator.
+     */
+    protected Random random() {
+        return random;
+    }
+
+    /**
+     * Gets the number of qubits of the state.
+     * 
+     * @return number of qubits.
+     */
+    public int qubitCount() {
+        return noQubits;
+    }
+
+    /**
+     * Gets the full state vector. Subclasses that hold the amplitudes in a
+     * different representation return a single precision copy, changes to which
+     * are not reflected in the state.
      * 
      * @return full state vector.
      */
@@ -117,11 +156,12 @@ public class State {
      * @return true, if the state vector is normalized.
      */
     public boolean isNormalized() {
-        float sum = 0;
+        // Accumulated in double precision (float sum stalls for large states)
+        double sum = 0;
         for (int i = 0; i < stateVector.size(); i++)
             sum += getProbabilityForState(i);
         // Tolerate some precision loss
-        return sum > 0.99f && sum < 1.01f;
+        return sum > 0.99 && sum < 1.01;
     }
 
     /**
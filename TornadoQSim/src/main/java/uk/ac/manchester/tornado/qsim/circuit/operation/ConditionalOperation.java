@@ -0,0 +1,143 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.circuit.operation;
+
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.OperationType;
+
+import java.util.Objects;
+
+/**
+ * Represents a unitary operation that is applied only if the classical bit of
+ * the condition qubit (the outcome of its last measurement, 0 before the first
+ * measurement) has the supplied value. The condition qubit is included in the
+ * involved qubits, so the operation is never placed before the measurement it
+ * depends on.
+ */
+public class ConditionalOperation implements Operation {
+    private final Operation operation;
+    private final int conditionQubit;
+    private final int value;
+
+    /**
+     * Constructs a classically conditioned operation.
+     * 
+     * @param operation
+     *            unitary operation (gate, control gate or function) to be
+     *            conditioned.
+     * @param conditionQubit
+     *            qubit whose measurement outcome conditions the operation.
+     * @param value
+     *            measurement outcome (0 or 1) that applies the operation.
+     */
+    public ConditionalOperation(Operation operation, int conditionQubit, int value) {
+        if (operation == null)
+            throw new IllegalArgumentException("Invalid operation supplied (NULL).");
+        if (operation.operationType() == OperationType.Instruction || operation.operationType() == OperationType.Conditional)
+            throw new IllegalArgumentException("Only unitary operations can be classically conditioned.");
+        if (conditionQubit < 0)
+            throw new IllegalArgumentException("Invalid condition qubit supplied.");
+        if (value != 0 && value != 1)
+            throw new IllegalArgumentException("Condition value must be 0 or 1.");
+        this.operation = operation;
+        this.conditionQubit = conditionQubit;
+        this.value = value;
+    }
+
+    /**
+     * Gets the conditioned operation.
+     * 
+     * @return unitary operation applied if the condition holds.
+     */
+    public Operation operation() {
+        return operation;
+    }
+
+    /**
+     * Gets the condition qubit.
+     * 
+     * @return qubit whose measurement outcome conditions the operation.
+     */
+    public int conditionQubit() {
+        return conditionQubit;
+    }
+
+    /**
+     * Gets the measurement outcome that applies the operation.
+     * 
+     * @return condition value (0 or 1).
+     */
+    public int value() {
+        return value;
+    }
+
+    /**
+     * Checks whether the condition holds for the supplied classical bits.
+     * 
+     * @param classicalBits
+     *            outcomes of the last measurement of every qubit.
+     * @return true if the operation should be applied.
+     */
+    public boolean isSatisfied(int[] classicalBits) {
+        return classicalBits[conditionQubit] == value;
+    }
+
+    @Override
+    public int[] involvedQubits() {
+        int[] qubits = new int[size()];
+        int fromQubit = Math.min(conditionQubit, operation.involvedQubits()[0]);
+        for (int i = 0; i < qubits.length; i++)
+            qubits[i] = fromQubit + i;
+        return qubits;
+    }
+
+    /**
+     * {@inheritdoc} This includes the qubits between the condition qubit and the
+     * qubits of the conditioned operation.
+     */
+    @Override
+    public int size() {
+        int[] qubits = operation.involvedQubits();
+        int fromQubit = Math.min(conditionQubit, qubits[0]);
+        int toQubit = Math.max(conditionQubit, qubits[qubits.length - 1]);
+        return toQubit - fromQubit + 1;
+    }
+
+    @Override
+    public OperationType operationType() {
+        return OperationType.Conditional;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        ConditionalOperation that = (ConditionalOperation) o;
+        return conditionQubit == that.conditionQubit && value == that.value && operation.equals(that.operation);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(operation, conditionQubit, value);
+    }
+}
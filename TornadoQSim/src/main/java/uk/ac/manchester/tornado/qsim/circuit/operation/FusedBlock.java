@@ -0,0 +1,172 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.circuit.operation;
+
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.OperationType;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.math.DoubleComplexTensor;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Represents a dense quantum operation that is a product of multiple
+ * neighbouring gates which together act on a small set of (not necessarily
+ * adjacent) qubits. The operation is defined directly by its 2^k x 2^k unitary
+ * matrix, where the bit j of the matrix row / column index corresponds to the
+ * j-th target qubit (target qubits are in ascending order). Fused blocks are
+ * produced by the simulators (gate fusion) and are not meant to be added to a
+ * circuit. A block fused in double precision keeps its double precision matrix.
+ */
+public class FusedBlock implements Operation {
+    private final ComplexTensor data;
+    private final DoubleComplexTensor doubleData;
+    private final int[] targets;
+    private final int fusedCount;
+
+    /**
+     * Constructs a fused block operation.
+     * 
+     * @param data
+     *            2^k x 2^k unitary matrix of the fused block.
+     * @param targets
+     *            k target qubits in ascending order.
+     * @param fusedCount
+     *            number of gates that were fused into this block.
+     */
+    public FusedBlock(ComplexTensor data, int[] targets, int fusedCount) {
+        this(data, null, targets, fusedCount);
+    }
+
+    /**
+     * Constructs a fused block operation defined in double precision.
+     * 
+     * @param data
+     *            2^k x 2^k unitary matrix of the fused block in double precision.
+     * @param targets
+     *            k target qubits in ascending order.
+     * @param fusedCount
+     *            number of gates that were fused into this block.
+     */
+    public FusedBlock(DoubleComplexTensor data, int[] targets, int fusedCount) {
+        this(data == null ? null : data.toComplexTensor(), data, targets, fusedCount);
+    }
+
+    private FusedBlock(ComplexTensor data, DoubleComplexTensor doubleData, int[] targets, int fusedCount) {
+        if (targets == null || targets.length < 1 || !isAscending(targets))
+            throw new IllegalArgumentException("Invalid target qubits supplied (NULL / empty / not ascending).");
+        int dimension = 1 << targets.length;
+        if (data == null || data.rank() != 2 || data.shape()[0] != dimension || data.shape()[1] != dimension)
+            throw new IllegalArgumentException("Invalid fused block data supplied (NULL / size does not fit the target qubits).");
+        if (fusedCount < 1)
+            throw new IllegalArgumentException("Fused block must be composed of at least one gate.");
+        this.data = data;
+        this.doubleData = doubleData;
+        this.targets = Arrays.copyOf(targets, targets.length);
+        this.fusedCount = fusedCount;
+    }
+
+    /**
+     * Gets the 2^k x 2^k unitary matrix of the fused block.
+     * 
+     * @return unitary matrix of the fused block.
+     */
+    public ComplexTensor data() {
+        return data;
+    }
+
+    /**
+     * Gets the 2^k x 2^k unitary matrix of the fused block in double precision
+     * (widened from the single precision matrix if the block was fused in single
+     * precision).
+     * 
+     * @return double precision unitary matrix of the fused block.
+     */
+    public DoubleComplexTensor doubleData() {
+        return doubleData != null ? doubleData : new DoubleComplexTensor(data);
+    }
+
+    /**
+     * Gets the target qubits (ascending order).
+     * 
+     * @return target qubits.
+     */
+    public int[] targetQubits() {
+        return Arrays.copyOf(targets, targets.length);
+    }
+
+    /**
+     * Gets the number of gates that were fused into this block.
+     * 
+     * @return number of fused gates.
+     */
+    public int fusedCount() {
+        return fusedCount;
+    }
+
+    @Override
+    public int[] involvedQubits() {
+        int[] qubits = new int[size()];
+        for (int i = 0; i < qubits.length; i++)
+            qubits[i] = targets[0] + i;
+        return qubits;
+    }
+
+    /**
+     * {@inheritdoc} This includes the qubits between the target qubits.
+     */
+    @Override
+    public int size() {
+        return targets[targets.length - 1] - targets[0] + 1;
+    }
+
+    @Override
+    public OperationType operationType() {
+        return OperationType.FusedBlock;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        FusedBlock that = (FusedBlock) o;
+        return fusedCount == that.fusedCount && Arrays.equals(targets, that.targets) && data.equals(that.data) && Objects.equals(doubleData, that.doubleData);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(data, fusedCount);
+        result = 31 * result + Arrays.hashCode(targets);
+        return result;
+    }
+
+    private boolean isAscending(int[] qubits) {
+        if (qubits[0] < 0)
+            return false;
+        for (int i = 1; i < qubits.length; i++)
+            if (qubits[i] <= qubits[i - 1])
+                return false;
+        return true;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.circuit.operation;
+
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.OperationType;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.math.DoubleComplexTensor;
+
+import java.util.Objects;
+
+/**
+ * Represents a single qubit quantum gate that is a product of multiple
+ * consecutive single qubit gates acting on the same target qubit. The gate is
+ * defined directly by its 2x2 unitary matrix. Fused gates are produced by the
+ * simulators (gate fusion) and are not meant to be added to a circuit. A gate
+ * fused in double precision keeps its double precision matrix.
+ */
+public class FusedGate implements Operation {
+    private final ComplexTensor data;
+    private final DoubleComplexTensor doubleData;
+    private final int target;
+    private final int fusedCount;
+
+    /**
+     * Constructs a fused quantum gate.
+     * 
+     * @param data
+     *            2x2 unitary matrix of the fused gate.
+     * @param target
+     *            qubit to which the fused gate applies.
+     * @param fusedCount
+     *            number of gates that were fused into this gate.
+     */
+    public FusedGate(ComplexTensor data, int target, int fusedCount) {
+        this(data, null, target, fusedCount);
+    }
+
+    /**
+     * Constructs a fused quantum gate defined in double precision.
+     * 
+     * @param data
+     *            2x2 unitary matrix of the fused gate in double precision.
+     * @param target
+     *            qubit to which the fused gate applies.
+     * @param fusedCount
+     *            number of gates that were fused into this gate.
+     */
+    public FusedGate(DoubleComplexTensor data, int target, int fusedCount) {
+        this(data == null ? null : data.toComplexTensor(), data, target, fusedCount);
+    }
+
+    private FusedGate(ComplexTensor data, DoubleComplexTensor doubleData, int target, int fusedCount) {
+        if (data == null || data.rank() != 2 || data.shape()[0] != 2 || data.shape()[1] != 2)
+            throw new IllegalArgumentException("Invalid fused gate data supplied (NULL / not a 2x2 matrix).");
+        if (target < 0)
+            throw new IllegalArgumentException("Invalid target qubit supplied.");
+        if (fusedCount < 1)
+            throw new IllegalArgumentException("Fused gate must be composed of at least one gate.");
+        this.data = data;
+        this.doubleData = doubleData;
+        this.target = target;
+        this.fusedCount = fusedCount;
+    }
+
+    /**
+     * Gets the 2x2 unitary matrix of the fused gate.
+     * 
+     * @return unitary matrix of the fused gate.
+     */
+    public ComplexTensor data() {
+        return data;
+    }
+
+    /**
+     * Gets the 2x2 unitary matrix of the fused gate in double precision (widened
+     * from the single precision matrix if the gate was fused in single
+     * precision).
+     * 
+     * @return double precision unitary matrix of the fused gate.
+     */
+    public DoubleComplexTensor doubleData() {
+        return doubleData != null ? doubleData : new DoubleComplexTensor(data);
+    }
+
+    /**
+     * Gets the target qubit.
+     * 
+     * @return target qubit.
+     */
+    public int[] targetQubit() {
+        return new int[] { target };
+    }
+
+    /**
+     * Gets the number of gates that were fused into this gate.
+     * 
+     * @return number of fused gates.
+     */
+    public int fusedCount() {
+        return fusedCount;
+    }
+
+    @Override
+    public int[] involvedQubits() {
+        return new int[] { target };
+    }
+
+    @Override
+    public int size() {
+        return 1;
+    }
+
+    @Override
+    public OperationType operationType() {
+        return OperationType.FusedGate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        FusedGate that = (FusedGate) o;
+        return target == that.target && fusedCount == that.fusedCount && data.equals(that.data) && Objects.equals(doubleData, that.doubleData);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(data, target, fusedCount);
+    }
+}
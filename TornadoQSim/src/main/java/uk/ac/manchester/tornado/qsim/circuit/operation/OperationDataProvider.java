@@ -24,6 +24,7 @@ package uk.ac.manchester.tornado.qsim.circuit.operation;
 import uk.ac.manchester.tornado.qsim.circuit.operation.enums.GateType;
 import uk.ac.manchester.tornado.qsim.math.Complex;
 import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.math.DoubleComplexTensor;
 
 import java.util.HashMap;
 
@@ -35,15 +36,21 @@ import java.util.HashMap;
  */
 public class OperationDataProvider {
     private final HashMap<String, ComplexTensor> customFunctionData;
+    private final HashMap<String, Integer> customFunctionVersions;
     private final HashMap<GateType, ComplexTensor> gateData;
     private final HashMap<Float, ComplexTensor> phaseGateData;
+    private final HashMap<GateType, DoubleComplexTensor> doubleGateData;
+    private final HashMap<Float, DoubleComplexTensor> doublePhaseGateData;
 
     private static OperationDataProvider instance;
 
     private OperationDataProvider() {
         customFunctionData = new HashMap<>();
+        customFunctionVersions = new HashMap<>();
         gateData = new HashMap<>();
         phaseGateData = new HashMap<>();
+        doubleGateData = new HashMap<>();
+        doublePhaseGateData = new HashMap<>();
     }
 
     /**
@@ -72,6 +79,7 @@ public class OperationDataProvider {
         if (!isFunctionDataValid(data))
             throw new IllegalArgumentException("Invalid funciton data supplied (check definition, rank, size).");
         customFunctionData.put(functionName, data);
+        customFunctionVersions.merge(functionName, 1, Integer::sum);
     }
 
     /**
@@ -88,6 +96,23 @@ public class OperationDataProvider {
         return customFunctionData.containsKey(functionName);
     }
 
+    /**
+     * Gets the version of the data registered for the custom function, which is
+     * incremented every time the data are registered (e.g. to invalidate data
+     * captured from an earlier registration).
+     * 
+     * @param functionName
+     *            name of the custom quantum function.
+     * @return version of the function data.
+     */
+    public int getDataVersion(String functionName) {
+        if (!isFunctionNameValid(functionName))
+            throw new IllegalArgumentException("Invalid function name supplied.");
+        if (!customFunctionVersions.containsKey(functionName))
+            throw new IllegalArgumentException("Data for this custom function were not registered.");
+        return customFunctionVersions.get(functionName);
+    }
+
     /**
      * Gets complex tensor data for the registered custom function.
      * 
@@ -122,6 +147,84 @@ public class OperationDataProvider {
         }
     }
 
+    /**
+     * Gets double precision complex tensor data for the registered custom function
+     * (registered single precision data widened to double precision).
+     * 
+     * @param functionName
+     *            name of the custom quantum function.
+     * @return function data.
+     */
+    public DoubleComplexTensor getDoubleData(String functionName) {
+        return new DoubleComplexTensor(getData(functionName));
+    }
+
+    /**
+     * Gets double precision complex tensor data for the standard quantum logic
+     * gate (the gate coefficients are computed in double precision).
+     * 
+     * @param gate
+     *            standard quantum logic gate.
+     * @return gate data.
+     */
+    public DoubleComplexTensor getDoubleData(Gate gate) {
+        if (gate.type() == GateType.R) {
+            if (doublePhaseGateData.containsKey(gate.phi()))
+                return doublePhaseGateData.get(gate.phi());
+            return createDoubleDataEntry(gate.type(), gate.phi());
+        } else {
+            if (doubleGateData.containsKey(gate.type()))
+                return doubleGateData.get(gate.type());
+            return createDoubleDataEntry(gate.type(), 0);
+        }
+    }
+
+    private DoubleComplexTensor createDoubleDataEntry(GateType type, float phi) {
+        DoubleComplexTensor dataEntry = new DoubleComplexTensor(2, 2);
+        switch (type) {
+            case X:
+                dataEntry.insertElement(1, 0, 0, 1);
+                dataEntry.insertElement(1, 0, 1, 0);
+                break;
+            case Y:
+                dataEntry.insertElement(0, -1, 0, 1);
+                dataEntry.insertElement(0, 1, 1, 0);
+                break;
+            case Z:
+                dataEntry.insertElement(1, 0, 0, 0);
+                dataEntry.insertElement(-1, 0, 1, 1);
+                break;
+            case H:
+                dataEntry.insertElement(1 / Math.sqrt(2), 0, 0, 0);
+                dataEntry.insertElement(1 / Math.sqrt(2), 0, 0, 1);
+                dataEntry.insertElement(1 / Math.sqrt(2), 0, 1, 0);
+                dataEntry.insertElement(-1 / Math.sqrt(2), 0, 1, 1);
+                break;
+            case S:
+                dataEntry.insertElement(1, 0, 0, 0);
+                dataEntry.insertElement(0, 1, 1, 1);
+                break;
+            case T:
+                dataEntry.insertElement(1, 0, 0, 0);
+                dataEntry.insertElement(1 / Math.sqrt(2), 1 / Math.sqrt(2), 1, 1);
+                break;
+            case R:
+                dataEntry.insertElement(1, 0, 0, 0);
+                dataEntry.insertElement(Math.cos(phi), Math.sin(phi), 1, 1);
+                break;
+            case I:
+                dataEntry.insertElement(1, 0, 0, 0);
+                dataEntry.insertElement(1, 0, 1, 1);
+                break;
+
+        }
+        if (type == GateType.R)
+            doublePhaseGateData.put(phi, dataEntry);
+        else
+            doubleGateData.put(type, dataEntry);
+        return dataEntry;
+    }
+
     private ComplexTensor createDataEntry(GateType type, float phi) {
         Complex phaseShift;
         ComplexTensor dataEntry = new ComplexTensor(2, 2);
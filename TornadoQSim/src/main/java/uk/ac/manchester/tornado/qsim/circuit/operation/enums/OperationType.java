@@ -28,5 +28,5 @@ package uk.ac.manchester.tornado.qsim.circuit.operation.enums;
  *      details.
  */
 public enum OperationType {
-    Gate, ControlGate, Function, CustomFunction, Instruction,
+    Gate, ControlGate, Function, CustomFunction, Instruction, FusedGate, FusedBlock, Conditional,
 }
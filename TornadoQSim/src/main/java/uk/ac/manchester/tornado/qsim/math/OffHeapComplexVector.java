@@ -0,0 +1,313 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.math;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Represents a complex vector with a long size, in which the real and the
+ * imaginary parts are held outside of the Java heap. Each part is split into
+ * chunks of 2^chunkBits floats (direct buffers), so the vector is not limited
+ * by the maximum array / buffer size and does not add to the garbage collected
+ * heap. The off-heap memory is released when the vector becomes unreachable.
+ * Note that the amount of direct memory is limited by the JVM option
+ * -XX:MaxDirectMemorySize (the maximum heap size by default).
+ * 
+ * Alternatively, the chunks can be mapped from a file (memory-mapped vector),
+ * in which case the vector is limited by the file system instead of the memory
+ * and the operating system pages the chunks in and out on demand.
+ */
+public class OffHeapComplexVector {
+    /**
+     * Default number of bits of the chunk size (2^26 floats = 256 MiB per chunk
+     * and part).
+     */
+    public static final int DEFAULT_CHUNK_BITS = 26;
+
+    /**
+     * Maximum number of bits of the chunk size (a direct buffer holds less than
+     * 2^31 bytes).
+     */
+    public static final int MAX_CHUNK_BITS = 28;
+
+    private final long size;
+    private final int chunkBits;
+    private final FloatBuffer[] real;
+    private final FloatBuffer[] imag;
+
+    /**
+     * Constructs an off-heap complex vector of the required size (all elements
+     * set to 0) with the default chunk size.
+     * 
+     * @param size
+     *            number of complex elements.
+     */
+    public OffHeapComplexVector(long size) {
+        this(size, DEFAULT_CHUNK_BITS);
+    }
+
+    /**
+     * Constructs an off-heap complex vector of the required size (all elements
+     * set to 0).
+     * 
+     * @param size
+     *            number of complex elements.
+     * @param chunkBits
+     *            number of bits of the chunk size (1 - MAX_CHUNK_BITS), vectors
+     *            smaller than a chunk consist of a single chunk.
+     */
+    public OffHeapComplexVector(long size, int chunkBits) {
+        this(size, chunkBits, null);
+    }
+
+    /**
+     * Constructs a memory-mapped complex vector of the required size. The real
+     * parts are mapped from the region [0, 4 * size) of the supplied file and the
+     * imaginary parts from the region [4 * size, 8 * size). The file is extended
+     * as needed, its regions not written before read as 0.
+     * 
+     * @param size
+     *            number of complex elements.
+     * @param chunkBits
+     *            number of bits of the chunk size (1 - MAX_CHUNK_BITS), vectors
+     *            smaller than a chunk consist of a single chunk.
+     * @param file
+     *            file channel opened for reading and writing (the vector stays
+     *            valid after the channel is closed).
+     */
+    public OffHeapComplexVector(long size, int chunkBits, FileChannel file) {
+        if (size < 1)
+            throw new IllegalArgumentException("Invalid vector size provided.");
+        if (chunkBits < 1 || chunkBits > MAX_CHUNK_BITS)
+            throw new IllegalArgumentException("Number of chunk bits must be between 1 and " + MAX_CHUNK_BITS + ".");
+        this.size = size;
+        this.chunkBits = chunkBits;
+
+        long chunkSize = 1L << chunkBits;
+        int noChunks = (int) ((size + chunkSize - 1) >>> chunkBits);
+        real = new FloatBuffer[noChunks];
+        imag = new FloatBuffer[noChunks];
+        for (int i = 0; i < noChunks; i++) {
+            long position = ((long) i << chunkBits) * Float.BYTES;
+            int length = (int) Math.min(chunkSize, size - ((long) i << chunkBits));
+            // Direct buffers are zeroed on allocation
+            real[i] = allocateChunk(file, position, length);
+            imag[i] = allocateChunk(file, size * Float.BYTES + position, length);
+        }
+    }
+
+    /**
+     * Gets a total size of this complex vector (total number of complex data
+     * points).
+     * 
+     * @return total number of complex data points.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of bits of the chunk size.
+     * 
+     * @return number of chunk bits.
+     */
+    public int chunkBits() {
+        return chunkBits;
+    }
+
+    /**
+     * Gets the number of chunks of each part.
+     * 
+     * @return number of chunks.
+     */
+    public int chunkCount() {
+        return real.length;
+    }
+
+    /**
+     * Gets the real parts of the elements of a single chunk (elements [chunk *
+     * 2^chunkBits, (chunk + 1) * 2^chunkBits)).
+     * 
+     * @param chunk
+     *            index of the chunk.
+     * @return real parts of the chunk.
+     */
+    public FloatBuffer getRealChunk(int chunk) {
+        return real[chunk];
+    }
+
+    /**
+     * Gets the imaginary parts of the elements of a single chunk (elements [chunk
+     * * 2^chunkBits, (chunk + 1) * 2^chunkBits)).
+     * 
+     * @param chunk
+     *            index of the chunk.
+     * @return imaginary parts of the chunk.
+     */
+    public FloatBuffer getImagChunk(int chunk) {
+        return imag[chunk];
+    }
+
+    /**
+     * Gets the real part of a single element.
+     * 
+     * @param index
+     *            index of the element.
+     * @return real part of the element.
+     */
+    public float getReal(long index) {
+        checkIndexBounds(index);
+        return real[(int) (index >>> chunkBits)].get((int) (index & ((1L << chunkBits) - 1)));
+    }
+
+    /**
+     * Gets the imaginary part of a single element.
+     * 
+     * @param index
+     *            index of the element.
+     * @return imaginary part of the element.
+     */
+    public float getImag(long index) {
+        checkIndexBounds(index);
+        return imag[(int) (index >>> chunkBits)].get((int) (index & ((1L << chunkBits) - 1)));
+    }
+
+    /**
+     * Retrieves a single indexed complex element from this complex vector.
+     * 
+     * @param index
+     *            index of the element.
+     * @return single complex number (at the supplied index).
+     */
+    public Complex getElement(long index) {
+        return new Complex(getReal(index), getImag(index));
+    }
+
+    /**
+     * Inserts the supplied complex element into the complex vector at specified
+     * index.
+     * 
+     * @param element
+     *            complex number to be inserted.
+     * @param index
+     *            index of the element.
+     */
+    public void insertElement(Complex element, long index) {
+        if (element == null)
+            throw new IllegalArgumentException("Invalid vector element provided.");
+        checkIndexBounds(index);
+        int chunk = (int) (index >>> chunkBits);
+        int offset = (int) (index & ((1L << chunkBits) - 1));
+        real[chunk].put(offset, element.real());
+        imag[chunk].put(offset, element.imag());
+    }
+
+    /**
+     * Creates a complex tensor (rank 1) copy of this complex vector on the Java
+     * heap. Only possible for vectors that fit into a Java array.
+     * 
+     * @return complex tensor copy.
+     */
+    public ComplexTensor toComplexTensor() {
+        if (size > (1 << 30))
+            throw new UnsupportedOperationException("Vector of " + size + " elements does not fit into a complex tensor.");
+        ComplexTensor tensor = new ComplexTensor((int) size);
+        int position = 0;
+        for (int i = 0; i < real.length; i++) {
+            int length = real[i].capacity();
+            real[i].duplicate().get(tensor.getRawRealData(), position, length);
+            imag[i].duplicate().get(tensor.getRawImagData(), position, length);
+            position += length;
+        }
+        return tensor;
+    }
+
+    /**
+     * Copies the elements of the supplied complex tensor (rank 1, same size) into
+     * this complex vector.
+     * 
+     * @param tensor
+     *            complex tensor to be copied.
+     */
+    public void copyFrom(ComplexTensor tensor) {
+        if (tensor == null || tensor.rank() != 1 || tensor.size() != size)
+            throw new IllegalArgumentException("Invalid tensor provided (NULL / not a vector / size).");
+        int position = 0;
+        for (int i = 0; i < real.length; i++) {
+            int length = real[i].capacity();
+            real[i].duplicate().put(tensor.getRawRealData(), position, length);
+            imag[i].duplicate().put(tensor.getRawImagData(), position, length);
+            position += length;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        OffHeapComplexVector that = (OffHeapComplexVector) o;
+        if (size != that.size)
+            return false;
+        for (long i = 0; i < size; i++)
+            if (Float.compare(getReal(i), that.getReal(i)) != 0 || Float.compare(getImag(i), that.getImag(i)) != 0)
+                return false;
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        // Independent of the chunk size (hashing every element is too expensive)
+        int result = Long.hashCode(size);
+        result = 31 * result + Float.hashCode(getReal(0));
+        result = 31 * result + Float.hashCode(getImag(0));
+        result = 31 * result + Float.hashCode(getReal(size - 1));
+        result = 31 * result + Float.hashCode(getImag(size - 1));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapComplexVector { size: " + size + ", chunks: " + real.length + " x 2^" + chunkBits + " }";
+    }
+
+    private static FloatBuffer allocateChunk(FileChannel file, long position, int length) {
+        if (file == null)
+            return ByteBuffer.allocateDirect(length * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        try {
+            return file.map(FileChannel.MapMode.READ_WRITE, position, (long) length * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Chunk of the vector could not be mapped from the file.", e);
+        }
+    }
+
+    private void checkIndexBounds(long index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Supplied index does not fit the vector size.");
+    }
+}
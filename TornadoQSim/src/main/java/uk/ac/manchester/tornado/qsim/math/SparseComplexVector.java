@@ -0,0 +1,357 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.math;
+
+import java.util.Arrays;
+
+/**
+ * Represents a sparse complex vector with a long size, in which only the
+ * non-zero elements are stored. The elements are held in a primitive open
+ * addressing hash map (long index to complex number, linear probing), so no
+ * objects are allocated per element. The map is kept at most half full and
+ * grows by doubling its capacity.
+ * 
+ * The stored elements can be iterated by their slots: slots in [0, capacity())
+ * with an index other than EMPTY hold an element.
+ */
+public class SparseComplexVector {
+    /**
+     * Index of a free slot.
+     */
+    public static final long EMPTY = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final long size;
+    private long[] indices;
+    private float[] real;
+    private float[] imag;
+    private int count;
+
+    /**
+     * Constructs a sparse complex vector of the supplied size with no stored
+     * elements (all elements are zero).
+     * 
+     * @param size
+     *            number of elements of the vector.
+     */
+    public SparseComplexVector(long size) {
+        this(size, MIN_CAPACITY);
+    }
+
+    /**
+     * Constructs a sparse complex vector of the supplied size with no stored
+     * elements (all elements are zero).
+     * 
+     * @param size
+     *            number of elements of the vector.
+     * @param expectedElements
+     *            number of non-zero elements the map is sized for.
+     */
+    public SparseComplexVector(long size, int expectedElements) {
+        if (size < 1)
+            throw new IllegalArgumentException("Size of a vector must be greater than 0.");
+        if (expectedElements < 0 || expectedElements > (1 << 29))
+            throw new IllegalArgumentException("Invalid number of expected elements supplied.");
+        this.size = size;
+        allocate(Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, expectedElements)) << 2));
+    }
+
+    /**
+     * Gets the size (number of elements, including zero ones) of the vector.
+     * 
+     * @return vector size.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of stored (non-zero) elements.
+     * 
+     * @return number of stored elements.
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Gets the number of slots of the hash map.
+     * 
+     * @return number of slots.
+     */
+    public int capacity() {
+        return indices.length;
+    }
+
+    /**
+     * Gets the index of the element stored in the supplied slot.
+     * 
+     * @param slot
+     *            slot of the hash map.
+     * @return index of the element, or EMPTY if the slot is free.
+     */
+    public long indexAt(int slot) {
+        return indices[slot];
+    }
+
+    /**
+     * Gets the real part of the element stored in the supplied slot.
+     * 
+     * @param slot
+     *            slot of the hash map.
+     * @return real part of the element.
+     */
+    public float realAt(int slot) {
+        return real[slot];
+    }
+
+    /**
+     * Gets the imaginary part of the element stored in the supplied slot.
+     * 
+     * @param slot
+     *            slot of the hash map.
+     * @return imaginary part of the element.
+     */
+    public float imagAt(int slot) {
+        return imag[slot];
+    }
+
+    /**
+     * Gets the slot of the element with the supplied index (no bounds check).
+     * 
+     * @param index
+     *            index of the element.
+     * @return slot of the element, or -1 if the element is not stored.
+     */
+    public int slotOf(long index) {
+        int slot = find(index);
+        return indices[slot] == EMPTY ? -1 : slot;
+    }
+
+    /**
+     * Gets the real part of a single element.
+     * 
+     * @param index
+     *            index of the element.
+     * @return real part of the element.
+     */
+    public float getReal(long index) {
+        checkIndexBounds(index);
+        int slot = find(index);
+        return indices[slot] == EMPTY ? 0 : real[slot];
+    }
+
+    /**
+     * Gets the imaginary part of a single element.
+     * 
+     * @param index
+     *            index of the element.
+     * @return imaginary part of the element.
+     */
+    public float getImag(long index) {
+        checkIndexBounds(index);
+        int slot = find(index);
+        return indices[slot] == EMPTY ? 0 : imag[slot];
+    }
+
+    /**
+     * Retrieves a single indexed complex element from this complex vector.
+     * 
+     * @param index
+     *            index of the element.
+     * @return single complex number (at the supplied index).
+     */
+    public Complex getElement(long index) {
+        checkIndexBounds(index);
+        int slot = find(index);
+        return indices[slot] == EMPTY ? new Complex(0, 0) : new Complex(real[slot], imag[slot]);
+    }
+
+    /**
+     * Inserts the supplied complex element into the complex vector at specified
+     * index.
+     * 
+     * @param element
+     *            complex number to be inserted.
+     * @param index
+     *            index of the element.
+     */
+    public void insertElement(Complex element, long index) {
+        if (element == null)
+            throw new IllegalArgumentException("Invalid vector element provided.");
+        checkIndexBounds(index);
+        put(index, element.real(), element.imag());
+    }
+
+    /**
+     * Sets the element at the supplied index (no bounds check). Zero elements are
+     * stored as well, unless the element was not stored before.
+     * 
+     * @param index
+     *            index of the element.
+     * @param realPart
+     *            real part of the element.
+     * @param imagPart
+     *            imaginary part of the element.
+     */
+    public void put(long index, float realPart, float imagPart) {
+        int slot = find(index);
+        if (indices[slot] == EMPTY) {
+            if (realPart == 0 && imagPart == 0)
+                return;
+            indices[slot] = index;
+            count++;
+        }
+        real[slot] = realPart;
+        imag[slot] = imagPart;
+        if (count * 2 > indices.length)
+            resize(indices.length * 2);
+    }
+
+    /**
+     * Removes all stored elements (the capacity is kept).
+     */
+    public void clear() {
+        Arrays.fill(indices, EMPTY);
+        count = 0;
+    }
+
+    /**
+     * Creates a complex tensor (rank 1) copy of this complex vector on the Java
+     * heap. Only possible for vectors that fit into a Java array.
+     * 
+     * @return complex tensor copy.
+     */
+    public ComplexTensor toComplexTensor() {
+        if (size > (1 << 30))
+            throw new UnsupportedOperationException("Vector of " + size + " elements does not fit into a complex tensor.");
+        ComplexTensor tensor = new ComplexTensor((int) size);
+        for (int slot = 0; slot < indices.length; slot++)
+            if (indices[slot] != EMPTY) {
+                tensor.getRawRealData()[(int) indices[slot]] = real[slot];
+                tensor.getRawImagData()[(int) indices[slot]] = imag[slot];
+            }
+        return tensor;
+    }
+
+    /**
+     * Replaces the elements of this complex vector by the non-zero elements of the
+     * supplied complex tensor (rank 1, same size).
+     * 
+     * @param tensor
+     *            complex tensor to be copied.
+     */
+    public void copyFrom(ComplexTensor tensor) {
+        if (tensor == null || tensor.rank() != 1 || tensor.size() != size)
+            throw new IllegalArgumentException("Invalid tensor provided (NULL / not a vector / size).");
+        clear();
+        float[] tensorReal = tensor.getRawRealData();
+        float[] tensorImag = tensor.getRawImagData();
+        for (int i = 0; i < tensor.size(); i++)
+            put(i, tensorReal[i], tensorImag[i]);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        SparseComplexVector that = (SparseComplexVector) o;
+        if (size != that.size)
+            return false;
+        // Stored zeros are equal to missing elements
+        return containsAll(that) && that.containsAll(this);
+    }
+
+    @Override
+    public int hashCode() {
+        // Independent of the order of the slots
+        int result = Long.hashCode(size);
+        for (int slot = 0; slot < indices.length; slot++)
+            if (indices[slot] != EMPTY && (real[slot] != 0 || imag[slot] != 0))
+                result += Long.hashCode(indices[slot]) ^ (31 * Float.hashCode(real[slot]) + Float.hashCode(imag[slot]));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "SparseComplexVector { size: " + size + ", stored elements: " + count + " }";
+    }
+
+    private boolean containsAll(SparseComplexVector that) {
+        for (int slot = 0; slot < indices.length; slot++)
+            if (indices[slot] != EMPTY) {
+                int thatSlot = that.find(indices[slot]);
+                float thatReal = that.indices[thatSlot] == EMPTY ? 0 : that.real[thatSlot];
+                float thatImag = that.indices[thatSlot] == EMPTY ? 0 : that.imag[thatSlot];
+                if (Float.compare(real[slot] + 0.0f, thatReal + 0.0f) != 0 || Float.compare(imag[slot] + 0.0f, thatImag + 0.0f) != 0)
+                    return false;
+            }
+        return true;
+    }
+
+    private int find(long index) {
+        int mask = indices.length - 1;
+        int slot = hash(index) & mask;
+        while (indices[slot] != EMPTY && indices[slot] != index)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        long[] oldIndices = indices;
+        float[] oldReal = real;
+        float[] oldImag = imag;
+        allocate(capacity);
+        for (int slot = 0; slot < oldIndices.length; slot++)
+            if (oldIndices[slot] != EMPTY) {
+                int newSlot = find(oldIndices[slot]);
+                indices[newSlot] = oldIndices[slot];
+                real[newSlot] = oldReal[slot];
+                imag[newSlot] = oldImag[slot];
+                count++;
+            }
+    }
+
+    private void allocate(int capacity) {
+        indices = new long[capacity];
+        Arrays.fill(indices, EMPTY);
+        real = new float[capacity];
+        imag = new float[capacity];
+        count = 0;
+    }
+
+    private static int hash(long index) {
+        // Finalizer of MurmurHash3, every index bit affects the low bits of the slot
+        long h = index;
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return (int) (h ^ (h >>> 33));
+    }
+
+    private void checkIndexBounds(long index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Supplied index does not fit the vector size.");
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator;
+
+/**
+ * Enumerates floating point precisions in which a simulator can hold the
+ * amplitudes of the simulated state and apply the operations. SINGLE precision
+ * (float, 8 bytes per amplitude) produces State, DOUBLE precision (double, 16
+ * bytes per amplitude) produces DoubleState.
+ * 
+ * @see uk.ac.manchester.tornado.qsim.circuit.DoubleState for more details on
+ *      double precision state.
+ */
+public enum Precision {
+    SINGLE, DOUBLE,
+}
@@ -49,4 +49,15 @@ public interface Simulator {
      * @return collapsed state of the simulated circuit (bitstring).
      */
     public int simulateAndCollapse(Circuit circuit);
+
+    /**
+     * Describes the statistics collected by the simulator in the last simulation
+     * (eg. exchanged bytes or peak memory of the backend).
+     * 
+     * @return single line description of the statistics (empty if the simulator
+     *         does not collect any).
+     */
+    public default String describeStatistics() {
+        return "";
+    }
 }
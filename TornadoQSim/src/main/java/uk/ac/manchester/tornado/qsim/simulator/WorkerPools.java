@@ -0,0 +1,53 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Provides fork-join pools shared by the multi-threaded simulators. A single
+ * pool is created per parallelism and reused by every simulator instance with
+ * the same number of worker threads, so constructing simulators does not start
+ * new threads. The worker threads are daemon threads, which terminate once the
+ * pool stays idle, so the pools never have to be shut down.
+ */
+public final class WorkerPools {
+    private static final Map<Integer, ForkJoinPool> pools = new ConcurrentHashMap<>();
+
+    private WorkerPools() {
+    }
+
+    /**
+     * Gets the shared fork-join pool with the supplied number of worker threads.
+     * 
+     * @param parallelism
+     *            number of worker threads.
+     * @return shared fork-join pool.
+     */
+    public static ForkJoinPool forParallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be greater than 0.");
+        return pools.computeIfAbsent(parallelism, ForkJoinPool::new);
+    }
+}
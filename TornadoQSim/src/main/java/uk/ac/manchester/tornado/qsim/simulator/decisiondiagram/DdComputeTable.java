@@ -0,0 +1,123 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.decisiondiagram;
+
+/**
+ * Represents a compute table of a decision diagram operation, a direct-mapped
+ * cache of operation results keyed by the operand nodes and a complex factor.
+ * A colliding insertion overwrites the previous entry, so the table is lossy
+ * but bounded. Lookups and hits are counted for the cache statistics.
+ */
+class DdComputeTable {
+    private final int mask;
+    private final DdNode[] leftKeys;
+    private final DdNode[] rightKeys;
+    private final double[] realKeys;
+    private final double[] imagKeys;
+    private final DdEdge[] results;
+    private long lookups;
+    private long hits;
+
+    protected DdComputeTable(int log2Size) {
+        int size = 1 << log2Size;
+        mask = size - 1;
+        leftKeys = new DdNode[size];
+        rightKeys = new DdNode[size];
+        realKeys = new double[size];
+        imagKeys = new double[size];
+        results = new DdEdge[size];
+    }
+
+    /**
+     * Looks up the cached result of an operation.
+     * 
+     * @param left
+     *            left operand node.
+     * @param right
+     *            right operand node.
+     * @param real
+     *            real part of the factor of the operation.
+     * @param imag
+     *            imaginary part of the factor of the operation.
+     * @return cached result or null if the result is not cached.
+     */
+    protected DdEdge lookup(DdNode left, DdNode right, double real, double imag) {
+        lookups++;
+        int index = index(left, right, real, imag);
+        if (leftKeys[index] != left || rightKeys[index] != right || realKeys[index] != real || imagKeys[index] != imag)
+            return null;
+        hits++;
+        return results[index];
+    }
+
+    /**
+     * Caches the result of an operation.
+     * 
+     * @param left
+     *            left operand node.
+     * @param right
+     *            right operand node.
+     * @param real
+     *            real part of the factor of the operation.
+     * @param imag
+     *            imaginary part of the factor of the operation.
+     * @param result
+     *            result of the operation.
+     */
+    protected void insert(DdNode left, DdNode right, double real, double imag, DdEdge result) {
+        int index = index(left, right, real, imag);
+        leftKeys[index] = left;
+        rightKeys[index] = right;
+        realKeys[index] = real;
+        imagKeys[index] = imag;
+        results[index] = result;
+    }
+
+    /**
+     * Drops all cached results (the nodes they reference may be collected).
+     */
+    protected void clear() {
+        for (int i = 0; i <= mask; i++) {
+            leftKeys[i] = null;
+            rightKeys[i] = null;
+            results[i] = null;
+        }
+    }
+
+    protected long lookups() {
+        return lookups;
+    }
+
+    protected long hits() {
+        return hits;
+    }
+
+    private int index(DdNode left, DdNode right, double real, double imag) {
+        long hash = left.id * 0x9E3779B97F4A7C15L + right.id;
+        hash = hash * 31 + Double.hashCode(real);
+        hash = hash * 31 + Double.hashCode(imag);
+        hash ^= hash >>> 29;
+        hash *= 0xBF58476D1CE4E5B9L;
+        hash ^= hash >>> 32;
+        return (int) hash & mask;
+    }
+}
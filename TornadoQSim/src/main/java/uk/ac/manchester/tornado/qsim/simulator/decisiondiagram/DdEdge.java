@@ -0,0 +1,48 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.decisiondiagram;
+
+/**
+ * Represents a weighted edge of a decision diagram, which points to a node and
+ * scales the represented sub-vector / sub-matrix by a complex weight. Edges
+ * with a zero weight point to the terminal node.
+ */
+class DdEdge {
+    protected final DdNode node;
+    protected final double real;
+    protected final double imag;
+
+    protected DdEdge(DdNode node, double real, double imag) {
+        this.node = node;
+        this.real = real;
+        this.imag = imag;
+    }
+
+    /**
+     * Checks whether the edge represents a zero sub-vector / sub-matrix.
+     * 
+     * @return true if the weight is zero.
+     */
+    protected boolean isZero() {
+        return real == 0 && imag == 0;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.decisiondiagram;
+
+/**
+ * Represents a node of a quantum multiple-valued decision diagram (QMDD). A
+ * node of a state diagram has two children (qubit value 0 and 1), a node of an
+ * operator diagram has four children (row and column values of the qubit, in
+ * the row-major order). The level of a node is its qubit, the children belong
+ * to the qubit below, the terminal node has the level -1.
+ * 
+ * Nodes are unique (hash-consed in the unique table of DdPackage), so two nodes
+ * are equal only if their levels, their child nodes (by identity) and their
+ * normalized child weights are equal. Operator nodes of the identity matrix
+ * are flagged, so their multiplication is skipped. The reference count holds the number of
+ * live parents and roots, nodes without references are removed by the garbage
+ * collection.
+ */
+class DdNode {
+    protected final int level;
+    protected final DdEdge[] children;
+    protected final long id;
+    protected final boolean identity;
+    protected int refCount;
+    private final int hash;
+
+    protected DdNode(int level, DdEdge[] children, long id) {
+        this.level = level;
+        this.children = children;
+        this.id = id;
+        int result = level;
+        if (children != null) {
+            for (DdEdge child : children) {
+                result = 31 * result + Long.hashCode(child.node.id);
+                result = 31 * result + Double.hashCode(child.real);
+                result = 31 * result + Double.hashCode(child.imag);
+            }
+        }
+        hash = result;
+        identity = children != null && children.length == 4 && children[1].isZero() && children[2].isZero() && children[0].real == 1 && children[0].imag == 0
+                && children[3].real == 1 && children[3].imag == 0 && children[0].node == children[3].node && (children[0].node.isTerminal() || children[0].node.identity);
+    }
+
+    /**
+     * Checks whether the node is the terminal node.
+     * 
+     * @return true if the node is terminal.
+     */
+    protected boolean isTerminal() {
+        return children == null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof DdNode))
+            return false;
+        DdNode other = (DdNode) o;
+        if (level != other.level || hash != other.hash || children == null || other.children == null || children.length != other.children.length)
+            return false;
+        for (int i = 0; i < children.length; i++) {
+            DdEdge child = children[i];
+            DdEdge otherChild = other.children[i];
+            if (child.node != otherChild.node || child.real != otherChild.real || child.imag != otherChild.imag)
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.decisiondiagram;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Represents a decision diagram package, which owns the nodes of state and
+ * operator diagrams and implements the operations on them.
+ * 
+ * Nodes are hash-consed in the unique table, so every distinct sub-vector /
+ * sub-matrix (up to a complex factor) is stored only once. Child weights are
+ * normalized (state nodes to a unit vector, operator nodes to the largest
+ * weight) and rounded to a multiple of TOLERANCE, so numerically equal nodes
+ * share the same entry. Results of the addition and multiplication are cached
+ * in compute tables. Operator diagrams end at the highest qubit of their
+ * operation, the qubits above it are implicitly left unchanged, so an operation
+ * creates new nodes only down from its highest qubit. Nodes that are not referenced (directly or through their
+ * parents) by a root are removed by the garbage collection, once the unique
+ * table grows over its limit.
+ */
+class DdPackage {
+    /**
+     * Resolution of the normalized child weights, smaller weights are zero.
+     */
+    protected static final double TOLERANCE = 1e-13;
+
+    private static final double RESOLUTION = 1e13;
+    private static final int COMPUTE_TABLE_LOG2_SIZE = 16;
+    private static final double PIVOT_TOLERANCE = 1e-9;
+
+    private final DdNode terminal;
+    private final DdEdge zero;
+    private final DdEdge one;
+    private final Map<DdNode, DdNode> uniqueTable;
+    private final DdComputeTable addTable;
+    private final DdComputeTable multiplyTable;
+    private final int gcThreshold;
+    private int gcLimit;
+    private long nextId;
+    private long uniqueLookups;
+    private long uniqueHits;
+    private int peakNodeCount;
+    private int garbageCollections;
+    private long collectedNodes;
+
+    protected DdPackage(int gcThreshold) {
+        terminal = new DdNode(-1, null, 0);
+        zero = new DdEdge(terminal, 0, 0);
+        one = new DdEdge(terminal, 1, 0);
+        uniqueTable = new HashMap<>();
+        addTable = new DdComputeTable(COMPUTE_TABLE_LOG2_SIZE);
+        multiplyTable = new DdComputeTable(COMPUTE_TABLE_LOG2_SIZE);
+        this.gcThreshold = gcThreshold;
+        gcLimit = gcThreshold;
+        nextId = 1;
+    }
+
+    protected DdEdge zero() {
+        return zero;
+    }
+
+    protected DdEdge one() {
+        return one;
+    }
+
+    /**
+     * Creates the state diagram of a computational basis state.
+     * 
+     * @param noQubits
+     *            number of qubits.
+     * @return diagram of the state |00...0>.
+     */
+    protected DdEdge makeZeroState(int noQubits) {
+        DdEdge edge = one;
+        for (int level = 0; level < noQubits; level++)
+            edge = makeNode(level, new DdEdge[] { edge, zero });
+        return edge;
+    }
+
+    /**
+     * Creates the operator diagram of a Kronecker product of single-qubit
+     * matrices, the qubits above the last matrix are left unchanged.
+     * 
+     * @param matrices
+     *            2x2 matrix per qubit (interleaved real and imaginary parts in
+     *            the row-major order), null for the identity.
+     * @return operator diagram of the product.
+     */
+    protected DdEdge makeKronecker(double[][] matrices) {
+        DdEdge edge = one;
+        for (int level = 0; level < matrices.length; level++) {
+            double[] matrix = matrices[level];
+            if (matrix == null) {
+                edge = makeNode(level, new DdEdge[] { edge, zero, zero, edge });
+            } else {
+                DdEdge[] children = new DdEdge[4];
+                for (int i = 0; i < 4; i++)
+                    children[i] = scale(edge, matrix[2 * i], matrix[2 * i + 1]);
+                edge = makeNode(level, children);
+            }
+        }
+        return edge;
+    }
+
+    /**
+     * Creates the operator diagram of a dense matrix applied to a contiguous
+     * range of qubits (bit j of the matrix index belongs to the qubit from + j),
+     * the qubits above the range are left unchanged.
+     * 
+     * @param from
+     *            first qubit of the range.
+     * @param size
+     *            number of qubits in the range.
+     * @param real
+     *            real part of the matrix (row-major).
+     * @param imag
+     *            imaginary part of the matrix (row-major).
+     * @return operator diagram of the matrix.
+     */
+    protected DdEdge makeDenseOperator(int from, int size, float[] real, float[] imag) {
+        DdEdge below = makeKronecker(new double[from][]);
+        return makeBlock(below, from, from + size - 1, 0, 0, 1 << size, real, imag);
+    }
+
+    private DdEdge makeBlock(DdEdge below, int from, int level, int row, int column, int dimension, float[] real, float[] imag) {
+        if (level < from) {
+            int index = row * dimension + column;
+            return scale(below, real[index], imag[index]);
+        }
+        int bit = 1 << (level - from);
+        DdEdge[] children = new DdEdge[4];
+        for (int i = 0; i < 4; i++)
+            children[i] = makeBlock(below, from, level - 1, (i >> 1) == 0 ? row : row | bit, (i & 1) == 0 ? column : column | bit, dimension, real, imag);
+        return makeNode(level, children);
+    }
+
+    /**
+     * Creates (or finds in the unique table) the normalized node with the
+     * supplied children.
+     * 
+     * @param level
+     *            qubit of the node.
+     * @param children
+     *            weighted children (2 for a state node, 4 for an operator node).
+     * @return edge pointing to the unique node, weighted by the normalization
+     *         factor.
+     */
+    protected DdEdge makeNode(int level, DdEdge[] children) {
+        double maxMagnitude = 0;
+        double sumMagnitude = 0;
+        for (DdEdge child : children) {
+            double magnitude = child.real * child.real + child.imag * child.imag;
+            maxMagnitude = Math.max(maxMagnitude, magnitude);
+            sumMagnitude += magnitude;
+        }
+        if (maxMagnitude == 0)
+            return zero;
+
+        // The first child (within a tolerance) with the largest weight gets a real
+        // positive weight, which fixes the global phase of the node
+        int pivot = 0;
+        while (children[pivot].real * children[pivot].real + children[pivot].imag * children[pivot].imag < maxMagnitude * (1 - PIVOT_TOLERANCE))
+            pivot++;
+        double pivotMagnitude = Math.sqrt(children[pivot].real * children[pivot].real + children[pivot].imag * children[pivot].imag);
+        double norm = children.length == 2 ? Math.sqrt(sumMagnitude) : pivotMagnitude;
+        double factorReal = children[pivot].real / pivotMagnitude * norm;
+        double factorImag = children[pivot].imag / pivotMagnitude * norm;
+        double factorMagnitude = norm * norm;
+
+        DdEdge[] normalized = new DdEdge[children.length];
+        for (int i = 0; i < children.length; i++) {
+            DdEdge child = children[i];
+            double real = snap((child.real * factorReal + child.imag * factorImag) / factorMagnitude);
+            double imag = snap((child.imag * factorReal - child.real * factorImag) / factorMagnitude);
+            if (i == pivot && children.length == 4) {
+                real = 1;
+                imag = 0;
+            }
+            normalized[i] = real == 0 && imag == 0 ? zero : new DdEdge(child.node, real, imag);
+        }
+
+        DdNode candidate = new DdNode(level, normalized, nextId);
+        uniqueLookups++;
+        DdNode node = uniqueTable.get(candidate);
+        if (node != null) {
+            uniqueHits++;
+        } else {
+            node = candidate;
+            nextId++;
+            uniqueTable.put(node, node);
+            peakNodeCount = Math.max(peakNodeCount, uniqueTable.size());
+        }
+        return new DdEdge(node, factorReal, factorImag);
+    }
+
+    /**
+     * Adds two diagrams of the same kind with the same root level.
+     * 
+     * @param a
+     *            first diagram.
+     * @param b
+     *            second diagram.
+     * @return diagram of the sum.
+     */
+    protected DdEdge add(DdEdge a, DdEdge b) {
+        if (a.isZero())
+            return b;
+        if (b.isZero())
+            return a;
+        if (a.node == b.node) {
+            double real = a.real + b.real;
+            double imag = a.imag + b.imag;
+            double scale = Math.max(a.real * a.real + a.imag * a.imag, b.real * b.real + b.imag * b.imag);
+            if (real * real + imag * imag <= scale * TOLERANCE * TOLERANCE)
+                return zero;
+            return new DdEdge(a.node, real, imag);
+        }
+
+        // a + b = wa * (A + (wb / wa) * B), the sum of the nodes is cached per ratio
+        double magnitude = a.real * a.real + a.imag * a.imag;
+        double ratioReal = snap((b.real * a.real + b.imag * a.imag) / magnitude);
+        double ratioImag = snap((b.imag * a.real - b.real * a.imag) / magnitude);
+        DdEdge result = addTable.lookup(a.node, b.node, ratioReal, ratioImag);
+        if (result == null) {
+            DdEdge[] children = new DdEdge[a.node.children.length];
+            for (int i = 0; i < children.length; i++)
+                children[i] = add(a.node.children[i], scale(b.node.children[i], ratioReal, ratioImag));
+            result = makeNode(a.node.level, children);
+            addTable.insert(a.node, b.node, ratioReal, ratioImag, result);
+        }
+        return scale(result, a.real, a.imag);
+    }
+
+    /**
+     * Multiplies a state diagram by an operator diagram (the qubits above the
+     * root of the operator diagram are left unchanged).
+     * 
+     * @param operator
+     *            operator diagram.
+     * @param state
+     *            state diagram.
+     * @return state diagram of the product.
+     */
+    protected DdEdge multiply(DdEdge operator, DdEdge state) {
+        if (operator.isZero() || state.isZero())
+            return zero;
+        double real = operator.real * state.real - operator.imag * state.imag;
+        double imag = operator.real * state.imag + operator.imag * state.real;
+        if (operator.node.isTerminal() || operator.node.identity)
+            return new DdEdge(state.node, real, imag);
+
+        DdEdge result = multiplyTable.lookup(operator.node, state.node, 0, 0);
+        if (result == null) {
+            DdEdge[] vector = state.node.children;
+            DdEdge[] children = new DdEdge[2];
+            if (state.node.level > operator.node.level) {
+                // Implicit identity above the root of the operator diagram
+                DdEdge unweighted = new DdEdge(operator.node, 1, 0);
+                for (int row = 0; row < 2; row++)
+                    children[row] = multiply(unweighted, vector[row]);
+            } else {
+                DdEdge[] matrix = operator.node.children;
+                for (int row = 0; row < 2; row++)
+                    children[row] = add(multiply(matrix[2 * row], vector[0]), multiply(matrix[2 * row + 1], vector[1]));
+            }
+            result = makeNode(state.node.level, children);
+            multiplyTable.insert(operator.node, state.node, 0, 0, result);
+        }
+        return scale(result, real, imag);
+    }
+
+    /**
+     * Marks a diagram as used by a root.
+     * 
+     * @param edge
+     *            root edge of the diagram.
+     */
+    protected void incRef(DdEdge edge) {
+        DdNode node = edge.node;
+        if (node.isTerminal())
+            return;
+        if (node.refCount++ == 0) {
+            for (DdEdge child : node.children)
+                incRef(child);
+        }
+    }
+
+    /**
+     * Releases a diagram previously marked by incRef.
+     * 
+     * @param edge
+     *            root edge of the diagram.
+     */
+    protected void decRef(DdEdge edge) {
+        DdNode node = edge.node;
+        if (node.isTerminal())
+            return;
+        if (--node.refCount == 0) {
+            for (DdEdge child : node.children)
+                decRef(child);
+        }
+    }
+
+    /**
+     * Removes the unreferenced nodes from the unique table once it grows over
+     * the limit. Must be called only when all live diagrams are referenced.
+     */
+    protected void collectGarbageIfNeeded() {
+        if (uniqueTable.size() > gcLimit)
+            collectGarbage();
+    }
+
+    /**
+     * Removes the unreferenced nodes from the unique table and drops the compute
+     * tables. Must be called only when all live diagrams are referenced.
+     */
+    protected void collectGarbage() {
+        Iterator<DdNode> iterator = uniqueTable.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().refCount == 0) {
+                iterator.remove();
+                collectedNodes++;
+            }
+        }
+        addTable.clear();
+        multiplyTable.clear();
+        garbageCollections++;
+        gcLimit = Math.max(gcThreshold, 2 * uniqueTable.size());
+    }
+
+    /**
+     * Counts the distinct non-terminal nodes of a diagram.
+     * 
+     * @param edge
+     *            root edge of the diagram.
+     * @return number of nodes.
+     */
+    protected int countNodes(DdEdge edge) {
+        Map<DdNode, Boolean> visited = new IdentityHashMap<>();
+        countNodes(edge.node, visited);
+        return visited.size();
+    }
+
+    private void countNodes(DdNode node, Map<DdNode, Boolean> visited) {
+        if (node.isTerminal() || visited.put(node, Boolean.TRUE) != null)
+            return;
+        for (DdEdge child : node.children)
+            countNodes(child.node, visited);
+    }
+
+    protected int nodeCount() {
+        return uniqueTable.size();
+    }
+
+    protected int peakNodeCount() {
+        return peakNodeCount;
+    }
+
+    protected long uniqueLookups() {
+        return uniqueLookups;
+    }
+
+    protected long uniqueHits() {
+        return uniqueHits;
+    }
+
+    protected DdComputeTable addTable() {
+        return addTable;
+    }
+
+    protected DdComputeTable multiplyTable() {
+        return multiplyTable;
+    }
+
+    protected int garbageCollections() {
+        return garbageCollections;
+    }
+
+    protected long collectedNodes() {
+        return collectedNodes;
+    }
+
+    private DdEdge scale(DdEdge edge, double real, double imag) {
+        if (edge.isZero() || (real == 0 && imag == 0))
+            return zero;
+        return new DdEdge(edge.node, edge.real * real - edge.imag * imag, edge.real * imag + edge.imag * real);
+    }
+
+    private static double snap(double value) {
+        // Adding 0.0 turns -0.0 into 0.0, so the hash codes of equal weights match
+        return Math.rint(value * RESOLUTION) / RESOLUTION + 0.0;
+    }
+}
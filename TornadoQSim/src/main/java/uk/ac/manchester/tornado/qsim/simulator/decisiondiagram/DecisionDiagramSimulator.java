@@ -0,0 +1,319 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.decisiondiagram;
+
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.circuit.Step;
+import uk.ac.manchester.tornado.qsim.circuit.operation.ControlGate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Function;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Gate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Operation;
+import uk.ac.manchester.tornado.qsim.circuit.operation.OperationDataProvider;
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.FunctionType;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.simulator.Simulator;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Decision diagram simulator, which represents the state and the operations of
+ * the circuit as quantum multiple-valued decision diagrams (QMDD). Every
+ * operation is turned into an operator diagram, which is multiplied with the
+ * state diagram. Redundant sub-vectors of the state are stored only once, so
+ * structured circuits (e.g. GHZ states, Deutsch-Jozsa, arithmetic oracles) are
+ * simulated in memory proportional to the number of distinct sub-vectors
+ * instead of 2^n amplitudes, while dense random states grow to 2^n nodes.
+ * 
+ * The simulator reports the node counts and the hit rates of the unique and
+ * compute tables of the last simulation, to compare it with the dense
+ * backends. Instructions (measure and reset) are not supported.
+ */
+public class DecisionDiagramSimulator implements Simulator {
+    /**
+     * Default number of nodes in the unique table, above which the unreferenced
+     * nodes are collected.
+     */
+    public static final int DEFAULT_GC_THRESHOLD = 1 << 17;
+
+    private static final int OPERATOR_CACHE_SIZE = 64;
+    private static final double[] PROJECTOR_ZERO = { 1, 0, 0, 0, 0, 0, 0, 0 };
+    private static final double[] PROJECTOR_ONE = { 0, 0, 0, 0, 0, 0, 1, 0 };
+    private static final double[] TRANSITION_ZERO_ONE = { 0, 0, 1, 0, 0, 0, 0, 0 };
+    private static final double[] TRANSITION_ONE_ZERO = { 0, 0, 0, 0, 1, 0, 0, 0 };
+
+    private final int gcThreshold;
+    private final Random random;
+    private int nodeCount;
+    private int peakNodeCount;
+    private double uniqueTableHitRate;
+    private double addCacheHitRate;
+    private double multiplyCacheHitRate;
+    private int garbageCollections;
+    private long collectedNodes;
+
+    /**
+     * Constructs a decision diagram simulator with the default garbage collection
+     * threshold.
+     */
+    public DecisionDiagramSimulator() {
+        this(DEFAULT_GC_THRESHOLD);
+    }
+
+    /**
+     * Constructs a decision diagram simulator.
+     * 
+     * @param gcThreshold
+     *            number of nodes in the unique table, above which the
+     *            unreferenced nodes are collected (the limit doubles with the
+     *            number of live nodes).
+     */
+    public DecisionDiagramSimulator(int gcThreshold) {
+        if (gcThreshold < 1)
+            throw new IllegalArgumentException("Garbage collection threshold must be greater than 0.");
+        this.gcThreshold = gcThreshold;
+        random = new Random();
+    }
+
+    /**
+     * Gets the number of nodes of the final state diagram of the last simulation.
+     * 
+     * @return number of nodes.
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Gets the largest number of nodes (of the state and operator diagrams) held
+     * in the unique table during the last simulation.
+     * 
+     * @return peak number of nodes.
+     */
+    public int peakNodeCount() {
+        return peakNodeCount;
+    }
+
+    /**
+     * Gets the share of the node creations of the last simulation, which found
+     * an existing node in the unique table.
+     * 
+     * @return hit rate of the unique table.
+     */
+    public double uniqueTableHitRate() {
+        return uniqueTableHitRate;
+    }
+
+    /**
+     * Gets the hit rate of the compute table of the diagram addition in the last
+     * simulation.
+     * 
+     * @return hit rate of the addition compute table.
+     */
+    public double addCacheHitRate() {
+        return addCacheHitRate;
+    }
+
+    /**
+     * Gets the hit rate of the compute table of the operator-state multiplication
+     * in the last simulation.
+     * 
+     * @return hit rate of the multiplication compute table.
+     */
+    public double multiplyCacheHitRate() {
+        return multiplyCacheHitRate;
+    }
+
+    /**
+     * Gets the number of garbage collections in the last simulation.
+     * 
+     * @return number of garbage collections.
+     */
+    public int garbageCollections() {
+        return garbageCollections;
+    }
+
+    /**
+     * Gets the number of nodes removed by the garbage collections in the last
+     * simulation.
+     * 
+     * @return number of collected nodes.
+     */
+    public long collectedNodes() {
+        return collectedNodes;
+    }
+
+    /**
+     * Simulates the supplied circuit and returns the decision diagram of the
+     * final state.
+     * 
+     * @param circuit
+     *            quantum circuit.
+     * @return decision diagram of the simulated circuit.
+     */
+    public StateDiagram simulateDiagram(Circuit circuit) {
+        if (circuit == null)
+            throw new IllegalArgumentException("Invalid circuit supplied (NULL).");
+        int noQubits = circuit.qubitCount();
+        DdPackage dd = new DdPackage(gcThreshold);
+        Map<Operation, DdEdge> operators = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Operation,DdEdge> eldest) {
+                if (size() <= OPERATOR_CACHE_SIZE)
+                    return false;
+                dd.decRef(eldest.getValue());
+                return true;
+            }
+        };
+
+        DdEdge state = dd.makeZeroState(noQubits);
+        dd.incRef(state);
+        for (Step step : circuit.getSteps()) {
+            int qubit = 0;
+            while (qubit < noQubits) {
+                if (step.isQubitFree(qubit)) {
+                    qubit++;
+                } else {
+                    Operation operation = step.getOperation(qubit);
+                    DdEdge operator = operators.get(operation);
+                    if (operator == null) {
+                        operator = makeOperator(dd, operation);
+                        dd.incRef(operator);
+                        operators.put(operation, operator);
+                    }
+                    DdEdge next = dd.multiply(operator, state);
+                    dd.incRef(next);
+                    dd.decRef(state);
+                    state = next;
+                    dd.collectGarbageIfNeeded();
+                    qubit += operation.size();
+                }
+            }
+        }
+
+        nodeCount = dd.countNodes(state);
+        peakNodeCount = dd.peakNodeCount();
+        uniqueTableHitRate = hitRate(dd.uniqueHits(), dd.uniqueLookups());
+        addCacheHitRate = hitRate(dd.addTable().hits(), dd.addTable().lookups());
+        multiplyCacheHitRate = hitRate(dd.multiplyTable().hits(), dd.multiplyTable().lookups());
+        garbageCollections = dd.garbageCollections();
+        collectedNodes = dd.collectedNodes();
+        return new StateDiagram(noQubits, state, nodeCount);
+    }
+
+    /**
+     * Simulates the supplied circuit (up to StateDiagram.MAX_STATE_VECTOR_QUBITS
+     * qubits) and returns the expanded full state.
+     */
+    @Override
+    public State simulateFullState(Circuit circuit) {
+        return new State(simulateDiagram(circuit).toStateVector());
+    }
+
+    /**
+     * Simulates the supplied circuit (up to 31 qubits) and returns the collapsed
+     * state of the quantum system.
+     */
+    @Override
+    public int simulateAndCollapse(Circuit circuit) {
+        if (circuit != null && circuit.qubitCount() > 31)
+            throw new UnsupportedOperationException("State of " + circuit.qubitCount() + " qubits does not fit into int (use StateDiagram.sample).");
+        BitSet outcomes = simulateDiagram(circuit).sample(random);
+        return outcomes.isEmpty() ? 0 : (int) outcomes.toLongArray()[0];
+    }
+
+    @Override
+    public String describeStatistics() {
+        return String.format("Decision diagram: %d nodes (%d at peak), unique table hit rate %.3f, add cache hit rate %.3f, multiply cache hit rate %.3f, %d nodes collected in %d runs", nodeCount(), peakNodeCount(), uniqueTableHitRate(),
+                addCacheHitRate(), multiplyCacheHitRate(), collectedNodes(), garbageCollections());
+    }
+
+    private static DdEdge makeOperator(DdPackage dd, Operation operation) {
+        OperationDataProvider provider = OperationDataProvider.getInstance();
+        switch (operation.operationType()) {
+            case Gate:
+                Gate gate = (Gate) operation;
+                int target = gate.targetQubit()[0];
+                double[][] matrices = new double[target + 1][];
+                matrices[target] = toMatrix(provider.getData(gate));
+                return dd.makeKronecker(matrices);
+            case ControlGate:
+                // |0><0| (x) I + |1><1| (x) U
+                ControlGate controlGate = (ControlGate) operation;
+                int control = controlGate.controlQubit()[0];
+                int controlTarget = controlGate.targetQubit()[0];
+                double[][] idle = new double[Math.max(control, controlTarget) + 1][];
+                double[][] active = new double[idle.length][];
+                idle[control] = PROJECTOR_ZERO;
+                active[control] = PROJECTOR_ONE;
+                active[controlTarget] = toMatrix(provider.getData(controlGate.gate()));
+                return dd.add(dd.makeKronecker(idle), dd.makeKronecker(active));
+            case Function:
+                Function function = (Function) operation;
+                if (function.type() != FunctionType.Swap)
+                    throw new UnsupportedOperationException("Function type '" + function.type() + "' is not supported in a decision diagram simulator.");
+                // Swap function exchanges the first and the last qubit of its range,
+                // SWAP = sum of |i><j| (x) |j><i|
+                int[] targetQubits = function.targetQubits();
+                int first = targetQubits[0];
+                int last = targetQubits[targetQubits.length - 1];
+                if (first == last)
+                    return dd.one();
+                double[][] firstTransitions = { PROJECTOR_ZERO, TRANSITION_ZERO_ONE, TRANSITION_ONE_ZERO, PROJECTOR_ONE };
+                double[][] lastTransitions = { PROJECTOR_ZERO, TRANSITION_ONE_ZERO, TRANSITION_ZERO_ONE, PROJECTOR_ONE };
+                DdEdge swap = dd.zero();
+                for (int i = 0; i < 4; i++) {
+                    double[][] term = new double[last + 1][];
+                    term[first] = firstTransitions[i];
+                    term[last] = lastTransitions[i];
+                    swap = dd.add(swap, dd.makeKronecker(term));
+                }
+                return swap;
+            case CustomFunction:
+                Function customFunction = (Function) operation;
+                ComplexTensor functionData = provider.getData(customFunction.name());
+                if ((1 << customFunction.size()) != functionData.shape()[0])
+                    throw new IllegalArgumentException("Registered custom function data do not fit the function application.");
+                return dd.makeDenseOperator(customFunction.targetQubits()[0], customFunction.size(), functionData.getRawRealData(), functionData.getRawImagData());
+            default:
+                throw new UnsupportedOperationException("Operation type '" + operation.operationType() + "' is not supported in a decision diagram simulator.");
+        }
+    }
+
+    private static double[] toMatrix(ComplexTensor gateData) {
+        float[] real = gateData.getRawRealData();
+        float[] imag = gateData.getRawImagData();
+        double[] matrix = new double[8];
+        for (int i = 0; i < 4; i++) {
+            matrix[2 * i] = real[i];
+            matrix[2 * i + 1] = imag[i];
+        }
+        return matrix;
+    }
+
+    private static double hitRate(long hits, long lookups) {
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.decisiondiagram;
+
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Represents a state of a quantum system as a decision diagram. Every level of
+ * the diagram belongs to one qubit (the root to the qubit n-1), the amplitude
+ * of a basis state is the product of the edge weights along its path. The
+ * nodes of a state diagram are normalized to unit vectors, so the squared
+ * magnitude of a child weight is the probability of its branch.
+ */
+public class StateDiagram {
+    /**
+     * Maximum number of qubits of a state, for which the full state vector can be
+     * computed.
+     */
+    public static final int MAX_STATE_VECTOR_QUBITS = 30;
+
+    private final int noQubits;
+    private final DdEdge root;
+    private final int nodeCount;
+
+    protected StateDiagram(int noQubits, DdEdge root, int nodeCount) {
+        this.noQubits = noQubits;
+        this.root = root;
+        this.nodeCount = nodeCount;
+    }
+
+    /**
+     * Gets the number of qubits of the state.
+     * 
+     * @return number of qubits.
+     */
+    public int qubitCount() {
+        return noQubits;
+    }
+
+    /**
+     * Gets the number of distinct nodes of the diagram (without the terminal
+     * node). A dense state vector corresponds to 2^n - 1 nodes.
+     * 
+     * @return number of nodes.
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Computes the amplitude of the supplied basis state (product of the weights
+     * along its path).
+     * 
+     * @param basisState
+     *            basis state (bit q set if the qubit q is 1).
+     * @return amplitude of the basis state.
+     */
+    public Complex getAmplitude(BitSet basisState) {
+        if (basisState == null)
+            throw new IllegalArgumentException("Invalid basis state supplied (NULL).");
+        DdEdge edge = root;
+        double real = 1, imag = 0;
+        while (!edge.isZero()) {
+            double nextReal = real * edge.real - imag * edge.imag;
+            imag = real * edge.imag + imag * edge.real;
+            real = nextReal;
+            if (edge.node.isTerminal())
+                return new Complex((float) real, (float) imag);
+            edge = edge.node.children[basisState.get(edge.node.level) ? 1 : 0];
+        }
+        return new Complex(0, 0);
+    }
+
+    /**
+     * Computes the probability of measuring the supplied qubit in the state 1.
+     * 
+     * @param qubit
+     *            measured qubit.
+     * @return probability of the outcome 1.
+     */
+    public float getQubitProbability(int qubit) {
+        if (qubit < 0 || qubit >= noQubits)
+            throw new IllegalArgumentException("Invalid qubit supplied.");
+        return (float) getQubitProbability(root.node, qubit, new IdentityHashMap<>());
+    }
+
+    private double getQubitProbability(DdNode node, int qubit, Map<DdNode, Double> probabilities) {
+        DdEdge one = node.children[1];
+        if (node.level == qubit)
+            return one.real * one.real + one.imag * one.imag;
+        Double cached = probabilities.get(node);
+        if (cached != null)
+            return cached;
+        double probability = 0;
+        for (DdEdge child : node.children) {
+            if (!child.isZero())
+                probability += (child.real * child.real + child.imag * child.imag) * getQubitProbability(child.node, qubit, probabilities);
+        }
+        probabilities.put(node, probability);
+        return probability;
+    }
+
+    /**
+     * Samples the outcomes of measuring all qubits without collapsing this state.
+     * The qubits are sampled from the root down, the probability of a branch is
+     * the squared magnitude of its weight.
+     * 
+     * @param random
+     *            random generator for the outcomes.
+     * @return outcomes of all qubits (bit q set if the qubit q collapsed to 1).
+     */
+    public BitSet sample(Random random) {
+        if (random == null)
+            throw new IllegalArgumentException("Invalid random generator supplied (NULL).");
+        BitSet outcomes = new BitSet(noQubits);
+        DdNode node = root.node;
+        while (!node.isTerminal()) {
+            DdEdge zero = node.children[0];
+            DdEdge one = node.children[1];
+            double zeroWeight = zero.real * zero.real + zero.imag * zero.imag;
+            double oneWeight = one.real * one.real + one.imag * one.imag;
+            boolean outcome = random.nextDouble() * (zeroWeight + oneWeight) < oneWeight;
+            if (outcome)
+                outcomes.set(node.level);
+            node = outcome ? one.node : zero.node;
+        }
+        return outcomes;
+    }
+
+    /**
+     * Expands the diagram into the full state vector (up to
+     * MAX_STATE_VECTOR_QUBITS qubits).
+     * 
+     * @return full state vector.
+     */
+    public ComplexTensor toStateVector() {
+        if (noQubits > MAX_STATE_VECTOR_QUBITS)
+            throw new UnsupportedOperationException("State vector of " + noQubits + " qubits is not supported (maximum " + MAX_STATE_VECTOR_QUBITS + " qubits).");
+        float[] real = new float[1 << noQubits];
+        float[] imag = new float[1 << noQubits];
+        expand(root, 1, 0, 0, real, imag);
+        return new ComplexTensor(real, imag, real.length);
+    }
+
+    private static void expand(DdEdge edge, double weightReal, double weightImag, int offset, float[] real, float[] imag) {
+        if (edge.isZero())
+            return;
+        double pathReal = weightReal * edge.real - weightImag * edge.imag;
+        double pathImag = weightReal * edge.imag + weightImag * edge.real;
+        DdNode node = edge.node;
+        if (node.isTerminal()) {
+            real[offset] = (float) pathReal;
+            imag[offset] = (float) pathImag;
+            return;
+        }
+        expand(node.children[0], pathReal, pathImag, offset, real, imag);
+        expand(node.children[1], pathReal, pathImag, offset | 1 << node.level, real, imag);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import uk.ac.manchester.tornado.qsim.circuit.operation.Operation;
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.OperationType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Provides cache blocking for the full state vector simulator. Consecutive
+ * operations, whose qubits are all below the block qubit b, only mix
+ * amplitudes inside aligned blocks of 2^b amplitudes. Such a group of
+ * operations is applied block by block (all operations of the group to one
+ * block, then to the next block), so the group costs a single pass over the
+ * full state vector in the main memory instead of one pass per operation. The
+ * block size is chosen to fit into the L2 cache.
+ * 
+ * The operations are not reordered, therefore the simulated state is identical
+ * to the state simulated without cache blocking. Operations on high qubits can
+ * be brought into the block by remapping the qubits (see FsvQubitLayout).
+ * Instructions (measure and reset) need the whole state vector, so they are
+ * never part of a group.
+ */
+class FsvCacheBlocking {
+    /**
+     * Assumed L2 cache size if it cannot be detected.
+     */
+    protected static final int DEFAULT_L2_CACHE_BYTES = 256 * 1024;
+
+    /**
+     * Maximum number of block qubits.
+     */
+    protected static final int MAX_BLOCK_QUBITS = 30;
+
+    private static final int MIN_BLOCK_QUBITS = 4;
+
+    private final int blockQubits;
+
+    /**
+     * Constructs cache blocking.
+     * 
+     * @param blockQubits
+     *            number of qubits of a block (block of 2^blockQubits amplitudes).
+     */
+    protected FsvCacheBlocking(int blockQubits) {
+        if (blockQubits < 1 || blockQubits > MAX_BLOCK_QUBITS)
+            throw new IllegalArgumentException("Number of block qubits must be between 1 and " + MAX_BLOCK_QUBITS + ".");
+        this.blockQubits = blockQubits;
+    }
+
+    /**
+     * Gets the number of qubits of a block.
+     * 
+     * @return number of block qubits.
+     */
+    protected int blockQubits() {
+        return blockQubits;
+    }
+
+    /**
+     * Gets the number of blocks of the full state vector.
+     * 
+     * @param stateSize
+     *            size of the full state vector.
+     * @return number of blocks (1 if the state fits into a single block).
+     */
+    protected int blockCount(int stateSize) {
+        return Math.max(1, stateSize >> blockQubits);
+    }
+
+    /**
+     * Gets the end (exclusive) of the group of consecutive operations starting at
+     * the supplied index, that can be applied block by block.
+     * 
+     * @param operations
+     *            list of operations.
+     * @param fromIndex
+     *            index of the first operation of the group.
+     * @return index after the last operation of the group (fromIndex if the first
+     *         operation involves a qubit above the block).
+     */
+    protected int groupEnd(List<Operation> operations, int fromIndex) {
+        return groupEnd(operations, fromIndex, null);
+    }
+
+    /**
+     * Gets the end (exclusive) of the group of consecutive operations starting at
+     * the supplied index, that can be applied block by block in the supplied qubit
+     * layout.
+     * 
+     * @param operations
+     *            list of operations.
+     * @param fromIndex
+     *            index of the first operation of the group.
+     * @param layout
+     *            layout of the logical qubits (null - identity layout).
+     * @return index after the last operation of the group (fromIndex if the first
+     *         operation involves a physical qubit above the block).
+     */
+    protected int groupEnd(List<Operation> operations, int fromIndex, FsvQubitLayout layout) {
+        int index = fromIndex;
+        while (index < operations.size() && operations.get(index).operationType() != OperationType.Instruction
+                && (layout != null ? layout.isBlockLocal(operations.get(index)) : isBlockLocal(operations.get(index))))
+            index++;
+        return index;
+    }
+
+    private boolean isBlockLocal(Operation operation) {
+        // Involved qubits cover the whole range of the operation
+        for (int qubit : operation.involvedQubits())
+            if (qubit >= blockQubits)
+                return false;
+        return true;
+    }
+
+    /**
+     * Detects the number of block qubits, so that a block of amplitudes fills a
+     * half of the L2 cache (the other half is left for the operation data and the
+     * neighbouring lines). The L2 cache size is read from sysfs on Linux,
+     * otherwise DEFAULT_L2_CACHE_BYTES is assumed.
+     * 
+     * @param amplitudeBytes
+     *            number of bytes of a single amplitude (both parts).
+     * @return number of block qubits.
+     */
+    protected static int detectBlockQubits(int amplitudeBytes) {
+        long amplitudes = detectL2CacheBytes() / 2 / amplitudeBytes;
+        int blockQubits = 63 - Long.numberOfLeadingZeros(Math.max(1, amplitudes));
+        return Math.max(MIN_BLOCK_QUBITS, Math.min(MAX_BLOCK_QUBITS, blockQubits));
+    }
+
+    private static long detectL2CacheBytes() {
+        Path cacheDirectory = Paths.get("/sys/devices/system/cpu/cpu0/cache");
+        for (int index = 0; index < 8; index++) {
+            Path cache = cacheDirectory.resolve("index" + index);
+            try {
+                if (!Files.isDirectory(cache))
+                    break;
+                String type = Files.readString(cache.resolve("type")).trim();
+                if (Files.readString(cache.resolve("level")).trim().equals("2") && !type.equals("Instruction"))
+                    return parseCacheSize(Files.readString(cache.resolve("size")).trim());
+            } catch (IOException | NumberFormatException | SecurityException ignored) {
+                break;
+            }
+        }
+        return DEFAULT_L2_CACHE_BYTES;
+    }
+
+    private static long parseCacheSize(String size) {
+        // Sizes are reported as e.g. "512K" or "2M"
+        char unit = Character.toUpperCase(size.charAt(size.length() - 1));
+        if (unit == 'K')
+            return Long.parseLong(size.substring(0, size.length() - 1)) * 1024;
+        if (unit == 'M')
+            return Long.parseLong(size.substring(0, size.length() - 1)) * 1024 * 1024;
+        return Long.parseLong(size);
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import uk.ac.manchester.tornado.qsim.circuit.operation.ControlGate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Function;
+import uk.ac.manchester.tornado.qsim.circuit.operation.FusedBlock;
+import uk.ac.manchester.tornado.qsim.circuit.operation.FusedGate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Gate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Operation;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.math.DoubleComplexTensor;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Represents a quantum circuit compiled into the operation table used by the
+ * accelerated full state vector simulator. Each entry of the table is an
+ * operation descriptor (see FsvOperand.applyOperation) and the unitary matrices
+ * of all entries are stored in two flat arrays (single or double precision).
+ * The first entry initializes the full state vector, unless the table
+ * continues the simulation of a state uploaded from the host (a segment of a
+ * dynamic circuit).
+ */
+class FsvCompiledCircuit {
+    private final FsvDataProvider dataProvider;
+    private final boolean doublePrecision;
+    private int[] operations;
+    private float[] operationReal;
+    private float[] operationImag;
+    private double[] doubleOperationReal;
+    private double[] doubleOperationImag;
+    private int noOperations;
+    private int dataSize;
+    private boolean resultVector;
+
+    /**
+     * Compiles the supplied list of operations into the operation table.
+     * 
+     * @param dataProvider
+     *            data provider of the operation unitary matrices.
+     * @param circuitOperations
+     *            operations of the circuit in the order of application.
+     */
+    protected FsvCompiledCircuit(FsvDataProvider dataProvider, List<Operation> circuitOperations) {
+        this(dataProvider, circuitOperations, false);
+    }
+
+    /**
+     * Compiles the supplied list of operations into the operation table.
+     * 
+     * @param dataProvider
+     *            data provider of the operation unitary matrices.
+     * @param circuitOperations
+     *            operations of the circuit in the order of application.
+     * @param doublePrecision
+     *            flag to store the unitary matrices in double precision (only
+     *            the double precision arrays are filled).
+     */
+    protected FsvCompiledCircuit(FsvDataProvider dataProvider, List<Operation> circuitOperations, boolean doublePrecision) {
+        this(dataProvider, circuitOperations, doublePrecision, true);
+    }
+
+    /**
+     * Compiles the supplied list of operations into the operation table.
+     * 
+     * @param dataProvider
+     *            data provider of the operation unitary matrices.
+     * @param circuitOperations
+     *            operations of the circuit in the order of application.
+     * @param doublePrecision
+     *            flag to store the unitary matrices in double precision (only
+     *            the double precision arrays are filled).
+     * @param initialize
+     *            flag to initialize the full state vector by the first entry
+     *            (false - the operations are applied to the current state).
+     */
+    protected FsvCompiledCircuit(FsvDataProvider dataProvider, List<Operation> circuitOperations, boolean doublePrecision, boolean initialize) {
+        this.dataProvider = dataProvider;
+        this.doublePrecision = doublePrecision;
+        operations = new int[(circuitOperations.size() + 1) * FsvOperand.OPERATION_LENGTH];
+        operationReal = new float[doublePrecision ? 1 : (circuitOperations.size() + 1) * 4];
+        operationImag = new float[doublePrecision ? 1 : (circuitOperations.size() + 1) * 4];
+        doubleOperationReal = new double[doublePrecision ? (circuitOperations.size() + 1) * 4 : 1];
+        doubleOperationImag = new double[doublePrecision ? (circuitOperations.size() + 1) * 4 : 1];
+
+        if (initialize)
+            addOperation(FsvOperand.INIT, 0, 0, 0, null);
+        for (int i = 0; i < circuitOperations.size(); i++) {
+            Operation operation = circuitOperations.get(i);
+            switch (operation.operationType()) {
+                case Gate:
+                    addGate(((Gate) operation).targetQubit()[0], operation);
+                    break;
+                case FusedGate:
+                    addGate(((FusedGate) operation).targetQubit()[0], operation);
+                    break;
+                case FusedBlock:
+                    addBlock(((FusedBlock) operation).targetQubits(), operation);
+                    break;
+                case ControlGate:
+                    if (FsvDataProvider.isSwapSequence(circuitOperations, i)) {
+                        // CNOT(a,b), CNOT(b,a), CNOT(a,b) applied as a single swap pass
+                        addOperation(FsvOperand.SWAP, ((ControlGate) operation).controlQubit()[0], ((ControlGate) operation).targetQubit()[0], 0, null);
+                        i += 2;
+                    } else {
+                        addControlGate((ControlGate) operation);
+                    }
+                    break;
+                case Function:
+                    addStandardFunction((Function) operation);
+                    break;
+                case CustomFunction:
+                    addCustomFunction((Function) operation);
+                    break;
+                default:
+                    throw new UnsupportedOperationException("Operation type '" + operation.operationType() + "' is not supported in a full state vector simulator.");
+            }
+        }
+
+        operations = Arrays.copyOf(operations, noOperations * FsvOperand.OPERATION_LENGTH);
+        if (doublePrecision) {
+            doubleOperationReal = Arrays.copyOf(doubleOperationReal, Math.max(dataSize, 1));
+            doubleOperationImag = Arrays.copyOf(doubleOperationImag, Math.max(dataSize, 1));
+        } else {
+            operationReal = Arrays.copyOf(operationReal, Math.max(dataSize, 1));
+            operationImag = Arrays.copyOf(operationImag, Math.max(dataSize, 1));
+        }
+    }
+
+    /**
+     * Gets the operation table (flattened operation descriptors).
+     * 
+     * @return operation table.
+     */
+    protected int[] operations() {
+        return operations;
+    }
+
+    /**
+     * Gets the flattened real parts of the unitary matrices of all operations.
+     * 
+     * @return real parts of the unitary matrices.
+     */
+    protected float[] operationReal() {
+        return operationReal;
+    }
+
+    /**
+     * Gets the flattened imaginary parts of the unitary matrices of all operations.
+     * 
+     * @return imaginary parts of the unitary matrices.
+     */
+    protected float[] operationImag() {
+        return operationImag;
+    }
+
+    /**
+     * Checks whether the unitary matrices are stored in double precision.
+     * 
+     * @return true if compiled with double precision.
+     */
+    protected boolean isDoublePrecision() {
+        return doublePrecision;
+    }
+
+    /**
+     * Gets the flattened real parts of the unitary matrices of all operations in
+     * double precision (compiled with double precision only).
+     * 
+     * @return real parts of the unitary matrices.
+     */
+    protected double[] doubleOperationReal() {
+        return doubleOperationReal;
+    }
+
+    /**
+     * Gets the flattened imaginary parts of the unitary matrices of all operations
+     * in double precision (compiled with double precision only).
+     * 
+     * @return imaginary parts of the unitary matrices.
+     */
+    protected double[] doubleOperationImag() {
+        return doubleOperationImag;
+    }
+
+    /**
+     * Gets the number of entries in the operation table (including the state
+     * initialization, if any).
+     * 
+     * @return number of operation table entries.
+     */
+    protected int size() {
+        return noOperations;
+    }
+
+    /**
+     * Checks whether the operation table contains FUNCTION / COPY_RESULT entries,
+     * which need the state-sized result vector.
+     * 
+     * @return true if the result vector is used.
+     */
+    protected boolean usesResultVector() {
+        return resultVector;
+    }
+
+    private void addGate(int target, Operation gate) {
+        ComplexTensor gateData = dataProvider.getOperationData(gate);
+        if (FsvDataProvider.isPauliX(gateData) || FsvDataProvider.isPauliY(gateData))
+            addOperation(FsvOperand.FLIP, target, 0, FsvDataProvider.isPauliY(gateData) ? 1 : 0, null);
+        else
+            addOperation(FsvDataProvider.isPhaseGate(gateData) ? FsvOperand.PHASE : FsvOperand.GATE, target, 0, 0, gate);
+    }
+
+    private void addControlGate(ControlGate controlGate) {
+        ComplexTensor gateData = dataProvider.getOperationData(controlGate);
+        int target = controlGate.targetQubit()[0];
+        int control = controlGate.controlQubit()[0];
+        if (FsvDataProvider.isPauliX(gateData) || FsvDataProvider.isPauliY(gateData))
+            addOperation(FsvOperand.CONTROL_FLIP, target, control, FsvDataProvider.isPauliY(gateData) ? 1 : 0, null);
+        else
+            addOperation(FsvDataProvider.isPhaseGate(gateData) ? FsvOperand.CONTROL_PHASE : FsvOperand.CONTROL_GATE, target, control, 0, controlGate);
+    }
+
+    private void addBlock(int[] qubits, Operation block) {
+        int d = addOperation(FsvOperand.BLOCK, 0, 0, qubits.length, block);
+        System.arraycopy(qubits, 0, operations, d + 5, qubits.length);
+    }
+
+    private void addStandardFunction(Function standardFunction) {
+        switch (standardFunction.type()) {
+            case Swap:
+                // Swap function exchanges the first and the last qubit of its range
+                int[] qubits = standardFunction.targetQubits();
+                if (qubits.length > 1)
+                    addOperation(FsvOperand.SWAP, qubits[0], qubits[qubits.length - 1], 0, null);
+                break;
+            default:
+                throw new UnsupportedOperationException("Function type '" + standardFunction.type() + "' is not supported in a full state vector simulator.");
+        }
+    }
+
+    private void addCustomFunction(Function customFunction) {
+        addOperation(FsvOperand.FUNCTION, customFunction.targetQubits()[0], 0, customFunction.size(), customFunction);
+        addOperation(FsvOperand.COPY_RESULT, 0, 0, 0, null);
+        resultVector = true;
+    }
+
+    private int addOperation(int kind, int firstQubit, int secondQubit, int flag, Operation dataOperation) {
+        int d = noOperations * FsvOperand.OPERATION_LENGTH;
+        if (d + FsvOperand.OPERATION_LENGTH > operations.length)
+            operations = Arrays.copyOf(operations, operations.length * 2);
+        operations[d] = kind;
+        operations[d + 1] = firstQubit;
+        operations[d + 2] = secondQubit;
+        operations[d + 3] = flag;
+        operations[d + 4] = dataSize;
+        if (dataOperation != null && doublePrecision) {
+            DoubleComplexTensor operationData = dataProvider.getDoubleOperationData(dataOperation);
+            int size = operationData.size();
+            if (dataSize + size > doubleOperationReal.length) {
+                doubleOperationReal = Arrays.copyOf(doubleOperationReal, Math.max(doubleOperationReal.length * 2, dataSize + size));
+                doubleOperationImag = Arrays.copyOf(doubleOperationImag, Math.max(doubleOperationImag.length * 2, dataSize + size));
+            }
+            System.arraycopy(operationData.getRawRealData(), 0, doubleOperationReal, dataSize, size);
+            System.arraycopy(operationData.getRawImagData(), 0, doubleOperationImag, dataSize, size);
+            dataSize += size;
+        } else if (dataOperation != null) {
+            ComplexTensor operationData = dataProvider.getOperationData(dataOperation);
+            int size = operationData.size();
+            if (dataSize + size > operationReal.length) {
+                operationReal = Arrays.copyOf(operationReal, Math.max(operationReal.length * 2, dataSize + size));
+                operationImag = Arrays.copyOf(operationImag, Math.max(operationImag.length * 2, dataSize + size));
+            }
+            System.arraycopy(operationData.getRawRealData(), 0, operationReal, dataSize, size);
+            System.arraycopy(operationData.getRawImagData(), 0, operationImag, dataSize, size);
+            dataSize += size;
+        }
+        noOperations++;
+        return d;
+    }
+}
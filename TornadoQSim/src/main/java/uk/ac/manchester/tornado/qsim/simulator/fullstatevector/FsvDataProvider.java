@@ -21,10 +21,16 @@
  */
 package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
 
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
 import uk.ac.manchester.tornado.qsim.circuit.Step;
 import uk.ac.manchester.tornado.qsim.circuit.operation.*;
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.FunctionType;
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.GateType;
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.OperationType;
 import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.math.DoubleComplexTensor;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -55,11 +61,175 @@ class FsvDataProvider {
                 return provider.getData((Gate) operation);
             case ControlGate:
                 return provider.getData(((ControlGate) operation).gate());
+            case FusedGate:
+                return ((FusedGate) operation).data();
+            case FusedBlock:
+                return ((FusedBlock) operation).data();
+            case CustomFunction:
+                return getCustomFunctionData((Function) operation);
             default:
                 throw new UnsupportedOperationException("Operation type '" + operation.operationType() + "' is not supported in a full state vector simulator.");
         }
     }
 
+    /**
+     * Gets double precision unitary matrix for the supplied operation. Standard
+     * gate coefficients are computed in double precision, fused gates and blocks
+     * carry their double precision matrix, registered custom function data are
+     * widened.
+     * 
+     * @param operation
+     *            quantum operation.
+     * @return double precision unitary matrix representing the quantum operation.
+     */
+    protected DoubleComplexTensor getDoubleOperationData(Operation operation) {
+        OperationDataProvider provider = OperationDataProvider.getInstance();
+        switch (operation.operationType()) {
+            case Gate:
+                return provider.getDoubleData((Gate) operation);
+            case ControlGate:
+                return provider.getDoubleData(((ControlGate) operation).gate());
+            case FusedGate:
+                return ((FusedGate) operation).doubleData();
+            case FusedBlock:
+                return ((FusedBlock) operation).doubleData();
+            case CustomFunction:
+                return new DoubleComplexTensor(getCustomFunctionData((Function) operation));
+            default:
+                throw new UnsupportedOperationException("Operation type '" + operation.operationType() + "' is not supported in a double precision full state vector simulator.");
+        }
+    }
+
+    private ComplexTensor getCustomFunctionData(Function function) {
+        ComplexTensor functionData = OperationDataProvider.getInstance().getData(function.name());
+        if ((1 << function.size()) != functionData.shape()[0])
+            throw new IllegalArgumentException("Registered custom function data do not fit the function application.");
+        return functionData;
+    }
+
+    /**
+     * Checks whether the supplied 2x2 unitary matrix is a phase gate of the form
+     * [[1,0],[0,D]] (e.g. Z, S, T or R), which only changes the amplitudes with the
+     * target bit set.
+     * 
+     * @param gateData
+     *            unitary matrix of a single qubit gate.
+     * @return true if the gate is diagonal with the first component equal to 1.
+     */
+    protected static boolean isPhaseGate(ComplexTensor gateData) {
+        if (gateData.size() != 4)
+            return false;
+        float[] real = gateData.getRawRealData();
+        float[] imag = gateData.getRawImagData();
+        return real[0] == 1 && imag[0] == 0 && real[1] == 0 && imag[1] == 0 && real[2] == 0 && imag[2] == 0;
+    }
+
+    /**
+     * Checks whether the supplied 2x2 unitary matrix is the Pauli X gate
+     * [[0,1],[1,0]], which only exchanges the amplitude pairs.
+     * 
+     * @param gateData
+     *            unitary matrix of a single qubit gate.
+     * @return true if the gate is the Pauli X gate.
+     */
+    protected static boolean isPauliX(ComplexTensor gateData) {
+        if (!isAntiDiagonal(gateData))
+            return false;
+        float[] real = gateData.getRawRealData();
+        float[] imag = gateData.getRawImagData();
+        return real[1] == 1 && imag[1] == 0 && real[2] == 1 && imag[2] == 0;
+    }
+
+    /**
+     * Checks whether the supplied 2x2 unitary matrix is the Pauli Y gate
+     * [[0,-i],[i,0]], which exchanges the amplitude pairs with the phase -i / i.
+     * 
+     * @param gateData
+     *            unitary matrix of a single qubit gate.
+     * @return true if the gate is the Pauli Y gate.
+     */
+    protected static boolean isPauliY(ComplexTensor gateData) {
+        if (!isAntiDiagonal(gateData))
+            return false;
+        float[] real = gateData.getRawRealData();
+        float[] imag = gateData.getRawImagData();
+        return real[1] == 0 && imag[1] == -1 && real[2] == 0 && imag[2] == 1;
+    }
+
+    /**
+     * Checks whether the three operations starting at the supplied index are
+     * CNOT(a,b), CNOT(b,a), CNOT(a,b), which together swap the qubits a and b.
+     * 
+     * @param operations
+     *            list of operations.
+     * @param index
+     *            index of the first operation of the sequence.
+     * @return true if the operations form a swap of two qubits.
+     */
+    protected static boolean isSwapSequence(List<Operation> operations, int index) {
+        if (index + 2 >= operations.size())
+            return false;
+        for (int i = index; i <= index + 2; i++) {
+            Operation operation = operations.get(i);
+            if (operation.operationType() != OperationType.ControlGate || ((ControlGate) operation).gate().type() != GateType.X)
+                return false;
+        }
+        ControlGate first = (ControlGate) operations.get(index);
+        ControlGate second = (ControlGate) operations.get(index + 1);
+        ControlGate third = (ControlGate) operations.get(index + 2);
+        int qubitA = first.controlQubit()[0];
+        int qubitB = first.targetQubit()[0];
+        return second.controlQubit()[0] == qubitB && second.targetQubit()[0] == qubitA && third.controlQubit()[0] == qubitA && third.targetQubit()[0] == qubitB;
+    }
+
+    /**
+     * Gets the qubits, whose amplitudes are changed by the supplied operation. In
+     * contrast to the involved qubits, a controlled gate and a swap function only
+     * act on their two end qubits, a fused block on its target qubits and a
+     * conditional operation on the qubits of its operation, not on the whole range
+     * between them.
+     * 
+     * @param operation
+     *            quantum operation.
+     * @return qubits acted on by the operation.
+     */
+    protected static int[] getOperationQubits(Operation operation) {
+        if (operation.operationType() == OperationType.ControlGate)
+            return new int[] { ((ControlGate) operation).controlQubit()[0], ((ControlGate) operation).targetQubit()[0] };
+        if (operation.operationType() == OperationType.Function && ((Function) operation).type() == FunctionType.Swap) {
+            int[] qubits = ((Function) operation).targetQubits();
+            return new int[] { qubits[0], qubits[qubits.length - 1] };
+        }
+        if (operation.operationType() == OperationType.FusedBlock)
+            return ((FusedBlock) operation).targetQubits();
+        if (operation.operationType() == OperationType.Conditional)
+            return getOperationQubits(((ConditionalOperation) operation).operation());
+        return operation.involvedQubits();
+    }
+
+    private static boolean isAntiDiagonal(ComplexTensor gateData) {
+        if (gateData.size() != 4)
+            return false;
+        float[] real = gateData.getRawRealData();
+        float[] imag = gateData.getRawImagData();
+        return real[0] == 0 && imag[0] == 0 && real[3] == 0 && imag[3] == 0;
+    }
+
+    /**
+     * Gets list of all operations in the supplied quantum circuit, in the order of
+     * application (step by step).
+     * 
+     * @param circuit
+     *            quantum circuit.
+     * @return list of all circuit operations.
+     */
+    protected List<Operation> getCircuitOperations(Circuit circuit) {
+        List<Operation> operations = new ArrayList<>();
+        for (Step step : circuit.getSteps())
+            operations.addAll(getStepOperations(circuit.qubitCount(), step));
+        return operations;
+    }
+
     /**
      * Gets list of all unitary operations in the supplied quantum step.
      * 
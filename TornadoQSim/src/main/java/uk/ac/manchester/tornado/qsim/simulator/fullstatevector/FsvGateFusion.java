@@ -0,0 +1,310 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import uk.ac.manchester.tornado.qsim.circuit.operation.ControlGate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Function;
+import uk.ac.manchester.tornado.qsim.circuit.operation.FusedBlock;
+import uk.ac.manchester.tornado.qsim.circuit.operation.FusedGate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Gate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Instruction;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Operation;
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.OperationType;
+import uk.ac.manchester.tornado.qsim.math.DoubleComplexTensor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Provides gate fusion for the full state vector simulator, so that the full
+ * state vector is iterated once per fused operation instead of once per gate.
+ * 
+ * With the maximum of 1 fused qubit, consecutive single qubit gates acting on
+ * the same qubit (not interrupted by any other operation on that qubit) are
+ * multiplied into a single 2x2 unitary matrix. With the maximum of k > 1 fused
+ * qubits, neighbouring gates and controlled gates that together act on at most
+ * k qubits are multiplied into a single dense 2^k x 2^k block.
+ * 
+ * The products are accumulated in double precision. In double precision mode
+ * the gate coefficients are taken in double precision and the fused operations
+ * keep their double precision matrices, otherwise the products are rounded to
+ * single precision.
+ */
+class FsvGateFusion {
+    private final FsvDataProvider dataProvider;
+    private final int maxFusedQubits;
+    private final boolean doublePrecision;
+    private int passesSaved;
+
+    /**
+     * Constructs gate fusion.
+     * 
+     * @param dataProvider
+     *            data provider for the gate unitary matrices.
+     * @param maxFusedQubits
+     *            maximum number of qubits of a fused operation (1 - single qubit
+     *            gate fusion, 2 to MAX_BLOCK_QUBITS - dense block fusion).
+     * @param doublePrecision
+     *            flag to fuse the gates in double precision.
+     */
+    protected FsvGateFusion(FsvDataProvider dataProvider, int maxFusedQubits, boolean doublePrecision) {
+        if (maxFusedQubits < 1 || maxFusedQubits > FsvOperand.MAX_BLOCK_QUBITS)
+            throw new IllegalArgumentException("Number of fused qubits must be between 1 and " + FsvOperand.MAX_BLOCK_QUBITS + ".");
+        this.dataProvider = dataProvider;
+        this.maxFusedQubits = maxFusedQubits;
+        this.doublePrecision = doublePrecision;
+    }
+
+    /**
+     * Gets the number of full state vector passes saved by the last fusion.
+     * 
+     * @return number of saved passes.
+     */
+    protected int passesSaved() {
+        return passesSaved;
+    }
+
+    /**
+     * Fuses gates in the supplied list of operations. A single gate that could not
+     * be fused with any other gate is kept as the original gate.
+     * 
+     * @param noQubits
+     *            number of qubits in the circuit.
+     * @param operations
+     *            operations in the order of application.
+     * @return operations with fused gates.
+     */
+    protected List<Operation> fuse(int noQubits, List<Operation> operations) {
+        passesSaved = 0;
+        if (maxFusedQubits == 1)
+            return fuseSingleQubitGates(noQubits, operations);
+        return fuseBlocks(noQubits, operations);
+    }
+
+    private List<Operation> fuseSingleQubitGates(int noQubits, List<Operation> operations) {
+        List<Operation> fusedOperations = new ArrayList<>();
+        List<List<Operation>> pendingGates = new ArrayList<>();
+        for (int qubit = 0; qubit < noQubits; qubit++)
+            pendingGates.add(new ArrayList<>());
+
+        for (Operation operation : operations) {
+            if (operation.operationType() == OperationType.Gate) {
+                Gate gate = (Gate) operation;
+                pendingGates.get(gate.targetQubit()[0]).add(gate);
+            } else {
+                for (int qubit : getActingQubits(operation))
+                    flush(qubit, pendingGates.get(qubit), fusedOperations);
+                fusedOperations.add(operation);
+            }
+        }
+        for (int qubit = 0; qubit < noQubits; qubit++)
+            flush(qubit, pendingGates.get(qubit), fusedOperations);
+        return fusedOperations;
+    }
+
+    private void flush(int qubit, List<Operation> pendingGates, List<Operation> fusedOperations) {
+        if (pendingGates.size() == 1) {
+            fusedOperations.add(pendingGates.get(0));
+        } else if (pendingGates.size() > 1) {
+            fusedOperations.add(toFusedOperation(new int[] { qubit }, pendingGates));
+            passesSaved += pendingGates.size() - 1;
+        }
+        pendingGates.clear();
+    }
+
+    private List<Operation> fuseBlocks(int noQubits, List<Operation> operations) {
+        List<Operation> fusedOperations = new ArrayList<>();
+        // Open blocks act on disjoint sets of qubits, hence they commute
+        Block[] qubitBlocks = new Block[noQubits];
+
+        for (Operation operation : operations) {
+            int[] actingQubits = getActingQubits(operation);
+            List<Block> touchedBlocks = new ArrayList<>();
+            for (int qubit : actingQubits)
+                if (qubitBlocks[qubit] != null && !touchedBlocks.contains(qubitBlocks[qubit]))
+                    touchedBlocks.add(qubitBlocks[qubit]);
+
+            if (!isFusable(operation)) {
+                for (Block block : touchedBlocks)
+                    flush(block, qubitBlocks, fusedOperations);
+                fusedOperations.add(operation);
+                continue;
+            }
+
+            long qubitMask = toMask(actingQubits);
+            for (Block block : touchedBlocks)
+                qubitMask |= block.qubitMask;
+
+            Block fusedBlock = new Block();
+            if (Long.bitCount(qubitMask) <= maxFusedQubits) {
+                for (Block block : touchedBlocks)
+                    fusedBlock.operations.addAll(block.operations);
+                fusedBlock.qubitMask = qubitMask;
+            } else {
+                for (Block block : touchedBlocks)
+                    flush(block, qubitBlocks, fusedOperations);
+                fusedBlock.qubitMask = toMask(actingQubits);
+            }
+            fusedBlock.operations.add(operation);
+            for (int qubit = 0; qubit < noQubits; qubit++)
+                if ((fusedBlock.qubitMask & (1L << qubit)) != 0)
+                    qubitBlocks[qubit] = fusedBlock;
+        }
+        for (int qubit = 0; qubit < noQubits; qubit++)
+            if (qubitBlocks[qubit] != null)
+                flush(qubitBlocks[qubit], qubitBlocks, fusedOperations);
+        return fusedOperations;
+    }
+
+    private void flush(Block block, Block[] qubitBlocks, List<Operation> fusedOperations) {
+        for (int qubit = 0; qubit < qubitBlocks.length; qubit++)
+            if (qubitBlocks[qubit] == block)
+                qubitBlocks[qubit] = null;
+
+        int noOperations = block.operations.size();
+        if (noOperations == 1) {
+            fusedOperations.add(block.operations.get(0));
+            return;
+        }
+
+        fusedOperations.add(toFusedOperation(fromMask(block.qubitMask), block.operations));
+        passesSaved += noOperations - 1;
+    }
+
+    private Operation toFusedOperation(int[] blockQubits, List<Operation> operations) {
+        DoubleComplexTensor blockData = buildBlockData(blockQubits, operations);
+        if (blockQubits.length == 1) {
+            if (doublePrecision)
+                return new FusedGate(blockData, blockQubits[0], operations.size());
+            return new FusedGate(blockData.toComplexTensor(), blockQubits[0], operations.size());
+        }
+        if (doublePrecision)
+            return new FusedBlock(blockData, blockQubits, operations.size());
+        return new FusedBlock(blockData.toComplexTensor(), blockQubits, operations.size());
+    }
+
+    private DoubleComplexTensor buildBlockData(int[] blockQubits, List<Operation> operations) {
+        int dimension = 1 << blockQubits.length;
+        double[] real = new double[dimension * dimension];
+        double[] imag = new double[dimension * dimension];
+        for (int i = 0; i < dimension; i++)
+            real[(i * dimension) + i] = 1;
+
+        // Each gate is applied to all columns of the block matrix (U = G * U)
+        for (Operation operation : operations) {
+            DoubleComplexTensor gateData = doublePrecision ? dataProvider.getDoubleOperationData(operation) : new DoubleComplexTensor(dataProvider.getOperationData(operation));
+            int target,controlMask;
+            if (operation.operationType() == OperationType.ControlGate) {
+                ControlGate controlGate = (ControlGate) operation;
+                target = indexOf(blockQubits, controlGate.targetQubit()[0]);
+                controlMask = 1 << indexOf(blockQubits, controlGate.controlQubit()[0]);
+            } else {
+                target = indexOf(blockQubits, getActingQubits(operation)[0]);
+                controlMask = 0;
+            }
+            applyToRows(real, imag, dimension, target, controlMask, gateData.getRawRealData(), gateData.getRawImagData());
+        }
+
+        return new DoubleComplexTensor(real, imag, dimension, dimension);
+    }
+
+    private void applyToRows(double[] real, double[] imag, int dimension, int target, int controlMask, double[] gateReal, double[] gateImag) {
+        for (int rowA = 0; rowA < dimension; rowA++) {
+            if ((rowA & (1 << target)) != 0 || (rowA & controlMask) != controlMask)
+                continue;
+            int rowB = rowA | (1 << target);
+            for (int col = 0; col < dimension; col++) {
+                int a = (rowA * dimension) + col;
+                int b = (rowB * dimension) + col;
+                double valueAReal = real[a];
+                double valueAImag = imag[a];
+                double valueBReal = real[b];
+                double valueBImag = imag[b];
+
+                real[a] = (valueAReal * gateReal[0] - valueAImag * gateImag[0]) + (valueBReal * gateReal[1] - valueBImag * gateImag[1]);
+                imag[a] = (valueAReal * gateImag[0] + valueAImag * gateReal[0]) + (valueBReal * gateImag[1] + valueBImag * gateReal[1]);
+
+                real[b] = (valueAReal * gateReal[2] - valueAImag * gateImag[2]) + (valueBReal * gateReal[3] - valueBImag * gateImag[3]);
+                imag[b] = (valueAReal * gateImag[2] + valueAImag * gateReal[2]) + (valueBReal * gateImag[3] + valueBImag * gateReal[3]);
+            }
+        }
+    }
+
+    private boolean isFusable(Operation operation) {
+        switch (operation.operationType()) {
+            case Gate:
+            case FusedGate:
+            case ControlGate:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private int[] getActingQubits(Operation operation) {
+        switch (operation.operationType()) {
+            case ControlGate:
+                // Qubits between the control and target qubits are not affected
+                ControlGate controlGate = (ControlGate) operation;
+                return new int[] { controlGate.controlQubit()[0], controlGate.targetQubit()[0] };
+            case FusedGate:
+                return ((FusedGate) operation).targetQubit();
+            case FusedBlock:
+                return ((FusedBlock) operation).targetQubits();
+            case Function:
+            case CustomFunction:
+                return ((Function) operation).targetQubits();
+            case Instruction:
+                return new int[] { ((Instruction) operation).targetQubit() };
+            default:
+                return operation.involvedQubits();
+        }
+    }
+
+    private long toMask(int[] qubits) {
+        long mask = 0;
+        for (int qubit : qubits)
+            mask |= 1L << qubit;
+        return mask;
+    }
+
+    private int[] fromMask(long mask) {
+        int[] qubits = new int[Long.bitCount(mask)];
+        for (int i = 0; i < qubits.length; i++) {
+            qubits[i] = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+        }
+        return qubits;
+    }
+
+    private int indexOf(int[] qubits, int qubit) {
+        for (int i = 0; i < qubits.length; i++)
+            if (qubits[i] == qubit)
+                return i;
+        throw new IllegalStateException("Qubit is not part of the fused block.");
+    }
+
+    private static class Block {
+        private final List<Operation> operations = new ArrayList<>();
+        private long qubitMask;
+    }
+}
@@ -0,0 +1,521 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import uk.ac.manchester.tornado.qsim.math.OffHeapComplexVector;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Provides operands used in the off-heap full state vector simulator, which are
+ * applied to a sub-range [fromRow, toRow) of the amplitude pairs of a long
+ * indexed off-heap state vector (see OffHeapComplexVector).
+ * 
+ * The kernels follow the structure of FsvRangeOperand. The amplitude pairs form
+ * contiguous runs (2^lowest qubit amplitudes), which are further split at the
+ * chunk boundaries, so every run is processed with int offsets inside a single
+ * chunk of each part. Short runs (low qubits) are processed pair by pair.
+ */
+class FsvOffHeapOperand {
+    /**
+     * Lowest qubit that forms runs long enough to be processed as runs (shorter
+     * runs are processed pair by pair).
+     */
+    private static final int MIN_RUN_QUBIT = 3;
+
+    /**
+     * Kinds of the operation applied to the pairs of amplitude runs.
+     */
+    private static final int GATE = 0;
+    private static final int PHASE = 1;
+    private static final int FLIP = 2;
+    private static final int FLIP_PHASE = 3;
+
+    /**
+     * Performs application of the standard quantum gate, which is supplied as
+     * decomposed 2x2 unitary matrix [[A,B],[C,D]], to the amplitude pairs [fromRow,
+     * toRow).
+     * 
+     * @param targetQubit
+     *            qubit to which the gate is applied.
+     * @param vector
+     *            off-heap full state vector.
+     * @param fromRow
+     *            first amplitude pair to be processed (inclusive).
+     * @param toRow
+     *            last amplitude pair to be processed (exclusive).
+     * @param gateReal
+     *            real part of the components A, B, C and D of the unitary matrix.
+     * @param gateImag
+     *            imaginary part of the components A, B, C and D of the unitary
+     *            matrix.
+     */
+    protected static void applyGate(int targetQubit, OffHeapComplexVector vector, long fromRow, long toRow, float[] gateReal, float[] gateImag) {
+        applyHalf(GATE, targetQubit, vector, fromRow, toRow, gateReal, gateImag);
+    }
+
+    /**
+     * Performs application of the phase gate, which is supplied as decomposed 2x2
+     * unitary matrix of the form [[1,0],[0,D]], to the amplitude pairs [fromRow,
+     * toRow) (only the amplitudes with the target bit set are changed).
+     * 
+     * @param targetQubit
+     *            qubit to which the gate is applied.
+     * @param vector
+     *            off-heap full state vector.
+     * @param fromRow
+     *            first amplitude pair to be processed (inclusive).
+     * @param toRow
+     *            last amplitude pair to be processed (exclusive).
+     * @param gateReal
+     *            real part of the components A, B, C and D of the unitary matrix.
+     * @param gateImag
+     *            imaginary part of the components A, B, C and D of the unitary
+     *            matrix.
+     */
+    protected static void applyPhase(int targetQubit, OffHeapComplexVector vector, long fromRow, long toRow, float[] gateReal, float[] gateImag) {
+        applyHalf(PHASE, targetQubit, vector, fromRow, toRow, gateReal, gateImag);
+    }
+
+    /**
+     * Performs application of the Pauli X gate (pure swap of the amplitude pairs)
+     * or the Pauli Y gate (swap of the amplitude pairs with the phase -i / i) to the
+     * amplitude pairs [fromRow, toRow).
+     * 
+     * @param targetQubit
+     *            qubit to which the gate is applied.
+     * @param flipPhase
+     *            false for the Pauli X gate, true for the Pauli Y gate.
+     * @param vector
+     *            off-heap full state vector.
+     * @param fromRow
+     *            first amplitude pair to be processed (inclusive).
+     * @param toRow
+     *            last amplitude pair to be processed (exclusive).
+     */
+    protected static void applyFlip(int targetQubit, boolean flipPhase, OffHeapComplexVector vector, long fromRow, long toRow) {
+        applyHalf(flipPhase ? FLIP_PHASE : FLIP, targetQubit, vector, fromRow, toRow, null, null);
+    }
+
+    /**
+     * Performs application of the controlled quantum gate, which is supplied as
+     * decomposed 2x2 unitary matrix [[A,B],[C,D]], to the amplitude pairs [fromRow,
+     * toRow) of the quarter-sized index space, in which the control bit is set.
+     * 
+     * @param targetQubit
+     *            qubit to which the gate is applied.
+     * @param controlQubit
+     *            qubit that controls the gate application.
+     * @param vector
+     *            off-heap full state vector.
+     * @param fromRow
+     *            first controlled amplitude pair to be processed (inclusive).
+     * @param toRow
+     *            last controlled amplitude pair to be processed (exclusive).
+     * @param gateReal
+     *            real part of the components A, B, C and D of the unitary matrix.
+     * @param gateImag
+     *            imaginary part of the components A, B, C and D of the unitary
+     *            matrix.
+     */
+    protected static void applyControlGate(int targetQubit, int controlQubit, OffHeapComplexVector vector, long fromRow, long toRow, float[] gateReal, float[] gateImag) {
+        applyQuarter(GATE, targetQubit, controlQubit, 1L << controlQubit, (1L << controlQubit) | (1L << targetQubit), vector, fromRow, toRow, gateReal, gateImag);
+    }
+
+    /**
+     * Performs application of the controlled phase gate, which is supplied as
+     * decomposed 2x2 unitary matrix of the form [[1,0],[0,D]], to the amplitude
+     * pairs [fromRow, toRow) of the quarter-sized index space, in which the control
+     * bit is set.
+     * 
+     * @param targetQubit
+     *            qubit to which the gate is applied.
+     * @param controlQubit
+     *            qubit that controls the gate application.
+     * @param vector
+     *            off-heap full state vector.
+     * @param fromRow
+     *            first controlled amplitude pair to be processed (inclusive).
+     * @param toRow
+     *            last controlled amplitude pair to be processed (exclusive).
+     * @param gateReal
+     *            real part of the components A, B, C and D of the unitary matrix.
+     * @param gateImag
+     *            imaginary part of the components A, B, C and D of the unitary
+     *            matrix.
+     */
+    protected static void applyControlPhase(int targetQubit, int controlQubit, OffHeapComplexVector vector, long fromRow, long toRow, float[] gateReal, float[] gateImag) {
+        applyQuarter(PHASE, targetQubit, controlQubit, 1L << controlQubit, (1L << controlQubit) | (1L << targetQubit), vector, fromRow, toRow, gateReal, gateImag);
+    }
+
+    /**
+     * Performs application of the controlled Pauli X / Y gate to the amplitude
+     * pairs [fromRow, toRow) of the quarter-sized index space, in which the control
+     * bit is set.
+     * 
+     * @param targetQubit
+     *            qubit to which the gate is applied.
+     * @param controlQubit
+     *            qubit that controls the gate application.
+     * @param flipPhase
+     *            false for the Pauli X gate, true for the Pauli Y gate.
+     * @param vector
+     *            off-heap full state vector.
+     * @param fromRow
+     *            first controlled amplitude pair to be processed (inclusive).
+     * @param toRow
+     *            last controlled amplitude pair to be processed (exclusive).
+     */
+    protected static void applyControlFlip(int targetQubit, int controlQubit, boolean flipPhase, OffHeapComplexVector vector, long fromRow, long toRow) {
+        applyQuarter(flipPhase ? FLIP_PHASE : FLIP, targetQubit, controlQubit, 1L << controlQubit, (1L << controlQubit) | (1L << targetQubit), vector, fromRow, toRow, null, null);
+    }
+
+    /**
+     * Performs the swap of two qubits, which exchanges the amplitudes with the bits
+     * of the qubits set to 10 and 01, for the amplitude pairs [fromRow, toRow) of
+     * the quarter-sized index space, in which the bits differ.
+     * 
+     * @param qubitA
+     *            qubit to be swapped.
+     * @param qubitB
+     *            qubit to be swapped.
+     * @param vector
+     *            off-heap full state vector.
+     * @param fromRow
+     *            first amplitude pair to be processed (inclusive).
+     * @param toRow
+     *            last amplitude pair to be processed (exclusive).
+     */
+    protected static void applySwap(int qubitA, int qubitB, OffHeapComplexVector vector, long fromRow, long toRow) {
+        applyQuarter(FLIP, qubitA, qubitB, 1L << qubitA, 1L << qubitB, vector, fromRow, toRow, null, null);
+    }
+
+    /**
+     * Performs application of the dense block operation, which is supplied as
+     * decomposed 2^k x 2^k unitary matrix acting on k target qubits, to the
+     * amplitude groups [fromRow, toRow). The bit j of the matrix row / column index
+     * corresponds to the j-th target qubit.
+     * 
+     * @param blockQubits
+     *            k target qubits of the block (ascending order).
+     * @param vector
+     *            off-heap full state vector.
+     * @param fromRow
+     *            first group of 2^k amplitudes to be processed (inclusive).
+     * @param toRow
+     *            last group of 2^k amplitudes to be processed (exclusive).
+     * @param blockReal
+     *            flattened real parts of the unitary matrix.
+     * @param blockImag
+     *            flattened imaginary parts of the unitary matrix.
+     */
+    protected static void applyBlock(int[] blockQubits, OffHeapComplexVector vector, long fromRow, long toRow, float[] blockReal, float[] blockImag) {
+        final int noQubits = blockQubits.length;
+        final int dimension = 1 << noQubits;
+        final int chunkBits = vector.chunkBits();
+        final long chunkMask = (1L << chunkBits) - 1;
+
+        long[] offsets = new long[dimension];
+        for (int s = 0; s < dimension; s++)
+            for (int j = 0; j < noQubits; j++)
+                offsets[s] |= (long) ((s >> j) & 1) << blockQubits[j];
+
+        float[] valueReal = new float[dimension];
+        float[] valueImag = new float[dimension];
+
+        for (long i = fromRow; i < toRow; i++) {
+            long base = i;
+            for (int j = 0; j < noQubits; j++) {
+                long maskRight = (1L << blockQubits[j]) - 1;
+                base = (base & maskRight) | ((base & ~maskRight) << 1);
+            }
+
+            for (int s = 0; s < dimension; s++) {
+                long index = base + offsets[s];
+                valueReal[s] = vector.getRealChunk((int) (index >>> chunkBits)).get((int) (index & chunkMask));
+                valueImag[s] = vector.getImagChunk((int) (index >>> chunkBits)).get((int) (index & chunkMask));
+            }
+
+            for (int r = 0, m = 0; r < dimension; r++) {
+                float sumReal = 0;
+                float sumImag = 0;
+                for (int s = 0; s < dimension; s++, m++) {
+                    sumReal += valueReal[s] * blockReal[m] - valueImag[s] * blockImag[m];
+                    sumImag += valueReal[s] * blockImag[m] + valueImag[s] * blockReal[m];
+                }
+                long index = base + offsets[r];
+                vector.getRealChunk((int) (index >>> chunkBits)).put((int) (index & chunkMask), sumReal);
+                vector.getImagChunk((int) (index >>> chunkBits)).put((int) (index & chunkMask), sumImag);
+            }
+        }
+    }
+
+    /**
+     * Applies the operation to the amplitude pairs [fromRow, toRow) of the target
+     * qubit (half-sized index space). Pairs of a low target qubit lie in the same
+     * chunk and are processed chunk by chunk, otherwise in runs that do not cross
+     * chunk boundaries.
+     */
+    private static void applyHalf(int kind, int targetQubit, OffHeapComplexVector vector, long fromRow, long toRow, float[] gateReal, float[] gateImag) {
+        final int chunkBits = vector.chunkBits();
+        final long stride = 1L << targetQubit;
+        if (targetQubit < MIN_RUN_QUBIT && targetQubit < chunkBits) {
+            applyMasked(kind, targetQubit, -1, 0, stride, vector, fromRow, toRow, gateReal, gateImag);
+            return;
+        }
+        final long run = Math.min(stride, 1L << chunkBits);
+
+        long i = fromRow;
+        while (i < toRow) {
+            long offset = i & (run - 1);
+            int length = (int) Math.min(run - offset, toRow - i);
+            long a = ((i >> targetQubit) << (targetQubit + 1)) | (i & (stride - 1));
+            applyRun(kind, vector, a, a + stride, length, gateReal, gateImag);
+            i += length;
+        }
+    }
+
+    /**
+     * Applies the operation to the amplitude pairs base | bitsA and base | bitsB
+     * for the indices [fromRow, toRow) of the quarter-sized index space, where base
+     * has 0 bits at the positions of both qubits. Pairs of a low qubit are
+     * processed chunk by chunk, otherwise in runs that do not cross chunk
+     * boundaries.
+     */
+    private static void applyQuarter(int kind, int qubitA, int qubitB, long bitsA, long bitsB, OffHeapComplexVector vector, long fromRow, long toRow, float[] gateReal, float[] gateImag) {
+        final int chunkBits = vector.chunkBits();
+        final int lowQubit = Math.min(qubitA, qubitB);
+        final int highQubit = Math.max(qubitA, qubitB);
+        if (lowQubit < MIN_RUN_QUBIT && lowQubit < chunkBits) {
+            applyMasked(kind, lowQubit, highQubit, bitsA, bitsB, vector, fromRow, toRow, gateReal, gateImag);
+            return;
+        }
+        final long run = Math.min(1L << lowQubit, 1L << chunkBits);
+
+        long i = fromRow;
+        while (i < toRow) {
+            long offset = i & (run - 1);
+            int length = (int) Math.min(run - offset, toRow - i);
+            long base = insertZeroBits(i, lowQubit, highQubit);
+            applyRun(kind, vector, base | bitsA, base | bitsB, length, gateReal, gateImag);
+            i += length;
+        }
+    }
+
+    /**
+     * Applies the operation to the amplitude pairs of a low qubit segment by
+     * segment, where each segment of rows maps to a single chunk of each amplitude
+     * of the pair. Inside the segment, the 0 bits are inserted at the positions of
+     * the low qubit and of the high qubit (if it lies inside the chunk) using int
+     * arithmetic.
+     * 
+     * @param highQubit
+     *            high qubit of the quarter-sized index space (-1 for the half-sized
+     *            index space of a single qubit).
+     */
+    private static void applyMasked(int kind, int lowQubit, int highQubit, long bitsA, long bitsB, OffHeapComplexVector vector, long fromRow, long toRow, float[] gateReal, float[] gateImag) {
+        final int chunkBits = vector.chunkBits();
+        final long chunkMask = (1L << chunkBits) - 1;
+        // In-chunk high qubit halves the rows of a segment, otherwise it selects the chunk
+        final int localHighQubit = highQubit < chunkBits ? highQubit : -1;
+        final int segmentBits = localHighQubit >= 0 ? chunkBits - 2 : chunkBits - 1;
+
+        long i = fromRow;
+        while (i < toRow) {
+            long segmentStart = (i >> segmentBits) << segmentBits;
+            long segmentEnd = Math.min(toRow, segmentStart + (1L << segmentBits));
+            // Index of the first pair of the segment (all in-chunk row bits are 0)
+            long first = highQubit >= 0 ? insertZeroBits(segmentStart, lowQubit, highQubit) : segmentStart << 1;
+            long a = first | bitsA;
+            long b = first | bitsB;
+
+            FloatBuffer realA = vector.getRealChunk((int) (a >>> chunkBits));
+            FloatBuffer imagA = vector.getImagChunk((int) (a >>> chunkBits));
+            FloatBuffer realB = vector.getRealChunk((int) (b >>> chunkBits));
+            FloatBuffer imagB = vector.getImagChunk((int) (b >>> chunkBits));
+            int offsetA = (int) (a & chunkMask);
+            int offsetB = (int) (b & chunkMask);
+            int fromLocal = (int) (i - segmentStart);
+            int toLocal = (int) (segmentEnd - segmentStart);
+
+            if (kind == GATE)
+                applyPairsMasked(lowQubit, localHighQubit, realA, imagA, offsetA, realB, imagB, offsetB, fromLocal, toLocal, gateReal, gateImag);
+            else if (kind == PHASE)
+                applyPhaseMasked(lowQubit, localHighQubit, realB, imagB, offsetB, fromLocal, toLocal, gateReal, gateImag);
+            else
+                flipMasked(lowQubit, localHighQubit, realA, imagA, offsetA, realB, imagB, offsetB, fromLocal, toLocal, kind == FLIP_PHASE);
+            i = segmentEnd;
+        }
+    }
+
+    /**
+     * Applies the operation to the contiguous runs of amplitudes [a, a+length) and
+     * [b, b+length), each of them inside a single chunk.
+     */
+    private static void applyRun(int kind, OffHeapComplexVector vector, long a, long b, int length, float[] gateReal, float[] gateImag) {
+        final int chunkBits = vector.chunkBits();
+        final long chunkMask = (1L << chunkBits) - 1;
+        FloatBuffer realA = vector.getRealChunk((int) (a >>> chunkBits));
+        FloatBuffer imagA = vector.getImagChunk((int) (a >>> chunkBits));
+        FloatBuffer realB = vector.getRealChunk((int) (b >>> chunkBits));
+        FloatBuffer imagB = vector.getImagChunk((int) (b >>> chunkBits));
+        int offsetA = (int) (a & chunkMask);
+        int offsetB = (int) (b & chunkMask);
+
+        if (kind == GATE)
+            applyPairs(realA, imagA, offsetA, realB, imagB, offsetB, length, gateReal, gateImag);
+        else if (kind == PHASE)
+            applyPhaseRun(realB, imagB, offsetB, length, gateReal, gateImag);
+        else
+            flipRun(realA, imagA, offsetA, realB, imagB, offsetB, length, kind == FLIP_PHASE);
+    }
+
+    private static void applyPairs(FloatBuffer realA, FloatBuffer imagA, int offsetA, FloatBuffer realB, FloatBuffer imagB, int offsetB, int length, float[] gateReal, float[] gateImag) {
+        final float aR = gateReal[0], bR = gateReal[1], cR = gateReal[2], dR = gateReal[3];
+        final float aI = gateImag[0], bI = gateImag[1], cI = gateImag[2], dI = gateImag[3];
+
+        for (int j = 0; j < length; j++) {
+            float valueAReal = realA.get(offsetA + j);
+            float valueAImag = imagA.get(offsetA + j);
+            float valueBReal = realB.get(offsetB + j);
+            float valueBImag = imagB.get(offsetB + j);
+
+            realA.put(offsetA + j, (valueAReal * aR - valueAImag * aI) + (valueBReal * bR - valueBImag * bI));
+            imagA.put(offsetA + j, (valueAReal * aI + valueAImag * aR) + (valueBReal * bI + valueBImag * bR));
+
+            realB.put(offsetB + j, (valueAReal * cR - valueAImag * cI) + (valueBReal * dR - valueBImag * dI));
+            imagB.put(offsetB + j, (valueAReal * cI + valueAImag * cR) + (valueBReal * dI + valueBImag * dR));
+        }
+    }
+
+    private static void applyPhaseRun(FloatBuffer realB, FloatBuffer imagB, int offsetB, int length, float[] gateReal, float[] gateImag) {
+        final float dR = gateReal[3], dI = gateImag[3];
+
+        for (int j = offsetB, end = offsetB + length; j < end; j++) {
+            float valueBReal = realB.get(j);
+            float valueBImag = imagB.get(j);
+            realB.put(j, valueBReal * dR - valueBImag * dI);
+            imagB.put(j, valueBReal * dI + valueBImag * dR);
+        }
+    }
+
+    private static void flipRun(FloatBuffer realA, FloatBuffer imagA, int offsetA, FloatBuffer realB, FloatBuffer imagB, int offsetB, int length, boolean flipPhase) {
+        for (int j = 0; j < length; j++) {
+            float valueAReal = realA.get(offsetA + j);
+            float valueAImag = imagA.get(offsetA + j);
+            float valueBReal = realB.get(offsetB + j);
+            float valueBImag = imagB.get(offsetB + j);
+            if (flipPhase) {
+                realA.put(offsetA + j, valueBImag);
+                imagA.put(offsetA + j, -valueBReal);
+                realB.put(offsetB + j, -valueAImag);
+                imagB.put(offsetB + j, valueAReal);
+            } else {
+                realA.put(offsetA + j, valueBReal);
+                imagA.put(offsetA + j, valueBImag);
+                realB.put(offsetB + j, valueAReal);
+                imagB.put(offsetB + j, valueAImag);
+            }
+        }
+    }
+
+    private static void applyPairsMasked(int lowQubit, int highQubit, FloatBuffer realA, FloatBuffer imagA, int offsetA, FloatBuffer realB, FloatBuffer imagB, int offsetB, int fromLocal, int toLocal, float[] gateReal, float[] gateImag) {
+        final float aR = gateReal[0], bR = gateReal[1], cR = gateReal[2], dR = gateReal[3];
+        final float aI = gateImag[0], bI = gateImag[1], cI = gateImag[2], dI = gateImag[3];
+
+        for (int r = fromLocal; r < toLocal; r++) {
+            int local = localIndex(r, lowQubit, highQubit);
+            int a = offsetA + local;
+            int b = offsetB + local;
+
+            float valueAReal = realA.get(a);
+            float valueAImag = imagA.get(a);
+            float valueBReal = realB.get(b);
+            float valueBImag = imagB.get(b);
+
+            realA.put(a, (valueAReal * aR - valueAImag * aI) + (valueBReal * bR - valueBImag * bI));
+            imagA.put(a, (valueAReal * aI + valueAImag * aR) + (valueBReal * bI + valueBImag * bR));
+
+            realB.put(b, (valueAReal * cR - valueAImag * cI) + (valueBReal * dR - valueBImag * dI));
+            imagB.put(b, (valueAReal * cI + valueAImag * cR) + (valueBReal * dI + valueBImag * dR));
+        }
+    }
+
+    private static void applyPhaseMasked(int lowQubit, int highQubit, FloatBuffer realB, FloatBuffer imagB, int offsetB, int fromLocal, int toLocal, float[] gateReal, float[] gateImag) {
+        final float dR = gateReal[3], dI = gateImag[3];
+
+        for (int r = fromLocal; r < toLocal; r++) {
+            int b = offsetB + localIndex(r, lowQubit, highQubit);
+            float valueBReal = realB.get(b);
+            float valueBImag = imagB.get(b);
+            realB.put(b, valueBReal * dR - valueBImag * dI);
+            imagB.put(b, valueBReal * dI + valueBImag * dR);
+        }
+    }
+
+    private static void flipMasked(int lowQubit, int highQubit, FloatBuffer realA, FloatBuffer imagA, int offsetA, FloatBuffer realB, FloatBuffer imagB, int offsetB, int fromLocal, int toLocal, boolean flipPhase) {
+        for (int r = fromLocal; r < toLocal; r++) {
+            int local = localIndex(r, lowQubit, highQubit);
+            int a = offsetA + local;
+            int b = offsetB + local;
+            float valueAReal = realA.get(a);
+            float valueAImag = imagA.get(a);
+            float valueBReal = realB.get(b);
+            float valueBImag = imagB.get(b);
+            if (flipPhase) {
+                realA.put(a, valueBImag);
+                imagA.put(a, -valueBReal);
+                realB.put(b, -valueAImag);
+                imagB.put(b, valueAReal);
+            } else {
+                realA.put(a, valueBReal);
+                imagA.put(a, valueBImag);
+                realB.put(b, valueAReal);
+                imagB.put(b, valueAImag);
+            }
+        }
+    }
+
+    /**
+     * Inserts 0 bit at the position lowQubit and optionally at the position
+     * highQubit (-1 if none) of the in-chunk row index.
+     */
+    private static int localIndex(int row, int lowQubit, int highQubit) {
+        int maskLow = (1 << lowQubit) - 1;
+        int index = (row & maskLow) | ((row & ~maskLow) << 1);
+        if (highQubit < 0)
+            return index;
+        int maskHigh = (1 << highQubit) - 1;
+        return (index & maskHigh) | ((index & ~maskHigh) << 1);
+    }
+
+    /**
+     * Inserts 0 bits at the positions lowQubit and highQubit (lowQubit <
+     * highQubit) of the index.
+     */
+    private static long insertZeroBits(long index, int lowQubit, int highQubit) {
+        long maskLow = (1L << lowQubit) - 1;
+        index = (index & maskLow) | ((index & ~maskLow) << 1);
+        long maskHigh = (1L << highQubit) - 1;
+        return (index & maskHigh) | ((index & ~maskHigh) << 1);
+    }
+}
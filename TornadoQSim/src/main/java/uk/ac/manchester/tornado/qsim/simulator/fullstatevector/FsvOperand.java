@@ -30,87 +30,585 @@ import uk.ac.manchester.tornado.api.annotations.Parallel;
  * @author Ales Kubicek
  */
 class FsvOperand {
+    /**
+     * Maximum number of target qubits of a dense block operation (size of the
+     * private arrays used by the block kernel).
+     */
+    protected static final int MAX_BLOCK_QUBITS = 5;
+
+    /**
+     * Length of the operation descriptor in the operation table: kind, target
+     * (first) qubit, control (second) qubit, flag / number of qubits, offset of the
+     * unitary matrix and up to MAX_BLOCK_QUBITS block qubits.
+     */
+    protected static final int OPERATION_LENGTH = 5 + MAX_BLOCK_QUBITS;
 
     /**
-     * Performs application of the standard quantum gate, which is supplied as
-     * decomposed 2x2 unitary matrix. The form of the matrix is [[A,B],[C,D]].
+     * Kinds of operations applied by the operation kernel.
+     */
+    protected static final int INIT = 0;
+    protected static final int GATE = 1;
+    protected static final int CONTROL_GATE = 2;
+    protected static final int PHASE = 3;
+    protected static final int CONTROL_PHASE = 4;
+    protected static final int FLIP = 5;
+    protected static final int CONTROL_FLIP = 6;
+    protected static final int SWAP = 7;
+    protected static final int BLOCK = 8;
+    protected static final int FUNCTION = 9;
+    protected static final int COPY_RESULT = 10;
+
+    /**
+     * Performs application of a single operation of the operation table to the
+     * full state vector, which stays resident on the device between the
+     * applications. The operation is described by the operation descriptor at the
+     * position index * OPERATION_LENGTH of the operation table:
+     * <ul>
+     * <li>[0] - kind of the operation (INIT, GATE, CONTROL_GATE, ...),</li>
+     * <li>[1] - target qubit (first qubit of a swap or a function range),</li>
+     * <li>[2] - control qubit (second qubit of a swap),</li>
+     * <li>[3] - flag (1 for the Pauli Y flip) or number of qubits k of a block or a
+     * function,</li>
+     * <li>[4] - offset of the unitary matrix in the flattened matrix data,</li>
+     * <li>[5..5+k) - target qubits of a block (ascending order).</li>
+     * </ul>
+     * Single qubit gates are supplied as decomposed 2x2 unitary matrix in the form
+     * [[A,B],[C,D]], blocks and functions as decomposed 2^k x 2^k unitary matrix.
+     * Functions are applied out-of-place into the result vector, which is copied
+     * back by the COPY_RESULT operation.
      * 
-     * @param targetQubit
-     *            qubit to which the gate is applied.
+     * @param operations
+     *            operation table (flattened operation descriptors).
+     * @param index
+     *            index of the operation in the operation table.
      * @param real
      *            flattened real parts of the full state vector.
      * @param imag
      *            flattened imaginary parts of the full state vector.
+     * @param resultReal
+     *            flattened real parts of the result vector.
+     * @param resultImag
+     *            flattened imaginary parts of the result vector.
      * @param halfRows
      *            half dimension of the full state vector.
-     * @param gateReal
-     *            real part of the components A, B, C and D of the unitary matrix.
-     * @param gateImag
-     *            imaginary part of the components A, B, C and D of the unitary
-     *            matrix.
+     * @param operationReal
+     *            flattened real parts of the unitary matrices.
+     * @param operationImag
+     *            flattened imaginary parts of the unitary matrices.
      */
-
-    protected static void applyGate(int[] targetQubit, float[] real, float[] imag, final int halfRows, float[] gateReal, float[] gateImag) {
+    protected static void applyOperation(int[] operations, final int index, float[] real, float[] imag, float[] resultReal, float[] resultImag, final int halfRows, float[] operationReal, float[] operationImag) {
         for (@Parallel int i = 0; i < halfRows; i++) {
-            int maskRight = (1 << targetQubit[0]) - 1;
-            int maskLeft = ~maskRight;
+            // Private arrays of constant size, allocated unconditionally at the
+            // top of the loop body, so that the kernel can lower them
+            float[] valueReal = new float[1 << MAX_BLOCK_QUBITS];
+            float[] valueImag = new float[1 << MAX_BLOCK_QUBITS];
+            int d = index * OPERATION_LENGTH;
+            int kind = operations[d];
+            int offset = operations[d + 4];
+            if (kind == INIT) {
+                initialize(i, real, imag, halfRows);
+            } else if (kind == GATE) {
+                applyGate(i, operations[d + 1], real, imag, operationReal, operationImag, offset);
+            } else if (kind == CONTROL_GATE) {
+                if (i < halfRows / 2)
+                    applyControlGate(i, operations[d + 1], operations[d + 2], real, imag, operationReal, operationImag, offset);
+            } else if (kind == PHASE) {
+                applyPhase(i, operations[d + 1], real, imag, operationReal, operationImag, offset);
+            } else if (kind == CONTROL_PHASE) {
+                if (i < halfRows / 2)
+                    applyControlPhase(i, operations[d + 1], operations[d + 2], real, imag, operationReal, operationImag, offset);
+            } else if (kind == FLIP) {
+                applyFlip(i, operations[d + 1], operations[d + 3], real, imag);
+            } else if (kind == CONTROL_FLIP) {
+                if (i < halfRows / 2)
+                    applyControlFlip(i, operations[d + 1], operations[d + 2], operations[d + 3], real, imag);
+            } else if (kind == SWAP) {
+                if (i < halfRows / 2)
+                    applySwap(i, operations[d + 1], operations[d + 2], real, imag);
+            } else if (kind == BLOCK) {
+                if (i < (halfRows >> (operations[d + 3] - 1)))
+                    applyBlock(i, operations, d, real, imag, operationReal, operationImag, offset, valueReal, valueImag);
+            } else if (kind == FUNCTION) {
+                applyFunction(i, operations[d + 1], operations[d + 3], real, imag, resultReal, resultImag, operationReal, operationImag, offset);
+                applyFunction(i + halfRows, operations[d + 1], operations[d + 3], real, imag, resultReal, resultImag, operationReal, operationImag, offset);
+            } else if (kind == COPY_RESULT) {
+                real[i] = resultReal[i];
+                imag[i] = resultImag[i];
+                real[i + halfRows] = resultReal[i + halfRows];
+                imag[i + halfRows] = resultImag[i + halfRows];
+            }
+        }
+    }
+
+    /**
+     * Sets the amplitudes i and i + halfRows of the initial state |0...0>.
+     */
+    private static void initialize(int i, float[] real, float[] imag, int halfRows) {
+        real[i] = i == 0 ? 1 : 0;
+        imag[i] = 0;
+        real[i + halfRows] = 0;
+        imag[i + halfRows] = 0;
+    }
+
+    /**
+     * Applies the 2x2 unitary matrix to the amplitude pair i of the target qubit.
+     */
+    private static void applyGate(int i, int targetQubit, float[] real, float[] imag, float[] gateReal, float[] gateImag, int offset) {
+        int maskRight = (1 << targetQubit) - 1;
+        int maskLeft = ~maskRight;
+
+        int a = (i & maskRight) | ((i & maskLeft) << 1);
+        int b = a | (1 << targetQubit);
+
+        applyPair(a, b, real, imag, gateReal, gateImag, offset);
+    }
+
+    /**
+     * Applies the 2x2 unitary matrix to the amplitude pair i of the quarter-sized
+     * index space, in which the control bit is set.
+     */
+    private static void applyControlGate(int i, int targetQubit, int controlQubit, float[] real, float[] imag, float[] gateReal, float[] gateImag, int offset) {
+        int a = insertZeroBits(i, targetQubit, controlQubit) | (1 << controlQubit);
+        int b = a | (1 << targetQubit);
+
+        applyPair(a, b, real, imag, gateReal, gateImag, offset);
+    }
+
+    /**
+     * Multiplies the amplitude i of the half with the target bit set by the phase
+     * D of the matrix [[1,0],[0,D]].
+     */
+    private static void applyPhase(int i, int targetQubit, float[] real, float[] imag, float[] gateReal, float[] gateImag, int offset) {
+        int maskRight = (1 << targetQubit) - 1;
+        int maskLeft = ~maskRight;
+
+        int b = (i & maskRight) | ((i & maskLeft) << 1) | (1 << targetQubit);
+
+        applyPhaseShift(b, real, imag, gateReal, gateImag, offset);
+    }
+
+    /**
+     * Multiplies the amplitude i of the quarter with both the control and the
+     * target bit set by the phase D of the matrix [[1,0],[0,D]].
+     */
+    private static void applyControlPhase(int i, int targetQubit, int controlQubit, float[] real, float[] imag, float[] gateReal, float[] gateImag, int offset) {
+        int b = insertZeroBits(i, targetQubit, controlQubit) | (1 << controlQubit) | (1 << targetQubit);
+
+        applyPhaseShift(b, real, imag, gateReal, gateImag, offset);
+    }
+
+    /**
+     * Applies the Pauli X (flipPhase 0) or the Pauli Y (flipPhase 1) gate to the
+     * amplitude pair i of the target qubit.
+     */
+    private static void applyFlip(int i, int targetQubit, int flipPhase, float[] real, float[] imag) {
+        int maskRight = (1 << targetQubit) - 1;
+        int maskLeft = ~maskRight;
+
+        int a = (i & maskRight) | ((i & maskLeft) << 1);
+        int b = a | (1 << targetQubit);
 
-            int a = (i & maskRight) | ((i & maskLeft) << 1);
-            int b = a | (1 << targetQubit[0]);
+        exchange(a, b, flipPhase, real, imag);
+    }
 
-            float valueAReal = real[a];
-            float valueAImag = imag[a];
-            float valueBReal = real[b];
-            float valueBImag = imag[b];
+    /**
+     * Applies the Pauli X (flipPhase 0) or the Pauli Y (flipPhase 1) gate to the
+     * amplitude pair i of the quarter-sized index space, in which the control bit
+     * is set.
+     */
+    private static void applyControlFlip(int i, int targetQubit, int controlQubit, int flipPhase, float[] real, float[] imag) {
+        int a = insertZeroBits(i, targetQubit, controlQubit) | (1 << controlQubit);
+        int b = a | (1 << targetQubit);
 
-            real[a] = (valueAReal * gateReal[0] - valueAImag * gateImag[0]) + (valueBReal * gateReal[1] - valueBImag * gateImag[1]);
-            imag[a] = (valueAReal * gateImag[0] + valueAImag * gateReal[0]) + (valueBReal * gateImag[1] + valueBImag * gateReal[1]);
+        exchange(a, b, flipPhase, real, imag);
+    }
 
-            real[b] = (valueAReal * gateReal[2] - valueAImag * gateImag[2]) + (valueBReal * gateReal[3] - valueBImag * gateImag[3]);
-            imag[b] = (valueAReal * gateImag[2] + valueAImag * gateReal[2]) + (valueBReal * gateImag[3] + valueBImag * gateReal[3]);
+    /**
+     * Exchanges the amplitudes i of the quarter-sized index space with the bits of
+     * the swapped qubits set to 10 and 01.
+     */
+    private static void applySwap(int i, int qubitA, int qubitB, float[] real, float[] imag) {
+        int index = insertZeroBits(i, qubitA, qubitB);
+
+        exchange(index | (1 << qubitA), index | (1 << qubitB), 0, real, imag);
+    }
+
+    /**
+     * Applies the 2^k x 2^k unitary matrix to the amplitude group i. The bit j of
+     * the matrix row / column index corresponds to the j-th target qubit of the
+     * operation descriptor starting at d.
+     */
+    private static void applyBlock(int i, int[] operations, int d, float[] real, float[] imag, float[] blockReal, float[] blockImag, int offset, float[] valueReal, float[] valueImag) {
+        int noQubits = operations[d + 3];
+        int dimension = 1 << noQubits;
+
+        // Insert 0 bits at the positions of the target qubits
+        int base = i;
+        for (int j = 0; j < noQubits; j++) {
+            int maskRight = (1 << operations[d + 5 + j]) - 1;
+            base = (base & maskRight) | ((base & ~maskRight) << 1);
+        }
+
+        for (int s = 0; s < dimension; s++) {
+            int index = base;
+            for (int j = 0; j < noQubits; j++)
+                index = index | (((s >> j) & 1) << operations[d + 5 + j]);
+            valueReal[s] = real[index];
+            valueImag[s] = imag[index];
+        }
+
+        for (int r = 0; r < dimension; r++) {
+            float sumReal = 0;
+            float sumImag = 0;
+            for (int s = 0; s < dimension; s++) {
+                int m = offset + (r * dimension) + s;
+                sumReal += valueReal[s] * blockReal[m] - valueImag[s] * blockImag[m];
+                sumImag += valueReal[s] * blockImag[m] + valueImag[s] * blockReal[m];
+            }
+            int index = base;
+            for (int j = 0; j < noQubits; j++)
+                index = index | (((r >> j) & 1) << operations[d + 5 + j]);
+            real[index] = sumReal;
+            imag[index] = sumImag;
         }
     }
 
     /**
-     * Performs application of the standard quantum gate, which is supplied as
-     * decomposed 2x2 unitary matrix. The form of the matrix is [[A,B],[C,D]].
-     * 
-     * @param targetQubit
-     *            qubit to which the gate is applied.
-     * @param controlQubit
-     *            qubit that controls the gate application.
-     * @param real
-     *            flattened real parts of the full state vector.
-     * @param imag
-     *            flattened imaginary parts of the full state vector.
-     * @param halfRows
-     *            half dimension of the full state vector.
-     * @param gateReal
-     *            real part of the components A, B, C and D of the unitary matrix.
-     * @param gateImag
-     *            imaginary part of the components A, B, C and D of the unitary
-     *            matrix.
+     * Computes the amplitude i of the result vector after the application of the
+     * 2^k x 2^k unitary matrix to the contiguous range of k qubits starting at
+     * fromQubit. The bit j of the matrix row / column index corresponds to the
+     * qubit fromQubit + j.
+     */
+    private static void applyFunction(int i, int fromQubit, int noQubits, float[] real, float[] imag, float[] resultReal, float[] resultImag, float[] functionReal, float[] functionImag, int offset) {
+        int dimension = 1 << noQubits;
+        int mask = (dimension - 1) << fromQubit;
+        int r = (i & mask) >> fromQubit;
+        int base = i & ~mask;
+
+        float sumReal = 0;
+        float sumImag = 0;
+        for (int s = 0; s < dimension; s++) {
+            int index = base | (s << fromQubit);
+            int m = offset + (r * dimension) + s;
+            sumReal += real[index] * functionReal[m] - imag[index] * functionImag[m];
+            sumImag += real[index] * functionImag[m] + imag[index] * functionReal[m];
+        }
+        resultReal[i] = sumReal;
+        resultImag[i] = sumImag;
+    }
+
+    /**
+     * Applies the 2x2 unitary matrix [[A,B],[C,D]] starting at the offset to the
+     * amplitudes a and b.
+     */
+    private static void applyPair(int a, int b, float[] real, float[] imag, float[] gateReal, float[] gateImag, int offset) {
+        float valueAReal = real[a];
+        float valueAImag = imag[a];
+        float valueBReal = real[b];
+        float valueBImag = imag[b];
+
+        float aR = gateReal[offset], bR = gateReal[offset + 1], cR = gateReal[offset + 2], dR = gateReal[offset + 3];
+        float aI = gateImag[offset], bI = gateImag[offset + 1], cI = gateImag[offset + 2], dI = gateImag[offset + 3];
+
+        real[a] = (valueAReal * aR - valueAImag * aI) + (valueBReal * bR - valueBImag * bI);
+        imag[a] = (valueAReal * aI + valueAImag * aR) + (valueBReal * bI + valueBImag * bR);
+
+        real[b] = (valueAReal * cR - valueAImag * cI) + (valueBReal * dR - valueBImag * dI);
+        imag[b] = (valueAReal * cI + valueAImag * cR) + (valueBReal * dI + valueBImag * dR);
+    }
+
+    /**
+     * Multiplies the amplitude b by the phase D of the matrix [[A,B],[C,D]]
+     * starting at the offset.
+     */
+    private static void applyPhaseShift(int b, float[] real, float[] imag, float[] gateReal, float[] gateImag, int offset) {
+        float valueBReal = real[b];
+        float valueBImag = imag[b];
+
+        real[b] = valueBReal * gateReal[offset + 3] - valueBImag * gateImag[offset + 3];
+        imag[b] = valueBReal * gateImag[offset + 3] + valueBImag * gateReal[offset + 3];
+    }
+
+    /**
+     * Exchanges the amplitudes a and b, optionally (flipPhase 1) multiplying them
+     * by the phase -i (new amplitude a) and i (new amplitude b).
      */
-    protected static void applyControlGate(int[] targetQubit, int[] controlQubit, float[] real, float[] imag, final int halfRows, float[] gateReal, float[] gateImag) {
+    private static void exchange(int a, int b, int flipPhase, float[] real, float[] imag) {
+        float valueAReal = real[a];
+        float valueAImag = imag[a];
+        float valueBReal = real[b];
+        float valueBImag = imag[b];
+
+        if (flipPhase == 0) {
+            real[a] = valueBReal;
+            imag[a] = valueBImag;
+            real[b] = valueAReal;
+            imag[b] = valueAImag;
+        } else {
+            real[a] = valueBImag;
+            imag[a] = -valueBReal;
+            real[b] = -valueAImag;
+            imag[b] = valueAReal;
+        }
+    }
+
+    /**
+     * Performs application of a single operation of the operation table to the
+     * double precision full state vector (see the single precision variant for
+     * the operation descriptor and the parameters). The unitary matrices are
+     * supplied in double precision as well.
+     */
+    protected static void applyOperation(int[] operations, final int index, double[] real, double[] imag, double[] resultReal, double[] resultImag, final int halfRows, double[] operationReal, double[] operationImag) {
         for (@Parallel int i = 0; i < halfRows; i++) {
-            int maskRight = (1 << targetQubit[0]) - 1;
-            int maskLeft = ~maskRight;
+            // Private arrays of constant size, allocated unconditionally at the
+            // top of the loop body, so that the kernel can lower them
+            double[] valueReal = new double[1 << MAX_BLOCK_QUBITS];
+            double[] valueImag = new double[1 << MAX_BLOCK_QUBITS];
+            int d = index * OPERATION_LENGTH;
+            int kind = operations[d];
+            int offset = operations[d + 4];
+            if (kind == INIT) {
+                initialize(i, real, imag, halfRows);
+            } else if (kind == GATE) {
+                applyGate(i, operations[d + 1], real, imag, operationReal, operationImag, offset);
+            } else if (kind == CONTROL_GATE) {
+                if (i < halfRows / 2)
+                    applyControlGate(i, operations[d + 1], operations[d + 2], real, imag, operationReal, operationImag, offset);
+            } else if (kind == PHASE) {
+                applyPhase(i, operations[d + 1], real, imag, operationReal, operationImag, offset);
+            } else if (kind == CONTROL_PHASE) {
+                if (i < halfRows / 2)
+                    applyControlPhase(i, operations[d + 1], operations[d + 2], real, imag, operationReal, operationImag, offset);
+            } else if (kind == FLIP) {
+                applyFlip(i, operations[d + 1], operations[d + 3], real, imag);
+            } else if (kind == CONTROL_FLIP) {
+                if (i < halfRows / 2)
+                    applyControlFlip(i, operations[d + 1], operations[d + 2], operations[d + 3], real, imag);
+            } else if (kind == SWAP) {
+                if (i < halfRows / 2)
+                    applySwap(i, operations[d + 1], operations[d + 2], real, imag);
+            } else if (kind == BLOCK) {
+                if (i < (halfRows >> (operations[d + 3] - 1)))
+                    applyBlock(i, operations, d, real, imag, operationReal, operationImag, offset, valueReal, valueImag);
+            } else if (kind == FUNCTION) {
+                applyFunction(i, operations[d + 1], operations[d + 3], real, imag, resultReal, resultImag, operationReal, operationImag, offset);
+                applyFunction(i + halfRows, operations[d + 1], operations[d + 3], real, imag, resultReal, resultImag, operationReal, operationImag, offset);
+            } else if (kind == COPY_RESULT) {
+                real[i] = resultReal[i];
+                imag[i] = resultImag[i];
+                real[i + halfRows] = resultReal[i + halfRows];
+                imag[i + halfRows] = resultImag[i + halfRows];
+            }
+        }
+    }
+
+    /**
+     * Double precision variant of initialize.
+     */
+    private static void initialize(int i, double[] real, double[] imag, int halfRows) {
+        real[i] = i == 0 ? 1 : 0;
+        imag[i] = 0;
+        real[i + halfRows] = 0;
+        imag[i + halfRows] = 0;
+    }
+
+    /**
+     * Double precision variant of applyGate.
+     */
+    private static void applyGate(int i, int targetQubit, double[] real, double[] imag, double[] gateReal, double[] gateImag, int offset) {
+        int maskRight = (1 << targetQubit) - 1;
+        int maskLeft = ~maskRight;
+
+        int a = (i & maskRight) | ((i & maskLeft) << 1);
+        int b = a | (1 << targetQubit);
+
+        applyPair(a, b, real, imag, gateReal, gateImag, offset);
+    }
+
+    /**
+     * Double precision variant of applyControlGate.
+     */
+    private static void applyControlGate(int i, int targetQubit, int controlQubit, double[] real, double[] imag, double[] gateReal, double[] gateImag, int offset) {
+        int a = insertZeroBits(i, targetQubit, controlQubit) | (1 << controlQubit);
+        int b = a | (1 << targetQubit);
+
+        applyPair(a, b, real, imag, gateReal, gateImag, offset);
+    }
+
+    /**
+     * Double precision variant of applyPhase.
+     */
+    private static void applyPhase(int i, int targetQubit, double[] real, double[] imag, double[] gateReal, double[] gateImag, int offset) {
+        int maskRight = (1 << targetQubit) - 1;
+        int maskLeft = ~maskRight;
+
+        int b = (i & maskRight) | ((i & maskLeft) << 1) | (1 << targetQubit);
+
+        applyPhaseShift(b, real, imag, gateReal, gateImag, offset);
+    }
+
+    /**
+     * Double precision variant of applyControlPhase.
+     */
+    private static void applyControlPhase(int i, int targetQubit, int controlQubit, double[] real, double[] imag, double[] gateReal, double[] gateImag, int offset) {
+        int b = insertZeroBits(i, targetQubit, controlQubit) | (1 << controlQubit) | (1 << targetQubit);
+
+        applyPhaseShift(b, real, imag, gateReal, gateImag, offset);
+    }
+
+    /**
+     * Double precision variant of applyFlip.
+     */
+    private static void applyFlip(int i, int targetQubit, int flipPhase, double[] real, double[] imag) {
+        int maskRight = (1 << targetQubit) - 1;
+        int maskLeft = ~maskRight;
+
+        int a = (i & maskRight) | ((i & maskLeft) << 1);
+        int b = a | (1 << targetQubit);
+
+        exchange(a, b, flipPhase, real, imag);
+    }
+
+    /**
+     * Double precision variant of applyControlFlip.
+     */
+    private static void applyControlFlip(int i, int targetQubit, int controlQubit, int flipPhase, double[] real, double[] imag) {
+        int a = insertZeroBits(i, targetQubit, controlQubit) | (1 << controlQubit);
+        int b = a | (1 << targetQubit);
 
-            int a = (i & maskRight) | ((i & maskLeft) << 1);
-            int b = a | (1 << targetQubit[0]);
+        exchange(a, b, flipPhase, real, imag);
+    }
 
-            if (((1 << controlQubit[0]) & a) > 0) {
-                float valueAReal = real[a];
-                float valueAImag = imag[a];
-                float valueBReal = real[b];
-                float valueBImag = imag[b];
+    /**
+     * Double precision variant of applySwap.
+     */
+    private static void applySwap(int i, int qubitA, int qubitB, double[] real, double[] imag) {
+        int index = insertZeroBits(i, qubitA, qubitB);
 
-                real[a] = (valueAReal * gateReal[0] - valueAImag * gateImag[0]) + (valueBReal * gateReal[1] - valueBImag * gateImag[1]);
-                imag[a] = (valueAReal * gateImag[0] + valueAImag * gateReal[0]) + (valueBReal * gateImag[1] + valueBImag * gateReal[1]);
+        exchange(index | (1 << qubitA), index | (1 << qubitB), 0, real, imag);
+    }
+
+    /**
+     * Double precision variant of applyBlock.
+     */
+    private static void applyBlock(int i, int[] operations, int d, double[] real, double[] imag, double[] blockReal, double[] blockImag, int offset, double[] valueReal, double[] valueImag) {
+        int noQubits = operations[d + 3];
+        int dimension = 1 << noQubits;
+
+        // Insert 0 bits at the positions of the target qubits
+        int base = i;
+        for (int j = 0; j < noQubits; j++) {
+            int maskRight = (1 << operations[d + 5 + j]) - 1;
+            base = (base & maskRight) | ((base & ~maskRight) << 1);
+        }
 
-                real[b] = (valueAReal * gateReal[2] - valueAImag * gateImag[2]) + (valueBReal * gateReal[3] - valueBImag * gateImag[3]);
-                imag[b] = (valueAReal * gateImag[2] + valueAImag * gateReal[2]) + (valueBReal * gateImag[3] + valueBImag * gateReal[3]);
+        for (int s = 0; s < dimension; s++) {
+            int index = base;
+            for (int j = 0; j < noQubits; j++)
+                index = index | (((s >> j) & 1) << operations[d + 5 + j]);
+            valueReal[s] = real[index];
+            valueImag[s] = imag[index];
+        }
+
+        for (int r = 0; r < dimension; r++) {
+            double sumReal = 0;
+            double sumImag = 0;
+            for (int s = 0; s < dimension; s++) {
+                int m = offset + (r * dimension) + s;
+                sumReal += valueReal[s] * blockReal[m] - valueImag[s] * blockImag[m];
+                sumImag += valueReal[s] * blockImag[m] + valueImag[s] * blockReal[m];
             }
+            int index = base;
+            for (int j = 0; j < noQubits; j++)
+                index = index | (((r >> j) & 1) << operations[d + 5 + j]);
+            real[index] = sumReal;
+            imag[index] = sumImag;
+        }
+    }
+
+    /**
+     * Double precision variant of applyFunction.
+     */
+    private static void applyFunction(int i, int fromQubit, int noQubits, double[] real, double[] imag, double[] resultReal, double[] resultImag, double[] functionReal, double[] functionImag, int offset) {
+        int dimension = 1 << noQubits;
+        int mask = (dimension - 1) << fromQubit;
+        int r = (i & mask) >> fromQubit;
+        int base = i & ~mask;
+
+        double sumReal = 0;
+        double sumImag = 0;
+        for (int s = 0; s < dimension; s++) {
+            int index = base | (s << fromQubit);
+            int m = offset + (r * dimension) + s;
+            sumReal += real[index] * functionReal[m] - imag[index] * functionImag[m];
+            sumImag += real[index] * functionImag[m] + imag[index] * functionReal[m];
+        }
+        resultReal[i] = sumReal;
+        resultImag[i] = sumImag;
+    }
+
+    /**
+     * Double precision variant of applyPair.
+     */
+    private static void applyPair(int a, int b, double[] real, double[] imag, double[] gateReal, double[] gateImag, int offset) {
+        double valueAReal = real[a];
+        double valueAImag = imag[a];
+        double valueBReal = real[b];
+        double valueBImag = imag[b];
+
+        double aR = gateReal[offset], bR = gateReal[offset + 1], cR = gateReal[offset + 2], dR = gateReal[offset + 3];
+        double aI = gateImag[offset], bI = gateImag[offset + 1], cI = gateImag[offset + 2], dI = gateImag[offset + 3];
+
+        real[a] = (valueAReal * aR - valueAImag * aI) + (valueBReal * bR - valueBImag * bI);
+        imag[a] = (valueAReal * aI + valueAImag * aR) + (valueBReal * bI + valueBImag * bR);
+
+        real[b] = (valueAReal * cR - valueAImag * cI) + (valueBReal * dR - valueBImag * dI);
+        imag[b] = (valueAReal * cI + valueAImag * cR) + (valueBReal * dI + valueBImag * dR);
+    }
+
+    /**
+     * Double precision variant of applyPhaseShift.
+     */
+    private static void applyPhaseShift(int b, double[] real, double[] imag, double[] gateReal, double[] gateImag, int offset) {
+        double valueBReal = real[b];
+        double valueBImag = imag[b];
+
+        real[b] = valueBReal * gateReal[offset + 3] - valueBImag * gateImag[offset + 3];
+        imag[b] = valueBReal * gateImag[offset + 3] + valueBImag * gateReal[offset + 3];
+    }
+
+    /**
+     * Double precision variant of exchange.
+     */
+    private static void exchange(int a, int b, int flipPhase, double[] real, double[] imag) {
+        double valueAReal = real[a];
+        double valueAImag = imag[a];
+        double valueBReal = real[b];
+        double valueBImag = imag[b];
+
+        if (flipPhase == 0) {
+            real[a] = valueBReal;
+            imag[a] = valueBImag;
+            real[b] = valueAReal;
+            imag[b] = valueAImag;
+        } else {
+            real[a] = valueBImag;
+            imag[a] = -valueBReal;
+            real[b] = -valueAImag;
+            imag[b] = valueAReal;
         }
     }
+
+    /**
+     * Inserts 0 bits at the positions of both supplied qubits of the index.
+     */
+    private static int insertZeroBits(int index, int qubitA, int qubitB) {
+        int lowQubit = qubitA < qubitB ? qubitA : qubitB;
+        int highQubit = qubitA < qubitB ? qubitB : qubitA;
+        int maskLow = (1 << lowQubit) - 1;
+        int maskHigh = (1 << highQubit) - 1;
+
+        int result = (index & maskLow) | ((index & ~maskLow) << 1);
+        return (result & maskHigh) | ((result & ~maskHigh) << 1);
+    }
 }
@@ -0,0 +1,187 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ * 
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ * 
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import uk.ac.manchester.tornado.qsim.simulator.Precision;
+
+/**
+ * Holds the optional optimisations of the full state vector simulators (gate
+ * fusion, precision, cache blocking, qubit remapping and plan caching). The
+ * options are set by chained calls, e.g. new
+ * FsvOptions().fuseGates(3).blockQubits(4).remapQubits(true), and copied by the
+ * simulator on construction. Options that do not apply to a simulator are
+ * ignored by it (e.g. cache blocking by FsvSimulatorAccelerated or plan caching
+ * by FsvSimulatorStandard).
+ */
+public final class FsvOptions {
+    /**
+     * Number of block qubits that selects the block size automatically from the
+     * L2 cache size.
+     */
+    public static final int AUTO_BLOCK_QUBITS = -1;
+
+    /**
+     * Default number of cached execution plans (the plans of one state size share
+     * their host state buffers, only the last executed plan keeps its device
+     * memory).
+     */
+    public static final int DEFAULT_CACHED_PLANS = 4;
+
+    private int maxFusedQubits;
+    private Precision precision;
+    private int blockQubits;
+    private boolean remapQubits;
+    private int cachedPlans;
+
+    /**
+     * Constructs the default options: no gate fusion, single precision, cache
+     * blocking with automatically selected block size, no qubit remapping and
+     * DEFAULT_CACHED_PLANS cached execution plans.
+     */
+    public FsvOptions() {
+        precision = Precision.SINGLE;
+        blockQubits = AUTO_BLOCK_QUBITS;
+        cachedPlans = DEFAULT_CACHED_PLANS;
+    }
+
+    /**
+     * Sets the maximum number of qubits of a fused operation.
+     * 
+     * @param maxFusedQubits
+     *            maximum number of qubits of a fused operation (0 - no gate fusion,
+     *            1 - fusion of consecutive single qubit gates acting on the same
+     *            qubit, 2 to 5 - fusion of neighbouring gates into dense blocks).
+     *            The gates are fused in the precision of the simulated state.
+     * @return these options.
+     */
+    public FsvOptions fuseGates(int maxFusedQubits) {
+        if (maxFusedQubits < 0 || maxFusedQubits > FsvOperand.MAX_BLOCK_QUBITS)
+            throw new IllegalArgumentException("Number of fused qubits must be between 0 and " + FsvOperand.MAX_BLOCK_QUBITS + ".");
+        this.maxFusedQubits = maxFusedQubits;
+        return this;
+    }
+
+    /**
+     * Sets the precision of the simulated state.
+     * 
+     * @param precision
+     *            precision of the simulated state (SINGLE - State, DOUBLE -
+     *            DoubleState).
+     * @return these options.
+     */
+    public FsvOptions precision(Precision precision) {
+        if (precision == null)
+            throw new IllegalArgumentException("Invalid precision supplied (NULL).");
+        this.precision = precision;
+        return this;
+    }
+
+    /**
+     * Sets the number of qubits of a cache block.
+     * 
+     * @param blockQubits
+     *            number of qubits of a cache block (0 - no cache blocking,
+     *            AUTO_BLOCK_QUBITS - block size selected from the L2 cache size).
+     * @return these options.
+     */
+    public FsvOptions blockQubits(int blockQubits) {
+        if (blockQubits < AUTO_BLOCK_QUBITS || blockQubits > FsvCacheBlocking.MAX_BLOCK_QUBITS)
+            throw new IllegalArgumentException("Number of block qubits must be between 0 and " + FsvCacheBlocking.MAX_BLOCK_QUBITS + " (or AUTO_BLOCK_QUBITS).");
+        this.blockQubits = blockQubits;
+        return this;
+    }
+
+    /**
+     * Switches on / off remapping of the qubits of upcoming operations into the
+     * cache block (requires cache blocking).
+     * 
+     * @param remapQubits
+     *            flag to switch on / off qubit remapping.
+     * @return these options.
+     */
+    public FsvOptions remapQubits(boolean remapQubits) {
+        this.remapQubits = remapQubits;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of compiled execution plans kept for reuse by the
+     * accelerated simulator.
+     * 
+     * @param cachedPlans
+     *            maximum number of cached execution plans (0 - no caching).
+     * @return these options.
+     */
+    public FsvOptions cachedPlans(int cachedPlans) {
+        if (cachedPlans < 0)
+            throw new IllegalArgumentException("Number of cached plans must not be negative.");
+        this.cachedPlans = cachedPlans;
+        return this;
+    }
+
+    /**
+     * Gets the maximum number of qubits of a fused operation.
+     * 
+     * @return maximum number of fused qubits (0 if gate fusion is switched off).
+     */
+    public int maxFusedQubits() {
+        return maxFusedQubits;
+    }
+
+    /**
+     * Gets the precision of the simulated state.
+     * 
+     * @return simulation precision.
+     */
+    public Precision precision() {
+        return precision;
+    }
+
+    /**
+     * Gets the number of qubits of a cache block.
+     * 
+     * @return number of block qubits (0 - no cache blocking, AUTO_BLOCK_QUBITS -
+     *         selected automatically).
+     */
+    public int blockQubits() {
+        return blockQubits;
+    }
+
+    /**
+     * Gets whether the qubits of upcoming operations are remapped into the cache
+     * block.
+     * 
+     * @return true if qubit remapping is switched on.
+     */
+    public boolean remapQubits() {
+        return remapQubits;
+    }
+
+    /**
+     * Gets the maximum number of cached execution plans.
+     * 
+     * @return maximum number of cached plans.
+     */
+    public int cachedPlans() {
+        return cachedPlans;
+    }
+}
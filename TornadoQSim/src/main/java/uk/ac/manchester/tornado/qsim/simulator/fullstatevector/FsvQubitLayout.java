@@ -0,0 +1,366 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import uk.ac.manchester.tornado.qsim.circuit.operation.Operation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Manages the layout of logical qubits in the full state vector. Operations on
+ * qubits above the block qubit stride across the whole state vector and cannot
+ * be cache blocked (see FsvCacheBlocking). The layout keeps a logical to
+ * physical qubit map and, looking ahead over the upcoming operations of the
+ * circuit (in the step order), plans a single bulk permutation pass, which
+ * moves the qubits of the upcoming operations into the low physical positions.
+ * The operations are then applied to the physical qubits, so they form a single
+ * cache blocked group. A permutation pass swaps up to MAX_SWAP_PAIRS pairs of
+ * physical qubits.
+ * 
+ * At the end of the simulation the layout is restored to the identity (in at
+ * most two rounds of swaps), so the simulated state is indexed by the
+ * logical qubits.
+ */
+class FsvQubitLayout {
+    /**
+     * Maximum number of operations scanned for the next use of a qubit.
+     */
+    private static final int LOOK_AHEAD_OPERATIONS = 1024;
+
+    private final int blockQubits;
+    private final int[] physical;
+    private final int[] logical;
+
+    /**
+     * Constructs identity layout.
+     * 
+     * @param noQubits
+     *            number of qubits of the simulated state.
+     * @param blockQubits
+     *            number of low physical qubits, that form a cache block.
+     */
+    protected FsvQubitLayout(int noQubits, int blockQubits) {
+        this.blockQubits = blockQubits;
+        physical = new int[noQubits];
+        logical = new int[noQubits];
+        for (int qubit = 0; qubit < noQubits; qubit++) {
+            physical[qubit] = qubit;
+            logical[qubit] = qubit;
+        }
+    }
+
+    /**
+     * Gets the physical position of the supplied logical qubit.
+     * 
+     * @param qubit
+     *            logical qubit.
+     * @return physical qubit.
+     */
+    protected int physical(int qubit) {
+        return physical[qubit];
+    }
+
+    /**
+     * Gets the logical qubit in the supplied physical position.
+     * 
+     * @param physicalQubit
+     *            physical qubit.
+     * @return logical qubit.
+     */
+    protected int logical(int physicalQubit) {
+        return logical[physicalQubit];
+    }
+
+    /**
+     * Gets the physical positions of the supplied logical qubits.
+     * 
+     * @param qubits
+     *            logical qubits.
+     * @return physical qubits (in the order of the supplied qubits).
+     */
+    protected int[] physical(int[] qubits) {
+        int[] physicalQubits = new int[qubits.length];
+        for (int i = 0; i < qubits.length; i++)
+            physicalQubits[i] = physical[qubits[i]];
+        return physicalQubits;
+    }
+
+    /**
+     * Checks whether the supplied operation only acts on physical qubits below the
+     * block qubit.
+     * 
+     * @param operation
+     *            quantum operation.
+     * @return true if the operation can be applied block by block.
+     */
+    protected boolean isBlockLocal(Operation operation) {
+        for (int qubit : FsvDataProvider.getOperationQubits(operation))
+            if (physical[qubit] >= blockQubits)
+                return false;
+        return true;
+    }
+
+    /**
+     * Checks whether the layout is the identity.
+     * 
+     * @return true if every logical qubit is in its own physical position.
+     */
+    protected boolean isIdentity() {
+        for (int qubit = 0; qubit < physical.length; qubit++)
+            if (physical[qubit] != qubit)
+                return false;
+        return true;
+    }
+
+    /**
+     * Plans the permutation pass before the operation at the supplied index. The
+     * look-ahead window takes the upcoming operations while their distinct qubits
+     * fit into the block. The window qubits in high physical positions are
+     * exchanged with the low physical qubits outside of the window, which are used
+     * again as late as possible. The permutation is only planned if it saves
+     * passes, i.e. the window costs more passes in the current layout than the
+     * permutation passes and the cache blocked group.
+     * 
+     * @param operations
+     *            list of operations (in the order of application).
+     * @param fromIndex
+     *            index of the next operation to be applied.
+     * @return pairs of physical qubits to be swapped ({qubitsA, qubitsB}), or null
+     *         if the layout should be kept.
+     */
+    protected int[][] plan(List<Operation> operations, int fromIndex) {
+        boolean[] inWindow = new boolean[physical.length];
+        int windowQubits = 0;
+        int windowPasses = 0;
+        boolean localRun = false;
+        for (int i = fromIndex; i < operations.size(); i++) {
+            int[] qubits = FsvDataProvider.getOperationQubits(operations.get(i));
+            int added = 0;
+            for (int qubit : qubits)
+                if (!inWindow[qubit])
+                    added++;
+            if (windowQubits + added > blockQubits)
+                break;
+            for (int qubit : qubits)
+                inWindow[qubit] = true;
+            windowQubits += added;
+
+            // A run of block local operations is a single pass, others a pass each
+            boolean local = isBlockLocal(operations.get(i));
+            if (!local || !localRun)
+                windowPasses++;
+            localRun = local;
+        }
+        List<Integer> highQubits = new ArrayList<>();
+        for (int qubit = 0; qubit < physical.length; qubit++)
+            if (inWindow[qubit] && physical[qubit] >= blockQubits)
+                highQubits.add(physical[qubit]);
+        int permutationPasses = (highQubits.size() + FsvRangeOperand.MAX_SWAP_PAIRS - 1) / FsvRangeOperand.MAX_SWAP_PAIRS;
+        if (windowPasses <= permutationPasses + 1)
+            return null;
+
+        // Low positions outside of the window, the latest used (and the highest) first
+        int[] nextUse = nextUse(operations, fromIndex);
+        List<Integer> lowQubits = new ArrayList<>();
+        for (int position = Math.min(blockQubits, logical.length) - 1; position >= 0; position--)
+            if (!inWindow[logical[position]])
+                lowQubits.add(position);
+        lowQubits.sort((a, b) -> Integer.compare(nextUse[logical[b]], nextUse[logical[a]]));
+
+        int[][] pairs = new int[2][highQubits.size()];
+        for (int k = 0; k < highQubits.size(); k++) {
+            pairs[0][k] = lowQubits.get(k);
+            pairs[1][k] = highQubits.get(k);
+        }
+        return pairs;
+    }
+
+    /**
+     * Selects the physical qubit below the block qubit, which should be moved out
+     * of the block to make room for another qubit. The qubit used again as late as
+     * possible (and the highest one of them) is selected.
+     * 
+     * @param excludedQubits
+     *            physical qubits, which must stay in the block.
+     * @param operations
+     *            list of operations (in the order of application).
+     * @param fromIndex
+     *            index of the next operation to be applied.
+     * @return physical qubit to be moved out of the block, or -1 if all qubits
+     *         are excluded.
+     */
+    protected int evictedQubit(int[] excludedQubits, List<Operation> operations, int fromIndex) {
+        int[] nextUse = nextUse(operations, fromIndex);
+        int evicted = -1;
+        for (int position = Math.min(blockQubits, logical.length) - 1; position >= 0; position--) {
+            boolean excluded = false;
+            for (int qubit : excludedQubits)
+                excluded |= qubit == position;
+            if (!excluded && (evicted < 0 || nextUse[logical[position]] > nextUse[logical[evicted]]))
+                evicted = position;
+        }
+        return evicted;
+    }
+
+    /**
+     * Plans the next permutation pass, that restores the identity layout. Each
+     * cycle of the permutation is a composition of two reflections, so the identity
+     * is restored in at most two rounds of swaps.
+     * 
+     * @return pairs of physical qubits to be swapped ({qubitsA, qubitsB}), or null
+     *         if the layout is the identity.
+     */
+    protected int[][] restorePlan() {
+        if (isIdentity())
+            return null;
+        boolean involution = true;
+        for (int position = 0; position < logical.length; position++)
+            if (logical[logical[position]] != position)
+                involution = false;
+
+        List<int[]> pairs = new ArrayList<>();
+        boolean[] visited = new boolean[logical.length];
+        for (int start = 0; start < logical.length; start++) {
+            if (visited[start])
+                continue;
+            // Cycle c(0), ..., c(m-1) of the positions, the content of c(i) belongs to c(i+1)
+            List<Integer> cycle = new ArrayList<>();
+            for (int position = start; !visited[position]; position = logical[position]) {
+                visited[position] = true;
+                cycle.add(position);
+            }
+            int m = cycle.size();
+            for (int i = 0; i < m; i++) {
+                // Involution is restored directly, other cycles are reflected c(i) <-> c(-i)
+                int j = involution ? (i + 1) % m : (m - i) % m;
+                if (i < j && (!involution || m == 2))
+                    pairs.add(new int[] { cycle.get(i), cycle.get(j) });
+            }
+        }
+        int[][] plan = new int[2][pairs.size()];
+        for (int k = 0; k < pairs.size(); k++) {
+            plan[0][k] = pairs.get(k)[0];
+            plan[1][k] = pairs.get(k)[1];
+        }
+        return plan;
+    }
+
+    /**
+     * Updates the layout after the permutation pass, which swapped the supplied
+     * pairs of physical qubits.
+     * 
+     * @param pairs
+     *            pairs of swapped physical qubits ({qubitsA, qubitsB}).
+     */
+    protected void swap(int[][] pairs) {
+        for (int k = 0; k < pairs[0].length; k++) {
+            int qubitA = logical[pairs[0][k]];
+            int qubitB = logical[pairs[1][k]];
+            logical[pairs[0][k]] = qubitB;
+            logical[pairs[1][k]] = qubitA;
+            physical[qubitA] = pairs[1][k];
+            physical[qubitB] = pairs[0][k];
+        }
+    }
+
+    private int[] nextUse(List<Operation> operations, int fromIndex) {
+        int[] nextUse = new int[physical.length];
+        Arrays.fill(nextUse, Integer.MAX_VALUE);
+        int toIndex = Math.min(operations.size(), fromIndex + LOOK_AHEAD_OPERATIONS);
+        for (int i = toIndex - 1; i >= fromIndex; i--)
+            for (int qubit : FsvDataProvider.getOperationQubits(operations.get(i)))
+                nextUse[qubit] = i;
+        return nextUse;
+    }
+
+    /**
+     * Gets the qubits of a dense block in ascending order.
+     * 
+     * @param qubits
+     *            physical qubits of the block (bit j of the matrix index corresponds
+     *            to the j-th qubit).
+     * @return qubits sorted in ascending order.
+     */
+    protected static int[] sortedQubits(int[] qubits) {
+        int[] sorted = qubits.clone();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Gets the map of the matrix indices of a dense block from the ascending qubit
+     * order to the supplied qubit order.
+     * 
+     * @param qubits
+     *            physical qubits of the block (bit j of the matrix index corresponds
+     *            to the j-th qubit).
+     * @return matrix index for the supplied qubit order of every matrix index for
+     *         the ascending qubit order.
+     */
+    protected static int[] blockIndexMap(int[] qubits) {
+        int[] sorted = sortedQubits(qubits);
+        int[] order = new int[qubits.length];
+        for (int j = 0; j < sorted.length; j++)
+            for (int k = 0; k < qubits.length; k++)
+                if (qubits[k] == sorted[j])
+                    order[j] = k;
+
+        int[] indexMap = new int[1 << qubits.length];
+        for (int index = 0; index < indexMap.length; index++)
+            for (int j = 0; j < order.length; j++)
+                indexMap[index] |= ((index >> j) & 1) << order[j];
+        return indexMap;
+    }
+
+    /**
+     * Permutes the rows and columns of a flattened dense block matrix.
+     * 
+     * @param data
+     *            flattened 2^k x 2^k matrix.
+     * @param indexMap
+     *            map of the matrix indices (see blockIndexMap).
+     * @return permuted flattened matrix.
+     */
+    protected static float[] permuteBlock(float[] data, int[] indexMap) {
+        int dimension = indexMap.length;
+        float[] permuted = new float[data.length];
+        for (int r = 0; r < dimension; r++)
+            for (int s = 0; s < dimension; s++)
+                permuted[r * dimension + s] = data[indexMap[r] * dimension + indexMap[s]];
+        return permuted;
+    }
+
+    /**
+     * Permutes the rows and columns of a flattened double precision dense block
+     * matrix (see the single precision variant for the parameters).
+     */
+    protected static double[] permuteBlock(double[] data, int[] indexMap) {
+        int dimension = indexMap.length;
+        double[] permuted = new double[data.length];
+        for (int r = 0; r < dimension; r++)
+            for (int s = 0; s < dimension; s++)
+                permuted[r * dimension + s] = data[indexMap[r] * dimension + indexMap[s]];
+        return permuted;
+    }
+}
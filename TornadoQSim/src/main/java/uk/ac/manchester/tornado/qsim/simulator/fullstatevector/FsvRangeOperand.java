@@ -0,0 +1,1387 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import java.util.Arrays;
+
+/**
+ * Provides operands used in the full state vector simulator that are applied
+ * only to a sub-range of the amplitude pairs. This allows the work of a single
+ * gate to be partitioned across multiple threads (pure Java execution).
+ * 
+ * The amplitude pairs of a gate on target qubit t form contiguous runs of 2^t
+ * amplitudes (real[a..a+2^t) paired with real[a+2^t..a+2^(t+1))). The kernels
+ * process such runs with unit-stride inner loops and gate coefficients held in
+ * locals, which the JIT compiler can unroll and vectorize. Gates on the qubit 0
+ * (runs of a single pair) are processed by a separate interleaved variant and
+ * other low target qubits pair by pair. Controlled gates enumerate only the
+ * quarter of the index space, in which the control bit is set. Phase gates
+ * ([[1,0],[0,D]]) only touch the amplitudes with the target (and control) bit
+ * set and the Pauli X / Y gates and qubit swaps only exchange amplitudes.
+ * 
+ * Every kernel has a double precision variant over double[] state vectors
+ * (twice the memory traffic per amplitude and half the vector lanes).
+ */
+class FsvRangeOperand {
+    /**
+     * Lowest target / control qubit that forms runs long enough to be processed by
+     * the strided variants (shorter runs are processed pair by pair).
+     */
+    private static final int MIN_RUN_QUBIT = 3;
+
+    /**
+     * Maximum number of qubit pairs swapped by a single permutation pass (a group
+     * of 4^MAX_SWAP_PAIRS amplitudes is exchanged at once).
+     */
+    protected static final int MAX_SWAP_PAIRS = 5;
+
+    /**
+     * Performs application of the standard quantum gate, which is supplied as
+     * decomposed 2x2 unitary matrix, to the amplitude pairs [fromRow, toRow). The
+     * form of the matrix is [[A,B],[C,D]]. The kernel variant is selected based on
+     * the target qubit.
+     * 
+     * @param targetQubit
+     *            qubit to which the gate is applied.
+     * @param real
+     *            flattened real parts of the full state vector.
+     * @param imag
+     *            flattened imaginary parts of the full state vector.
+     * @param fromRow
+     *            first amplitude pair to be processed (inclusive).
+     * @param toRow
+     *            last amplitude pair to be processed (exclusive).
+     * @param gateReal
+     *            real part of the components A, B, C and D of the unitary matrix.
+     * @param gateImag
+     *            imaginary part of the components A, B, C and D of the unitary
+     *            matrix.
+     */
+    protected static void applyGate(int targetQubit, float[] real, float[] imag, int fromRow, int toRow, float[] gateReal, float[] gateImag) {
+        if (targetQubit == 0)
+            applyGateInterleaved(real, imag, fromRow, toRow, gateReal, gateImag);
+        else if (targetQubit < MIN_RUN_QUBIT)
+            applyGateMasked(targetQubit, real, imag, fromRow, toRow, gateReal, gateImag);
+        else
+            applyGateStrided(targetQubit, real, imag, fromRow, toRow, gateReal, gateImag);
+    }
+
+    /**
+     * Performs application of the controlled quantum gate, which is supplied as
+     * decomposed 2x2 unitary matrix, to the amplitude pairs [fromRow, toRow) of the
+     * quarter-sized index space, in which the control bit is set. The form of the
+     * matrix is [[A,B],[C,D]].
+     * 
+     * @param targetQubit
+     *            qubit to which the gate is applied.
+     * @param controlQubit
+     *            qubit that controls the gate application.
+     * @param real
+     *            flattened real parts of the full state vector.
+     * @param imag
+     *            flattened imaginary parts of the full state vector.
+     * @param fromRow
+     *            first controlled amplitude pair to be processed (inclusive).
+     * @param toRow
+     *            last controlled amplitude pair to be processed (exclusive).
+     * @param gateReal
+     *            real part of the components A, B, C and D of the unitary matrix.
+     * @param gateImag
+     *            imaginary part of the components A, B, C and D of the unitary
+     *            matrix.
+     */
+    protected static void applyControlGate(int targetQubit, int controlQubit, float[] real, float[] imag, int fromRow, int toRow, float[] gateReal, float[] gateImag) {
+        final int lowQubit = Math.min(targetQubit, controlQubit);
+        final int highQubit = Math.max(targetQubit, controlQubit);
+        if (lowQubit < MIN_RUN_QUBIT) {
+            applyControlGateMasked(targetQubit, controlQubit, real, imag, fromRow, toRow, gateReal, gateImag);
+            return;
+        }
+
+        // Consecutive indices map to contiguous runs of 2^lowQubit pairs
+        final int run = 1 << lowQubit;
+        final int stride = 1 << targetQubit;
+        final int controlMask = 1 << controlQubit;
+
+        int i = fromRow;
+        while (i < toRow) {
+            int offset = i & (run - 1);
+            int length = Math.min(run - offset, toRow - i);
+            int a = insertZeroBits(i, lowQubit, highQubit) | controlMask;
+            applyPairs(real, imag, a, stride, length, gateReal, gateImag);
+            i += length;
+        }
+    }
+
+    /**
+     * Performs application of the phase gate, which is supplied as decomposed 2x2
+     * unitary matrix of the form [[1,0],[0,D]], to the amplitudes [fromRow, toRow)
+     * of the half of the state vector with the target bit set.
+     * 
+     * @param targetQubit
+     *            qubit to which the gate is applied.
+     * @param real
+     *            flattened real parts of the full state vector.
+     * @param imag
+     *            flattened imaginary parts of the full state vector.
+     * @param fromRow
+     *            first amplitude with the target bit set to be processed
+     *            (inclusive).
+     * @param toRow
+     *            last amplitude with the target bit set to be processed
+     *            (exclusive).
+     * @param gateReal
+     *            real part of the components A, B, C and D of the unitary matrix.
+     * @param gateImag
+     *            imaginary part of the components A, B, C and D of the unitary
+     *            matrix.
+     */
+    protected static void applyPhase(int targetQubit, float[] real, float[] imag, int fromRow, int toRow, float[] gateReal, float[] gateImag) {
+        final int stride = 1 << targetQubit;
+        if (targetQubit < MIN_RUN_QUBIT) {
+            final float dR = gateReal[3], dI = gateImag[3];
+            final int maskRight = stride - 1;
+            for (int i = fromRow; i < toRow; i++) {
+                int b = (i & maskRight) | ((i & ~maskRight) << 1) | stride;
+                float valueBReal = real[b];
+                float valueBImag = imag[b];
+                real[b] = valueBReal * dR - valueBImag * dI;
+                imag[b] = valueBReal * dI + valueBImag * dR;
+            }
+            return;
+        }
+
+        int i = fromRow;
+        while (i < toRow) {
+            int offset = i & (stride - 1);
+            int length = Math.min(stride - offset, toRow - i);
+            int b = ((i >> targetQubit) << (targetQubit + 1)) | stride | offset;
+            applyPhaseRun(real, imag, b, length, gateReal, gateImag);
+            i += length;
+        }
+    }
+
+    /**
+     * Performs application of the controlled phase gate, which is supplied as
+     * decomposed 2x2 unitary matrix of the form [[1,0],[0,D]], to the amplitudes
+     * [fromRow, toRow) of the quarter of the state vector with both the control and
+     * the target bit set.
+     * 
+     * @param targetQubit
+     *            qubit to which the gate is applied.
+     * @param controlQubit
+     *            qubit that controls the gate application.
+     * @param real
+     *            flattened real parts of the full state vector.
+     * @param imag
+     *            flattened imaginary parts of the full state vector.
+     * @param fromRow
+     *            first amplitude with both bits set to be processed (inclusive).
+     * @param toRow
+     *            last amplitude with both bits set to be processed (exclusive).
+     * @param gateReal
+     *            real part of the components A, B, C and D of the unitary matrix.
+     * @param gateImag
+     *            imaginary part of the components A, B, C and D of the unitary
+     *            matrix.
+     */
+    protected static void applyControlPhase(int targetQubit, int controlQubit, float[] real, float[] imag, int fromRow, int toRow, float[] gateReal, float[] gateImag) {
+        final int lowQubit = Math.min(targetQubit, controlQubit);
+        final int highQubit = Math.max(targetQubit, controlQubit);
+        final int bitMask = (1 << targetQubit) | (1 << controlQubit);
+        if (lowQubit < MIN_RUN_QUBIT) {
+            final float dR = gateReal[3], dI = gateImag[3];
+            for (int i = fromRow; i < toRow; i++) {
+                int b = insertZeroBits(i, lowQubit, highQubit) | bitMask;
+                float valueBReal = real[b];
+                float valueBImag = imag[b];
+                real[b] = valueBReal * dR - valueBImag * dI;
+                imag[b] = valueBReal * dI + valueBImag * dR;
+            }
+            return;
+        }
+
+        final int run = 1 << lowQubit;
+        int i = fromRow;
+        while (i < toRow) {
+            int offset = i & (run - 1);
+            int length = Math.min(run - offset, toRow - i);
+            int b = insertZeroBits(i, lowQubit, highQubit) | bitMask;
+            applyPhaseRun(real, imag, b, length, gateReal, gateImag);
+            i += length;
+        }
+    }
+
+    /**
+     * Performs application of the Pauli X gate (pure swap of the amplitude pairs)
+     * or the Pauli Y gate (swap of the amplitude pairs with the phase -i / i) to the
+     * amplitude pairs [fromRow, toRow).
+     * 
+     * @param targetQubit
+     *            qubit to which the gate is applied.
+     * @param flipPhase
+     *            false for the Pauli X gate, true for the Pauli Y gate.
+     * @param real
+     *            flattened real parts of the full state vector.
+     * @param imag
+     *            flattened imaginary parts of the full state vector.
+     * @param fromRow
+     *            first amplitude pair to be processed (inclusive).
+     * @param toRow
+     *            last amplitude pair to be processed (exclusive).
+     */
+    protected static void applyFlip(int targetQubit, boolean flipPhase, float[] real, float[] imag, int fromRow, int toRow) {
+        final int stride = 1 << targetQubit;
+        if (targetQubit < MIN_RUN_QUBIT) {
+            final int maskRight = stride - 1;
+            for (int i = fromRow; i < toRow; i++) {
+                int a = (i & maskRight) | ((i & ~maskRight) << 1);
+                flipRun(real, imag, a, a | stride, 1, flipPhase);
+            }
+            return;
+        }
+
+        int i = fromRow;
+        while (i < toRow) {
+            int offset = i & (stride - 1);
+            int length = Math.min(stride - offset, toRow - i);
+            int a = ((i >> targetQubit) << (targetQubit + 1)) | offset;
+            flipRun(real, imag, a, a + stride, length, flipPhase);
+            i += length;
+        }
+    }
+
+    /**
+     * Performs application of the controlled Pauli X gate (pure swap of the
+     * amplitude pairs) or the controlled Pauli Y gate (swap of the amplitude pairs
+     * with the phase -i / i) to the amplitude pairs [fromRow, toRow) of the
+     * quarter-sized index space, in which the control bit is set.
+     * 
+     * @param targetQubit
+     *            qubit to which the gate is applied.
+     * @param controlQubit
+     *            qubit that controls the gate application.
+     * @param flipPhase
+     *            false for the Pauli X gate, true for the Pauli Y gate.
+     * @param real
+     *            flattened real parts of the full state vector.
+     * @param imag
+     *            flattened imaginary parts of the full state vector.
+     * @param fromRow
+     *            first controlled amplitude pair to be processed (inclusive).
+     * @param toRow
+     *            last controlled amplitude pair to be processed (exclusive).
+     */
+    protected static void applyControlFlip(int targetQubit, int controlQubit, boolean flipPhase, float[] real, float[] imag, int fromRow, int toRow) {
+        applyQuarterFlip(targetQubit, controlQubit, 1 << controlQubit, (1 << controlQubit) | (1 << targetQubit), flipPhase, real, imag, fromRow, toRow);
+    }
+
+    /**
+     * Performs the swap of two qubits, which exchanges the amplitudes with the bits
+     * of the qubits set to 10 and 01, for the amplitude pairs [fromRow, toRow) of
+     * the quarter-sized index space, in which the bits differ.
+     * 
+     * @param qubitA
+     *            qubit to be swapped.
+     * @param qubitB
+     *            qubit to be swapped.
+     * @param real
+     *            flattened real parts of the full state vector.
+     * @param imag
+     *            flattened imaginary parts of the full state vector.
+     * @param fromRow
+     *            first amplitude pair to be processed (inclusive).
+     * @param toRow
+     *            last amplitude pair to be processed (exclusive).
+     */
+    protected static void applySwap(int qubitA, int qubitB, float[] real, float[] imag, int fromRow, int toRow) {
+        applyQuarterFlip(qubitA, qubitB, 1 << qubitA, 1 << qubitB, false, real, imag, fromRow, toRow);
+    }
+
+    /**
+     * Performs the simultaneous swap of the disjoint qubit pairs (qubitsA[k],
+     * qubitsB[k]) for the amplitude groups [fromRow, toRow). A group consists of
+     * the 4^k amplitudes, that differ only in the swapped qubits. The amplitude i is
+     * exchanged with the amplitude, whose index is i with the bits of every pair
+     * exchanged, so the exchanges stay inside of the group. Consecutive groups are
+     * exchanged together as runs of amplitudes.
+     * 
+     * @param qubitsA
+     *            first qubits of the swapped pairs (at most MAX_SWAP_PAIRS).
+     * @param qubitsB
+     *            second qubits of the swapped pairs.
+     * @param real
+     *            flattened real parts of the full state vector.
+     * @param imag
+     *            flattened imaginary parts of the full state vector.
+     * @param fromRow
+     *            first group of 4^k amplitudes to be processed (inclusive).
+     * @param toRow
+     *            last group of 4^k amplitudes to be processed (exclusive).
+     */
+    protected static void applyQubitSwaps(int[] qubitsA, int[] qubitsB, float[] real, float[] imag, int fromRow, int toRow) {
+        final int[] qubits = swapQubits(qubitsA, qubitsB);
+        final int[][] offsets = swapOffsets(qubitsA, qubitsB, qubits);
+        final int[] offsetsA = offsets[0];
+        final int[] offsetsB = offsets[1];
+
+        if (qubits[0] == 0) {
+            applyQubitSwapsMasked(qubits, offsetsA, offsetsB, real, imag, fromRow, toRow);
+            return;
+        }
+
+        // Groups below the lowest swapped qubit are consecutive and exchanged as runs
+        final int runLength = 1 << qubits[0];
+        int i = fromRow;
+        while (i < toRow) {
+            int length = Math.min(runLength - (i & (runLength - 1)), toRow - i);
+            int base = i;
+            for (int qubit : qubits) {
+                int maskRight = (1 << qubit) - 1;
+                base = (base & maskRight) | ((base & ~maskRight) << 1);
+            }
+
+            for (int t = 0; t < offsetsA.length; t++) {
+                int a = base + offsetsA[t];
+                int b = base + offsetsB[t];
+                for (int r = 0; r < length; r++) {
+                    float valueReal = real[a + r];
+                    float valueImag = imag[a + r];
+                    real[a + r] = real[b + r];
+                    imag[a + r] = imag[b + r];
+                    real[b + r] = valueReal;
+                    imag[b + r] = valueImag;
+                }
+            }
+            i += length;
+        }
+    }
+
+    /**
+     * Performs application of the dense block operation, which is supplied as
+     * decomposed 2^k x 2^k unitary matrix acting on k target qubits, to the
+     * amplitude groups [fromRow, toRow). The bit j of the matrix row / column index
+     * corresponds to the j-th target qubit.
+     * 
+     * @param blockQubits
+     *            k target qubits of the block (ascending order).
+     * @param real
+     *            flattened real parts of the full state vector.
+     * @param imag
+     *            flattened imaginary parts of the full state vector.
+     * @param fromRow
+     *            first group of 2^k amplitudes to be processed (inclusive).
+     * @param toRow
+     *            last group of 2^k amplitudes to be processed (exclusive).
+     * @param blockReal
+     *            flattened real parts of the unitary matrix.
+     * @param blockImag
+     *            flattened imaginary parts of the unitary matrix.
+     */
+    protected static void applyBlock(int[] blockQubits, float[] real, float[] imag, int fromRow, int toRow, float[] blockReal, float[] blockImag) {
+        final int noQubits = blockQubits.length;
+        final int dimension = 1 << noQubits;
+
+        // Offsets of the group members relative to the group base index
+        int[] offsets = new int[dimension];
+        for (int s = 0; s < dimension; s++)
+            for (int j = 0; j < noQubits; j++)
+                offsets[s] |= ((s >> j) & 1) << blockQubits[j];
+
+        float[] valueReal = new float[dimension];
+        float[] valueImag = new float[dimension];
+
+        for (int i = fromRow; i < toRow; i++) {
+            int base = i;
+            for (int j = 0; j < noQubits; j++) {
+                int maskRight = (1 << blockQubits[j]) - 1;
+                base = (base & maskRight) | ((base & ~maskRight) << 1);
+            }
+
+            for (int s = 0; s < dimension; s++) {
+                valueReal[s] = real[base + offsets[s]];
+                valueImag[s] = imag[base + offsets[s]];
+            }
+
+            for (int r = 0, m = 0; r < dimension; r++) {
+                float sumReal = 0;
+                float sumImag = 0;
+                for (int s = 0; s < dimension; s++, m++) {
+                    sumReal += valueReal[s] * blockReal[m] - valueImag[s] * blockImag[m];
+                    sumImag += valueReal[s] * blockImag[m] + valueImag[s] * blockReal[m];
+                }
+                real[base + offsets[r]] = sumReal;
+                imag[base + offsets[r]] = sumImag;
+            }
+        }
+    }
+
+    /**
+     * Performs application of an arbitrary (not necessarily unitary) 4x4 matrix
+     * to the amplitude groups [fromRow, toRow) of two qubits. Bit 0 of the matrix
+     * index belongs to qubitA, bit 1 to qubitB. The matrix is unrolled, which is
+     * considerably faster than the generic block (e.g. for the superoperators of
+     * noise channels).
+     * 
+     * @param qubitA
+     *            lower qubit of the group.
+     * @param qubitB
+     *            higher qubit of the group.
+     * @param real
+     *            flattened real parts of the full state vector.
+     * @param imag
+     *            flattened imaginary parts of the full state vector.
+     * @param fromRow
+     *            first group of 4 amplitudes to be processed (inclusive).
+     * @param toRow
+     *            last group of 4 amplitudes to be processed (exclusive).
+     * @param blockReal
+     *            flattened real parts of the 4x4 matrix.
+     * @param blockImag
+     *            flattened imaginary parts of the 4x4 matrix.
+     */
+    protected static void applyTwoQubitBlock(int qubitA, int qubitB, float[] real, float[] imag, int fromRow, int toRow, float[] blockReal, float[] blockImag) {
+        final int maskA = 1 << qubitA;
+        final int maskB = 1 << qubitB;
+        final float[] mR = blockReal;
+        final float[] mI = blockImag;
+
+        for (int i = fromRow; i < toRow; i++) {
+            int i0 = insertZeroBits(i, qubitA, qubitB);
+            int i1 = i0 | maskA;
+            int i2 = i0 | maskB;
+            int i3 = i1 | maskB;
+
+            float r0 = real[i0], r1 = real[i1], r2 = real[i2], r3 = real[i3];
+            float m0 = imag[i0], m1 = imag[i1], m2 = imag[i2], m3 = imag[i3];
+
+            real[i0] = (r0 * mR[0] - m0 * mI[0]) + (r1 * mR[1] - m1 * mI[1]) + (r2 * mR[2] - m2 * mI[2]) + (r3 * mR[3] - m3 * mI[3]);
+            imag[i0] = (r0 * mI[0] + m0 * mR[0]) + (r1 * mI[1] + m1 * mR[1]) + (r2 * mI[2] + m2 * mR[2]) + (r3 * mI[3] + m3 * mR[3]);
+            real[i1] = (r0 * mR[4] - m0 * mI[4]) + (r1 * mR[5] - m1 * mI[5]) + (r2 * mR[6] - m2 * mI[6]) + (r3 * mR[7] - m3 * mI[7]);
+            imag[i1] = (r0 * mI[4] + m0 * mR[4]) + (r1 * mI[5] + m1 * mR[5]) + (r2 * mI[6] + m2 * mR[6]) + (r3 * mI[7] + m3 * mR[7]);
+            real[i2] = (r0 * mR[8] - m0 * mI[8]) + (r1 * mR[9] - m1 * mI[9]) + (r2 * mR[10] - m2 * mI[10]) + (r3 * mR[11] - m3 * mI[11]);
+            imag[i2] = (r0 * mI[8] + m0 * mR[8]) + (r1 * mI[9] + m1 * mR[9]) + (r2 * mI[10] + m2 * mR[10]) + (r3 * mI[11] + m3 * mR[11]);
+            real[i3] = (r0 * mR[12] - m0 * mI[12]) + (r1 * mR[13] - m1 * mI[13]) + (r2 * mR[14] - m2 * mI[14]) + (r3 * mR[15] - m3 * mI[15]);
+            imag[i3] = (r0 * mI[12] + m0 * mR[12]) + (r1 * mI[13] + m1 * mR[13]) + (r2 * mI[14] + m2 * mR[14]) + (r3 * mI[15] + m3 * mR[15]);
+        }
+    }
+
+    /**
+     * Performs application of a 4x4 matrix, which maps the amplitudes 0 and 3 of
+     * a group only onto each other and the amplitudes 1 and 2 only onto each
+     * other (e.g. the superoperators of the depolarizing, amplitude damping and
+     * phase damping channels, which do not mix the populations and the
+     * coherences), to the amplitude groups [fromRow, toRow) of two qubits. The
+     * other entries of the matrix are ignored (see applyTwoQubitBlock for the
+     * parameters).
+     */
+    protected static void applyTwoQubitSplitBlock(int qubitA, int qubitB, float[] real, float[] imag, int fromRow, int toRow, float[] blockReal, float[] blockImag) {
+        final int maskA = 1 << qubitA;
+        final int maskB = 1 << qubitB;
+        final float p00R = blockReal[0], p03R = blockReal[3], p30R = blockReal[12], p33R = blockReal[15];
+        final float p00I = blockImag[0], p03I = blockImag[3], p30I = blockImag[12], p33I = blockImag[15];
+        final float c11R = blockReal[5], c12R = blockReal[6], c21R = blockReal[9], c22R = blockReal[10];
+        final float c11I = blockImag[5], c12I = blockImag[6], c21I = blockImag[9], c22I = blockImag[10];
+
+        for (int i = fromRow; i < toRow; i++) {
+            int i0 = insertZeroBits(i, qubitA, qubitB);
+            int i1 = i0 | maskA;
+            int i2 = i0 | maskB;
+            int i3 = i1 | maskB;
+
+            float r0 = real[i0], r3 = real[i3], m0 = imag[i0], m3 = imag[i3];
+            real[i0] = (r0 * p00R - m0 * p00I) + (r3 * p03R - m3 * p03I);
+            imag[i0] = (r0 * p00I + m0 * p00R) + (r3 * p03I + m3 * p03R);
+            real[i3] = (r0 * p30R - m0 * p30I) + (r3 * p33R - m3 * p33I);
+            imag[i3] = (r0 * p30I + m0 * p30R) + (r3 * p33I + m3 * p33R);
+
+            float r1 = real[i1], r2 = real[i2], m1 = imag[i1], m2 = imag[i2];
+            real[i1] = (r1 * c11R - m1 * c11I) + (r2 * c12R - m2 * c12I);
+            imag[i1] = (r1 * c11I + m1 * c11R) + (r2 * c12I + m2 * c12R);
+            real[i2] = (r1 * c21R - m1 * c21I) + (r2 * c22R - m2 * c22I);
+            imag[i2] = (r1 * c21I + m1 * c21R) + (r2 * c22I + m2 * c22R);
+        }
+    }
+
+    /**
+     * Computes the probability of measuring the target qubit in the state 1 over
+     * the amplitude pairs [fromRow, toRow), i.e. the sum of |b|^2 of the
+     * amplitudes with the target bit set. The partial sums of the ranges add up to
+     * the branch probability of the measurement.
+     * 
+     * @param targetQubit
+     *            measured qubit.
+     * @param real
+     *            flattened real parts of the full state vector.
+     * @param imag
+     *            flattened imaginary parts of the full state vector.
+     * @param fromRow
+     *            first amplitude pair to be processed (inclusive).
+     * @param toRow
+     *            last amplitude pair to be processed (exclusive).
+     * @return partial probability of the outcome 1.
+     */
+    protected static double measureProbability(int targetQubit, float[] real, float[] imag, int fromRow, int toRow) {
+        final int stride = 1 << targetQubit;
+        double sum = 0;
+        if (targetQubit < MIN_RUN_QUBIT) {
+            final int maskRight = stride - 1;
+            for (int i = fromRow; i < toRow; i++) {
+                int b = (i & maskRight) | ((i & ~maskRight) << 1) | stride;
+                sum += real[b] * real[b] + imag[b] * imag[b];
+            }
+            return sum;
+        }
+
+        int i = fromRow;
+        while (i < toRow) {
+            int offset = i & (stride - 1);
+            int length = Math.min(stride - offset, toRow - i);
+            int b = ((i >> targetQubit) << (targetQubit + 1)) | stride | offset;
+            for (int k = b; k < b + length; k++)
+                sum += real[k] * real[k] + imag[k] * imag[k];
+            i += length;
+        }
+        return sum;
+    }
+
+    /**
+     * Collapses the amplitude pairs [fromRow, toRow) to the supplied measurement
+     * outcome of the target qubit and renormalizes them in a single pass: the
+     * amplitudes of the other outcome are zeroed and the kept amplitudes are
+     * scaled by 1 / sqrt(p). With reset, the kept amplitudes of the outcome 1 are
+     * moved to the state 0 of the target qubit.
+     * 
+     * @param targetQubit
+     *            measured qubit.
+     * @param outcome
+     *            measurement outcome (0 or 1).
+     * @param reset
+     *            flag to move the collapsed amplitudes to the state 0.
+     * @param scale
+     *            renormalization factor 1 / sqrt(p) of the outcome.
+     * @param real
+     *            flattened real parts of the full state vector.
+     * @param imag
+     *            flattened imaginary parts of the full state vector.
+     * @param fromRow
+     *            first amplitude pair to be processed (inclusive).
+     * @param toRow
+     *            last amplitude pair to be processed (exclusive).
+     */
+    protected static void applyCollapse(int targetQubit, int outcome, boolean reset, float scale, float[] real, float[] imag, int fromRow, int toRow) {
+        final int stride = 1 << targetQubit;
+        if (targetQubit < MIN_RUN_QUBIT) {
+            final int maskRight = stride - 1;
+            for (int i = fromRow; i < toRow; i++) {
+                int a = (i & maskRight) | ((i & ~maskRight) << 1);
+                collapseRun(real, imag, a, a | stride, 1, outcome, reset, scale);
+            }
+            return;
+        }
+
+        int i = fromRow;
+        while (i < toRow) {
+            int offset = i & (stride - 1);
+            int length = Math.min(stride - offset, toRow - i);
+            int a = ((i >> targetQubit) << (targetQubit + 1)) | offset;
+            collapseRun(real, imag, a, a + stride, length, outcome, reset, scale);
+            i += length;
+        }
+    }
+
+    /**
+     * Performs application of the standard quantum gate to the amplitude pairs
+     * [fromRow, toRow) in contiguous runs of 2^targetQubit amplitudes.
+     */
+    private static void applyGateStrided(int targetQubit, float[] real, float[] imag, int fromRow, int toRow, float[] gateReal, float[] gateImag) {
+        final int stride = 1 << targetQubit;
+
+        int i = fromRow;
+        while (i < toRow) {
+            int offset = i & (stride - 1);
+            int length = Math.min(stride - offset, toRow - i);
+            int a = ((i >> targetQubit) << (targetQubit + 1)) | offset;
+            applyPairs(real, imag, a, stride, length, gateReal, gateImag);
+            i += length;
+        }
+    }
+
+    /**
+     * Performs application of the standard quantum gate to the amplitude pairs
+     * [fromRow, toRow), computing the pair indices one by one. Used for low target
+     * qubits that form runs too short for the strided variant.
+     */
+    private static void applyGateMasked(int targetQubit, float[] real, float[] imag, int fromRow, int toRow, float[] gateReal, float[] gateImag) {
+        final float aR = gateReal[0], bR = gateReal[1], cR = gateReal[2], dR = gateReal[3];
+        final float aI = gateImag[0], bI = gateImag[1], cI = gateImag[2], dI = gateImag[3];
+        final int maskRight = (1 << targetQubit) - 1;
+        final int maskLeft = ~maskRight;
+
+        for (int i = fromRow; i < toRow; i++) {
+            int a = (i & maskRight) | ((i & maskLeft) << 1);
+            int b = a | (1 << targetQubit);
+
+            float valueAReal = real[a];
+            float valueAImag = imag[a];
+            float valueBReal = real[b];
+            float valueBImag = imag[b];
+
+            real[a] = (valueAReal * aR - valueAImag * aI) + (valueBReal * bR - valueBImag * bI);
+            imag[a] = (valueAReal * aI + valueAImag * aR) + (valueBReal * bI + valueBImag * bR);
+
+            real[b] = (valueAReal * cR - valueAImag * cI) + (valueBReal * dR - valueBImag * dI);
+            imag[b] = (valueAReal * cI + valueAImag * cR) + (valueBReal * dI + valueBImag * dR);
+        }
+    }
+
+    /**
+     * Performs application of the standard quantum gate on the qubit 0 to the
+     * amplitude pairs [fromRow, toRow), where both amplitudes of a pair are
+     * adjacent (no masking required).
+     */
+    private static void applyGateInterleaved(float[] real, float[] imag, int fromRow, int toRow, float[] gateReal, float[] gateImag) {
+        final float aR = gateReal[0], bR = gateReal[1], cR = gateReal[2], dR = gateReal[3];
+        final float aI = gateImag[0], bI = gateImag[1], cI = gateImag[2], dI = gateImag[3];
+
+        for (int i = fromRow; i < toRow; i++) {
+            int a = i << 1;
+            int b = a + 1;
+
+            float valueAReal = real[a];
+            float valueAImag = imag[a];
+            float valueBReal = real[b];
+            float valueBImag = imag[b];
+
+            real[a] = (valueAReal * aR - valueAImag * aI) + (valueBReal * bR - valueBImag * bI);
+            imag[a] = (valueAReal * aI + valueAImag * aR) + (valueBReal * bI + valueBImag * bR);
+
+            real[b] = (valueAReal * cR - valueAImag * cI) + (valueBReal * dR - valueBImag * dI);
+            imag[b] = (valueAReal * cI + valueAImag * cR) + (valueBReal * dI + valueBImag * dR);
+        }
+    }
+
+    /**
+     * Applies the 2x2 gate to a contiguous run of amplitudes [a, a+length), paired
+     * with [a+stride, a+stride+length).
+     */
+    private static void applyPairs(float[] real, float[] imag, int a, int stride, int length, float[] gateReal, float[] gateImag) {
+        final float aR = gateReal[0], bR = gateReal[1], cR = gateReal[2], dR = gateReal[3];
+        final float aI = gateImag[0], bI = gateImag[1], cI = gateImag[2], dI = gateImag[3];
+
+        for (int j = a, end = a + length; j < end; j++) {
+            int k = j + stride;
+
+            float valueAReal = real[j];
+            float valueAImag = imag[j];
+            float valueBReal = real[k];
+            float valueBImag = imag[k];
+
+            real[j] = (valueAReal * aR - valueAImag * aI) + (valueBReal * bR - valueBImag * bI);
+            imag[j] = (valueAReal * aI + valueAImag * aR) + (valueBReal * bI + valueBImag * bR);
+
+            real[k] = (valueAReal * cR - valueAImag * cI) + (valueBReal * dR - valueBImag * dI);
+            imag[k] = (valueAReal * cI + valueAImag * cR) + (valueBReal * dI + valueBImag * dR);
+        }
+    }
+
+    /**
+     * Multiplies a contiguous run of amplitudes [b, b+length) by the phase D of the
+     * unitary matrix.
+     */
+    private static void applyPhaseRun(float[] real, float[] imag, int b, int length, float[] gateReal, float[] gateImag) {
+        final float dR = gateReal[3], dI = gateImag[3];
+
+        for (int j = b, end = b + length; j < end; j++) {
+            float valueBReal = real[j];
+            float valueBImag = imag[j];
+            real[j] = valueBReal * dR - valueBImag * dI;
+            imag[j] = valueBReal * dI + valueBImag * dR;
+        }
+    }
+
+    /**
+     * Exchanges (optionally with the phase -i / i) the amplitudes base | bitsA and
+     * base | bitsB for the indices [fromRow, toRow) of the quarter-sized index
+     * space, where base has 0 bits at the positions of both qubits.
+     */
+    private static void applyQuarterFlip(int qubitA, int qubitB, int bitsA, int bitsB, boolean flipPhase, float[] real, float[] imag, int fromRow, int toRow) {
+        final int lowQubit = Math.min(qubitA, qubitB);
+        final int highQubit = Math.max(qubitA, qubitB);
+        final int run = lowQubit < MIN_RUN_QUBIT ? 1 : 1 << lowQubit;
+
+        int i = fromRow;
+        while (i < toRow) {
+            int offset = i & (run - 1);
+            int length = Math.min(run - offset, toRow - i);
+            int base = insertZeroBits(i, lowQubit, highQubit);
+            flipRun(real, imag, base | bitsA, base | bitsB, length, flipPhase);
+            i += length;
+        }
+    }
+
+    /**
+     * Exchanges the contiguous runs of amplitudes [a, a+length) and [b, b+length),
+     * optionally multiplying them by the phase -i (run a) and i (run b).
+     */
+    private static void flipRun(float[] real, float[] imag, int a, int b, int length, boolean flipPhase) {
+        if (flipPhase) {
+            for (int j = 0; j < length; j++) {
+                float valueAReal = real[a + j];
+                float valueAImag = imag[a + j];
+                real[a + j] = imag[b + j];
+                imag[a + j] = -real[b + j];
+                real[b + j] = -valueAImag;
+                imag[b + j] = valueAReal;
+            }
+        } else {
+            for (int j = 0; j < length; j++) {
+                float valueAReal = real[a + j];
+                float valueAImag = imag[a + j];
+                real[a + j] = real[b + j];
+                imag[a + j] = imag[b + j];
+                real[b + j] = valueAReal;
+                imag[b + j] = valueAImag;
+            }
+        }
+    }
+
+    /**
+     * Performs application of the controlled quantum gate to the controlled
+     * amplitude pairs [fromRow, toRow), computing the pair indices one by one. Used
+     * when the target or the control qubit is too low to form long runs.
+     */
+    /**
+     * Keeps the runs of amplitudes [a, a+length) (outcome 0) or [b, b+length)
+     * (outcome 1) scaled by the renormalization factor and zeroes the other run.
+     * With reset, the kept run is always written to the run a.
+     */
+    private static void collapseRun(float[] real, float[] imag, int a, int b, int length, int outcome, boolean reset, float scale) {
+        final boolean keepInA = outcome == 0 || reset;
+        for (int k = 0; k < length; k++, a++, b++) {
+            float keptReal = (outcome == 0 ? real[a] : real[b]) * scale;
+            float keptImag = (outcome == 0 ? imag[a] : imag[b]) * scale;
+            real[a] = keepInA ? keptReal : 0;
+            imag[a] = keepInA ? keptImag : 0;
+            real[b] = keepInA ? 0 : keptReal;
+            imag[b] = keepInA ? 0 : keptImag;
+        }
+    }
+
+    private static void applyControlGateMasked(int targetQubit, int controlQubit, float[] real, float[] imag, int fromRow, int toRow, float[] gateReal, float[] gateImag) {
+        final float aR = gateReal[0], bR = gateReal[1], cR = gateReal[2], dR = gateReal[3];
+        final float aI = gateImag[0], bI = gateImag[1], cI = gateImag[2], dI = gateImag[3];
+        final int lowQubit = Math.min(targetQubit, controlQubit);
+        final int highQubit = Math.max(targetQubit, controlQubit);
+        final int controlMask = 1 << controlQubit;
+        final int targetMask = 1 << targetQubit;
+
+        for (int i = fromRow; i < toRow; i++) {
+            int a = insertZeroBits(i, lowQubit, highQubit) | controlMask;
+            int b = a | targetMask;
+
+            float valueAReal = real[a];
+            float valueAImag = imag[a];
+            float valueBReal = real[b];
+            float valueBImag = imag[b];
+
+            real[a] = (valueAReal * aR - valueAImag * aI) + (valueBReal * bR - valueBImag * bI);
+            imag[a] = (valueAReal * aI + valueAImag * aR) + (valueBReal * bI + valueBImag * bR);
+
+            real[b] = (valueAReal * cR - valueAImag * cI) + (valueBReal * dR - valueBImag * dI);
+            imag[b] = (valueAReal * cI + valueAImag * cR) + (valueBReal * dI + valueBImag * dR);
+        }
+    }
+
+    /**
+     * Performs application of the standard quantum gate to the amplitude pairs
+     * [fromRow, toRow) of the double precision state vector (see the single
+     * precision variant for the parameters).
+     */
+    protected static void applyGate(int targetQubit, double[] real, double[] imag, int fromRow, int toRow, double[] gateReal, double[] gateImag) {
+        if (targetQubit == 0)
+            applyGateInterleaved(real, imag, fromRow, toRow, gateReal, gateImag);
+        else if (targetQubit < MIN_RUN_QUBIT)
+            applyGateMasked(targetQubit, real, imag, fromRow, toRow, gateReal, gateImag);
+        else
+            applyGateStrided(targetQubit, real, imag, fromRow, toRow, gateReal, gateImag);
+    }
+
+    /**
+     * Performs application of the controlled quantum gate to the controlled
+     * amplitude pairs [fromRow, toRow) of the double precision state vector (see
+     * the single precision variant for the parameters).
+     */
+    protected static void applyControlGate(int targetQubit, int controlQubit, double[] real, double[] imag, int fromRow, int toRow, double[] gateReal, double[] gateImag) {
+        final int lowQubit = Math.min(targetQubit, controlQubit);
+        final int highQubit = Math.max(targetQubit, controlQubit);
+        if (lowQubit < MIN_RUN_QUBIT) {
+            applyControlGateMasked(targetQubit, controlQubit, real, imag, fromRow, toRow, gateReal, gateImag);
+            return;
+        }
+
+        // Consecutive indices map to contiguous runs of 2^lowQubit pairs
+        final int run = 1 << lowQubit;
+        final int stride = 1 << targetQubit;
+        final int controlMask = 1 << controlQubit;
+
+        int i = fromRow;
+        while (i < toRow) {
+            int offset = i & (run - 1);
+            int length = Math.min(run - offset, toRow - i);
+            int a = insertZeroBits(i, lowQubit, highQubit) | controlMask;
+            applyPairs(real, imag, a, stride, length, gateReal, gateImag);
+            i += length;
+        }
+    }
+
+    /**
+     * Performs application of the phase gate to the amplitudes [fromRow, toRow)
+     * with the target bit set of the double precision state vector (see the single
+     * precision variant for the parameters).
+     */
+    protected static void applyPhase(int targetQubit, double[] real, double[] imag, int fromRow, int toRow, double[] gateReal, double[] gateImag) {
+        final int stride = 1 << targetQubit;
+        if (targetQubit < MIN_RUN_QUBIT) {
+            final double dR = gateReal[3], dI = gateImag[3];
+            final int maskRight = stride - 1;
+            for (int i = fromRow; i < toRow; i++) {
+                int b = (i & maskRight) | ((i & ~maskRight) << 1) | stride;
+                double valueBReal = real[b];
+                double valueBImag = imag[b];
+                real[b] = valueBReal * dR - valueBImag * dI;
+                imag[b] = valueBReal * dI + valueBImag * dR;
+            }
+            return;
+        }
+
+        int i = fromRow;
+        while (i < toRow) {
+            int offset = i & (stride - 1);
+            int length = Math.min(stride - offset, toRow - i);
+            int b = ((i >> targetQubit) << (targetQubit + 1)) | stride | offset;
+            applyPhaseRun(real, imag, b, length, gateReal, gateImag);
+            i += length;
+        }
+    }
+
+    /**
+     * Performs application of the controlled phase gate to the amplitudes [fromRow,
+     * toRow) with both bits set of the double precision state vector (see the
+     * single precision variant for the parameters).
+     */
+    protected static void applyControlPhase(int targetQubit, int controlQubit, double[] real, double[] imag, int fromRow, int toRow, double[] gateReal, double[] gateImag) {
+        final int lowQubit = Math.min(targetQubit, controlQubit);
+        final int highQubit = Math.max(targetQubit, controlQubit);
+        final int bitMask = (1 << targetQubit) | (1 << controlQubit);
+        if (lowQubit < MIN_RUN_QUBIT) {
+            final double dR = gateReal[3], dI = gateImag[3];
+            for (int i = fromRow; i < toRow; i++) {
+                int b = insertZeroBits(i, lowQubit, highQubit) | bitMask;
+                double valueBReal = real[b];
+                double valueBImag = imag[b];
+                real[b] = valueBReal * dR - valueBImag * dI;
+                imag[b] = valueBReal * dI + valueBImag * dR;
+            }
+            return;
+        }
+
+        final int run = 1 << lowQubit;
+        int i = fromRow;
+        while (i < toRow) {
+            int offset = i & (run - 1);
+            int length = Math.min(run - offset, toRow - i);
+            int b = insertZeroBits(i, lowQubit, highQubit) | bitMask;
+            applyPhaseRun(real, imag, b, length, gateReal, gateImag);
+            i += length;
+        }
+    }
+
+    /**
+     * Performs application of the Pauli X / Y gate to the amplitude pairs [fromRow,
+     * toRow) of the double precision state vector (see the single precision
+     * variant for the parameters).
+     */
+    protected static void applyFlip(int targetQubit, boolean flipPhase, double[] real, double[] imag, int fromRow, int toRow) {
+        final int stride = 1 << targetQubit;
+        if (targetQubit < MIN_RUN_QUBIT) {
+            final int maskRight = stride - 1;
+            for (int i = fromRow; i < toRow; i++) {
+                int a = (i & maskRight) | ((i & ~maskRight) << 1);
+                flipRun(real, imag, a, a | stride, 1, flipPhase);
+            }
+            return;
+        }
+
+        int i = fromRow;
+        while (i < toRow) {
+            int offset = i & (stride - 1);
+            int length = Math.min(stride - offset, toRow - i);
+            int a = ((i >> targetQubit) << (targetQubit + 1)) | offset;
+            flipRun(real, imag, a, a + stride, length, flipPhase);
+            i += length;
+        }
+    }
+
+    /**
+     * Performs application of the controlled Pauli X / Y gate to the controlled
+     * amplitude pairs [fromRow, toRow) of the double precision state vector (see
+     * the single precision variant for the parameters).
+     */
+    protected static void applyControlFlip(int targetQubit, int controlQubit, boolean flipPhase, double[] real, double[] imag, int fromRow, int toRow) {
+        applyQuarterFlip(targetQubit, controlQubit, 1 << controlQubit, (1 << controlQubit) | (1 << targetQubit), flipPhase, real, imag, fromRow, toRow);
+    }
+
+    /**
+     * Performs the swap of two qubits for the amplitude pairs [fromRow, toRow) of
+     * the double precision state vector (see the single precision variant for the
+     * parameters).
+     */
+    protected static void applySwap(int qubitA, int qubitB, double[] real, double[] imag, int fromRow, int toRow) {
+        applyQuarterFlip(qubitA, qubitB, 1 << qubitA, 1 << qubitB, false, real, imag, fromRow, toRow);
+    }
+
+    /**
+     * Performs the simultaneous swap of the disjoint qubit pairs for the amplitude
+     * groups [fromRow, toRow) of the double precision state vector (see the single
+     * precision variant for the parameters).
+     */
+    protected static void applyQubitSwaps(int[] qubitsA, int[] qubitsB, double[] real, double[] imag, int fromRow, int toRow) {
+        final int[] qubits = swapQubits(qubitsA, qubitsB);
+        final int[][] offsets = swapOffsets(qubitsA, qubitsB, qubits);
+        final int[] offsetsA = offsets[0];
+        final int[] offsetsB = offsets[1];
+
+        if (qubits[0] == 0) {
+            applyQubitSwapsMasked(qubits, offsetsA, offsetsB, real, imag, fromRow, toRow);
+            return;
+        }
+
+        // Groups below the lowest swapped qubit are consecutive and exchanged as runs
+        final int runLength = 1 << qubits[0];
+        int i = fromRow;
+        while (i < toRow) {
+            int length = Math.min(runLength - (i & (runLength - 1)), toRow - i);
+            int base = i;
+            for (int qubit : qubits) {
+                int maskRight = (1 << qubit) - 1;
+                base = (base & maskRight) | ((base & ~maskRight) << 1);
+            }
+
+            for (int t = 0; t < offsetsA.length; t++) {
+                int a = base + offsetsA[t];
+                int b = base + offsetsB[t];
+                for (int r = 0; r < length; r++) {
+                    double valueReal = real[a + r];
+                    double valueImag = imag[a + r];
+                    real[a + r] = real[b + r];
+                    imag[a + r] = imag[b + r];
+                    real[b + r] = valueReal;
+                    imag[b + r] = valueImag;
+                }
+            }
+            i += length;
+        }
+    }
+
+    /**
+     * Variant of applyQubitSwaps for the swapped qubit 0, which exchanges the
+     * groups one by one.
+     */
+    private static void applyQubitSwapsMasked(int[] qubits, int[] offsetsA, int[] offsetsB, float[] real, float[] imag, int fromRow, int toRow) {
+        for (int i = fromRow; i < toRow; i++) {
+            int base = i;
+            for (int qubit : qubits) {
+                int maskRight = (1 << qubit) - 1;
+                base = (base & maskRight) | ((base & ~maskRight) << 1);
+            }
+
+            for (int t = 0; t < offsetsA.length; t++) {
+                int a = base + offsetsA[t];
+                int b = base + offsetsB[t];
+                float valueReal = real[a];
+                float valueImag = imag[a];
+                real[a] = real[b];
+                imag[a] = imag[b];
+                real[b] = valueReal;
+                imag[b] = valueImag;
+            }
+        }
+    }
+
+    /**
+     * Double precision variant of applyQubitSwapsMasked.
+     */
+    private static void applyQubitSwapsMasked(int[] qubits, int[] offsetsA, int[] offsetsB, double[] real, double[] imag, int fromRow, int toRow) {
+        for (int i = fromRow; i < toRow; i++) {
+            int base = i;
+            for (int qubit : qubits) {
+                int maskRight = (1 << qubit) - 1;
+                base = (base & maskRight) | ((base & ~maskRight) << 1);
+            }
+
+            for (int t = 0; t < offsetsA.length; t++) {
+                int a = base + offsetsA[t];
+                int b = base + offsetsB[t];
+                double valueReal = real[a];
+                double valueImag = imag[a];
+                real[a] = real[b];
+                imag[a] = imag[b];
+                real[b] = valueReal;
+                imag[b] = valueImag;
+            }
+        }
+    }
+
+    private static int[] swapQubits(int[] qubitsA, int[] qubitsB) {
+        int[] qubits = new int[2 * qubitsA.length];
+        for (int k = 0; k < qubitsA.length; k++) {
+            qubits[2 * k] = qubitsA[k];
+            qubits[2 * k + 1] = qubitsB[k];
+        }
+        Arrays.sort(qubits);
+        return qubits;
+    }
+
+    /**
+     * Gets the offsets of the exchanged amplitudes relative to the group base index
+     * (each exchange is listed once).
+     */
+    private static int[][] swapOffsets(int[] qubitsA, int[] qubitsB, int[] qubits) {
+        int groupSize = 1 << qubits.length;
+        int exchanges = (groupSize - (1 << qubitsA.length)) / 2;
+        int[][] offsets = new int[2][exchanges];
+        for (int s = 0, t = 0; s < groupSize; s++) {
+            int offset = 0;
+            for (int j = 0; j < qubits.length; j++)
+                offset |= ((s >> j) & 1) << qubits[j];
+            int swapped = offset;
+            for (int k = 0; k < qubitsA.length; k++)
+                if ((((offset >> qubitsA[k]) ^ (offset >> qubitsB[k])) & 1) != 0)
+                    swapped ^= (1 << qubitsA[k]) | (1 << qubitsB[k]);
+            if (swapped > offset) {
+                offsets[0][t] = offset;
+                offsets[1][t] = swapped;
+                t++;
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * Performs application of the dense block operation to the amplitude groups
+     * [fromRow, toRow) of the double precision state vector (see the single
+     * precision variant for the parameters).
+     */
+    protected static void applyBlock(int[] blockQubits, double[] real, double[] imag, int fromRow, int toRow, double[] blockReal, double[] blockImag) {
+        final int noQubits = blockQubits.length;
+        final int dimension = 1 << noQubits;
+
+        // Offsets of the group members relative to the group base index
+        int[] offsets = new int[dimension];
+        for (int s = 0; s < dimension; s++)
+            for (int j = 0; j < noQubits; j++)
+                offsets[s] |= ((s >> j) & 1) << blockQubits[j];
+
+        double[] valueReal = new double[dimension];
+        double[] valueImag = new double[dimension];
+
+        for (int i = fromRow; i < toRow; i++) {
+            int base = i;
+            for (int j = 0; j < noQubits; j++) {
+                int maskRight = (1 << blockQubits[j]) - 1;
+                base = (base & maskRight) | ((base & ~maskRight) << 1);
+            }
+
+            for (int s = 0; s < dimension; s++) {
+                valueReal[s] = real[base + offsets[s]];
+                valueImag[s] = imag[base + offsets[s]];
+            }
+
+            for (int r = 0, m = 0; r < dimension; r++) {
+                double sumReal = 0;
+                double sumImag = 0;
+                for (int s = 0; s < dimension; s++, m++) {
+                    sumReal += valueReal[s] * blockReal[m] - valueImag[s] * blockImag[m];
+                    sumImag += valueReal[s] * blockImag[m] + valueImag[s] * blockReal[m];
+                }
+                real[base + offsets[r]] = sumReal;
+                imag[base + offsets[r]] = sumImag;
+            }
+        }
+    }
+
+    /**
+     * Computes the partial probability of measuring the target qubit in the state
+     * 1 over the amplitude pairs [fromRow, toRow) of the double precision state
+     * vector (see the single precision variant for the parameters).
+     */
+    protected static double measureProbability(int targetQubit, double[] real, double[] imag, int fromRow, int toRow) {
+        final int stride = 1 << targetQubit;
+        double sum = 0;
+        if (targetQubit < MIN_RUN_QUBIT) {
+            final int maskRight = stride - 1;
+            for (int i = fromRow; i < toRow; i++) {
+                int b = (i & maskRight) | ((i & ~maskRight) << 1) | stride;
+                sum += real[b] * real[b] + imag[b] * imag[b];
+            }
+            return sum;
+        }
+
+        int i = fromRow;
+        while (i < toRow) {
+            int offset = i & (stride - 1);
+            int length = Math.min(stride - offset, toRow - i);
+            int b = ((i >> targetQubit) << (targetQubit + 1)) | stride | offset;
+            for (int k = b; k < b + length; k++)
+                sum += real[k] * real[k] + imag[k] * imag[k];
+            i += length;
+        }
+        return sum;
+    }
+
+    /**
+     * Collapses and renormalizes the amplitude pairs [fromRow, toRow) of the
+     * double precision state vector (see the single precision variant for the
+     * parameters).
+     */
+    protected static void applyCollapse(int targetQubit, int outcome, boolean reset, double scale, double[] real, double[] imag, int fromRow, int toRow) {
+        final int stride = 1 << targetQubit;
+        if (targetQubit < MIN_RUN_QUBIT) {
+            final int maskRight = stride - 1;
+            for (int i = fromRow; i < toRow; i++) {
+                int a = (i & maskRight) | ((i & ~maskRight) << 1);
+                collapseRun(real, imag, a, a | stride, 1, outcome, reset, scale);
+            }
+            return;
+        }
+
+        int i = fromRow;
+        while (i < toRow) {
+            int offset = i & (stride - 1);
+            int length = Math.min(stride - offset, toRow - i);
+            int a = ((i >> targetQubit) << (targetQubit + 1)) | offset;
+            collapseRun(real, imag, a, a + stride, length, outcome, reset, scale);
+            i += length;
+        }
+    }
+
+    /**
+     * Double precision variant of applyGateStrided.
+     */
+    private static void applyGateStrided(int targetQubit, double[] real, double[] imag, int fromRow, int toRow, double[] gateReal, double[] gateImag) {
+        final int stride = 1 << targetQubit;
+
+        int i = fromRow;
+        while (i < toRow) {
+            int offset = i & (stride - 1);
+            int length = Math.min(stride - offset, toRow - i);
+            int a = ((i >> targetQubit) << (targetQubit + 1)) | offset;
+            applyPairs(real, imag, a, stride, length, gateReal, gateImag);
+            i += length;
+        }
+    }
+
+    /**
+     * Double precision variant of applyGateMasked.
+     */
+    private static void applyGateMasked(int targetQubit, double[] real, double[] imag, int fromRow, int toRow, double[] gateReal, double[] gateImag) {
+        final double aR = gateReal[0], bR = gateReal[1], cR = gateReal[2], dR = gateReal[3];
+        final double aI = gateImag[0], bI = gateImag[1], cI = gateImag[2], dI = gateImag[3];
+        final int maskRight = (1 << targetQubit) - 1;
+        final int maskLeft = ~maskRight;
+
+        for (int i = fromRow; i < toRow; i++) {
+            int a = (i & maskRight) | ((i & maskLeft) << 1);
+            int b = a | (1 << targetQubit);
+
+            double valueAReal = real[a];
+            double valueAImag = imag[a];
+            double valueBReal = real[b];
+            double valueBImag = imag[b];
+
+            real[a] = (valueAReal * aR - valueAImag * aI) + (valueBReal * bR - valueBImag * bI);
+            imag[a] = (valueAReal * aI + valueAImag * aR) + (valueBReal * bI + valueBImag * bR);
+
+            real[b] = (valueAReal * cR - valueAImag * cI) + (valueBReal * dR - valueBImag * dI);
+            imag[b] = (valueAReal * cI + valueAImag * cR) + (valueBReal * dI + valueBImag * dR);
+        }
+    }
+
+    /**
+     * Double precision variant of applyGateInterleaved.
+     */
+    private static void applyGateInterleaved(double[] real, double[] imag, int fromRow, int toRow, double[] gateReal, double[] gateImag) {
+        final double aR = gateReal[0], bR = gateReal[1], cR = gateReal[2], dR = gateReal[3];
+        final double aI = gateImag[0], bI = gateImag[1], cI = gateImag[2], dI = gateImag[3];
+
+        for (int i = fromRow; i < toRow; i++) {
+            int a = i << 1;
+            int b = a + 1;
+
+            double valueAReal = real[a];
+            double valueAImag = imag[a];
+            double valueBReal = real[b];
+            double valueBImag = imag[b];
+
+            real[a] = (valueAReal * aR - valueAImag * aI) + (valueBReal * bR - valueBImag * bI);
+            imag[a] = (valueAReal * aI + valueAImag * aR) + (valueBReal * bI + valueBImag * bR);
+
+            real[b] = (valueAReal * cR - valueAImag * cI) + (valueBReal * dR - valueBImag * dI);
+            imag[b] = (valueAReal * cI + valueAImag * cR) + (valueBReal * dI + valueBImag * dR);
+        }
+    }
+
+    /**
+     * Double precision variant of applyPairs.
+     */
+    private static void applyPairs(double[] real, double[] imag, int a, int stride, int length, double[] gateReal, double[] gateImag) {
+        final double aR = gateReal[0], bR = gateReal[1], cR = gateReal[2], dR = gateReal[3];
+        final double aI = gateImag[0], bI = gateImag[1], cI = gateImag[2], dI = gateImag[3];
+
+        for (int j = a, end = a + length; j < end; j++) {
+            int k = j + stride;
+
+            double valueAReal = real[j];
+            double valueAImag = imag[j];
+            double valueBReal = real[k];
+            double valueBImag = imag[k];
+
+            real[j] = (valueAReal * aR - valueAImag * aI) + (valueBReal * bR - valueBImag * bI);
+            imag[j] = (valueAReal * aI + valueAImag * aR) + (valueBReal * bI + valueBImag * bR);
+
+            real[k] = (valueAReal * cR - valueAImag * cI) + (valueBReal * dR - valueBImag * dI);
+            imag[k] = (valueAReal * cI + valueAImag * cR) + (valueBReal * dI + valueBImag * dR);
+        }
+    }
+
+    /**
+     * Double precision variant of applyPhaseRun.
+     */
+    private static void applyPhaseRun(double[] real, double[] imag, int b, int length, double[] gateReal, double[] gateImag) {
+        final double dR = gateReal[3], dI = gateImag[3];
+
+        for (int j = b, end = b + length; j < end; j++) {
+            double valueBReal = real[j];
+            double valueBImag = imag[j];
+            real[j] = valueBReal * dR - valueBImag * dI;
+            imag[j] = valueBReal * dI + valueBImag * dR;
+        }
+    }
+
+    /**
+     * Double precision variant of applyQuarterFlip.
+     */
+    private static void applyQuarterFlip(int qubitA, int qubitB, int bitsA, int bitsB, boolean flipPhase, double[] real, double[] imag, int fromRow, int toRow) {
+        final int lowQubit = Math.min(qubitA, qubitB);
+        final int highQubit = Math.max(qubitA, qubitB);
+        final int run = lowQubit < MIN_RUN_QUBIT ? 1 : 1 << lowQubit;
+
+        int i = fromRow;
+        while (i < toRow) {
+            int offset = i & (run - 1);
+            int length = Math.min(run - offset, toRow - i);
+            int base = insertZeroBits(i, lowQubit, highQubit);
+            flipRun(real, imag, base | bitsA, base | bitsB, length, flipPhase);
+            i += length;
+        }
+    }
+
+    /**
+     * Double precision variant of flipRun.
+     */
+    private static void flipRun(double[] real, double[] imag, int a, int b, int length, boolean flipPhase) {
+        if (flipPhase) {
+            for (int j = 0; j < length; j++) {
+                double valueAReal = real[a + j];
+                double valueAImag = imag[a + j];
+                real[a + j] = imag[b + j];
+                imag[a + j] = -real[b + j];
+                real[b + j] = -valueAImag;
+                imag[b + j] = valueAReal;
+            }
+        } else {
+            for (int j = 0; j < length; j++) {
+                double valueAReal = real[a + j];
+                double valueAImag = imag[a + j];
+                real[a + j] = real[b + j];
+                imag[a + j] = imag[b + j];
+                real[b + j] = valueAReal;
+                imag[b + j] = valueAImag;
+            }
+        }
+    }
+
+    /**
+     * Double precision variant of applyControlGateMasked.
+     */
+    /**
+     * Double precision variant of collapseRun.
+     */
+    private static void collapseRun(double[] real, double[] imag, int a, int b, int length, int outcome, boolean reset, double scale) {
+        final boolean keepInA = outcome == 0 || reset;
+        for (int k = 0; k < length; k++, a++, b++) {
+            double keptReal = (outcome == 0 ? real[a] : real[b]) * scale;
+            double keptImag = (outcome == 0 ? imag[a] : imag[b]) * scale;
+            real[a] = keepInA ? keptReal : 0;
+            imag[a] = keepInA ? keptImag : 0;
+            real[b] = keepInA ? 0 : keptReal;
+            imag[b] = keepInA ? 0 : keptImag;
+        }
+    }
+
+    private static void applyControlGateMasked(int targetQubit, int controlQubit, double[] real, double[] imag, int fromRow, int toRow, double[] gateReal, double[] gateImag) {
+        final double aR = gateReal[0], bR = gateReal[1], cR = gateReal[2], dR = gateReal[3];
+        final double aI = gateImag[0], bI = gateImag[1], cI = gateImag[2], dI = gateImag[3];
+        final int lowQubit = Math.min(targetQubit, controlQubit);
+        final int highQubit = Math.max(targetQubit, controlQubit);
+        final int controlMask = 1 << controlQubit;
+        final int targetMask = 1 << targetQubit;
+
+        for (int i = fromRow; i < toRow; i++) {
+            int a = insertZeroBits(i, lowQubit, highQubit) | controlMask;
+            int b = a | targetMask;
+
+            double valueAReal = real[a];
+            double valueAImag = imag[a];
+            double valueBReal = real[b];
+            double valueBImag = imag[b];
+
+            real[a] = (valueAReal * aR - valueAImag * aI) + (valueBReal * bR - valueBImag * bI);
+            imag[a] = (valueAReal * aI + valueAImag * aR) + (valueBReal * bI + valueBImag * bR);
+
+            real[b] = (valueAReal * cR - valueAImag * cI) + (valueBReal * dR - valueBImag * dI);
+            imag[b] = (valueAReal * cI + valueAImag * cR) + (valueBReal * dI + valueBImag * dR);
+        }
+    }
+
+    /**
+     * Inserts 0 bits at the positions lowQubit and highQubit (lowQubit <
+     * highQubit) of the index.
+     */
+    private static int insertZeroBits(int index, int lowQubit, int highQubit) {
+        int maskLow = (1 << lowQubit) - 1;
+        index = (index & maskLow) | ((index & ~maskLow) << 1);
+        int maskHigh = (1 << highQubit) - 1;
+        return (index & maskHigh) | ((index & ~maskHigh) << 1);
+    }
+}
@@ -21,21 +21,32 @@
  */
 package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
 
-import uk.ac.manchester.tornado.api.ImmutableTaskGraph;
 import uk.ac.manchester.tornado.api.TaskGraph;
 import uk.ac.manchester.tornado.api.TornadoExecutionPlan;
+import uk.ac.manchester.tornado.api.TornadoExecutionResult;
 import uk.ac.manchester.tornado.api.enums.DataTransferMode;
 import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.DoubleState;
 import uk.ac.manchester.tornado.qsim.circuit.State;
-import uk.ac.manchester.tornado.qsim.circuit.Step;
-import uk.ac.manchester.tornado.qsim.circuit.operation.ControlGate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.ConditionalOperation;
 import uk.ac.manchester.tornado.qsim.circuit.operation.Function;
-import uk.ac.manchester.tornado.qsim.circuit.operation.Gate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Instruction;
 import uk.ac.manchester.tornado.qsim.circuit.operation.Operation;
+import uk.ac.manchester.tornado.qsim.circuit.operation.OperationDataProvider;
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.OperationType;
 import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.math.DoubleComplexTensor;
+import uk.ac.manchester.tornado.qsim.simulator.Precision;
 import uk.ac.manchester.tornado.qsim.simulator.Simulator;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents a quantum circuit simulator that applies each quantum gate by
@@ -43,49 +54,148 @@ import java.util.List;
  * on heterogeneous hardware via TornadoVM. This simulation process follows the
  * full state vector / wavefunction simulation model of quantum computation.
  * 
+ * Each circuit is compiled into an operation table (see FsvCompiledCircuit) and
+ * a single execution plan with one task per table entry, so the whole circuit
+ * is simulated by one plan execution. The full state vector is initialized on
+ * the device, stays resident there for the whole circuit and is transferred
+ * back to the host once. Compiled execution plans are cached and reused when
+ * the same circuit is simulated again (custom function data are captured at
+ * compilation, so a plan is reused only while the data registered for its
+ * custom functions stay the same). All cached plans of the same state size share
+ * one set of host state buffers, and only the last executed plan keeps its
+ * device memory (the other plans keep their compiled kernels and allocate the
+ * device memory again when executed). The state buffers are the state vector of
+ * the returned state, so the state is transferred into it without a host copy
+ * (the state returned by the previous simulation of the same size gets its own
+ * copy once the buffers are reused). In double precision the state vector and
+ * the unitary matrices (including the fused ones) are held in double arrays on
+ * the device (the device must support fp64).
+ * 
+ * Dynamic circuits are split at the instructions (measure and reset) into
+ * segments of unitary operations, each segment is simulated by its own cached
+ * execution plan on the state uploaded from the host (from the state buffers). The instructions are
+ * applied on the host between the segments (a parallel reduction of the outcome
+ * probability and a single collapse pass, see FsvSimulatorStandard), and
+ * conditional operations are resolved from the measured classical bits when
+ * their segment is built.
+ * 
  * @author Ales Kubicek
  */
 public class FsvSimulatorAccelerated implements Simulator {
     private final FsvDataProvider dataProvider;
+    private final FsvGateFusion gateFusion;
+    private final int cachedPlans;
+    private final Precision precision;
+    private final Map<List<Object>, CompiledPlan> planCache;
+    private final Map<Integer, StateBuffers> stateBuffers;
+    private CompiledPlan lastPlan;
+    private FsvSimulatorStandard hostSimulator;
+    private int passesSaved;
+    private boolean planReused;
 
-    private TaskGraph applyGateTaskGraph;
-    private TaskGraph applyControlTaskGraph;
-    private ImmutableTaskGraph applyGateImmutableTaskGraph;
-    private ImmutableTaskGraph applyControlImmutableTaskGraph;
-    private TornadoExecutionPlan applyGateExecutionPlan;
-    private TornadoExecutionPlan applyControlExecutionPlan;
-
-    private int[] targetQubit;
-    private int[] controlQubit;
-    private float[] gateReal;
-    private float[] gateImag;
-    private float[] stateReal;
-    private float[] stateImag;
-    private float[] stateRealControl;
-    private float[] stateImagControl;
+    /**
+     * Constructs a full state vector simulator with the default options.
+     */
+    public FsvSimulatorAccelerated() {
+        this(new FsvOptions());
+    }
 
     /**
-     * Constructs a full state vector simulator.
+     * Constructs a full state vector simulator with the default options.
+     * 
+     * @param noQubits
+     *            unused, the execution plan is sized from the simulated circuit.
+     * @deprecated the number of qubits is taken from each simulated circuit, use
+     *             FsvSimulatorAccelerated() instead.
      */
+    @Deprecated
     public FsvSimulatorAccelerated(int noQubits) {
+        this(new FsvOptions());
+    }
+
+    /**
+     * Constructs a full state vector simulator.
+     * 
+     * @param noQubits
+     *            unused, the execution plan is sized from the simulated circuit.
+     * @param options
+     *            gate fusion, precision and plan caching options (see FsvOptions).
+     * @deprecated the number of qubits is taken from each simulated circuit, use
+     *             FsvSimulatorAccelerated(FsvOptions) instead.
+     */
+    @Deprecated
+    public FsvSimulatorAccelerated(int noQubits, FsvOptions options) {
+        this(options);
+    }
+
+    /**
+     * Constructs a full state vector simulator.
+     * 
+     * @param options
+     *            gate fusion, precision and plan caching options (see FsvOptions).
+     *            Cache blocking and qubit remapping are not applied on the device.
+     */
+    public FsvSimulatorAccelerated(FsvOptions options) {
+        if (options == null)
+            throw new IllegalArgumentException("Invalid options supplied (NULL).");
+        int maxFusedQubits = options.maxFusedQubits();
+        Precision precision = options.precision();
         dataProvider = new FsvDataProvider();
-        targetQubit = new int[1];
-        controlQubit = new int[1];
+        gateFusion = maxFusedQubits > 0 ? new FsvGateFusion(dataProvider, maxFusedQubits, precision == Precision.DOUBLE) : null;
+        cachedPlans = options.cachedPlans();
+        planCache = new LinkedHashMap<>(16, 0.75f, true);
+        stateBuffers = new HashMap<>();
+        this.precision = precision;
     }
 
-    private void initializeStateArrays(State state) {
-        if (stateReal == null) {
-            stateReal = new float[state.getStateVector().getRawRealData().length];
-        }
-        if (stateImag == null) {
-            stateImag = new float[state.getStateVector().getRawImagData().length];
-        }
-        if (stateRealControl == null) {
-            stateRealControl = new float[state.getStateVector().getRawRealData().length];
-        }
-        if (stateImagControl == null) {
-            stateImagControl = new float[state.getStateVector().getRawImagData().length];
-        }
+    /**
+     * Sets the seed of the random generator of the measurement outcomes.
+     * 
+     * @param seed
+     *            random generator seed.
+     */
+    public void setSeed(long seed) {
+        getHostSimulator().setSeed(seed);
+    }
+
+    /**
+     * Gets the outcomes of the measure instructions of the circuit (in the order
+     * of application, step by step) in the last simulation.
+     * 
+     * @return measurement outcomes (0 or 1).
+     */
+    public int[] measurements() {
+        return hostSimulator == null ? new int[0] : hostSimulator.measurements();
+    }
+
+    /**
+     * Gets the precision of the simulated state.
+     * 
+     * @return simulation precision.
+     */
+    public Precision precision() {
+        return precision;
+    }
+
+    /**
+     * Gets the number of full state vector passes saved by gate fusion in the last
+     * simulation (0 if gate fusion is switched off).
+     * 
+     * @return number of saved passes.
+     */
+    public int passesSaved() {
+        return passesSaved;
+    }
+
+    /**
+     * Checks whether the last simulation reused a cached execution plan (no
+     * circuit compilation was needed, for a dynamic circuit the plans of all its
+     * segments).
+     * 
+     * @return true if the compiled execution plan was reused.
+     */
+    public boolean planReused() {
+        return planReused;
     }
 
     @Override
@@ -93,32 +203,46 @@ public class FsvSimulatorAccelerated implements Simulator {
         if (circuit == null)
             throw new IllegalArgumentException("Invalid circuit supplied (NULL).");
 
-        State resultState = new State(circuit.qubitCount());
-        List<Step> steps = circuit.getSteps();
-
-        initializeStateArrays(resultState);
-
-        for (Step step : steps) {
-            List<Operation> operations = dataProvider.getStepOperations(circuit.qubitCount(), step);
-            for (Operation operation : operations) {
-                switch (operation.operationType()) {
-                    case Gate:
-                        applyGate(resultState, (Gate) operation);
-                        break;
-                    case ControlGate:
-                        applyControlGate(resultState, (ControlGate) operation);
-                        break;
-                    case Function:
-                        applyStandardFunction(resultState, (Function) operation);
-                        break;
-                    case CustomFunction:
-                        applyCustomFunction(resultState, (Function) operation);
-                        break;
-                    default:
-                        throw new UnsupportedOperationException("Operation type '" + operation.operationType() + "' is not supported in a full state vector simulator.");
-                }
+        StateBuffers buffers = getStateBuffers(1 << circuit.qubitCount());
+        buffers.detach();
+        List<Operation> operations = dataProvider.getCircuitOperations(circuit);
+
+        passesSaved = 0;
+        if (gateFusion != null) {
+            operations = gateFusion.fuse(circuit.qubitCount(), operations);
+            passesSaved = gateFusion.passesSaved();
+        }
+
+        if (operations.stream().noneMatch(FsvSimulatorAccelerated::isDynamic)) {
+            if (hostSimulator != null)
+                hostSimulator.resetClassicalRegister(circuit.qubitCount());
+            planReused = simulateSegment(buffers, operations, true);
+            return buffers.toState();
+        }
+
+        // State stays on the host between the segments of a dynamic circuit
+        FsvSimulatorStandard host = getHostSimulator();
+        host.resetClassicalRegister(circuit.qubitCount());
+        buffers.reset();
+        State resultState = buffers.toState();
+        planReused = true;
+        List<Operation> segment = new ArrayList<>();
+        for (Operation operation : operations) {
+            if (operation.operationType() == OperationType.Instruction) {
+                if (!segment.isEmpty())
+                    planReused &= simulateSegment(buffers, segment, false);
+                segment = new ArrayList<>();
+                host.applyInstruction(resultState, (Instruction) operation);
+            } else if (operation.operationType() == OperationType.Conditional) {
+                ConditionalOperation conditionalOperation = (ConditionalOperation) operation;
+                if (host.isConditionSatisfied(conditionalOperation))
+                    segment.add(conditionalOperation.operation());
+            } else {
+                segment.add(operation);
             }
         }
+        if (!segment.isEmpty())
+            planReused &= simulateSegment(buffers, segment, false);
         return resultState;
     }
 
@@ -127,105 +251,203 @@ public class FsvSimulatorAccelerated implements Simulator {
         return simulateFullState(circuit).collapse();
     }
 
-    private void applyGate(State state, Gate gate) {
-        updateInputDataOfTaskGraph(state, gate);
-        applyGateExecutionPlan.execute();
-        updateOutputDataOfGate(state);
+    /**
+     * Gets the host simulator, which applies the instructions of dynamic circuits.
+     * It is created with its worker pool on first use, so circuits without
+     * instructions do not allocate it.
+     */
+    private FsvSimulatorStandard getHostSimulator() {
+        if (hostSimulator == null)
+            hostSimulator = new FsvSimulatorParallel(Runtime.getRuntime().availableProcessors(), FsvSimulatorParallel.DEFAULT_SEQUENTIAL_CUTOFF, new FsvOptions().precision(precision).blockQubits(0));
+        return hostSimulator;
     }
 
-    private void updateInputDataOfTaskGraph(State state, Gate gate) {
-        int halfRows = state.size() / 2;
-        ComplexTensor gateData = dataProvider.getOperationData(gate);
+    private static boolean isDynamic(Operation operation) {
+        return operation.operationType() == OperationType.Instruction || operation.operationType() == OperationType.Conditional;
+    }
 
-        if (applyGateTaskGraph == null) {
-            targetQubit[0] = gate.targetQubit()[0];
-            System.arraycopy(state.getStateVector().getRawRealData(), 0, stateReal, 0, state.getStateVector().getRawRealData().length);
-            System.arraycopy(state.getStateVector().getRawImagData(), 0, stateImag, 0, state.getStateVector().getRawImagData().length);
-            if (gateReal == null) {
-                gateReal = new float[gateData.size()];
-            }
-            if (gateImag == null) {
-                gateImag = new float[gateData.size()];
-            }
-            System.arraycopy(gateData.getRawRealData(), 0, gateReal, 0, gateData.getRawRealData().length);
-            System.arraycopy(gateData.getRawImagData(), 0, gateImag, 0, gateData.getRawRealData().length);
-
-            // @formatter:off
-            applyGateTaskGraph = new TaskGraph("applyGate")
-                    .transferToDevice(DataTransferMode.EVERY_EXECUTION, targetQubit, stateReal, stateImag, gateReal, gateImag)
-                    .task("applyGateTask", FsvOperand::applyGate, targetQubit, stateReal, stateImag, halfRows, gateReal, gateImag)
-                    .transferToHost(DataTransferMode.EVERY_EXECUTION ,stateReal, stateImag);
-            applyGateImmutableTaskGraph = applyGateTaskGraph.snapshot();
-            applyGateExecutionPlan = new TornadoExecutionPlan(applyGateImmutableTaskGraph);
-            // @formatter:on
-        } else {
-            targetQubit[0] = gate.targetQubit()[0];
-            System.arraycopy(state.getStateVector().getRawRealData(), 0, stateReal, 0, state.getStateVector().getRawRealData().length);
-            System.arraycopy(state.getStateVector().getRawImagData(), 0, stateImag, 0, state.getStateVector().getRawImagData().length);
-            System.arraycopy(gateData.getRawRealData(), 0, gateReal, 0, gateData.getRawRealData().length);
-            System.arraycopy(gateData.getRawImagData(), 0, gateImag, 0, gateData.getRawRealData().length);
+    /**
+     * Simulates the supplied unitary operations by a single execution of their
+     * (cached) plan, the state is transferred into the state buffers.
+     * 
+     * @return true if the compiled execution plan was reused.
+     */
+    private boolean simulateSegment(StateBuffers buffers, List<Operation> operations, boolean initialize) {
+        int noQubits = Integer.numberOfTrailingZeros(buffers.size());
+        // Custom function data are captured by the plan, re-registered data need a new plan
+        List<Integer> functionVersions = new ArrayList<>();
+        for (Operation operation : operations)
+            if (operation.operationType() == OperationType.CustomFunction)
+                functionVersions.add(OperationDataProvider.getInstance().getDataVersion(((Function) operation).name()));
+        List<Object> key = Arrays.asList(noQubits, initialize, operations, functionVersions);
+        CompiledPlan plan = planCache.get(key);
+        boolean reused = plan != null;
+        if (plan == null) {
+            plan = new CompiledPlan(buffers, new FsvCompiledCircuit(dataProvider, new ArrayList<>(operations), precision == Precision.DOUBLE, initialize), initialize);
+            cachePlan(key, plan);
         }
+
+        // Only the last executed plan keeps its device memory
+        if (lastPlan != null && lastPlan != plan)
+            lastPlan.executionPlan.freeDeviceMemory();
+        TornadoExecutionResult executionResult = plan.executionPlan.execute();
+        // The only transfer of the full state vector back to the host (per segment)
+        if (buffers.doubleStateReal != null)
+            executionResult.transferToHost(buffers.doubleStateReal, buffers.doubleStateImag);
+        else
+            executionResult.transferToHost(buffers.stateReal, buffers.stateImag);
+
+        if (cachedPlans == 0)
+            plan.executionPlan.freeDeviceMemory();
+        lastPlan = cachedPlans == 0 ? null : plan;
+        return reused;
     }
 
-    private void updateOutputDataOfGate(State state) {
-        System.arraycopy(stateReal, 0, state.getStateVector().getRawRealData(), 0, stateReal.length);
-        System.arraycopy(stateImag, 0, state.getStateVector().getRawImagData(), 0, stateImag.length);
+    /**
+     * Gets the host state buffers of the supplied state size, shared by all cached
+     * plans of that size (new buffers if the plans are not cached).
+     */
+    private StateBuffers getStateBuffers(int stateSize) {
+        if (cachedPlans == 0)
+            return new StateBuffers(stateSize, precision == Precision.DOUBLE);
+        return stateBuffers.computeIfAbsent(stateSize, size -> new StateBuffers(size, precision == Precision.DOUBLE));
     }
 
-    private void applyControlGate(State state, ControlGate controlGate) {
-        updateInputDataOfTaskGraph(state, controlGate);
-        applyControlExecutionPlan.execute();
-        updateOutputDataOfControlGate(state);
+    private void cachePlan(List<Object> key, CompiledPlan plan) {
+        if (cachedPlans == 0)
+            return;
+        planCache.put(key, plan);
+        if (planCache.size() > cachedPlans) {
+            // Evict the least recently used plan and release its device memory
+            Iterator<CompiledPlan> eldest = planCache.values().iterator();
+            CompiledPlan evicted = eldest.next();
+            eldest.remove();
+            evicted.executionPlan.freeDeviceMemory();
+            if (evicted == lastPlan)
+                lastPlan = null;
+            // Release the state buffers once no cached plan of their size is left
+            if (planCache.values().stream().noneMatch(cached -> cached.buffers == evicted.buffers))
+                stateBuffers.remove(evicted.buffers.size());
+        }
     }
 
-    private void updateInputDataOfTaskGraph(State state, ControlGate gate) {
-        int halfRows = state.size() / 2;
-        ComplexTensor gateData = dataProvider.getOperationData(gate);
+    /**
+     * Host copies of the full state vector of one state size (single or double
+     * precision, the other pair of arrays is null), which are the state vector of
+     * the last returned state.
+     */
+    private static class StateBuffers {
+        private final float[] stateReal;
+        private final float[] stateImag;
+        private final double[] doubleStateReal;
+        private final double[] doubleStateImag;
+        private WeakReference<State> owner;
 
-        if (applyControlTaskGraph == null) {
-            targetQubit[0] = gate.targetQubit()[0];
-            controlQubit[0] = gate.controlQubit()[0];
-            System.arraycopy(state.getStateVector().getRawRealData(), 0, stateRealControl, 0, state.getStateVector().getRawRealData().length);
-            System.arraycopy(state.getStateVector().getRawImagData(), 0, stateImagControl, 0, state.getStateVector().getRawImagData().length);
-            if (gateReal == null) {
-                gateReal = new float[gateData.size()];
-            }
-            if (gateImag == null) {
-                gateImag = new float[gateData.size()];
+        private StateBuffers(int stateSize, boolean doublePrecision) {
+            stateReal = doublePrecision ? null : new float[stateSize];
+            stateImag = doublePrecision ? null : new float[stateSize];
+            doubleStateReal = doublePrecision ? new double[stateSize] : null;
+            doubleStateImag = doublePrecision ? new double[stateSize] : null;
+        }
+
+        private int size() {
+            return stateReal != null ? stateReal.length : doubleStateReal.length;
+        }
+
+        /**
+         * Creates the result state with the buffers as its state vector.
+         */
+        private State toState() {
+            State state;
+            if (stateReal != null)
+                state = new State(new ComplexTensor(stateReal, stateImag, stateReal.length));
+            else
+                state = new DoubleState(new DoubleComplexTensor(doubleStateReal, doubleStateImag, doubleStateReal.length));
+            owner = new WeakReference<>(state);
+            return state;
+        }
+
+        /**
+         * Gives the last returned state its own copy of the buffers before they are
+         * overwritten (if the state is still reachable and backed by the buffers).
+         */
+        private void detach() {
+            State state = owner == null ? null : owner.get();
+            owner = null;
+            if (state instanceof DoubleState && ((DoubleState) state).getDoubleStateVector().getRawRealData() == doubleStateReal)
+                ((DoubleState) state).setDoubleStateVector(new DoubleComplexTensor(doubleStateReal.clone(), doubleStateImag.clone(), doubleStateReal.length));
+            else if (state != null && stateReal != null && state.getStateVector().getRawRealData() == stateReal)
+                state.setStateVector(new ComplexTensor(stateReal.clone(), stateImag.clone(), stateReal.length));
+        }
+
+        /**
+         * Sets the buffers to the initial state |00...0>.
+         */
+        private void reset() {
+            if (stateReal != null) {
+                Arrays.fill(stateReal, 0);
+                Arrays.fill(stateImag, 0);
+                stateReal[0] = 1;
+            } else {
+                Arrays.fill(doubleStateReal, 0);
+                Arrays.fill(doubleStateImag, 0);
+                doubleStateReal[0] = 1;
             }
-            System.arraycopy(gateData.getRawRealData(), 0, gateReal, 0, gateData.getRawRealData().length);
-            System.arraycopy(gateData.getRawImagData(), 0, gateImag, 0, gateData.getRawRealData().length);
-
-            // @formatter:off
-            applyControlTaskGraph = new TaskGraph("applyControlGate")
-                    .transferToDevice(DataTransferMode.EVERY_EXECUTION, targetQubit, controlQubit, stateRealControl, stateImagControl, gateReal, gateImag)
-                    .task("applyControlGateTask", FsvOperand::applyControlGate, targetQubit, controlQubit, stateRealControl, stateImagControl, halfRows, gateReal, gateImag)
-                    .transferToHost(DataTransferMode.EVERY_EXECUTION, stateRealControl, stateImagControl);
-            applyControlImmutableTaskGraph = applyControlTaskGraph.snapshot();
-            applyControlExecutionPlan = new TornadoExecutionPlan(applyControlImmutableTaskGraph);
-            // @formatter:on
-        } else {
-            targetQubit[0] = gate.targetQubit()[0];
-            controlQubit[0] = gate.controlQubit()[0];
-            System.arraycopy(state.getStateVector().getRawRealData(), 0, stateRealControl, 0, state.getStateVector().getRawRealData().length);
-            System.arraycopy(state.getStateVector().getRawImagData(), 0, stateImagControl, 0, state.getStateVector().getRawImagData().length);
-            System.arraycopy(gateData.getRawRealData(), 0, gateReal, 0, gateData.getRawRealData().length);
-            System.arraycopy(gateData.getRawImagData(), 0, gateImag, 0, gateData.getRawRealData().length);
         }
     }
 
-    private void updateOutputDataOfControlGate(State state) {
-        System.arraycopy(stateRealControl, 0, state.getStateVector().getRawRealData(), 0, stateRealControl.length);
-        System.arraycopy(stateImagControl, 0, state.getStateVector().getRawImagData(), 0, stateImagControl.length);
-    }
+    /**
+     * Execution plan of a compiled circuit over the host state buffers of its
+     * state size. The state vector of a plan that does not initialize it is
+     * uploaded on every execution. The state-sized result vector is allocated only
+     * for circuits with custom functions, the other plans pass a single element
+     * placeholder.
+     */
+    private static class CompiledPlan {
+        private final StateBuffers buffers;
+        private final TornadoExecutionPlan executionPlan;
 
-    private void applyStandardFunction(State state, Function standardFunction) {
-        // TODO: implement data generation for standard functions
-        throw new UnsupportedOperationException("Standard functions are not yet supported.");
-    }
+        private CompiledPlan(StateBuffers buffers, FsvCompiledCircuit compiledCircuit, boolean initialize) {
+            int stateSize = buffers.size();
+            int halfRows = stateSize / 2;
+            int resultSize = compiledCircuit.usesResultVector() ? stateSize : 1;
+            int stateTransfer = initialize ? DataTransferMode.FIRST_EXECUTION : DataTransferMode.EVERY_EXECUTION;
+            int[] operations = compiledCircuit.operations();
+            TaskGraph taskGraph = new TaskGraph("applyCircuit");
 
-    private void applyCustomFunction(State state, Function customFunction) {
-        // TODO: implement data generation for custom functions
-        throw new UnsupportedOperationException("Custom functions are not yet supported.");
+            if (compiledCircuit.isDoublePrecision()) {
+                double[] operationReal = compiledCircuit.doubleOperationReal();
+                double[] operationImag = compiledCircuit.doubleOperationImag();
+                double[] doubleStateReal = buffers.doubleStateReal;
+                double[] doubleStateImag = buffers.doubleStateImag;
+                double[] resultReal = new double[resultSize];
+                double[] resultImag = new double[resultSize];
+
+                // @formatter:off
+                taskGraph.transferToDevice(DataTransferMode.FIRST_EXECUTION, operations, operationReal, operationImag, resultReal, resultImag);
+                taskGraph.transferToDevice(stateTransfer, doubleStateReal, doubleStateImag);
+                for (int i = 0; i < compiledCircuit.size(); i++)
+                    taskGraph.task("applyOperationTask" + i, FsvOperand::applyOperation, operations, i, doubleStateReal, doubleStateImag, resultReal, resultImag, halfRows, operationReal, operationImag);
+                taskGraph.transferToHost(DataTransferMode.UNDER_DEMAND, doubleStateReal, doubleStateImag);
+                // @formatter:on
+            } else {
+                float[] operationReal = compiledCircuit.operationReal();
+                float[] operationImag = compiledCircuit.operationImag();
+                float[] stateReal = buffers.stateReal;
+                float[] stateImag = buffers.stateImag;
+                float[] resultReal = new float[resultSize];
+                float[] resultImag = new float[resultSize];
+
+                // @formatter:off
+                taskGraph.transferToDevice(DataTransferMode.FIRST_EXECUTION, operations, operationReal, operationImag, resultReal, resultImag);
+                taskGraph.transferToDevice(stateTransfer, stateReal, stateImag);
+                for (int i = 0; i < compiledCircuit.size(); i++)
+                    taskGraph.task("applyOperationTask" + i, FsvOperand::applyOperation, operations, i, stateReal, stateImag, resultReal, resultImag, halfRows, operationReal, operationImag);
+                taskGraph.transferToHost(DataTransferMode.UNDER_DEMAND, stateReal, stateImag);
+                // @formatter:on
+            }
+            this.buffers = buffers;
+            executionPlan = new TornadoExecutionPlan(taskGraph.snapshot());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,431 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.circuit.operation.ControlGate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Function;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Gate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Operation;
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.FunctionType;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.math.DoubleComplexTensor;
+import uk.ac.manchester.tornado.qsim.simulator.Simulator;
+import uk.ac.manchester.tornado.qsim.simulator.WorkerPools;
+import uk.ac.manchester.tornado.qsim.simulator.noise.KrausChannel;
+import uk.ac.manchester.tornado.qsim.simulator.noise.NoiseModel;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Represents a noisy quantum circuit simulator that evolves the density matrix
+ * rho of the quantum system. The density matrix of n qubits is stored as the
+ * full state vector of 2n qubits (vectorized rho, the index of rho[r][c] is
+ * c + r * 2^n), so every operation U is applied by the full state vector
+ * kernels twice: U on the row qubits n..2n-1 and conj(U) on the column qubits
+ * 0..n-1. The gate noise channels of the noise model are composed into a
+ * single 4x4 superoperator, which is applied to the row and column qubit of
+ * every involved qubit (with a cheaper kernel if it does not mix the
+ * populations and the coherences, as for the built-in channels). The readout
+ * error is applied to the measured probabilities.
+ * 
+ * The memory footprint is quadratic in the size of the state vector (8 * 4^n
+ * bytes), so it is checked against the maximum heap size before the density
+ * matrix is allocated. The amplitude pairs of every pass are partitioned across
+ * the worker threads of a fork-join pool.
+ */
+public class FsvSimulatorDensityMatrix implements Simulator {
+    /**
+     * Maximum number of qubits (4^n entries of the density matrix fit into an
+     * array).
+     */
+    public static final int MAX_QUBITS = 15;
+
+    /**
+     * Default number of amplitude pairs below which a pass is processed on the
+     * calling thread only.
+     */
+    public static final int DEFAULT_SEQUENTIAL_CUTOFF = 1 << 14;
+
+    private static final double PURITY_TOLERANCE = 1e-4;
+
+    private final FsvDataProvider dataProvider;
+    private final NoiseModel noiseModel;
+    private final float[] noiseReal;
+    private final float[] noiseImag;
+    private final boolean splitNoise;
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final Random random;
+    private double purity;
+    private long densityMatrixBytes;
+
+    /**
+     * Constructs a noiseless density matrix simulator that uses all available
+     * processors.
+     */
+    public FsvSimulatorDensityMatrix() {
+        this(new NoiseModel());
+    }
+
+    /**
+     * Constructs a density matrix simulator that uses all available processors.
+     * 
+     * @param noiseModel
+     *            noise model applied during the simulation.
+     */
+    public FsvSimulatorDensityMatrix(NoiseModel noiseModel) {
+        this(noiseModel, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a density matrix simulator.
+     * 
+     * @param noiseModel
+     *            noise model applied during the simulation.
+     * @param parallelism
+     *            number of worker threads.
+     */
+    public FsvSimulatorDensityMatrix(NoiseModel noiseModel, int parallelism) {
+        if (noiseModel == null)
+            throw new IllegalArgumentException("Invalid noise model supplied (NULL).");
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be greater than 0.");
+        dataProvider = new FsvDataProvider();
+        this.noiseModel = noiseModel;
+        this.parallelism = parallelism;
+        pool = parallelism > 1 ? WorkerPools.forParallelism(parallelism) : null;
+        random = new Random();
+
+        // Gate noise channels are composed into a single superoperator
+        List<KrausChannel> channels = noiseModel.gateChannels();
+        if (channels.isEmpty()) {
+            noiseReal = null;
+            noiseImag = null;
+            splitNoise = false;
+        } else {
+            double[] real = channels.get(0).getSuperoperator().getRawRealData();
+            double[] imag = channels.get(0).getSuperoperator().getRawImagData();
+            for (int i = 1; i < channels.size(); i++) {
+                DoubleComplexTensor next = channels.get(i).getSuperoperator();
+                double[][] product = multiply(next.getRawRealData(), next.getRawImagData(), real, imag);
+                real = product[0];
+                imag = product[1];
+            }
+            noiseReal = new float[16];
+            noiseImag = new float[16];
+            for (int i = 0; i < 16; i++) {
+                noiseReal[i] = (float) real[i];
+                noiseImag[i] = (float) imag[i];
+            }
+            splitNoise = isSplit(real, imag);
+        }
+    }
+
+    /**
+     * Computes the memory footprint of the density matrix of the supplied number
+     * of qubits (two float arrays of 4^n entries).
+     * 
+     * @param noQubits
+     *            number of qubits.
+     * @return memory footprint in bytes.
+     */
+    public static long memoryFootprint(int noQubits) {
+        return 8L << (2 * noQubits);
+    }
+
+    /**
+     * Gets the noise model applied during the simulation.
+     * 
+     * @return noise model.
+     */
+    public NoiseModel noiseModel() {
+        return noiseModel;
+    }
+
+    /**
+     * Gets the number of worker threads.
+     * 
+     * @return number of worker threads.
+     */
+    public int parallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Gets the purity Tr(rho^2) of the last simulated density matrix (1 for a
+     * pure state, 1 / 2^n for the maximally mixed state).
+     * 
+     * @return purity of the last simulated state.
+     */
+    public double purity() {
+        return purity;
+    }
+
+    /**
+     * Simulates the supplied circuit and returns the final density matrix.
+     * 
+     * @param circuit
+     *            quantum circuit.
+     * @return density matrix (2^n x 2^n, row-major).
+     */
+    public ComplexTensor simulateDensityMatrix(Circuit circuit) {
+        if (circuit == null)
+            throw new IllegalArgumentException("Invalid circuit supplied (NULL).");
+        int noQubits = circuit.qubitCount();
+        if (noQubits > MAX_QUBITS)
+            throw new UnsupportedOperationException("Density matrix of " + noQubits + " qubits is not supported (maximum " + MAX_QUBITS + " qubits).");
+        long footprint = memoryFootprint(noQubits);
+        if (footprint > Runtime.getRuntime().maxMemory())
+            throw new UnsupportedOperationException("Density matrix of " + noQubits + " qubits needs " + footprint + " bytes, more than the maximum heap size.");
+        densityMatrixBytes = footprint;
+
+        int dimension = 1 << noQubits;
+        float[] real = new float[dimension * dimension];
+        float[] imag = new float[dimension * dimension];
+        real[0] = 1;
+        List<Operation> operations = dataProvider.getCircuitOperations(circuit);
+        for (Operation operation : operations)
+            applyOperation(noQubits, real, imag, operation);
+
+        double sum = 0;
+        for (int i = 0; i < real.length; i++)
+            sum += (double) real[i] * real[i] + (double) imag[i] * imag[i];
+        purity = sum;
+        return new ComplexTensor(real, imag, dimension, dimension);
+    }
+
+    /**
+     * Simulates the supplied circuit and returns the probabilities of measuring
+     * the basis states, including the readout error.
+     * 
+     * @param circuit
+     *            quantum circuit.
+     * @return probabilities of the basis states.
+     */
+    public double[] simulateProbabilities(Circuit circuit) {
+        ComplexTensor densityMatrix = simulateDensityMatrix(circuit);
+        int dimension = densityMatrix.shape()[0];
+        float[] real = densityMatrix.getRawRealData();
+        double[] probabilities = new double[dimension];
+        for (int i = 0; i < dimension; i++)
+            probabilities[i] = Math.max(0, real[i * dimension + i]);
+        noiseModel.applyReadoutError(probabilities, circuit.qubitCount());
+        return probabilities;
+    }
+
+    /**
+     * Simulates the supplied circuit and returns the final pure state (up to a
+     * global phase). Mixed final states are not supported.
+     */
+    @Override
+    public State simulateFullState(Circuit circuit) {
+        ComplexTensor densityMatrix = simulateDensityMatrix(circuit);
+        if (purity < 1 - PURITY_TOLERANCE)
+            throw new UnsupportedOperationException("Final state is mixed (purity " + purity + "), use simulateDensityMatrix.");
+        // rho = |psi><psi|, so the column of the largest diagonal element is psi
+        int dimension = densityMatrix.shape()[0];
+        float[] real = densityMatrix.getRawRealData();
+        float[] imag = densityMatrix.getRawImagData();
+        int column = 0;
+        for (int i = 1; i < dimension; i++)
+            if (real[i * dimension + i] > real[column * dimension + column])
+                column = i;
+        double scale = 1 / Math.sqrt(real[column * dimension + column]);
+        float[] stateReal = new float[dimension];
+        float[] stateImag = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            stateReal[i] = (float) (real[i * dimension + column] * scale);
+            stateImag[i] = (float) (imag[i * dimension + column] * scale);
+        }
+        return new State(new ComplexTensor(stateReal, stateImag, dimension));
+    }
+
+    /**
+     * Simulates the supplied circuit and samples the measured basis state from
+     * the diagonal of the density matrix (including the readout error).
+     */
+    @Override
+    public int simulateAndCollapse(Circuit circuit) {
+        double[] probabilities = simulateProbabilities(circuit);
+        double sample = random.nextDouble();
+        double cumulative = 0;
+        for (int i = 0; i < probabilities.length; i++) {
+            cumulative += probabilities[i];
+            if (sample < cumulative)
+                return i;
+        }
+        return probabilities.length - 1;
+    }
+
+    @Override
+    public String describeStatistics() {
+        return String.format("Density matrix: %d bytes, purity %.6f", densityMatrixBytes, purity());
+    }
+
+    private void applyOperation(int noQubits, float[] real, float[] imag, Operation operation) {
+        int size = real.length;
+        switch (operation.operationType()) {
+            case Gate:
+                ComplexTensor gateData = dataProvider.getOperationData(operation);
+                float[] gateReal = gateData.getRawRealData();
+                float[] gateImag = gateData.getRawImagData();
+                float[] conjugateImag = conjugate(gateImag);
+                int target = ((Gate) operation).targetQubit()[0];
+                processRows(size / 2, (fromRow, toRow) -> FsvRangeOperand.applyGate(target + noQubits, real, imag, fromRow, toRow, gateReal, gateImag));
+                processRows(size / 2, (fromRow, toRow) -> FsvRangeOperand.applyGate(target, real, imag, fromRow, toRow, gateReal, conjugateImag));
+                break;
+            case ControlGate:
+                ControlGate controlGate = (ControlGate) operation;
+                ComplexTensor controlData = dataProvider.getOperationData(controlGate);
+                float[] controlReal = controlData.getRawRealData();
+                float[] controlImag = controlData.getRawImagData();
+                float[] conjugateControlImag = conjugate(controlImag);
+                int controlTarget = controlGate.targetQubit()[0];
+                int control = controlGate.controlQubit()[0];
+                processRows(size / 4, (fromRow, toRow) -> FsvRangeOperand.applyControlGate(controlTarget + noQubits, control + noQubits, real, imag, fromRow, toRow, controlReal, controlImag));
+                processRows(size / 4, (fromRow, toRow) -> FsvRangeOperand.applyControlGate(controlTarget, control, real, imag, fromRow, toRow, controlReal, conjugateControlImag));
+                break;
+            case Function:
+                Function function = (Function) operation;
+                if (function.type() != FunctionType.Swap)
+                    throw new UnsupportedOperationException("Function type '" + function.type() + "' is not supported in a density matrix simulator.");
+                // Swap function exchanges the first and the last qubit of its range
+                int[] qubits = function.targetQubits();
+                int qubitA = qubits[0];
+                int qubitB = qubits[qubits.length - 1];
+                if (qubitA != qubitB) {
+                    processRows(size / 4, (fromRow, toRow) -> FsvRangeOperand.applySwap(qubitA + noQubits, qubitB + noQubits, real, imag, fromRow, toRow));
+                    processRows(size / 4, (fromRow, toRow) -> FsvRangeOperand.applySwap(qubitA, qubitB, real, imag, fromRow, toRow));
+                }
+                applyNoise(noQubits, real, imag, new int[] { qubitA, qubitB });
+                return;
+            case CustomFunction:
+                Function customFunction = (Function) operation;
+                ComplexTensor functionData = dataProvider.getOperationData(customFunction);
+                float[] functionReal = functionData.getRawRealData();
+                float[] functionImag = functionData.getRawImagData();
+                float[] conjugateFunctionImag = conjugate(functionImag);
+                int[] columnQubits = customFunction.targetQubits();
+                int[] rowQubits = new int[columnQubits.length];
+                for (int i = 0; i < columnQubits.length; i++)
+                    rowQubits[i] = columnQubits[i] + noQubits;
+                processRows(size >> rowQubits.length, (fromRow, toRow) -> FsvRangeOperand.applyBlock(rowQubits, real, imag, fromRow, toRow, functionReal, functionImag));
+                processRows(size >> columnQubits.length, (fromRow, toRow) -> FsvRangeOperand.applyBlock(columnQubits, real, imag, fromRow, toRow, functionReal, conjugateFunctionImag));
+                break;
+            default:
+                throw new UnsupportedOperationException("Operation type '" + operation.operationType() + "' is not supported in a density matrix simulator.");
+        }
+        applyNoise(noQubits, real, imag, operation.involvedQubits());
+    }
+
+    private void applyNoise(int noQubits, float[] real, float[] imag, int[] qubits) {
+        if (noiseReal == null)
+            return;
+        for (int qubit : qubits) {
+            // Bit 0 of the superoperator index is the column qubit, bit 1 the row qubit
+            if (splitNoise)
+                processRows(real.length >> 2, (fromRow, toRow) -> FsvRangeOperand.applyTwoQubitSplitBlock(qubit, qubit + noQubits, real, imag, fromRow, toRow, noiseReal, noiseImag));
+            else
+                processRows(real.length >> 2, (fromRow, toRow) -> FsvRangeOperand.applyTwoQubitBlock(qubit, qubit + noQubits, real, imag, fromRow, toRow, noiseReal, noiseImag));
+        }
+    }
+
+    /**
+     * Processes the amplitude pairs (or groups) [0, rows) of the vectorized
+     * density matrix using the supplied task, partitioned across the worker
+     * threads.
+     * 
+     * @param rows
+     *            number of amplitude pairs (or groups).
+     * @param task
+     *            task that processes a range of amplitude pairs (or groups).
+     */
+    protected void processRows(int rows, FsvSimulatorStandard.RowRangeTask task) {
+        if (pool == null || rows <= DEFAULT_SEQUENTIAL_CUTOFF) {
+            task.process(0, rows);
+            return;
+        }
+        int grain = Math.max(DEFAULT_SEQUENTIAL_CUTOFF, rows / (parallelism * 4));
+        pool.invoke(new RowRangeAction(task, 0, rows, grain));
+    }
+
+    private static boolean isSplit(double[] real, double[] imag) {
+        // Populations (00, 11) and coherences (01, 10) are not mixed
+        for (int r = 0; r < 4; r++) {
+            for (int c = 0; c < 4; c++) {
+                boolean population = r == 0 || r == 3;
+                if (population != (c == 0 || c == 3) && (real[r * 4 + c] != 0 || imag[r * 4 + c] != 0))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private static float[] conjugate(float[] imag) {
+        float[] result = new float[imag.length];
+        for (int i = 0; i < imag.length; i++)
+            result[i] = -imag[i];
+        return result;
+    }
+
+    private static double[][] multiply(double[] aReal, double[] aImag, double[] bReal, double[] bImag) {
+        double[] real = new double[16];
+        double[] imag = new double[16];
+        for (int r = 0; r < 4; r++) {
+            for (int c = 0; c < 4; c++) {
+                for (int k = 0; k < 4; k++) {
+                    real[r * 4 + c] += aReal[r * 4 + k] * bReal[k * 4 + c] - aImag[r * 4 + k] * bImag[k * 4 + c];
+                    imag[r * 4 + c] += aReal[r * 4 + k] * bImag[k * 4 + c] + aImag[r * 4 + k] * bReal[k * 4 + c];
+                }
+            }
+        }
+        return new double[][] { real, imag };
+    }
+
+    private static class RowRangeAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final FsvSimulatorStandard.RowRangeTask task;
+        private final int fromRow,toRow,grain;
+
+        private RowRangeAction(FsvSimulatorStandard.RowRangeTask task, int fromRow, int toRow, int grain) {
+            this.task = task;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= grain) {
+                task.process(fromRow, toRow);
+                return;
+            }
+            int middleRow = (fromRow + toRow) >>> 1;
+            invokeAll(new RowRangeAction(task, fromRow, middleRow, grain), new RowRangeAction(task, middleRow, toRow, grain));
+        }
+    }
+}
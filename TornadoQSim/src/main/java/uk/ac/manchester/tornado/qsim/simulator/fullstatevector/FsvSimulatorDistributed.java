@@ -0,0 +1,526 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.circuit.operation.ControlGate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Function;
+import uk.ac.manchester.tornado.qsim.circuit.operation.FusedBlock;
+import uk.ac.manchester.tornado.qsim.circuit.operation.FusedGate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Gate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Operation;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.simulator.Simulator;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Represents a quantum circuit simulator that splits the full state vector
+ * across several ranks (processes, possibly on several hosts) connected by a
+ * pluggable transport (see FsvTransport). This simulation process follows the
+ * full state vector / wavefunction simulation model of quantum computation.
+ * 
+ * With 2^p ranks, the top p qubits (global qubits) select the rank and each
+ * rank holds a chunk of 2^(n-p) amplitudes of the remaining local qubits.
+ * Operations are applied to the chunk as follows:
+ * <ul>
+ * <li>operations on local qubits are applied by each rank independently,</li>
+ * <li>phase gates (also controlled) on global qubits only select the ranks
+ * (and amplitudes) to be changed and need no communication,</li>
+ * <li>a gate on a global target qubit (with a global control or a local control
+ * below the top local qubit) is applied by a pairwise exchange of half-chunks
+ * with the partner rank, each rank updating one half of the amplitude pairs,
+ * which are then exchanged back,</li>
+ * <li>other operations on global qubits first swap the global qubits with
+ * local qubits (global-local qubit swap, an exchange of half-chunks), the
+ * local qubit used again as late as possible is moved out,</li>
+ * <li>swaps of qubits only relabel the qubits (see FsvQubitLayout).</li>
+ * </ul>
+ * The identity qubit layout is restored at the end of the simulation and the
+ * full state vector is gathered to every rank. All ranks must simulate the same
+ * circuit at the same time. Communication volume of every circuit operation is
+ * reported for the last simulation.
+ */
+public class FsvSimulatorDistributed implements Simulator {
+    /**
+     * Maximum number of amplitudes sent in a single message.
+     */
+    public static final int MAX_MESSAGE_AMPLITUDES = 1 << 20;
+
+    private static final int MIN_LOCAL_QUBITS = 2;
+
+    private final FsvTransport transport;
+    private final FsvDataProvider dataProvider;
+    private final int globalQubits;
+    private ByteBuffer outgoing;
+    private ByteBuffer incoming;
+
+    private int localQubits;
+    private float[] real;
+    private float[] imag;
+    private FsvQubitLayout layout;
+    private int currentOperation;
+    private long[] operationBytes;
+    private long bytesSent;
+    private long bytesGathered;
+    private int exchanges;
+
+    /**
+     * Constructs a distributed full state vector simulator. The transport is owned
+     * by the caller and must be closed after the last simulation.
+     * 
+     * @param transport
+     *            transport between the ranks (the number of ranks must be a power
+     *            of two).
+     */
+    public FsvSimulatorDistributed(FsvTransport transport) {
+        if (transport == null)
+            throw new IllegalArgumentException("Invalid transport supplied (NULL).");
+        if (Integer.bitCount(transport.size()) != 1)
+            throw new IllegalArgumentException("Number of ranks must be a power of two.");
+        this.transport = transport;
+        dataProvider = new FsvDataProvider();
+        globalQubits = Integer.numberOfTrailingZeros(transport.size());
+    }
+
+    /**
+     * Gets the rank of this process.
+     * 
+     * @return rank.
+     */
+    public int rank() {
+        return transport.rank();
+    }
+
+    /**
+     * Gets the number of ranks.
+     * 
+     * @return number of ranks.
+     */
+    public int ranks() {
+        return transport.size();
+    }
+
+    /**
+     * Gets the number of bytes sent by this rank while simulating the circuit in
+     * the last simulation (including the restoration of the qubit layout,
+     * excluding the final gathering of the state).
+     * 
+     * @return number of sent bytes.
+     */
+    public long bytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * Gets the number of bytes sent by this rank while gathering the full state
+     * vector in the last simulation.
+     * 
+     * @return number of sent bytes.
+     */
+    public long bytesGathered() {
+        return bytesGathered;
+    }
+
+    /**
+     * Gets the number of pairwise exchanges performed by this rank while
+     * simulating the circuit in the last simulation.
+     * 
+     * @return number of exchanges.
+     */
+    public int exchanges() {
+        return exchanges;
+    }
+
+    /**
+     * Gets the number of bytes sent by this rank for each circuit operation (in the
+     * order of application, step by step) in the last simulation. A swap applied
+     * as a sequence of three CNOT gates is reported at the first gate.
+     * 
+     * @return number of sent bytes per operation.
+     */
+    public long[] operationBytes() {
+        return operationBytes == null ? new long[0] : operationBytes.clone();
+    }
+
+    /**
+     * Gets the average number of bytes sent by this rank per circuit operation in
+     * the last simulation.
+     * 
+     * @return number of sent bytes per operation.
+     */
+    public double bytesPerGate() {
+        return operationBytes == null || operationBytes.length == 0 ? 0 : (double) bytesSent / operationBytes.length;
+    }
+
+    @Override
+    public State simulateFullState(Circuit circuit) {
+        if (circuit == null)
+            throw new IllegalArgumentException("Invalid circuit supplied (NULL).");
+        if (circuit.qubitCount() - globalQubits < MIN_LOCAL_QUBITS)
+            throw new IllegalArgumentException("Circuit must have at least " + (globalQubits + MIN_LOCAL_QUBITS) + " qubits to be distributed across " + ranks() + " ranks.");
+
+        List<Operation> operations = dataProvider.getCircuitOperations(circuit);
+        localQubits = circuit.qubitCount() - globalQubits;
+        real = new float[1 << localQubits];
+        imag = new float[1 << localQubits];
+        if (rank() == 0)
+            real[0] = 1;
+        layout = new FsvQubitLayout(circuit.qubitCount(), localQubits);
+        operationBytes = new long[operations.size()];
+        bytesSent = 0;
+        bytesGathered = 0;
+        exchanges = 0;
+
+        try {
+            int i = 0;
+            while (i < operations.size()) {
+                currentOperation = i;
+                i += applyOperation(operations, i);
+            }
+            currentOperation = -1;
+            restoreLayout();
+            return gatherState(circuit.qubitCount());
+        } finally {
+            real = null;
+            imag = null;
+            layout = null;
+        }
+    }
+
+    @Override
+    public int simulateAndCollapse(Circuit circuit) {
+        // Every rank collapses its own copy of the gathered state
+        return simulateFullState(circuit).collapse();
+    }
+
+    @Override
+    public String describeStatistics() {
+        return String.format("Rank %d of %d: %d bytes sent (%.1f bytes per gate) in %d exchanges, %d bytes gathered", rank(), ranks(), bytesSent(), bytesPerGate(), exchanges(), bytesGathered());
+    }
+
+    private int applyOperation(List<Operation> operations, int index) {
+        Operation operation = operations.get(index);
+        switch (operation.operationType()) {
+            case Gate:
+                applyGate(layout.physical(((Gate) operation).targetQubit()[0]), dataProvider.getOperationData(operation));
+                return 1;
+            case FusedGate:
+                applyGate(layout.physical(((FusedGate) operation).targetQubit()[0]), dataProvider.getOperationData(operation));
+                return 1;
+            case FusedBlock:
+                applyBlock(operation, ((FusedBlock) operation).targetQubits(), operations, index);
+                return 1;
+            case ControlGate:
+                if (FsvDataProvider.isSwapSequence(operations, index)) {
+                    // CNOT(a,b), CNOT(b,a), CNOT(a,b) only relabels the qubits
+                    swapQubits(((ControlGate) operation).controlQubit()[0], ((ControlGate) operation).targetQubit()[0]);
+                    return 3;
+                }
+                applyControlGate((ControlGate) operation, operations, index);
+                return 1;
+            case Function:
+                applyStandardFunction((Function) operation);
+                return 1;
+            case CustomFunction:
+                applyBlock(operation, ((Function) operation).targetQubits(), operations, index);
+                return 1;
+            default:
+                throw new UnsupportedOperationException("Operation type '" + operation.operationType() + "' is not supported in a full state vector simulator.");
+        }
+    }
+
+    private void applyStandardFunction(Function standardFunction) {
+        switch (standardFunction.type()) {
+            case Swap:
+                // Swap function exchanges the first and the last qubit of its range
+                int[] qubits = standardFunction.targetQubits();
+                if (qubits.length > 1)
+                    swapQubits(qubits[0], qubits[qubits.length - 1]);
+                break;
+            default:
+                throw new UnsupportedOperationException("Function type '" + standardFunction.type() + "' is not supported in a full state vector simulator.");
+        }
+    }
+
+    private void swapQubits(int qubitA, int qubitB) {
+        layout.swap(new int[][] { { layout.physical(qubitA) }, { layout.physical(qubitB) } });
+    }
+
+    private void applyGate(int targetQubit, ComplexTensor gateData) {
+        if (targetQubit < localQubits)
+            applyLocalGate(targetQubit, -1, gateData);
+        else if (FsvDataProvider.isPhaseGate(gateData)) {
+            // Phase of a global qubit only changes the ranks with the qubit set
+            if (isRankBitSet(targetQubit))
+                applyChunkPhase(gateData);
+        } else
+            applyExchangeGate(targetQubit, -1, gateData);
+    }
+
+    private void applyControlGate(ControlGate controlGate, List<Operation> operations, int index) {
+        ComplexTensor gateData = dataProvider.getOperationData(controlGate);
+        int targetQubit = layout.physical(controlGate.targetQubit()[0]);
+        int controlQubit = layout.physical(controlGate.controlQubit()[0]);
+
+        if (controlQubit >= localQubits) {
+            // Global control selects the ranks, which apply the gate to the target
+            if (isRankBitSet(controlQubit))
+                applyGate(targetQubit, gateData);
+        } else if (targetQubit < localQubits)
+            applyLocalGate(targetQubit, controlQubit, gateData);
+        else if (FsvDataProvider.isPhaseGate(gateData)) {
+            // Controlled phase is symmetric, the global target acts as the control
+            if (isRankBitSet(targetQubit))
+                applyLocalGate(controlQubit, -1, gateData);
+        } else if (controlQubit != localQubits - 1)
+            applyExchangeGate(targetQubit, controlQubit, gateData);
+        else {
+            // Control occupies the exchanged qubit, the target is moved to a local qubit
+            targetQubit = swapIntoLocal(targetQubit, new int[] { controlQubit }, operations, index);
+            applyLocalGate(targetQubit, controlQubit, gateData);
+        }
+    }
+
+    private void applyBlock(Operation operation, int[] qubits, List<Operation> operations, int index) {
+        if (qubits.length > localQubits)
+            throw new IllegalArgumentException("Operation on " + qubits.length + " qubits does not fit into " + localQubits + " local qubits.");
+        for (int qubit : qubits)
+            if (layout.physical(qubit) >= localQubits)
+                swapIntoLocal(layout.physical(qubit), layout.physical(qubits), operations, index);
+
+        // Physical qubits are sorted, the matrix is permuted accordingly
+        int[] physicalQubits = layout.physical(qubits);
+        int[] blockQubits = FsvQubitLayout.sortedQubits(physicalQubits);
+        ComplexTensor blockData = dataProvider.getOperationData(operation);
+        float[] blockReal = blockData.getRawRealData();
+        float[] blockImag = blockData.getRawImagData();
+        if (!Arrays.equals(blockQubits, physicalQubits)) {
+            int[] indexMap = FsvQubitLayout.blockIndexMap(physicalQubits);
+            blockReal = FsvQubitLayout.permuteBlock(blockReal, indexMap);
+            blockImag = FsvQubitLayout.permuteBlock(blockImag, indexMap);
+        }
+        FsvRangeOperand.applyBlock(blockQubits, real, imag, 0, real.length >> blockQubits.length, blockReal, blockImag);
+    }
+
+    private void applyLocalGate(int targetQubit, int controlQubit, ComplexTensor gateData) {
+        applyLocalGate(targetQubit, controlQubit, gateData, real, imag);
+    }
+
+    private void applyChunkPhase(ComplexTensor gateData) {
+        applyChunkPhase(gateData, real, imag);
+    }
+
+    /**
+     * Applies the single qubit gate (controlled if the control qubit is not -1) to
+     * the local qubits of the chunk.
+     */
+    static void applyLocalGate(int targetQubit, int controlQubit, ComplexTensor gateData, float[] real, float[] imag) {
+        float[] gateReal = gateData.getRawRealData();
+        float[] gateImag = gateData.getRawImagData();
+        boolean flip = FsvDataProvider.isPauliX(gateData) || FsvDataProvider.isPauliY(gateData);
+        boolean flipPhase = FsvDataProvider.isPauliY(gateData);
+        if (controlQubit < 0) {
+            if (FsvDataProvider.isPhaseGate(gateData))
+                FsvRangeOperand.applyPhase(targetQubit, real, imag, 0, real.length / 2, gateReal, gateImag);
+            else if (flip)
+                FsvRangeOperand.applyFlip(targetQubit, flipPhase, real, imag, 0, real.length / 2);
+            else
+                FsvRangeOperand.applyGate(targetQubit, real, imag, 0, real.length / 2, gateReal, gateImag);
+        } else {
+            if (FsvDataProvider.isPhaseGate(gateData))
+                FsvRangeOperand.applyControlPhase(targetQubit, controlQubit, real, imag, 0, real.length / 4, gateReal, gateImag);
+            else if (flip)
+                FsvRangeOperand.applyControlFlip(targetQubit, controlQubit, flipPhase, real, imag, 0, real.length / 4);
+            else
+                FsvRangeOperand.applyControlGate(targetQubit, controlQubit, real, imag, 0, real.length / 4, gateReal, gateImag);
+        }
+    }
+
+    /**
+     * Multiplies all amplitudes of the chunk by the phase D of the phase gate.
+     */
+    static void applyChunkPhase(ComplexTensor gateData, float[] real, float[] imag) {
+        float phaseReal = gateData.getRawRealData()[3];
+        float phaseImag = gateData.getRawImagData()[3];
+        for (int i = 0; i < real.length; i++) {
+            float valueReal = real[i];
+            float valueImag = imag[i];
+            real[i] = valueReal * phaseReal - valueImag * phaseImag;
+            imag[i] = valueReal * phaseImag + valueImag * phaseReal;
+        }
+    }
+
+    /**
+     * Applies the gate on the global target qubit by the exchange of half-chunks.
+     * The rank with the target qubit 0 keeps the lower half of its amplitudes and
+     * receives the lower half of the partner's amplitudes into its upper half (and
+     * vice versa), so the amplitude pairs of the gate are then formed by the top
+     * local qubit. The updated halves are exchanged back.
+     */
+    private void applyExchangeGate(int targetQubit, int controlQubit, ComplexTensor gateData) {
+        int peer = rank() ^ rankBit(targetQubit);
+        int exchangedBit = isRankBitSet(targetQubit) ? 0 : 1;
+        exchangeChunk(peer, localQubits - 1, exchangedBit);
+        applyLocalGate(localQubits - 1, controlQubit, gateData);
+        exchangeChunk(peer, localQubits - 1, exchangedBit);
+    }
+
+    /**
+     * Swaps the supplied global qubit with a local qubit, which is not excluded
+     * and whose logical qubit is used again as late as possible.
+     * 
+     * @return physical local qubit, which now holds the global qubit.
+     */
+    private int swapIntoLocal(int globalQubit, int[] excludedQubits, List<Operation> operations, int index) {
+        int localQubit = layout.evictedQubit(excludedQubits, operations, index + 1);
+        exchangeChunk(rank() ^ rankBit(globalQubit), localQubit, isRankBitSet(globalQubit) ? 0 : 1);
+        layout.swap(new int[][] { { localQubit }, { globalQubit } });
+        return localQubit;
+    }
+
+    /**
+     * Restores the identity qubit layout, so the chunk of the rank r holds the
+     * amplitudes r * 2^localQubits to (r + 1) * 2^localQubits - 1.
+     */
+    private void restoreLayout() {
+        for (int[][] pairs = layout.restorePlan(); pairs != null; pairs = layout.restorePlan()) {
+            for (int k = 0; k < pairs[0].length; k++) {
+                int lowQubit = Math.min(pairs[0][k], pairs[1][k]);
+                int highQubit = Math.max(pairs[0][k], pairs[1][k]);
+                if (highQubit < localQubits)
+                    FsvRangeOperand.applySwap(lowQubit, highQubit, real, imag, 0, real.length / 4);
+                else if (lowQubit < localQubits)
+                    exchangeChunk(rank() ^ rankBit(highQubit), lowQubit, isRankBitSet(highQubit) ? 0 : 1);
+                else if (isRankBitSet(lowQubit) != isRankBitSet(highQubit))
+                    exchangeChunk(rank() ^ rankBit(lowQubit) ^ rankBit(highQubit), localQubits, 0);
+            }
+            layout.swap(pairs);
+        }
+    }
+
+    /**
+     * Gathers the chunks of all ranks into the full state vector of every rank by
+     * recursive doubling (the gathered block doubles in each exchange).
+     */
+    private State gatherState(int noQubits) {
+        State state = new State(noQubits);
+        float[] stateReal = state.getStateVector().getRawRealData();
+        float[] stateImag = state.getStateVector().getRawImagData();
+        System.arraycopy(real, 0, stateReal, rank() * real.length, real.length);
+        System.arraycopy(imag, 0, stateImag, rank() * imag.length, imag.length);
+
+        for (int level = 0; level < globalQubits; level++) {
+            int blockQubits = localQubits + level;
+            int peer = rank() ^ (1 << level);
+            int sendOffset = (rank() >> level) << blockQubits;
+            int receiveOffset = (peer >> level) << blockQubits;
+            long sent = exchange(peer, stateReal, stateImag, sendOffset, receiveOffset, blockQubits, 0, 1 << blockQubits);
+            bytesGathered += sent;
+        }
+        return state;
+    }
+
+    /**
+     * Exchanges the amplitudes of the chunk with the supplied bit of the local
+     * qubit (all amplitudes for the qubit localQubits) with the partner.
+     */
+    private void exchangeChunk(int peer, int qubit, int bit) {
+        int count = qubit < localQubits ? real.length / 2 : real.length;
+        long sent = exchange(peer, real, imag, 0, 0, qubit, bit, count);
+        bytesSent += sent;
+        if (currentOperation >= 0)
+            operationBytes[currentOperation] += sent;
+        exchanges++;
+    }
+
+    /**
+     * Sends the amplitudes with the supplied bit of the qubit (relative to the send
+     * offset) and replaces the amplitudes with the same bit (relative to the
+     * receive offset) by the amplitudes received from the peer.
+     * 
+     * @return number of sent bytes.
+     */
+    private long exchange(int peer, float[] real, float[] imag, int sendOffset, int receiveOffset, int qubit, int bit, int count) {
+        long sent = 0;
+        for (int from = 0; from < count; from += MAX_MESSAGE_AMPLITUDES) {
+            int to = Math.min(count, from + MAX_MESSAGE_AMPLITUDES);
+            int bytes = 2 * Float.BYTES * (to - from);
+            if (outgoing == null || outgoing.capacity() < bytes) {
+                outgoing = ByteBuffer.allocateDirect(bytes);
+                incoming = ByteBuffer.allocateDirect(bytes);
+            }
+
+            outgoing.clear().limit(bytes);
+            FloatBuffer outgoingFloats = outgoing.asFloatBuffer();
+            pack(real, sendOffset, qubit, bit, from, to, outgoingFloats);
+            pack(imag, sendOffset, qubit, bit, from, to, outgoingFloats);
+            incoming.clear().limit(bytes);
+            transport.exchange(peer, outgoing, incoming);
+            incoming.flip();
+            FloatBuffer incomingFloats = incoming.asFloatBuffer();
+            unpack(real, receiveOffset, qubit, bit, from, to, incomingFloats);
+            unpack(imag, receiveOffset, qubit, bit, from, to, incomingFloats);
+            sent += bytes;
+        }
+        return sent;
+    }
+
+    private static void pack(float[] data, int offset, int qubit, int bit, int from, int to, FloatBuffer buffer) {
+        // Selected amplitudes form runs of 2^qubit consecutive amplitudes
+        int run = 1 << qubit;
+        int k = from;
+        while (k < to) {
+            int length = Math.min(run - (k & (run - 1)), to - k);
+            buffer.put(data, offset + selectedIndex(k, qubit, bit), length);
+            k += length;
+        }
+    }
+
+    private static void unpack(float[] data, int offset, int qubit, int bit, int from, int to, FloatBuffer buffer) {
+        int run = 1 << qubit;
+        int k = from;
+        while (k < to) {
+            int length = Math.min(run - (k & (run - 1)), to - k);
+            buffer.get(data, offset + selectedIndex(k, qubit, bit), length);
+            k += length;
+        }
+    }
+
+    static int selectedIndex(int k, int qubit, int bit) {
+        // k-th index with the supplied bit of the qubit
+        int maskRight = (1 << qubit) - 1;
+        return ((k & ~maskRight) << 1) | (bit << qubit) | (k & maskRight);
+    }
+
+    private boolean isRankBitSet(int globalQubit) {
+        return (rank() & rankBit(globalQubit)) != 0;
+    }
+
+    private int rankBit(int globalQubit) {
+        return 1 << (globalQubit - localQubits);
+    }
+}
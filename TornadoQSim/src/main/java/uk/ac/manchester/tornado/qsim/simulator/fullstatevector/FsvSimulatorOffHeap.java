@@ -0,0 +1,322 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.OffHeapState;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.circuit.operation.ControlGate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Function;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Gate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Operation;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.math.OffHeapComplexVector;
+import uk.ac.manchester.tornado.qsim.simulator.Simulator;
+import uk.ac.manchester.tornado.qsim.simulator.WorkerPools;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Represents a quantum circuit simulator that applies each quantum gate by
+ * iterating over the full state vector, which is held off-heap and indexed by
+ * long (see OffHeapState). The state vector is therefore not limited by the
+ * maximum Java array size and the simulation can go beyond 30 qubits (up to
+ * OffHeapState.MAX_QUBITS, bounded by the available direct memory). The
+ * amplitude pairs of every gate are partitioned across the worker threads of a
+ * fork-join pool. This simulation process follows the full state vector /
+ * wavefunction simulation model of quantum computation.
+ */
+public class FsvSimulatorOffHeap implements Simulator {
+    /**
+     * Default number of amplitude pairs below which a gate is applied on the
+     * calling thread only.
+     */
+    public static final long DEFAULT_SEQUENTIAL_CUTOFF = 1 << 14;
+
+    private final FsvDataProvider dataProvider;
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final int chunkBits;
+
+    /**
+     * Constructs an off-heap full state vector simulator that uses all available
+     * processors and the default chunk size of the state vector.
+     */
+    public FsvSimulatorOffHeap() {
+        this(Runtime.getRuntime().availableProcessors(), OffHeapComplexVector.DEFAULT_CHUNK_BITS);
+    }
+
+    /**
+     * Constructs an off-heap full state vector simulator.
+     * 
+     * @param parallelism
+     *            number of worker threads.
+     * @param chunkBits
+     *            number of bits of the chunk size of the off-heap state vector.
+     */
+    public FsvSimulatorOffHeap(int parallelism, int chunkBits) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be greater than 0.");
+        if (chunkBits < 1 || chunkBits > OffHeapComplexVector.MAX_CHUNK_BITS)
+            throw new IllegalArgumentException("Number of chunk bits must be between 1 and " + OffHeapComplexVector.MAX_CHUNK_BITS + ".");
+        dataProvider = new FsvDataProvider();
+        this.parallelism = parallelism;
+        this.chunkBits = chunkBits;
+        pool = parallelism > 1 ? WorkerPools.forParallelism(parallelism) : null;
+    }
+
+    /**
+     * Gets the number of worker threads.
+     * 
+     * @return number of worker threads.
+     */
+    public int parallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public State simulateFullState(Circuit circuit) {
+        if (circuit == null)
+            throw new IllegalArgumentException("Invalid circuit supplied (NULL).");
+
+        OffHeapState resultState = createState(circuit.qubitCount());
+        applyOperations(resultState.getOffHeapStateVector(), dataProvider.getCircuitOperations(circuit));
+        return resultState;
+    }
+
+    @Override
+    public int simulateAndCollapse(Circuit circuit) {
+        return simulateFullState(circuit).collapse();
+    }
+
+    /**
+     * Gets the number of bits of the chunk size of the off-heap state vector.
+     * 
+     * @return number of chunk bits.
+     */
+    public int chunkBits() {
+        return chunkBits;
+    }
+
+    /**
+     * Creates the initial state of the simulation.
+     * 
+     * @param noQubits
+     *            number of qubits.
+     * @return off-heap state |0...0>.
+     */
+    protected OffHeapState createState(int noQubits) {
+        return new OffHeapState(noQubits, chunkBits);
+    }
+
+    /**
+     * Applies all supplied operations to the state vector in the order of
+     * application.
+     * 
+     * @param vector
+     *            off-heap full state vector.
+     * @param operations
+     *            list of circuit operations.
+     */
+    protected void applyOperations(OffHeapComplexVector vector, List<Operation> operations) {
+        int i = 0;
+        while (i < operations.size())
+            i += applyOperation(vector, operations, i);
+    }
+
+    /**
+     * Applies a single operation (or a sequence of operations applied together,
+     * such as a swap formed by three CNOT gates) to the state vector.
+     * 
+     * @param vector
+     *            off-heap full state vector.
+     * @param operations
+     *            list of circuit operations.
+     * @param index
+     *            index of the operation to be applied.
+     * @return number of applied operations.
+     */
+    protected int applyOperation(OffHeapComplexVector vector, List<Operation> operations, int index) {
+        Operation operation = operations.get(index);
+        switch (operation.operationType()) {
+            case Gate:
+                applyGate(vector, ((Gate) operation).targetQubit()[0], operation);
+                return 1;
+            case ControlGate:
+                if (FsvDataProvider.isSwapSequence(operations, index)) {
+                    // CNOT(a,b), CNOT(b,a), CNOT(a,b) applied as a single swap pass
+                    applySwap(vector, ((ControlGate) operation).controlQubit()[0], ((ControlGate) operation).targetQubit()[0]);
+                    return 3;
+                }
+                applyControlGate(vector, (ControlGate) operation);
+                return 1;
+            case Function:
+                applyStandardFunction(vector, (Function) operation);
+                return 1;
+            case CustomFunction:
+                applyCustomFunction(vector, (Function) operation);
+                return 1;
+            default:
+                throw new UnsupportedOperationException("Operation type '" + operation.operationType() + "' is not supported in an off-heap full state vector simulator.");
+        }
+    }
+
+    /**
+     * Gets unitary matrix for the supplied operation.
+     * 
+     * @param operation
+     *            quantum operation.
+     * @return unitary matrix representing the quantum operation.
+     */
+    protected ComplexTensor getOperationData(Operation operation) {
+        return dataProvider.getOperationData(operation);
+    }
+
+    /**
+     * Processes the amplitude pairs (or groups) [0, rows) of the full state vector
+     * using the supplied task.
+     * 
+     * @param rows
+     *            number of amplitude pairs (or groups) in the full state vector.
+     * @param task
+     *            task that processes a range of amplitude pairs (or groups).
+     */
+    protected void processRows(long rows, LongRowRangeTask task) {
+        processRange(0, rows, task);
+    }
+
+    /**
+     * Processes the amplitude pairs (or groups) [fromRow, toRow) using the
+     * supplied task, partitioned across the worker threads.
+     * 
+     * @param fromRow
+     *            first amplitude pair to be processed (inclusive).
+     * @param toRow
+     *            last amplitude pair to be processed (exclusive).
+     * @param task
+     *            task that processes a range of amplitude pairs (or groups).
+     */
+    protected void processRange(long fromRow, long toRow, LongRowRangeTask task) {
+        if (pool == null || toRow - fromRow <= DEFAULT_SEQUENTIAL_CUTOFF) {
+            task.process(fromRow, toRow);
+            return;
+        }
+        long grain = Math.max(DEFAULT_SEQUENTIAL_CUTOFF, (toRow - fromRow) / (parallelism * 4));
+        pool.invoke(new LongRowRangeAction(task, fromRow, toRow, grain));
+    }
+
+    private void applyGate(OffHeapComplexVector vector, int targetQubit, Operation operation) {
+        ComplexTensor gateData = dataProvider.getOperationData(operation);
+        float[] gateReal = gateData.getRawRealData();
+        float[] gateImag = gateData.getRawImagData();
+        if (FsvDataProvider.isPhaseGate(gateData))
+            processRows(vector.size() / 2, (fromRow, toRow) -> FsvOffHeapOperand.applyPhase(targetQubit, vector, fromRow, toRow, gateReal, gateImag));
+        else if (FsvDataProvider.isPauliX(gateData) || FsvDataProvider.isPauliY(gateData)) {
+            boolean flipPhase = FsvDataProvider.isPauliY(gateData);
+            processRows(vector.size() / 2, (fromRow, toRow) -> FsvOffHeapOperand.applyFlip(targetQubit, flipPhase, vector, fromRow, toRow));
+        } else
+            processRows(vector.size() / 2, (fromRow, toRow) -> FsvOffHeapOperand.applyGate(targetQubit, vector, fromRow, toRow, gateReal, gateImag));
+    }
+
+    private void applyControlGate(OffHeapComplexVector vector, ControlGate controlGate) {
+        ComplexTensor gateData = dataProvider.getOperationData(controlGate);
+        float[] gateReal = gateData.getRawRealData();
+        float[] gateImag = gateData.getRawImagData();
+        int targetQubit = controlGate.targetQubit()[0];
+        int controlQubit = controlGate.controlQubit()[0];
+        if (FsvDataProvider.isPhaseGate(gateData))
+            processRows(vector.size() / 4, (fromRow, toRow) -> FsvOffHeapOperand.applyControlPhase(targetQubit, controlQubit, vector, fromRow, toRow, gateReal, gateImag));
+        else if (FsvDataProvider.isPauliX(gateData) || FsvDataProvider.isPauliY(gateData)) {
+            boolean flipPhase = FsvDataProvider.isPauliY(gateData);
+            processRows(vector.size() / 4, (fromRow, toRow) -> FsvOffHeapOperand.applyControlFlip(targetQubit, controlQubit, flipPhase, vector, fromRow, toRow));
+        } else
+            processRows(vector.size() / 4, (fromRow, toRow) -> FsvOffHeapOperand.applyControlGate(targetQubit, controlQubit, vector, fromRow, toRow, gateReal, gateImag));
+    }
+
+    private void applySwap(OffHeapComplexVector vector, int qubitA, int qubitB) {
+        processRows(vector.size() / 4, (fromRow, toRow) -> FsvOffHeapOperand.applySwap(qubitA, qubitB, vector, fromRow, toRow));
+    }
+
+    private void applyStandardFunction(OffHeapComplexVector vector, Function standardFunction) {
+        switch (standardFunction.type()) {
+            case Swap:
+                // Swap function exchanges the first and the last qubit of its range
+                int[] qubits = standardFunction.targetQubits();
+                if (qubits.length > 1)
+                    applySwap(vector, qubits[0], qubits[qubits.length - 1]);
+                break;
+            default:
+                throw new UnsupportedOperationException("Function type '" + standardFunction.type() + "' is not supported in an off-heap full state vector simulator.");
+        }
+    }
+
+    private void applyCustomFunction(OffHeapComplexVector vector, Function customFunction) {
+        // Contiguous qubit range is applied as a dense block over the range
+        int[] blockQubits = customFunction.targetQubits();
+        ComplexTensor blockData = dataProvider.getOperationData(customFunction);
+        float[] blockReal = blockData.getRawRealData();
+        float[] blockImag = blockData.getRawImagData();
+        processRows(vector.size() >> blockQubits.length, (fromRow, toRow) -> FsvOffHeapOperand.applyBlock(blockQubits, vector, fromRow, toRow, blockReal, blockImag));
+    }
+
+    /**
+     * Represents a task that processes a long range of amplitude pairs of the
+     * off-heap full state vector.
+     */
+    @FunctionalInterface
+    protected interface LongRowRangeTask {
+        /**
+         * Processes the amplitude pairs [fromRow, toRow).
+         * 
+         * @param fromRow
+         *            first amplitude pair to be processed (inclusive).
+         * @param toRow
+         *            last amplitude pair to be processed (exclusive).
+         */
+        void process(long fromRow, long toRow);
+    }
+
+    private static class LongRowRangeAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final LongRowRangeTask task;
+        private final long fromRow,toRow,grain;
+
+        private LongRowRangeAction(LongRowRangeTask task, long fromRow, long toRow, long grain) {
+            this.task = task;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= grain) {
+                task.process(fromRow, toRow);
+                return;
+            }
+            long middleRow = (fromRow + toRow) >>> 1;
+            invokeAll(new LongRowRangeAction(task, fromRow, middleRow, grain), new LongRowRangeAction(task, middleRow, toRow, grain));
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import uk.ac.manchester.tornado.qsim.circuit.OffHeapState;
+import uk.ac.manchester.tornado.qsim.circuit.operation.ControlGate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Function;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Gate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Operation;
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.FunctionType;
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.OperationType;
+import uk.ac.manchester.tornado.qsim.math.OffHeapComplexVector;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Represents an out-of-core quantum circuit simulator, in which the full state
+ * vector is memory-mapped from a state file (8 bytes per amplitude) in chunks,
+ * so the simulated state can exceed the physical memory. The operating system
+ * pages the chunks in and out on demand, therefore the operations are ordered
+ * to minimise the passes over the state file:
+ * 
+ * - consecutive operations acting on low qubits only (below the chunk bits) are
+ * grouped into blocks and applied chunk by chunk, so each block reads and
+ * writes every chunk once. Operations on disjoint qubits commute, so a low
+ * qubit operation is moved ahead of pending high qubit operations that do not
+ * share any qubit with it.
+ * 
+ * - operations involving a high qubit are applied one by one, processing pairs
+ * of chunks (chunks that are not touched, e.g. with the control bit 0, are
+ * skipped).
+ * 
+ * The volume of state file data read and written by the last simulation is
+ * reported at the chunk granularity. It is the upper bound of the storage
+ * traffic (chunks still held in the page cache are not read again).
+ */
+public class FsvSimulatorOutOfCore extends FsvSimulatorOffHeap {
+    /**
+     * Default number of bits of the chunk size (2^24 amplitudes = 64 MiB per chunk
+     * and part).
+     */
+    public static final int DEFAULT_CHUNK_BITS = 24;
+
+    private final Path stateDirectory;
+    private int currentChunk = -1;
+    private int chunkCount;
+    private long passes;
+    private long bytesRead;
+    private long bytesWritten;
+
+    /**
+     * Constructs an out-of-core full state vector simulator that uses all
+     * available processors and the default chunk size.
+     * 
+     * @param stateDirectory
+     *            directory, in which the state files are created.
+     */
+    public FsvSimulatorOutOfCore(Path stateDirectory) {
+        this(stateDirectory, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_BITS);
+    }
+
+    /**
+     * Constructs an out-of-core full state vector simulator.
+     * 
+     * @param stateDirectory
+     *            directory, in which the state files are created.
+     * @param parallelism
+     *            number of worker threads.
+     * @param chunkBits
+     *            number of bits of the chunk size of the state vector (operations
+     *            on qubits below the chunk bits are applied chunk by chunk).
+     */
+    public FsvSimulatorOutOfCore(Path stateDirectory, int parallelism, int chunkBits) {
+        super(parallelism, chunkBits);
+        if (stateDirectory == null || !Files.isDirectory(stateDirectory))
+            throw new IllegalArgumentException("Invalid state directory supplied (NULL / not a directory).");
+        this.stateDirectory = stateDirectory;
+    }
+
+    /**
+     * Gets the directory, in which the state files are created.
+     * 
+     * @return state directory.
+     */
+    public Path stateDirectory() {
+        return stateDirectory;
+    }
+
+    /**
+     * Gets the number of passes over the state file in the last simulation (a
+     * block of low qubit operations counts as a single pass).
+     * 
+     * @return number of passes.
+     */
+    public long passes() {
+        return passes;
+    }
+
+    /**
+     * Gets the number of bytes of the state file read in the last simulation.
+     * 
+     * @return number of bytes read.
+     */
+    public long bytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Gets the number of bytes of the state file written in the last simulation.
+     * 
+     * @return number of bytes written.
+     */
+    public long bytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public String describeStatistics() {
+        return String.format("State file: %d passes, %d bytes read, %d bytes written", passes(), bytesRead(), bytesWritten());
+    }
+
+    /**
+     * Creates the initial state memory-mapped from a new state file. The file is
+     * deleted once mapped (the mapping stays valid until the state becomes
+     * unreachable), or on exit if the file system does not allow it.
+     */
+    @Override
+    protected OffHeapState createState(int noQubits) {
+        Path stateFile;
+        try {
+            stateFile = Files.createTempFile(stateDirectory, "tornado-qsim-state", ".bin");
+        } catch (IOException e) {
+            throw new UncheckedIOException("State file could not be created.", e);
+        }
+        try (FileChannel channel = FileChannel.open(stateFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new OffHeapState(noQubits, chunkBits(), channel);
+        } catch (IOException e) {
+            throw new UncheckedIOException("State file could not be mapped.", e);
+        } finally {
+            try {
+                Files.delete(stateFile);
+            } catch (IOException e) {
+                stateFile.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    @Override
+    protected void applyOperations(OffHeapComplexVector vector, List<Operation> operations) {
+        chunkCount = vector.chunkCount();
+        passes = 0;
+        bytesRead = 0;
+        bytesWritten = 0;
+        long stateBytes = vector.size() * 2 * Float.BYTES;
+
+        List<Integer> block = new ArrayList<>();
+        List<Integer> pending = new ArrayList<>();
+        Set<Integer> pendingQubits = new HashSet<>();
+
+        int i = 0;
+        while (i < operations.size()) {
+            int count = operationCount(operations, i);
+            int[] qubits = FsvDataProvider.getOperationQubits(operations.get(i));
+            if (isLocal(qubits)) {
+                if (!isDisjoint(qubits, pendingQubits)) {
+                    // Depends on a pending high qubit operation, which must be applied first
+                    applyBlock(vector, operations, block, stateBytes);
+                    applyPending(vector, operations, pending, stateBytes);
+                    pendingQubits.clear();
+                }
+                block.add(i);
+            } else {
+                pending.add(i);
+                for (int qubit : qubits)
+                    pendingQubits.add(qubit);
+            }
+            i += count;
+        }
+        applyBlock(vector, operations, block, stateBytes);
+        applyPending(vector, operations, pending, stateBytes);
+    }
+
+    @Override
+    protected void processRows(long rows, LongRowRangeTask task) {
+        if (currentChunk < 0) {
+            super.processRows(rows, task);
+            return;
+        }
+        // Rows of a low qubit operation are evenly split among the chunks
+        long chunkRows = rows / chunkCount;
+        processRange(currentChunk * chunkRows, (currentChunk + 1) * chunkRows, task);
+    }
+
+    private void applyBlock(OffHeapComplexVector vector, List<Operation> operations, List<Integer> block, long stateBytes) {
+        if (block.isEmpty())
+            return;
+        for (currentChunk = 0; currentChunk < chunkCount; currentChunk++)
+            for (int index : block)
+                applyOperation(vector, operations, index);
+        currentChunk = -1;
+        block.clear();
+
+        passes++;
+        bytesRead += stateBytes;
+        bytesWritten += stateBytes;
+    }
+
+    private void applyPending(OffHeapComplexVector vector, List<Operation> operations, List<Integer> pending, long stateBytes) {
+        for (int index : pending) {
+            applyOperation(vector, operations, index);
+            // Each high qubit with a fixed value halves the touched chunks
+            long touchedBytes = stateBytes >> fixedHighQubits(operations, index);
+            passes++;
+            bytesRead += touchedBytes;
+            bytesWritten += touchedBytes;
+        }
+        pending.clear();
+    }
+
+    /**
+     * Gets the number of high qubits, whose value is fixed for all amplitudes
+     * touched by the operation (control qubit 1, target qubit 1 of a phase gate,
+     * different values of swapped high qubits).
+     */
+    private int fixedHighQubits(List<Operation> operations, int index) {
+        Operation operation = operations.get(index);
+        int fixed = 0;
+        switch (operation.operationType()) {
+            case Gate:
+                if (isHigh(((Gate) operation).targetQubit()[0]) && FsvDataProvider.isPhaseGate(getOperationData(operation)))
+                    fixed++;
+                break;
+            case ControlGate:
+                ControlGate controlGate = (ControlGate) operation;
+                if (FsvDataProvider.isSwapSequence(operations, index)) {
+                    if (isHigh(controlGate.controlQubit()[0]) && isHigh(controlGate.targetQubit()[0]))
+                        fixed++;
+                    break;
+                }
+                if (isHigh(controlGate.controlQubit()[0]))
+                    fixed++;
+                if (isHigh(controlGate.targetQubit()[0]) && FsvDataProvider.isPhaseGate(getOperationData(operation)))
+                    fixed++;
+                break;
+            case Function:
+                int[] qubits = ((Function) operation).targetQubits();
+                if (((Function) operation).type() == FunctionType.Swap && isHigh(qubits[0]) && isHigh(qubits[qubits.length - 1]))
+                    fixed++;
+                break;
+            default:
+                break;
+        }
+        return fixed;
+    }
+
+    /**
+     * Gets the qubits, whose amplitudes are changed by the operation (the qubits
+     * between the control and the target qubit or between the swapped qubits are
+     * not involved).
+     */
+    private int operationCount(List<Operation> operations, int index) {
+        if (operations.get(index).operationType() == OperationType.ControlGate && FsvDataProvider.isSwapSequence(operations, index))
+            return 3;
+        return 1;
+    }
+
+    private boolean isLocal(int[] qubits) {
+        for (int qubit : qubits)
+            if (isHigh(qubit))
+                return false;
+        return true;
+    }
+
+    private boolean isHigh(int qubit) {
+        return qubit >= chunkBits();
+    }
+
+    private static boolean isDisjoint(int[] qubits, Set<Integer> pendingQubits) {
+        for (int qubit : qubits)
+            if (pendingQubits.contains(qubit))
+                return false;
+        return true;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import uk.ac.manchester.tornado.qsim.simulator.WorkerPools;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Represents a quantum circuit simulator that applies each quantum gate by
+ * iterating over the full state vector. The amplitude pairs of every gate are
+ * partitioned across the worker threads of a fork-join pool (pure Java
+ * execution), which is shared by all simulators of the same parallelism (see
+ * WorkerPools). This simulation process follows the full state vector /
+ * wavefunction simulation model of quantum computation. The reductions of the
+ * measurements are partitioned in the same way, the partial sums are added up
+ * in a fixed order, so the outcomes do not depend on the scheduling.
+ */
+public class FsvSimulatorParallel extends FsvSimulatorStandard {
+    /**
+     * Default number of amplitude pairs below which a gate is applied on the
+     * calling thread only.
+     */
+    public static final int DEFAULT_SEQUENTIAL_CUTOFF = 1 << 14;
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final int sequentialCutoff;
+
+    /**
+     * Constructs a parallel full state vector simulator that uses all available
+     * processors.
+     */
+    public FsvSimulatorParallel() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_SEQUENTIAL_CUTOFF);
+    }
+
+    /**
+     * Constructs a parallel full state vector simulator.
+     * 
+     * @param parallelism
+     *            number of worker threads.
+     * @param sequentialCutoff
+     *            number of amplitude pairs below which a gate is applied
+     *            sequentially (also the smallest partition size).
+     */
+    public FsvSimulatorParallel(int parallelism, int sequentialCutoff) {
+        this(parallelism, sequentialCutoff, new FsvOptions());
+    }
+
+    /**
+     * Constructs a parallel full state vector simulator.
+     * 
+     * @param parallelism
+     *            number of worker threads.
+     * @param sequentialCutoff
+     *            number of amplitude pairs below which a gate is applied
+     *            sequentially (also the smallest partition size).
+     * @param options
+     *            gate fusion, precision, cache blocking and qubit remapping options
+     *            (see FsvOptions). Cache blocks are partitioned across the worker
+     *            threads.
+     */
+    public FsvSimulatorParallel(int parallelism, int sequentialCutoff, FsvOptions options) {
+        super(options);
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be greater than 0.");
+        if (sequentialCutoff < 1)
+            throw new IllegalArgumentException("Sequential cutoff must be greater than 0.");
+        this.parallelism = parallelism;
+        this.sequentialCutoff = sequentialCutoff;
+        pool = WorkerPools.forParallelism(parallelism);
+    }
+
+    /**
+     * Gets the number of worker threads.
+     * 
+     * @return number of worker threads.
+     */
+    public int parallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Gets the number of amplitude pairs below which a gate is applied
+     * sequentially.
+     * 
+     * @return sequential cutoff.
+     */
+    public int sequentialCutoff() {
+        return sequentialCutoff;
+    }
+
+    @Override
+    protected void processRows(int rows, RowRangeTask task) {
+        if (parallelism == 1 || rows <= sequentialCutoff) {
+            task.process(0, rows);
+            return;
+        }
+        // Few partitions per worker to balance the load, but never smaller than cutoff
+        int grain = Math.max(sequentialCutoff, rows / (parallelism * 4));
+        pool.invoke(new RowRangeAction(task, 0, rows, grain));
+    }
+
+    @Override
+    protected double reduceRows(int rows, RowRangeReduction task) {
+        if (parallelism == 1 || rows <= sequentialCutoff)
+            return task.reduce(0, rows);
+        int grain = Math.max(sequentialCutoff, rows / (parallelism * 4));
+        return pool.invoke(new RowRangeSum(task, 0, rows, grain));
+    }
+
+    @Override
+    protected void processBlocks(int blocks, RowRangeTask task) {
+        if (parallelism == 1 || blocks == 1) {
+            task.process(0, blocks);
+            return;
+        }
+        // Each block fits into the cache, so a single block is the smallest partition
+        int grain = Math.max(1, blocks / (parallelism * 4));
+        pool.invoke(new RowRangeAction(task, 0, blocks, grain));
+    }
+
+    private static class RowRangeAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final RowRangeTask task;
+        private final int fromRow,toRow,grain;
+
+        private RowRangeAction(RowRangeTask task, int fromRow, int toRow, int grain) {
+            this.task = task;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= grain) {
+                task.process(fromRow, toRow);
+                return;
+            }
+            int middleRow = (fromRow + toRow) >>> 1;
+            invokeAll(new RowRangeAction(task, fromRow, middleRow, grain), new RowRangeAction(task, middleRow, toRow, grain));
+        }
+    }
+
+    private static class RowRangeSum extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+        private final RowRangeReduction task;
+        private final int fromRow,toRow,grain;
+
+        private RowRangeSum(RowRangeReduction task, int fromRow, int toRow, int grain) {
+            this.task = task;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.grain = grain;
+        }
+
+        @Override
+        protected Double compute() {
+            if (toRow - fromRow <= grain)
+                return task.reduce(fromRow, toRow);
+            int middleRow = (fromRow + toRow) >>> 1;
+            RowRangeSum left = new RowRangeSum(task, fromRow, middleRow, grain);
+            left.fork();
+            double right = new RowRangeSum(task, middleRow, toRow, grain).compute();
+            return left.join() + right;
+        }
+    }
+}
@@ -0,0 +1,539 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.ShardedState;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.circuit.operation.ControlGate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Function;
+import uk.ac.manchester.tornado.qsim.circuit.operation.FusedBlock;
+import uk.ac.manchester.tornado.qsim.circuit.operation.FusedGate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Gate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Operation;
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.OperationType;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.simulator.Simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Represents a quantum circuit simulator that splits the full state vector into
+ * shards (see ShardedState), each owned by a single worker thread (eg. one
+ * worker per socket). This simulation process follows the full state vector /
+ * wavefunction simulation model of quantum computation.
+ * 
+ * Every shard is allocated, zeroed and updated only by its owning worker, so on
+ * a NUMA machine the pages of the shard are placed on the node of the worker by
+ * the first touch policy of the operating system. With 2^g shards, the top g
+ * qubits (global qubits) select the shard. Operations are applied as follows:
+ * <ul>
+ * <li>operations on local qubits are applied by each worker to its own shard
+ * and never cross the shards,</li>
+ * <li>phase gates (also controlled) on global qubits only select the shards
+ * (and amplitudes) to be changed,</li>
+ * <li>a gate on a global target qubit (with a global control or a local control
+ * below the top local qubit) is applied by a bulk exchange of half-shards
+ * between the pair of shards, each worker updating its shard, after which the
+ * halves are exchanged back,</li>
+ * <li>other operations on global qubits first swap the global qubits with
+ * local qubits (global-local qubit swap, a bulk exchange of half-shards), the
+ * local qubit used again as late as possible is moved out,</li>
+ * <li>swaps of qubits only relabel the qubits (see FsvQubitLayout).</li>
+ * </ul>
+ * The bulk exchange of a shard pair is split between both owners. Circuits too
+ * small to be split into all shards (at least 2 local qubits per shard) and
+ * circuits with dense operations wider than the local qubits are simulated with
+ * fewer shards (a single shard at least). The identity
+ * qubit layout is restored at the end of the simulation and the sharded state
+ * is returned. Volume of the data exchanged between the shards is reported for
+ * the last simulation.
+ */
+public class FsvSimulatorSharded implements Simulator {
+    private static final int MIN_LOCAL_QUBITS = 2;
+    private static final long WORKER_KEEP_ALIVE_SECONDS = 60;
+
+    private final ExecutorService[] workers;
+    private final FsvDataProvider dataProvider;
+    private final int globalQubits;
+
+    private int usedShards;
+    private int localQubits;
+    private float[][] real;
+    private float[][] imag;
+    private FsvQubitLayout layout;
+    private int currentOperation;
+    private long[] operationBytes;
+    private long bytesExchanged;
+    private int exchanges;
+
+    /**
+     * Constructs a sharded full state vector simulator with one shard per
+     * available processor (rounded down to a power of two).
+     */
+    public FsvSimulatorSharded() {
+        this(Integer.highestOneBit(Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Constructs a sharded full state vector simulator. Every shard is owned by its
+     * own (daemon) worker thread, which terminates after a minute without work.
+     * 
+     * @param shards
+     *            number of shards (power of two).
+     */
+    public FsvSimulatorSharded(int shards) {
+        if (shards < 1 || Integer.bitCount(shards) != 1)
+            throw new IllegalArgumentException("Number of shards must be a power of two.");
+        workers = new ExecutorService[shards];
+        for (int shard = 0; shard < shards; shard++) {
+            String name = "fsv-shard-" + shard;
+            ThreadPoolExecutor worker = new ThreadPoolExecutor(1, 1, WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+                Thread thread = new Thread(task, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            // Idle owner threads terminate, so unused simulators do not keep threads
+            worker.allowCoreThreadTimeOut(true);
+            workers[shard] = worker;
+        }
+        dataProvider = new FsvDataProvider();
+        globalQubits = Integer.numberOfTrailingZeros(shards);
+    }
+
+    /**
+     * Gets the number of shards (and worker threads).
+     * 
+     * @return number of shards.
+     */
+    public int shards() {
+        return workers.length;
+    }
+
+    /**
+     * Gets the number of shards used in the last simulation (fewer than shards()
+     * if the circuit was too small or its operations too wide to be split into all
+     * shards).
+     * 
+     * @return number of used shards.
+     */
+    public int usedShards() {
+        return usedShards;
+    }
+
+    /**
+     * Gets the number of bytes moved between the shards (in both directions) while
+     * simulating the circuit in the last simulation (including the restoration of
+     * the qubit layout).
+     * 
+     * @return number of exchanged bytes.
+     */
+    public long bytesExchanged() {
+        return bytesExchanged;
+    }
+
+    /**
+     * Gets the number of bulk exchanges (of all shard pairs at once) performed
+     * while simulating the circuit in the last simulation.
+     * 
+     * @return number of exchanges.
+     */
+    public int exchanges() {
+        return exchanges;
+    }
+
+    /**
+     * Gets the number of bytes moved between the shards for each circuit operation
+     * (in the order of application, step by step) in the last simulation. A swap
+     * applied as a sequence of three CNOT gates is reported at the first gate.
+     * 
+     * @return number of exchanged bytes per operation.
+     */
+    public long[] operationBytes() {
+        return operationBytes == null ? new long[0] : operationBytes.clone();
+    }
+
+    /**
+     * Gets the average number of bytes moved between the shards per circuit
+     * operation in the last simulation.
+     * 
+     * @return number of exchanged bytes per operation.
+     */
+    public double bytesPerGate() {
+        return operationBytes == null || operationBytes.length == 0 ? 0 : (double) bytesExchanged / operationBytes.length;
+    }
+
+    @Override
+    public State simulateFullState(Circuit circuit) {
+        if (circuit == null)
+            throw new IllegalArgumentException("Invalid circuit supplied (NULL).");
+        if (circuit.qubitCount() > ShardedState.MAX_QUBITS)
+            throw new IllegalArgumentException("Number of qubits in a sharded state must not be greater than " + ShardedState.MAX_QUBITS + ".");
+
+        List<Operation> operations = dataProvider.getCircuitOperations(circuit);
+        // Every shard keeps enough local qubits for the widest dense operation
+        int minLocalQubits = Math.max(MIN_LOCAL_QUBITS, getWidestBlock(operations));
+        int usedGlobalQubits = Math.max(0, Math.min(globalQubits, circuit.qubitCount() - minLocalQubits));
+        usedShards = 1 << usedGlobalQubits;
+        localQubits = circuit.qubitCount() - usedGlobalQubits;
+        real = new float[usedShards][];
+        imag = new float[usedShards][];
+        // Each worker allocates (and zeroes) its own shard
+        forEachShard(shard -> {
+            real[shard] = new float[1 << localQubits];
+            imag[shard] = new float[1 << localQubits];
+        });
+        ShardedState state = new ShardedState(circuit.qubitCount(), real, imag);
+        layout = new FsvQubitLayout(circuit.qubitCount(), localQubits);
+        operationBytes = new long[operations.size()];
+        bytesExchanged = 0;
+        exchanges = 0;
+
+        try {
+            int i = 0;
+            while (i < operations.size()) {
+                currentOperation = i;
+                i += applyOperation(operations, i);
+            }
+            currentOperation = -1;
+            restoreLayout();
+            return state;
+        } finally {
+            real = null;
+            imag = null;
+            layout = null;
+        }
+    }
+
+    @Override
+    public int simulateAndCollapse(Circuit circuit) {
+        return simulateFullState(circuit).collapse();
+    }
+
+    @Override
+    public String describeStatistics() {
+        return String.format("%d of %d shards used: %d bytes exchanged between shards (%.1f bytes per gate) in %d exchanges", usedShards(), shards(), bytesExchanged(), bytesPerGate(), exchanges());
+    }
+
+    private int applyOperation(List<Operation> operations, int index) {
+        Operation operation = operations.get(index);
+        switch (operation.operationType()) {
+            case Gate:
+                applyGate(layout.physical(((Gate) operation).targetQubit()[0]), dataProvider.getOperationData(operation));
+                return 1;
+            case FusedGate:
+                applyGate(layout.physical(((FusedGate) operation).targetQubit()[0]), dataProvider.getOperationData(operation));
+                return 1;
+            case FusedBlock:
+                applyBlock(operation, ((FusedBlock) operation).targetQubits(), operations, index);
+                return 1;
+            case ControlGate:
+                if (FsvDataProvider.isSwapSequence(operations, index)) {
+                    // CNOT(a,b), CNOT(b,a), CNOT(a,b) only relabels the qubits
+                    swapQubits(((ControlGate) operation).controlQubit()[0], ((ControlGate) operation).targetQubit()[0]);
+                    return 3;
+                }
+                applyControlGate((ControlGate) operation, operations, index);
+                return 1;
+            case Function:
+                applyStandardFunction((Function) operation);
+                return 1;
+            case CustomFunction:
+                applyBlock(operation, ((Function) operation).targetQubits(), operations, index);
+                return 1;
+            default:
+                throw new UnsupportedOperationException("Operation type '" + operation.operationType() + "' is not supported in a full state vector simulator.");
+        }
+    }
+
+    private void applyStandardFunction(Function standardFunction) {
+        switch (standardFunction.type()) {
+            case Swap:
+                // Swap function exchanges the first and the last qubit of its range
+                int[] qubits = standardFunction.targetQubits();
+                if (qubits.length > 1)
+                    swapQubits(qubits[0], qubits[qubits.length - 1]);
+                break;
+            default:
+                throw new UnsupportedOperationException("Function type '" + standardFunction.type() + "' is not supported in a full state vector simulator.");
+        }
+    }
+
+    private void swapQubits(int qubitA, int qubitB) {
+        layout.swap(new int[][] { { layout.physical(qubitA) }, { layout.physical(qubitB) } });
+    }
+
+    private void applyGate(int targetQubit, ComplexTensor gateData) {
+        if (targetQubit < localQubits)
+            forEachShard(shard -> FsvSimulatorDistributed.applyLocalGate(targetQubit, -1, gateData, real[shard], imag[shard]));
+        else if (FsvDataProvider.isPhaseGate(gateData)) {
+            // Phase of a global qubit only changes the shards with the qubit set
+            forEachShard(shard -> {
+                if (isShardBitSet(shard, targetQubit))
+                    FsvSimulatorDistributed.applyChunkPhase(gateData, real[shard], imag[shard]);
+            });
+        } else
+            applyExchangeGate(targetQubit, -1, gateData, -1);
+    }
+
+    private void applyControlGate(ControlGate controlGate, List<Operation> operations, int index) {
+        ComplexTensor gateData = dataProvider.getOperationData(controlGate);
+        int targetQubit = layout.physical(controlGate.targetQubit()[0]);
+        int controlQubit = layout.physical(controlGate.controlQubit()[0]);
+
+        if (controlQubit >= localQubits) {
+            if (targetQubit >= localQubits && !FsvDataProvider.isPhaseGate(gateData))
+                // Global control selects the shard pairs to be exchanged
+                applyExchangeGate(targetQubit, -1, gateData, controlQubit);
+            else
+                forEachShard(shard -> {
+                    if (!isShardBitSet(shard, controlQubit))
+                        return;
+                    if (targetQubit < localQubits)
+                        FsvSimulatorDistributed.applyLocalGate(targetQubit, -1, gateData, real[shard], imag[shard]);
+                    else if (isShardBitSet(shard, targetQubit))
+                        FsvSimulatorDistributed.applyChunkPhase(gateData, real[shard], imag[shard]);
+                });
+        } else if (targetQubit < localQubits)
+            forEachShard(shard -> FsvSimulatorDistributed.applyLocalGate(targetQubit, controlQubit, gateData, real[shard], imag[shard]));
+        else if (FsvDataProvider.isPhaseGate(gateData)) {
+            // Controlled phase is symmetric, the global target acts as the control
+            forEachShard(shard -> {
+                if (isShardBitSet(shard, targetQubit))
+                    FsvSimulatorDistributed.applyLocalGate(controlQubit, -1, gateData, real[shard], imag[shard]);
+            });
+        } else if (controlQubit != localQubits - 1)
+            applyExchangeGate(targetQubit, controlQubit, gateData, -1);
+        else {
+            // Control occupies the exchanged qubit, the target is moved to a local qubit
+            int localTarget = swapIntoLocal(targetQubit, new int[] { controlQubit }, operations, index);
+            forEachShard(shard -> FsvSimulatorDistributed.applyLocalGate(localTarget, controlQubit, gateData, real[shard], imag[shard]));
+        }
+    }
+
+    private void applyBlock(Operation operation, int[] qubits, List<Operation> operations, int index) {
+        for (int qubit : qubits)
+            if (layout.physical(qubit) >= localQubits)
+                swapIntoLocal(layout.physical(qubit), layout.physical(qubits), operations, index);
+
+        // Physical qubits are sorted, the matrix is permuted accordingly
+        int[] physicalQubits = layout.physical(qubits);
+        int[] blockQubits = FsvQubitLayout.sortedQubits(physicalQubits);
+        ComplexTensor blockData = dataProvider.getOperationData(operation);
+        float[] blockReal;
+        float[] blockImag;
+        if (Arrays.equals(blockQubits, physicalQubits)) {
+            blockReal = blockData.getRawRealData();
+            blockImag = blockData.getRawImagData();
+        } else {
+            int[] indexMap = FsvQubitLayout.blockIndexMap(physicalQubits);
+            blockReal = FsvQubitLayout.permuteBlock(blockData.getRawRealData(), indexMap);
+            blockImag = FsvQubitLayout.permuteBlock(blockData.getRawImagData(), indexMap);
+        }
+        int rows = (1 << localQubits) >> blockQubits.length;
+        forEachShard(shard -> FsvRangeOperand.applyBlock(blockQubits, real[shard], imag[shard], 0, rows, blockReal, blockImag));
+    }
+
+    /**
+     * Applies the gate on the global target qubit by the bulk exchange of
+     * half-shards. The shard with the target qubit 0 keeps the lower half of its
+     * amplitudes and receives the lower half of the partner's amplitudes into its
+     * upper half (and vice versa), so the amplitude pairs of the gate are then
+     * formed by the top local qubit. The updated halves are exchanged back. A
+     * global control qubit (if not -1) selects the shard pairs, which apply the
+     * gate.
+     */
+    private void applyExchangeGate(int targetQubit, int controlQubit, ComplexTensor gateData, int globalControlQubit) {
+        exchangeHalves(targetQubit, localQubits - 1, globalControlQubit);
+        forEachShard(shard -> {
+            if (globalControlQubit < 0 || isShardBitSet(shard, globalControlQubit))
+                FsvSimulatorDistributed.applyLocalGate(localQubits - 1, controlQubit, gateData, real[shard], imag[shard]);
+        });
+        exchangeHalves(targetQubit, localQubits - 1, globalControlQubit);
+    }
+
+    /**
+     * Swaps the supplied global qubit with a local qubit, which is not excluded
+     * and whose logical qubit is used again as late as possible.
+     * 
+     * @return physical local qubit, which now holds the global qubit.
+     */
+    private int swapIntoLocal(int globalQubit, int[] excludedQubits, List<Operation> operations, int index) {
+        int localQubit = layout.evictedQubit(excludedQubits, operations, index + 1);
+        exchangeHalves(globalQubit, localQubit, -1);
+        layout.swap(new int[][] { { localQubit }, { globalQubit } });
+        return localQubit;
+    }
+
+    /**
+     * Restores the identity qubit layout, so the shard s holds the amplitudes s *
+     * 2^localQubits to (s + 1) * 2^localQubits - 1.
+     */
+    private void restoreLayout() {
+        for (int[][] pairs = layout.restorePlan(); pairs != null; pairs = layout.restorePlan()) {
+            for (int k = 0; k < pairs[0].length; k++) {
+                int lowQubit = Math.min(pairs[0][k], pairs[1][k]);
+                int highQubit = Math.max(pairs[0][k], pairs[1][k]);
+                if (highQubit < localQubits)
+                    forEachShard(shard -> FsvRangeOperand.applySwap(lowQubit, highQubit, real[shard], imag[shard], 0, (1 << localQubits) / 4));
+                else if (lowQubit < localQubits)
+                    exchangeHalves(highQubit, lowQubit, -1);
+                else
+                    exchangeShards(lowQubit, highQubit);
+            }
+            layout.swap(pairs);
+        }
+    }
+
+    /**
+     * Exchanges the amplitudes of the local qubit between the shard pairs of the
+     * global qubit. The shard with the global qubit 0 swaps its amplitudes with the
+     * local qubit 1 for the amplitudes of the partner with the local qubit 0. The
+     * exchange of a pair is split between the owners of both shards. A global
+     * control qubit (if not -1) selects the exchanged shard pairs.
+     */
+    private void exchangeHalves(int globalQubit, int localQubit, int globalControlQubit) {
+        int shardBit = shardBit(globalQubit);
+        int count = (1 << localQubits) / 2;
+        forEachShard(shard -> {
+            if (globalControlQubit >= 0 && !isShardBitSet(shard, globalControlQubit))
+                return;
+            int lowShard = shard & ~shardBit;
+            int highShard = shard | shardBit;
+            int from = shard == lowShard ? 0 : count / 2;
+            int to = shard == lowShard ? count / 2 : count;
+            swapAmplitudes(real[lowShard], real[highShard], localQubit, from, to);
+            swapAmplitudes(imag[lowShard], imag[highShard], localQubit, from, to);
+        });
+        countExchange((long) (globalControlQubit < 0 ? usedShards : usedShards / 2) * count);
+    }
+
+    /**
+     * Exchanges the whole shards of the shard pairs, which differ in the two global
+     * qubits (swap of two global qubits).
+     */
+    private void exchangeShards(int globalQubitA, int globalQubitB) {
+        int shardBits = shardBit(globalQubitA) | shardBit(globalQubitB);
+        int count = 1 << localQubits;
+        forEachShard(shard -> {
+            if (Integer.bitCount(shard & shardBits) != 1)
+                return;
+            int peer = shard ^ shardBits;
+            int from = shard < peer ? 0 : count / 2;
+            int to = shard < peer ? count / 2 : count;
+            swapRange(real[shard], real[peer], from, to);
+            swapRange(imag[shard], imag[peer], from, to);
+        });
+        countExchange((long) usedShards / 2 * count);
+    }
+
+    private void countExchange(long amplitudes) {
+        long bytes = 2 * Float.BYTES * amplitudes;
+        bytesExchanged += bytes;
+        if (currentOperation >= 0)
+            operationBytes[currentOperation] += bytes;
+        exchanges++;
+    }
+
+    /**
+     * Swaps the k-th amplitudes with the local qubit 1 of the low shard with the
+     * k-th amplitudes with the local qubit 0 of the high shard (for k from the
+     * supplied range).
+     */
+    private static void swapAmplitudes(float[] lowShard, float[] highShard, int qubit, int from, int to) {
+        // Selected amplitudes form runs of 2^qubit consecutive amplitudes
+        int run = 1 << qubit;
+        int k = from;
+        while (k < to) {
+            int length = Math.min(run - (k & (run - 1)), to - k);
+            int lowIndex = FsvSimulatorDistributed.selectedIndex(k, qubit, 1);
+            int highIndex = FsvSimulatorDistributed.selectedIndex(k, qubit, 0);
+            for (int j = 0; j < length; j++) {
+                float value = lowShard[lowIndex + j];
+                lowShard[lowIndex + j] = highShard[highIndex + j];
+                highShard[highIndex + j] = value;
+            }
+            k += length;
+        }
+    }
+
+    private static void swapRange(float[] shardA, float[] shardB, int from, int to) {
+        for (int i = from; i < to; i++) {
+            float value = shardA[i];
+            shardA[i] = shardB[i];
+            shardB[i] = value;
+        }
+    }
+
+    private static int getWidestBlock(List<Operation> operations) {
+        int widestBlock = 0;
+        for (Operation operation : operations) {
+            if (operation.operationType() == OperationType.FusedBlock)
+                widestBlock = Math.max(widestBlock, ((FusedBlock) operation).targetQubits().length);
+            else if (operation.operationType() == OperationType.CustomFunction)
+                widestBlock = Math.max(widestBlock, ((Function) operation).targetQubits().length);
+        }
+        return widestBlock;
+    }
+
+    /**
+     * Runs the supplied task for every used shard on the worker owning the shard
+     * and waits for all of them.
+     */
+    private void forEachShard(IntConsumer task) {
+        List<Future<?>> results = new ArrayList<>(usedShards);
+        for (int shard = 0; shard < usedShards; shard++) {
+            int s = shard;
+            results.add(workers[shard].submit(() -> task.accept(s)));
+        }
+        try {
+            for (Future<?> result : results)
+                result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Simulation was interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw new IllegalStateException("Shard task failed.", e.getCause());
+        }
+    }
+
+    private boolean isShardBitSet(int shard, int globalQubit) {
+        return (shard & shardBit(globalQubit)) != 0;
+    }
+
+    private int shardBit(int globalQubit) {
+        return 1 << (globalQubit - localQubits);
+    }
+}
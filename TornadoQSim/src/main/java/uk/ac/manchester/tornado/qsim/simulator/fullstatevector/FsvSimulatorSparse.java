@@ -0,0 +1,360 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.SparseState;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.circuit.operation.ControlGate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Function;
+import uk.ac.manchester.tornado.qsim.circuit.operation.FusedBlock;
+import uk.ac.manchester.tornado.qsim.circuit.operation.FusedGate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Gate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Operation;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.math.SparseComplexVector;
+import uk.ac.manchester.tornado.qsim.simulator.Simulator;
+
+import java.util.List;
+
+/**
+ * Represents a quantum circuit simulator that only stores and updates the
+ * non-zero amplitudes of the state vector (see SparseState). This simulation
+ * process follows the full state vector / wavefunction simulation model of
+ * quantum computation, but the cost of every gate depends on the number of
+ * non-zero amplitudes instead of the size of the state vector. This suits
+ * circuits with few non-zero amplitudes (eg. GHZ states or oracles on basis
+ * states) of up to 62 qubits.
+ * 
+ * Each gate iterates the stored amplitudes, updates their amplitude pairs (or
+ * groups) and stores the non-zero results into a second map, the maps are then
+ * swapped. Phase gates are applied in place and swaps only move the amplitudes.
+ * Once the ratio of non-zero amplitudes exceeds the dense threshold (and the
+ * state fits into a dense state of up to 30 qubits), the sparse state is
+ * converted to a dense state and the rest of the circuit is simulated by the
+ * standard full state vector simulator.
+ */
+public class FsvSimulatorSparse implements Simulator {
+    /**
+     * Default ratio of non-zero amplitudes above which the simulation switches to
+     * the dense state vector.
+     */
+    public static final double DEFAULT_DENSE_THRESHOLD = 1.0 / 16;
+
+    /**
+     * Amplitudes with a smaller probability are treated as zero (not stored).
+     */
+    public static final float ZERO_TOLERANCE = 1e-14f;
+
+    private static final int MAX_DENSE_QUBITS = 30;
+
+    private final FsvDataProvider dataProvider;
+    private final FsvSimulatorStandard denseSimulator;
+    private final double denseThreshold;
+    private SparseComplexVector stateVector;
+    private SparseComplexVector nextStateVector;
+    private int peakNonZeroCount;
+    private int denseFromOperation;
+
+    /**
+     * Constructs a sparse full state vector simulator with the default dense
+     * threshold.
+     */
+    public FsvSimulatorSparse() {
+        this(DEFAULT_DENSE_THRESHOLD);
+    }
+
+    /**
+     * Constructs a sparse full state vector simulator.
+     * 
+     * @param denseThreshold
+     *            ratio of non-zero amplitudes (0 - 1) above which the simulation
+     *            switches to the dense state vector (1 - never switch).
+     */
+    public FsvSimulatorSparse(double denseThreshold) {
+        if (!(denseThreshold > 0 && denseThreshold <= 1))
+            throw new IllegalArgumentException("Dense threshold must be in the range (0, 1].");
+        this.denseThreshold = denseThreshold;
+        dataProvider = new FsvDataProvider();
+        denseSimulator = new FsvSimulatorStandard();
+        denseFromOperation = -1;
+    }
+
+    /**
+     * Gets the ratio of non-zero amplitudes above which the simulation switches
+     * to the dense state vector.
+     * 
+     * @return dense threshold.
+     */
+    public double denseThreshold() {
+        return denseThreshold;
+    }
+
+    /**
+     * Gets the highest number of non-zero amplitudes stored during the last
+     * simulation (before switching to the dense state vector).
+     * 
+     * @return peak number of non-zero amplitudes.
+     */
+    public int peakNonZeroCount() {
+        return peakNonZeroCount;
+    }
+
+    /**
+     * Gets the index of the first circuit operation (in the order of
+     * application, step by step) simulated with the dense state vector in the
+     * last simulation.
+     * 
+     * @return index of the operation, or -1 if the whole circuit was simulated
+     *         with the sparse state vector.
+     */
+    public int denseFromOperation() {
+        return denseFromOperation;
+    }
+
+    @Override
+    public State simulateFullState(Circuit circuit) {
+        if (circuit == null)
+            throw new IllegalArgumentException("Invalid circuit supplied (NULL).");
+        if (circuit.qubitCount() > SparseState.MAX_QUBITS)
+            throw new IllegalArgumentException("Number of qubits in a sparse state must not be greater than " + SparseState.MAX_QUBITS + ".");
+
+        int noQubits = circuit.qubitCount();
+        List<Operation> operations = dataProvider.getCircuitOperations(circuit);
+        stateVector = new SparseComplexVector(1L << noQubits);
+        stateVector.put(0, 1, 0);
+        nextStateVector = new SparseComplexVector(1L << noQubits);
+        peakNonZeroCount = 1;
+        denseFromOperation = -1;
+
+        try {
+            int i = 0;
+            while (i < operations.size()) {
+                if (noQubits <= MAX_DENSE_QUBITS && stateVector.count() > denseThreshold * (1L << noQubits)) {
+                    denseFromOperation = i;
+                    State denseState = new State(stateVector.toComplexTensor());
+                    denseSimulator.applyOperations(denseState, noQubits, operations.subList(i, operations.size()));
+                    return denseState;
+                }
+                i += applyOperation(operations, i);
+                peakNonZeroCount = Math.max(peakNonZeroCount, stateVector.count());
+            }
+            return new SparseState(noQubits, stateVector);
+        } finally {
+            stateVector = null;
+            nextStateVector = null;
+        }
+    }
+
+    @Override
+    public int simulateAndCollapse(Circuit circuit) {
+        return simulateFullState(circuit).collapse();
+    }
+
+    @Override
+    public String describeStatistics() {
+        return String.format("Sparse state: %d non-zero amplitudes at peak, dense from operation %d", peakNonZeroCount(), denseFromOperation());
+    }
+
+    private int applyOperation(List<Operation> operations, int index) {
+        Operation operation = operations.get(index);
+        switch (operation.operationType()) {
+            case Gate:
+                applyGate(((Gate) operation).targetQubit()[0], -1, dataProvider.getOperationData(operation));
+                return 1;
+            case FusedGate:
+                applyGate(((FusedGate) operation).targetQubit()[0], -1, dataProvider.getOperationData(operation));
+                return 1;
+            case FusedBlock:
+                applyBlock(((FusedBlock) operation).targetQubits(), dataProvider.getOperationData(operation));
+                return 1;
+            case ControlGate:
+                ControlGate controlGate = (ControlGate) operation;
+                if (FsvDataProvider.isSwapSequence(operations, index)) {
+                    // CNOT(a,b), CNOT(b,a), CNOT(a,b) only moves the amplitudes
+                    applySwap(controlGate.controlQubit()[0], controlGate.targetQubit()[0]);
+                    return 3;
+                }
+                applyGate(controlGate.targetQubit()[0], controlGate.controlQubit()[0], dataProvider.getOperationData(operation));
+                return 1;
+            case Function:
+                applyStandardFunction((Function) operation);
+                return 1;
+            case CustomFunction:
+                applyBlock(((Function) operation).targetQubits(), dataProvider.getOperationData(operation));
+                return 1;
+            default:
+                throw new UnsupportedOperationException("Operation type '" + operation.operationType() + "' is not supported in a full state vector simulator.");
+        }
+    }
+
+    private void applyStandardFunction(Function standardFunction) {
+        switch (standardFunction.type()) {
+            case Swap:
+                // Swap function exchanges the first and the last qubit of its range
+                int[] qubits = standardFunction.targetQubits();
+                if (qubits.length > 1)
+                    applySwap(qubits[0], qubits[qubits.length - 1]);
+                break;
+            default:
+                throw new UnsupportedOperationException("Function type '" + standardFunction.type() + "' is not supported in a full state vector simulator.");
+        }
+    }
+
+    /**
+     * Applies the single qubit gate (controlled if the control qubit is not -1) to
+     * the stored amplitudes. Every amplitude pair is updated once, from its lower
+     * stored amplitude.
+     */
+    private void applyGate(int targetQubit, int controlQubit, ComplexTensor gateData) {
+        float[] gateReal = gateData.getRawRealData();
+        float[] gateImag = gateData.getRawImagData();
+        long targetBit = 1L << targetQubit;
+        long controlBit = controlQubit < 0 ? 0 : 1L << controlQubit;
+        if (FsvDataProvider.isPhaseGate(gateData)) {
+            applyPhase(targetBit | controlBit, gateReal[3], gateImag[3]);
+            return;
+        }
+
+        nextStateVector.clear();
+        for (int slot = 0; slot < stateVector.capacity(); slot++) {
+            long index = stateVector.indexAt(slot);
+            if (index == SparseComplexVector.EMPTY)
+                continue;
+            if ((index & controlBit) != controlBit) {
+                nextStateVector.put(index, stateVector.realAt(slot), stateVector.imagAt(slot));
+                continue;
+            }
+            long index0 = index & ~targetBit;
+            long index1 = index | targetBit;
+            int slot0 = index == index0 ? slot : stateVector.slotOf(index0);
+            if (index == index1 && slot0 >= 0)
+                continue;
+            int slot1 = index == index1 ? slot : stateVector.slotOf(index1);
+
+            float real0 = slot0 >= 0 ? stateVector.realAt(slot0) : 0;
+            float imag0 = slot0 >= 0 ? stateVector.imagAt(slot0) : 0;
+            float real1 = slot1 >= 0 ? stateVector.realAt(slot1) : 0;
+            float imag1 = slot1 >= 0 ? stateVector.imagAt(slot1) : 0;
+            putNonZero(index0, gateReal[0] * real0 - gateImag[0] * imag0 + gateReal[1] * real1 - gateImag[1] * imag1,
+                    gateReal[0] * imag0 + gateImag[0] * real0 + gateReal[1] * imag1 + gateImag[1] * real1);
+            putNonZero(index1, gateReal[2] * real0 - gateImag[2] * imag0 + gateReal[3] * real1 - gateImag[3] * imag1,
+                    gateReal[2] * imag0 + gateImag[2] * real0 + gateReal[3] * imag1 + gateImag[3] * real1);
+        }
+        swapStateVectors();
+    }
+
+    /**
+     * Multiplies the stored amplitudes with all bits of the mask set by the phase
+     * (in place).
+     */
+    private void applyPhase(long mask, float phaseReal, float phaseImag) {
+        SparseComplexVector phased = stateVector;
+        for (int slot = 0; slot < phased.capacity(); slot++) {
+            long index = phased.indexAt(slot);
+            if (index == SparseComplexVector.EMPTY || (index & mask) != mask)
+                continue;
+            float real = phased.realAt(slot);
+            float imag = phased.imagAt(slot);
+            phased.put(index, real * phaseReal - imag * phaseImag, real * phaseImag + imag * phaseReal);
+        }
+    }
+
+    /**
+     * Applies the dense block (bit j of the matrix index corresponds to the j-th
+     * qubit) to the stored amplitudes. Every amplitude group is updated once, from
+     * its lowest stored amplitude.
+     */
+    private void applyBlock(int[] qubits, ComplexTensor blockData) {
+        float[] blockReal = blockData.getRawRealData();
+        float[] blockImag = blockData.getRawImagData();
+        int dimension = 1 << qubits.length;
+        long[] offsets = new long[dimension];
+        long mask = 0;
+        for (int j = 0; j < qubits.length; j++)
+            mask |= 1L << qubits[j];
+        for (int m = 0; m < dimension; m++)
+            for (int j = 0; j < qubits.length; j++)
+                if ((m & (1 << j)) != 0)
+                    offsets[m] |= 1L << qubits[j];
+
+        int[] slots = new int[dimension];
+        nextStateVector.clear();
+        for (int slot = 0; slot < stateVector.capacity(); slot++) {
+            long index = stateVector.indexAt(slot);
+            if (index == SparseComplexVector.EMPTY)
+                continue;
+            long base = index & ~mask;
+            int first = -1;
+            for (int m = 0; m < dimension; m++) {
+                slots[m] = stateVector.slotOf(base | offsets[m]);
+                if (first < 0 && slots[m] >= 0)
+                    first = m;
+            }
+            if ((base | offsets[first]) != index)
+                continue;
+
+            for (int r = 0; r < dimension; r++) {
+                float real = 0;
+                float imag = 0;
+                for (int c = 0; c < dimension; c++) {
+                    if (slots[c] < 0)
+                        continue;
+                    float valueReal = stateVector.realAt(slots[c]);
+                    float valueImag = stateVector.imagAt(slots[c]);
+                    real += blockReal[r * dimension + c] * valueReal - blockImag[r * dimension + c] * valueImag;
+                    imag += blockReal[r * dimension + c] * valueImag + blockImag[r * dimension + c] * valueReal;
+                }
+                putNonZero(base | offsets[r], real, imag);
+            }
+        }
+        swapStateVectors();
+    }
+
+    /**
+     * Swaps the qubits by moving every stored amplitude to its new index.
+     */
+    private void applySwap(int qubitA, int qubitB) {
+        long bitA = 1L << qubitA;
+        long bitB = 1L << qubitB;
+        nextStateVector.clear();
+        for (int slot = 0; slot < stateVector.capacity(); slot++) {
+            long index = stateVector.indexAt(slot);
+            if (index == SparseComplexVector.EMPTY)
+                continue;
+            boolean differ = ((index & bitA) != 0) != ((index & bitB) != 0);
+            nextStateVector.put(differ ? index ^ bitA ^ bitB : index, stateVector.realAt(slot), stateVector.imagAt(slot));
+        }
+        swapStateVectors();
+    }
+
+    private void putNonZero(long index, float real, float imag) {
+        if (real * real + imag * imag > ZERO_TOLERANCE)
+            nextStateVector.put(index, real, imag);
+    }
+
+    private void swapStateVectors() {
+        SparseComplexVector swapped = stateVector;
+        stateVector = nextStateVector;
+        nextStateVector = swapped;
+    }
+}
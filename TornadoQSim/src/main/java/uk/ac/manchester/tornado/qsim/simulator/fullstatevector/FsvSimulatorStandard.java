@@ -22,16 +22,28 @@
 package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
 
 import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.DoubleState;
 import uk.ac.manchester.tornado.qsim.circuit.State;
-import uk.ac.manchester.tornado.qsim.circuit.Step;
+import uk.ac.manchester.tornado.qsim.circuit.operation.ConditionalOperation;
 import uk.ac.manchester.tornado.qsim.circuit.operation.ControlGate;
 import uk.ac.manchester.tornado.qsim.circuit.operation.Function;
+import uk.ac.manchester.tornado.qsim.circuit.operation.FusedBlock;
+import uk.ac.manchester.tornado.qsim.circuit.operation.FusedGate;
 import uk.ac.manchester.tornado.qsim.circuit.operation.Gate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Instruction;
 import uk.ac.manchester.tornado.qsim.circuit.operation.Operation;
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.InstructionType;
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.OperationType;
 import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.math.DoubleComplexTensor;
+import uk.ac.manchester.tornado.qsim.simulator.Precision;
 import uk.ac.manchester.tornado.qsim.simulator.Simulator;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 /**
  * Represents a quantum circuit simulator that applies each quantum gate by
@@ -39,16 +51,154 @@ import java.util.List;
  * accelerated on any heterogeneous hardware. This simulation process follows
  * the full state vector / wavefunction simulation model of quantum computation.
  * 
+ * The simulation runs either in single precision (State) or in double
+ * precision (DoubleState), in which the gate coefficients, the fused gate
+ * matrices and all amplitude updates are computed in double.
+ * 
+ * Consecutive operations acting on qubits below the block qubit are applied
+ * block by block with cache blocking (see FsvCacheBlocking), so such a group
+ * costs a single pass over the full state vector. Optionally, the qubits of
+ * upcoming operations on high qubits are remapped into the block by a single
+ * permutation pass (see FsvQubitLayout), and the identity layout is restored at
+ * the end of the simulation.
+ * 
+ * Dynamic circuits are supported: a measure instruction computes the
+ * probability of the outcome 1 with a reduction over the state vector, samples
+ * the outcome, then collapses and renormalizes the state in a single pass (reset
+ * additionally moves the amplitudes of the outcome 1 to the state 0). The
+ * outcome is stored in the classical bit of the qubit, which conditions the
+ * following conditional operations, so each run of the circuit follows one
+ * branch without re-simulating the circuit from the beginning.
+ * 
  * @author Ales Kubicek
  */
 public class FsvSimulatorStandard implements Simulator {
     private final FsvDataProvider dataProvider;
+    private final FsvGateFusion gateFusion;
+    private final FsvCacheBlocking cacheBlocking;
+    private final Precision precision;
+    private final boolean remapQubits;
+    private final Random random;
+    private int[] classicalBits;
+    private List<Integer> measurements;
+    private FsvQubitLayout layout;
+    private int passesSaved;
+    private int passes;
+    private int remapPasses;
+    private int gateCount;
+    private List<BlockTask> groupTasks;
 
     /**
-     * Constructs a full state vector simulator.
+     * Constructs a full state vector simulator with the default options.
      */
     public FsvSimulatorStandard() {
+        this(new FsvOptions());
+    }
+
+    /**
+     * Constructs a full state vector simulator.
+     * 
+     * @param options
+     *            gate fusion, precision, cache blocking and qubit remapping options
+     *            (see FsvOptions).
+     */
+    public FsvSimulatorStandard(FsvOptions options) {
+        if (options == null)
+            throw new IllegalArgumentException("Invalid options supplied (NULL).");
+        int maxFusedQubits = options.maxFusedQubits();
+        Precision precision = options.precision();
+        int blockQubits = options.blockQubits();
+        boolean remapQubits = options.remapQubits();
+        if (remapQubits && blockQubits == 0)
+            throw new IllegalArgumentException("Qubit remapping requires cache blocking.");
         dataProvider = new FsvDataProvider();
+        gateFusion = maxFusedQubits > 0 ? new FsvGateFusion(dataProvider, maxFusedQubits, precision == Precision.DOUBLE) : null;
+        if (blockQubits == FsvOptions.AUTO_BLOCK_QUBITS)
+            blockQubits = FsvCacheBlocking.detectBlockQubits(precision == Precision.DOUBLE ? 2 * Double.BYTES : 2 * Float.BYTES);
+        cacheBlocking = blockQubits > 0 ? new FsvCacheBlocking(blockQubits) : null;
+        this.precision = precision;
+        this.remapQubits = remapQubits;
+        random = new Random();
+        classicalBits = new int[0];
+        measurements = new ArrayList<>();
+    }
+
+    /**
+     * Sets the seed of the random generator of the measurement outcomes.
+     * 
+     * @param seed
+     *            random generator seed.
+     */
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    /**
+     * Gets the outcomes of the measure instructions of the circuit (in the order
+     * of application, step by step) in the last simulation.
+     * 
+     * @return measurement outcomes (0 or 1).
+     */
+    public int[] measurements() {
+        return measurements.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Gets the number of qubits of a cache block.
+     * 
+     * @return number of block qubits (0 if cache blocking is switched off).
+     */
+    public int blockQubits() {
+        return cacheBlocking != null ? cacheBlocking.blockQubits() : 0;
+    }
+
+    /**
+     * Gets the number of passes over the full state vector in the last simulation
+     * (a group of operations applied with cache blocking counts as a single pass).
+     * 
+     * @return number of passes.
+     */
+    public int passes() {
+        return passes;
+    }
+
+    /**
+     * Gets the number of permutation passes performed by qubit remapping in the
+     * last simulation (included in the number of passes).
+     * 
+     * @return number of permutation passes.
+     */
+    public int remapPasses() {
+        return remapPasses;
+    }
+
+    /**
+     * Gets the number of full state vector passes per circuit operation in the
+     * last simulation (1 without gate fusion and cache blocking).
+     * 
+     * @return number of passes per operation.
+     */
+    public double passesPerGate() {
+        return gateCount == 0 ? 0 : (double) passes / gateCount;
+    }
+
+    /**
+     * Gets the precision of the simulated state.
+     * 
+     * @return simulation precision.
+     */
+    public Precision precision() {
+        return precision;
+    }
+
+    /**
+     * Gets the number of full state vector passes saved by gate fusion in the last
+     * simulation (0 if gate fusion is switched off).
+     * 
+     * @return number of saved passes.
+     */
+    public int passesSaved() {
+        return passesSaved;
     }
 
     @Override
@@ -56,31 +206,8 @@ public class FsvSimulatorStandard implements Simulator {
         if (circuit == null)
             throw new IllegalArgumentException("Invalid circuit supplied (NULL).");
 
-        State resultState = new State(circuit.qubitCount());
-        List<Step> steps = circuit.getSteps();
-
-        for (Step step : steps) {
-            List<Operation> operations = dataProvider.getStepOperations(circuit.qubitCount(), step);
-            for (Operation operation : operations) {
-                switch (operation.operationType()) {
-                    case Gate:
-                        applyGate(resultState, (Gate) operation);
-                        break;
-                    case ControlGate:
-                        applyControlGate(resultState, (ControlGate) operation);
-                        break;
-                    case Function:
-                        applyStandardFunction(resultState, (Function) operation);
-                        break;
-                    case CustomFunction:
-                        applyCustomFunction(resultState, (Function) operation);
-                        break;
-                    default:
-                        throw new UnsupportedOperationException("Operation type '" + operation.operationType() + "' is not supported in a full state vector simulator.");
-                }
-            }
-        }
-
+        State resultState = precision == Precision.DOUBLE ? new DoubleState(circuit.qubitCount()) : new State(circuit.qubitCount());
+        applyOperations(resultState, circuit.qubitCount(), dataProvider.getCircuitOperations(circuit));
         return resultState;
     }
 
@@ -89,28 +216,439 @@ public class FsvSimulatorStandard implements Simulator {
         return simulateFullState(circuit).collapse();
     }
 
-    private void applyGate(State state, Gate gate) {
-        ComplexTensor gateData = dataProvider.getOperationData(gate);
-        float[] gateReal = new float[] { gateData.getElement(0, 0).real(), gateData.getElement(0, 1).real(), gateData.getElement(1, 0).real(), gateData.getElement(1, 1).real(), };
-        float[] gateImag = new float[] { gateData.getElement(0, 0).imag(), gateData.getElement(0, 1).imag(), gateData.getElement(1, 0).imag(), gateData.getElement(1, 1).imag(), };
-        FsvOperand.applyGate(gate.targetQubit(), state.getStateVector().getRawRealData(), state.getStateVector().getRawImagData(), state.size() / 2, gateReal, gateImag);
+    /**
+     * Applies the supplied operations to the state (eg. the remaining operations
+     * of a circuit, whose beginning was simulated by another simulator).
+     * 
+     * @param resultState
+     *            state to be updated (of the precision of this simulator).
+     * @param noQubits
+     *            number of qubits of the state.
+     * @param operations
+     *            list of operations (in the order of application).
+     */
+    protected void applyOperations(State resultState, int noQubits, List<Operation> operations) {
+        gateCount = operations.size();
+        passesSaved = 0;
+        if (gateFusion != null) {
+            operations = gateFusion.fuse(noQubits, operations);
+            passesSaved = gateFusion.passesSaved();
+        }
+
+        passes = 0;
+        remapPasses = 0;
+        resetClassicalRegister(noQubits);
+        layout = remapQubits ? new FsvQubitLayout(noQubits, cacheBlocking.blockQubits()) : null;
+        int i = 0;
+        while (i < operations.size()) {
+            int groupEnd = cacheBlocking != null ? cacheBlocking.groupEnd(operations, i, layout) : i;
+            if (groupEnd == i && layout != null && operations.get(i).operationType() != OperationType.Instruction) {
+                // Look ahead over the upcoming operations for a beneficial remapping
+                int[][] pairs = layout.plan(operations, i);
+                if (pairs != null) {
+                    applyQubitSwaps(resultState, pairs);
+                    groupEnd = cacheBlocking.groupEnd(operations, i, layout);
+                }
+            }
+            if (groupEnd - i > 1) {
+                applyGroup(resultState, operations, i, groupEnd);
+                i = groupEnd;
+            } else {
+                i += applyOperation(resultState, operations, i);
+            }
+        }
+
+        // Results are indexed by the logical qubits
+        if (layout != null)
+            for (int[][] pairs = layout.restorePlan(); pairs != null; pairs = layout.restorePlan())
+                applyQubitSwaps(resultState, pairs);
+        layout = null;
+    }
+
+    /**
+     * Processes the amplitude pairs (or groups) [0, rows) of the full state vector
+     * using the supplied task. The standard simulator processes the whole range on
+     * the calling thread.
+     * 
+     * @param rows
+     *            number of amplitude pairs (or groups) in the full state vector.
+     * @param task
+     *            task that processes a range of amplitude pairs (or groups).
+     */
+    protected void processRows(int rows, RowRangeTask task) {
+        task.process(0, rows);
+    }
+
+    /**
+     * Sums the results of the supplied reduction over the amplitude pairs [0,
+     * rows) of the full state vector. The standard simulator reduces the whole
+     * range on the calling thread.
+     * 
+     * @param rows
+     *            number of amplitude pairs in the full state vector.
+     * @param task
+     *            reduction of a range of amplitude pairs.
+     * @return sum of the reduction over all amplitude pairs.
+     */
+    protected double reduceRows(int rows, RowRangeReduction task) {
+        return task.reduce(0, rows);
+    }
+
+    /**
+     * Clears the classical bits and the measurement outcomes before a simulation.
+     * 
+     * @param noQubits
+     *            number of qubits of the simulated circuit.
+     */
+    protected void resetClassicalRegister(int noQubits) {
+        classicalBits = new int[noQubits];
+        measurements = new ArrayList<>();
+    }
+
+    /**
+     * Checks whether the condition of the supplied operation holds for the
+     * current classical bits.
+     * 
+     * @param conditionalOperation
+     *            classically conditioned operation.
+     * @return true if the conditioned operation should be applied.
+     */
+    protected boolean isConditionSatisfied(ConditionalOperation conditionalOperation) {
+        return conditionalOperation.isSatisfied(classicalBits);
+    }
+
+    /**
+     * Applies the supplied measure or reset instruction to the state: the
+     * probability of the outcome 1 is reduced over the state vector, the sampled
+     * outcome collapses and renormalizes the state in a single pass.
+     * 
+     * @param state
+     *            state to be updated (of the precision of this simulator).
+     * @param instruction
+     *            measure or reset instruction.
+     */
+    protected void applyInstruction(State state, Instruction instruction) {
+        int targetQubit = physical(instruction.targetQubit());
+        boolean reset = instruction.type() == InstructionType.Reset;
+        int rows = state.size() / 2;
+        if (state instanceof DoubleState) {
+            double[] real = ((DoubleState) state).getDoubleStateVector().getRawRealData();
+            double[] imag = ((DoubleState) state).getDoubleStateVector().getRawImagData();
+            double probability = reduceRows(rows, (fromRow, toRow) -> FsvRangeOperand.measureProbability(targetQubit, real, imag, fromRow, toRow));
+            int outcome = sampleOutcome(instruction, probability);
+            double scale = 1 / Math.sqrt(outcome == 1 ? probability : 1 - probability);
+            processRows(rows, (fromRow, toRow) -> FsvRangeOperand.applyCollapse(targetQubit, outcome, reset, scale, real, imag, fromRow, toRow));
+        } else {
+            float[] real = state.getStateVector().getRawRealData();
+            float[] imag = state.getStateVector().getRawImagData();
+            double probability = reduceRows(rows, (fromRow, toRow) -> FsvRangeOperand.measureProbability(targetQubit, real, imag, fromRow, toRow));
+            int outcome = sampleOutcome(instruction, probability);
+            float scale = (float) (1 / Math.sqrt(outcome == 1 ? probability : 1 - probability));
+            processRows(rows, (fromRow, toRow) -> FsvRangeOperand.applyCollapse(targetQubit, outcome, reset, scale, real, imag, fromRow, toRow));
+        }
+        passes += 2;
+    }
+
+    private int sampleOutcome(Instruction instruction, double probability) {
+        // Rounding may push the probability slightly outside of [0, 1]
+        probability = Math.min(1, Math.max(0, probability));
+        int outcome = random.nextDouble() < probability ? 1 : 0;
+        if (instruction.type() == InstructionType.Measure) {
+            classicalBits[instruction.targetQubit()] = outcome;
+            measurements.add(outcome);
+        }
+        return outcome;
+    }
+
+    /**
+     * Processes the cache blocks [0, blocks) of the full state vector using the
+     * supplied task. The standard simulator processes all blocks on the calling
+     * thread.
+     * 
+     * @param blocks
+     *            number of blocks in the full state vector.
+     * @param task
+     *            task that processes a range of blocks.
+     */
+    protected void processBlocks(int blocks, RowRangeTask task) {
+        task.process(0, blocks);
+    }
+
+    private int applyOperation(State state, List<Operation> operations, int index) {
+        Operation operation = operations.get(index);
+        switch (operation.operationType()) {
+            case Gate:
+                applyGate(state, physical(((Gate) operation).targetQubit()[0]), operation);
+                return 1;
+            case FusedGate:
+                applyGate(state, physical(((FusedGate) operation).targetQubit()[0]), operation);
+                return 1;
+            case FusedBlock:
+                applyBlock(state, physical(((FusedBlock) operation).targetQubits()), operation);
+                return 1;
+            case ControlGate:
+                if (FsvDataProvider.isSwapSequence(operations, index)) {
+                    // CNOT(a,b), CNOT(b,a), CNOT(a,b) applied as a single swap pass
+                    applySwap(state, physical(((ControlGate) operation).controlQubit()[0]), physical(((ControlGate) operation).targetQubit()[0]));
+                    return 3;
+                }
+                applyControlGate(state, (ControlGate) operation);
+                return 1;
+            case Function:
+                applyStandardFunction(state, (Function) operation);
+                return 1;
+            case CustomFunction:
+                applyCustomFunction(state, (Function) operation);
+                return 1;
+            case Instruction:
+                applyInstruction(state, (Instruction) operation);
+                return 1;
+            case Conditional:
+                // Groups end before instructions, so the classical bits are final here
+                ConditionalOperation conditionalOperation = (ConditionalOperation) operation;
+                if (isConditionSatisfied(conditionalOperation))
+                    applyOperation(state, Collections.singletonList(conditionalOperation.operation()), 0);
+                return 1;
+            default:
+                throw new UnsupportedOperationException("Operation type '" + operation.operationType() + "' is not supported in a full state vector simulator.");
+        }
+    }
+
+    private int physical(int qubit) {
+        return layout != null ? layout.physical(qubit) : qubit;
+    }
+
+    private int[] physical(int[] qubits) {
+        return layout != null ? layout.physical(qubits) : qubits;
+    }
+
+    /**
+     * Performs the permutation passes (of at most MAX_SWAP_PAIRS pairs each), that
+     * swap the supplied pairs of physical qubits, and updates the qubit layout.
+     */
+    private void applyQubitSwaps(State state, int[][] pairs) {
+        for (int from = 0; from < pairs[0].length; from += FsvRangeOperand.MAX_SWAP_PAIRS) {
+            int to = Math.min(pairs[0].length, from + FsvRangeOperand.MAX_SWAP_PAIRS);
+            int[] qubitsA = Arrays.copyOfRange(pairs[0], from, to);
+            int[] qubitsB = Arrays.copyOfRange(pairs[1], from, to);
+            int groups = state.size() >> (2 * qubitsA.length);
+            if (state instanceof DoubleState) {
+                double[] real = ((DoubleState) state).getDoubleStateVector().getRawRealData();
+                double[] imag = ((DoubleState) state).getDoubleStateVector().getRawImagData();
+                submit(groups, (fromRow, toRow) -> FsvRangeOperand.applyQubitSwaps(qubitsA, qubitsB, real, imag, fromRow, toRow));
+            } else {
+                float[] real = state.getStateVector().getRawRealData();
+                float[] imag = state.getStateVector().getRawImagData();
+                submit(groups, (fromRow, toRow) -> FsvRangeOperand.applyQubitSwaps(qubitsA, qubitsB, real, imag, fromRow, toRow));
+            }
+            remapPasses++;
+        }
+        layout.swap(pairs);
+    }
+
+    /**
+     * Applies the operations [fromIndex, toIndex), which only act on qubits below
+     * the block qubit, block by block in a single pass.
+     */
+    private void applyGroup(State state, List<Operation> operations, int fromIndex, int toIndex) {
+        groupTasks = new ArrayList<>();
+        for (int i = fromIndex; i < toIndex;)
+            i += applyOperation(state, operations, i);
+        List<BlockTask> tasks = groupTasks;
+        groupTasks = null;
+
+        int blocks = cacheBlocking.blockCount(state.size());
+        processBlocks(blocks, (fromBlock, toBlock) -> {
+            for (int block = fromBlock; block < toBlock; block++) {
+                for (BlockTask task : tasks) {
+                    // Rows of a block local operation are evenly split among the blocks
+                    int blockRows = task.rows / blocks;
+                    task.task.process(block * blockRows, (block + 1) * blockRows);
+                }
+            }
+        });
+        passes++;
+    }
+
+    /**
+     * Submits a pass over the amplitude pairs (or groups) [0, rows). The pass is
+     * processed immediately or collected into the group applied with cache
+     * blocking.
+     */
+    private void submit(int rows, RowRangeTask task) {
+        if (groupTasks != null) {
+            groupTasks.add(new BlockTask(rows, task));
+            return;
+        }
+        processRows(rows, task);
+        passes++;
+    }
+
+    private void applyGate(State state, int targetQubit, Operation operation) {
+        ComplexTensor gateData = dataProvider.getOperationData(operation);
+        if (state instanceof DoubleState) {
+            applyGate((DoubleState) state, targetQubit, gateData, dataProvider.getDoubleOperationData(operation));
+            return;
+        }
+        // Flattened 2x2 matrix holds the components in the order A, B, C, D
+        float[] gateReal = gateData.getRawRealData();
+        float[] gateImag = gateData.getRawImagData();
+        float[] real = state.getStateVector().getRawRealData();
+        float[] imag = state.getStateVector().getRawImagData();
+        if (FsvDataProvider.isPhaseGate(gateData))
+            submit(state.size() / 2, (fromRow, toRow) -> FsvRangeOperand.applyPhase(targetQubit, real, imag, fromRow, toRow, gateReal, gateImag));
+        else if (FsvDataProvider.isPauliX(gateData) || FsvDataProvider.isPauliY(gateData)) {
+            boolean flipPhase = FsvDataProvider.isPauliY(gateData);
+            submit(state.size() / 2, (fromRow, toRow) -> FsvRangeOperand.applyFlip(targetQubit, flipPhase, real, imag, fromRow, toRow));
+        } else
+            submit(state.size() / 2, (fromRow, toRow) -> FsvRangeOperand.applyGate(targetQubit, real, imag, fromRow, toRow, gateReal, gateImag));
     }
 
     private void applyControlGate(State state, ControlGate controlGate) {
         ComplexTensor gateData = dataProvider.getOperationData(controlGate);
-        float[] gateReal = new float[] { gateData.getElement(0, 0).real(), gateData.getElement(0, 1).real(), gateData.getElement(1, 0).real(), gateData.getElement(1, 1).real(), };
-        float[] gateImag = new float[] { gateData.getElement(0, 0).imag(), gateData.getElement(0, 1).imag(), gateData.getElement(1, 0).imag(), gateData.getElement(1, 1).imag(), };
-        FsvOperand.applyControlGate(controlGate.targetQubit(), controlGate.controlQubit(), state.getStateVector().getRawRealData(), state.getStateVector().getRawImagData(), state.size() / 2, gateReal,
-                gateImag);
+        if (state instanceof DoubleState) {
+            applyControlGate((DoubleState) state, controlGate, gateData, dataProvider.getDoubleOperationData(controlGate));
+            return;
+        }
+        float[] gateReal = gateData.getRawRealData();
+        float[] gateImag = gateData.getRawImagData();
+        int targetQubit = physical(controlGate.targetQubit()[0]);
+        int controlQubit = physical(controlGate.controlQubit()[0]);
+        float[] real = state.getStateVector().getRawRealData();
+        float[] imag = state.getStateVector().getRawImagData();
+        if (FsvDataProvider.isPhaseGate(gateData))
+            submit(state.size() / 4, (fromRow, toRow) -> FsvRangeOperand.applyControlPhase(targetQubit, controlQubit, real, imag, fromRow, toRow, gateReal, gateImag));
+        else if (FsvDataProvider.isPauliX(gateData) || FsvDataProvider.isPauliY(gateData)) {
+            boolean flipPhase = FsvDataProvider.isPauliY(gateData);
+            submit(state.size() / 4, (fromRow, toRow) -> FsvRangeOperand.applyControlFlip(targetQubit, controlQubit, flipPhase, real, imag, fromRow, toRow));
+        } else
+            submit(state.size() / 4, (fromRow, toRow) -> FsvRangeOperand.applyControlGate(targetQubit, controlQubit, real, imag, fromRow, toRow, gateReal, gateImag));
+    }
+
+    private void applySwap(State state, int qubitA, int qubitB) {
+        if (state instanceof DoubleState) {
+            double[] real = ((DoubleState) state).getDoubleStateVector().getRawRealData();
+            double[] imag = ((DoubleState) state).getDoubleStateVector().getRawImagData();
+            submit(state.size() / 4, (fromRow, toRow) -> FsvRangeOperand.applySwap(qubitA, qubitB, real, imag, fromRow, toRow));
+            return;
+        }
+        float[] real = state.getStateVector().getRawRealData();
+        float[] imag = state.getStateVector().getRawImagData();
+        submit(state.size() / 4, (fromRow, toRow) -> FsvRangeOperand.applySwap(qubitA, qubitB, real, imag, fromRow, toRow));
+    }
+
+    private void applyBlock(State state, int[] qubits, Operation operation) {
+        // Remapped qubits are sorted, the matrix is permuted accordingly
+        int[] blockQubits = FsvQubitLayout.sortedQubits(qubits);
+        int[] indexMap = Arrays.equals(blockQubits, qubits) ? null : FsvQubitLayout.blockIndexMap(qubits);
+        if (state instanceof DoubleState) {
+            DoubleComplexTensor blockData = dataProvider.getDoubleOperationData(operation);
+            double[] blockReal = indexMap != null ? FsvQubitLayout.permuteBlock(blockData.getRawRealData(), indexMap) : blockData.getRawRealData();
+            double[] blockImag = indexMap != null ? FsvQubitLayout.permuteBlock(blockData.getRawImagData(), indexMap) : blockData.getRawImagData();
+            double[] real = ((DoubleState) state).getDoubleStateVector().getRawRealData();
+            double[] imag = ((DoubleState) state).getDoubleStateVector().getRawImagData();
+            submit(state.size() >> blockQubits.length, (fromRow, toRow) -> FsvRangeOperand.applyBlock(blockQubits, real, imag, fromRow, toRow, blockReal, blockImag));
+            return;
+        }
+        ComplexTensor blockData = dataProvider.getOperationData(operation);
+        float[] blockReal = indexMap != null ? FsvQubitLayout.permuteBlock(blockData.getRawRealData(), indexMap) : blockData.getRawRealData();
+        float[] blockImag = indexMap != null ? FsvQubitLayout.permuteBlock(blockData.getRawImagData(), indexMap) : blockData.getRawImagData();
+        float[] real = state.getStateVector().getRawRealData();
+        float[] imag = state.getStateVector().getRawImagData();
+        submit(state.size() >> blockQubits.length, (fromRow, toRow) -> FsvRangeOperand.applyBlock(blockQubits, real, imag, fromRow, toRow, blockReal, blockImag));
     }
 
     private void applyStandardFunction(State state, Function standardFunction) {
-        // TODO: implement data generation for standard functions
-        throw new UnsupportedOperationException("Standard functions are not yet supported.");
+        switch (standardFunction.type()) {
+            case Swap:
+                // Swap function exchanges the first and the last qubit of its range
+                int[] qubits = standardFunction.targetQubits();
+                if (qubits.length > 1)
+                    applySwap(state, physical(qubits[0]), physical(qubits[qubits.length - 1]));
+                break;
+            default:
+                throw new UnsupportedOperationException("Function type '" + standardFunction.type() + "' is not supported in a full state vector simulator.");
+        }
     }
 
     private void applyCustomFunction(State state, Function customFunction) {
-        // TODO: implement data generation for custom functions
-        throw new UnsupportedOperationException("Custom functions are not yet supported.");
+        // Contiguous qubit range is applied as a dense block over the range
+        applyBlock(state, physical(customFunction.targetQubits()), customFunction);
+    }
+
+    private void applyGate(DoubleState state, int targetQubit, ComplexTensor gateData, DoubleComplexTensor doubleGateData) {
+        // Kernel selection is based on the single precision data (exact for X, Y, Z, S)
+        double[] gateReal = doubleGateData.getRawRealData();
+        double[] gateImag = doubleGateData.getRawImagData();
+        double[] real = state.getDoubleStateVector().getRawRealData();
+        double[] imag = state.getDoubleStateVector().getRawImagData();
+        if (FsvDataProvider.isPhaseGate(gateData))
+            submit(state.size() / 2, (fromRow, toRow) -> FsvRangeOperand.applyPhase(targetQubit, real, imag, fromRow, toRow, gateReal, gateImag));
+        else if (FsvDataProvider.isPauliX(gateData) || FsvDataProvider.isPauliY(gateData)) {
+            boolean flipPhase = FsvDataProvider.isPauliY(gateData);
+            submit(state.size() / 2, (fromRow, toRow) -> FsvRangeOperand.applyFlip(targetQubit, flipPhase, real, imag, fromRow, toRow));
+        } else
+            submit(state.size() / 2, (fromRow, toRow) -> FsvRangeOperand.applyGate(targetQubit, real, imag, fromRow, toRow, gateReal, gateImag));
+    }
+
+    private void applyControlGate(DoubleState state, ControlGate controlGate, ComplexTensor gateData, DoubleComplexTensor doubleGateData) {
+        double[] gateReal = doubleGateData.getRawRealData();
+        double[] gateImag = doubleGateData.getRawImagData();
+        int targetQubit = physical(controlGate.targetQubit()[0]);
+        int controlQubit = physical(controlGate.controlQubit()[0]);
+        double[] real = state.getDoubleStateVector().getRawRealData();
+        double[] imag = state.getDoubleStateVector().getRawImagData();
+        if (FsvDataProvider.isPhaseGate(gateData))
+            submit(state.size() / 4, (fromRow, toRow) -> FsvRangeOperand.applyControlPhase(targetQubit, controlQubit, real, imag, fromRow, toRow, gateReal, gateImag));
+        else if (FsvDataProvider.isPauliX(gateData) || FsvDataProvider.isPauliY(gateData)) {
+            boolean flipPhase = FsvDataProvider.isPauliY(gateData);
+            submit(state.size() / 4, (fromRow, toRow) -> FsvRangeOperand.applyControlFlip(targetQubit, controlQubit, flipPhase, real, imag, fromRow, toRow));
+        } else
+            submit(state.size() / 4, (fromRow, toRow) -> FsvRangeOperand.applyControlGate(targetQubit, controlQubit, real, imag, fromRow, toRow, gateReal, gateImag));
+    }
+
+    private static class BlockTask {
+        private final int rows;
+        private final RowRangeTask task;
+
+        private BlockTask(int rows, RowRangeTask task) {
+            this.rows = rows;
+            this.task = task;
+        }
+    }
+
+    /**
+     * Represents a task that processes a range of amplitude pairs of the full
+     * state vector.
+     */
+    @FunctionalInterface
+    protected interface RowRangeTask {
+        /**
+         * Processes the amplitude pairs [fromRow, toRow).
+         * 
+         * @param fromRow
+         *            first amplitude pair to be processed (inclusive).
+         * @param toRow
+         *            last amplitude pair to be processed (exclusive).
+         */
+        void process(int fromRow, int toRow);
+    }
+
+    /**
+     * Represents a reduction over a range of amplitude pairs of the full state
+     * vector, whose results of disjoint ranges are summed up.
+     */
+    @FunctionalInterface
+    protected interface RowRangeReduction {
+        /**
+         * Reduces the amplitude pairs [fromRow, toRow).
+         * 
+         * @param fromRow
+         *            first amplitude pair to be processed (inclusive).
+         * @param toRow
+         *            last amplitude pair to be processed (exclusive).
+         * @return partial result of the range.
+         */
+        double reduce(int fromRow, int toRow);
     }
 }
@@ -0,0 +1,704 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.circuit.operation.ControlGate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Function;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Gate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Operation;
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.FunctionType;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.math.DoubleComplexTensor;
+import uk.ac.manchester.tornado.qsim.simulator.Simulator;
+import uk.ac.manchester.tornado.qsim.simulator.WorkerPools;
+import uk.ac.manchester.tornado.qsim.simulator.noise.KrausChannel;
+import uk.ac.manchester.tornado.qsim.simulator.noise.NoiseModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Represents a noisy quantum circuit simulator that samples quantum
+ * trajectories (Monte-Carlo wave functions). Every trajectory evolves a pure
+ * full state vector, after every operation a single Kraus operator of each
+ * noise channel is picked at random with the probability ||K_k psi||^2 and
+ * applied to every involved qubit (renormalized). The average over the
+ * trajectories converges to the density matrix evolution, but the memory
+ * footprint is a state vector per worker thread instead of 4^n entries.
+ * 
+ * The trajectories run independently on the worker threads of a fork-join
+ * pool, each worker owns its state buffers (reused between the trajectories)
+ * and a SplittableRandom split from the seeded random of the simulator, so the
+ * results only depend on the seed and the parallelism. The trajectories are
+ * processed in rounds, after every round the results of the workers are merged
+ * into a histogram of the measured basis states (including the readout error)
+ * or into an expectation value estimate, and the sampling stops once the
+ * standard error reaches the requested target.
+ */
+public class FsvSimulatorTrajectories implements Simulator {
+    /**
+     * Maximum number of qubits of the sampled histograms (2^n counts per worker
+     * thread).
+     */
+    public static final int HISTOGRAM_MAX_QUBITS = 20;
+
+    /**
+     * Number of trajectories processed by every worker thread in a round, before
+     * the standard error is checked.
+     */
+    public static final int ROUND_TRAJECTORIES = 16;
+
+    /**
+     * Minimum number of trajectories before the sampling stops on the target
+     * standard error.
+     */
+    public static final int MIN_TRAJECTORIES = 64;
+
+    private static final double MIXED_UNITARY_TOLERANCE = 1e-9;
+
+    private final FsvDataProvider dataProvider;
+    private final NoiseModel noiseModel;
+    private final TrajectoryChannel[] channels;
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final SplittableRandom random;
+    private TrajectoryWorker[] workers;
+    private int trajectoryCount;
+    private double standardError;
+    private long noiseEvents;
+
+    /**
+     * Constructs a trajectory simulator that uses all available processors.
+     * 
+     * @param noiseModel
+     *            noise model applied during the simulation.
+     */
+    public FsvSimulatorTrajectories(NoiseModel noiseModel) {
+        this(noiseModel, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a trajectory simulator with a randomly seeded generator.
+     * 
+     * @param noiseModel
+     *            noise model applied during the simulation.
+     * @param parallelism
+     *            number of worker threads.
+     */
+    public FsvSimulatorTrajectories(NoiseModel noiseModel, int parallelism) {
+        this(noiseModel, parallelism, new SplittableRandom());
+    }
+
+    /**
+     * Constructs a trajectory simulator with a seeded generator, whose results
+     * are reproducible for the same seed and parallelism.
+     * 
+     * @param noiseModel
+     *            noise model applied during the simulation.
+     * @param parallelism
+     *            number of worker threads.
+     * @param seed
+     *            seed of the random generator.
+     */
+    public FsvSimulatorTrajectories(NoiseModel noiseModel, int parallelism, long seed) {
+        this(noiseModel, parallelism, new SplittableRandom(seed));
+    }
+
+    private FsvSimulatorTrajectories(NoiseModel noiseModel, int parallelism, SplittableRandom random) {
+        if (noiseModel == null)
+            throw new IllegalArgumentException("Invalid noise model supplied (NULL).");
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be greater than 0.");
+        dataProvider = new FsvDataProvider();
+        this.noiseModel = noiseModel;
+        this.parallelism = parallelism;
+        this.random = random;
+        pool = parallelism > 1 ? WorkerPools.forParallelism(parallelism) : null;
+        List<KrausChannel> gateChannels = noiseModel.gateChannels();
+        channels = new TrajectoryChannel[gateChannels.size()];
+        for (int i = 0; i < channels.length; i++)
+            channels[i] = new TrajectoryChannel(gateChannels.get(i));
+    }
+
+    /**
+     * Gets the noise model applied during the simulation.
+     * 
+     * @return noise model.
+     */
+    public NoiseModel noiseModel() {
+        return noiseModel;
+    }
+
+    /**
+     * Gets the number of worker threads.
+     * 
+     * @return number of worker threads.
+     */
+    public int parallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Gets the number of trajectories sampled by the last simulation.
+     * 
+     * @return number of trajectories.
+     */
+    public int trajectoryCount() {
+        return trajectoryCount;
+    }
+
+    /**
+     * Gets the standard error of the last simulation (of the expectation value,
+     * or the largest standard error of the histogram probabilities).
+     * 
+     * @return standard error of the last simulation.
+     */
+    public double standardError() {
+        return standardError;
+    }
+
+    /**
+     * Gets the number of noise events (applied Kraus operators other than the
+     * identity) of the last simulation.
+     * 
+     * @return number of noise events.
+     */
+    public long noiseEvents() {
+        return noiseEvents;
+    }
+
+    /**
+     * Samples trajectories of the supplied circuit and measures every trajectory
+     * once (including the readout error), until the largest standard error of the
+     * measured probabilities reaches the target or the maximum number of
+     * trajectories is sampled.
+     * 
+     * @param circuit
+     *            quantum circuit.
+     * @param maxTrajectories
+     *            maximum number of trajectories.
+     * @param targetError
+     *            target standard error of the probabilities (0 samples all
+     *            trajectories).
+     * @return counts of the measured basis states.
+     */
+    public long[] sampleHistogram(Circuit circuit, int maxTrajectories, double targetError) {
+        if (circuit == null)
+            throw new IllegalArgumentException("Invalid circuit supplied (NULL).");
+        if (circuit.qubitCount() > HISTOGRAM_MAX_QUBITS)
+            throw new UnsupportedOperationException("Histogram of " + circuit.qubitCount() + " qubits is not supported (maximum " + HISTOGRAM_MAX_QUBITS + " qubits).");
+        return run(circuit, maxTrajectories, targetError, null).counts;
+    }
+
+    /**
+     * Samples trajectories of the supplied circuit and estimates the expectation
+     * value of the product of the Pauli Z operators of the supplied qubits, as
+     * read out from the measured bits (including the readout error). Every
+     * trajectory contributes its exact expectation value, the sampling stops
+     * once the standard error of the mean reaches the target or the maximum
+     * number of trajectories is sampled.
+     * 
+     * @param circuit
+     *            quantum circuit.
+     * @param maxTrajectories
+     *            maximum number of trajectories.
+     * @param targetError
+     *            target standard error of the estimate (0 samples all
+     *            trajectories).
+     * @param qubits
+     *            qubits of the Pauli Z product.
+     * @return estimate of the expectation value.
+     */
+    public double estimateExpectation(Circuit circuit, int maxTrajectories, double targetError, int... qubits) {
+        if (circuit == null)
+            throw new IllegalArgumentException("Invalid circuit supplied (NULL).");
+        if (qubits == null || qubits.length == 0)
+            throw new IllegalArgumentException("Invalid qubits supplied (NULL or empty).");
+        int mask = 0;
+        for (int qubit : qubits) {
+            if (qubit < 0 || qubit >= circuit.qubitCount())
+                throw new IllegalArgumentException("Invalid qubit supplied (" + qubit + ").");
+            mask |= 1 << qubit;
+        }
+        // Readout error scales the outcome +1 of a measured 0 and -1 of a measured 1
+        int size = Integer.bitCount(mask);
+        double[] weights = new double[size + 1];
+        for (int ones = 0; ones <= size; ones++)
+            weights[ones] = Math.pow(1 - 2 * noiseModel.readoutError0to1(), size - ones) * Math.pow(-(1 - 2 * noiseModel.readoutError1to0()), ones);
+        Aggregate aggregate = run(circuit, maxTrajectories, targetError, new Observable(mask, weights));
+        return aggregate.sum / aggregate.trajectories;
+    }
+
+    /**
+     * Simulates a single trajectory of the supplied circuit and returns its final
+     * pure state, a random sample of the mixed state described by the noise
+     * model.
+     */
+    @Override
+    public State simulateFullState(Circuit circuit) {
+        if (circuit == null)
+            throw new IllegalArgumentException("Invalid circuit supplied (NULL).");
+        TrajectoryWorker worker = new TrajectoryWorker(compile(circuit), 1 << circuit.qubitCount(), random.split());
+        worker.simulate();
+        updateStatistics(1, 0, worker.noiseEvents);
+        return new State(new ComplexTensor(worker.real.clone(), worker.imag.clone(), worker.real.length));
+    }
+
+    /**
+     * Simulates a single trajectory of the supplied circuit and samples the
+     * measured basis state (including the readout error).
+     */
+    @Override
+    public int simulateAndCollapse(Circuit circuit) {
+        if (circuit == null)
+            throw new IllegalArgumentException("Invalid circuit supplied (NULL).");
+        TrajectoryWorker worker = new TrajectoryWorker(compile(circuit), 1 << circuit.qubitCount(), random.split());
+        worker.simulate();
+        updateStatistics(1, 0, worker.noiseEvents);
+        return worker.measure(circuit.qubitCount());
+    }
+
+    @Override
+    public String describeStatistics() {
+        return String.format("Trajectories: %d trajectories on %d threads, standard error %.4f, %d noise events", trajectoryCount(), parallelism(), standardError(), noiseEvents());
+    }
+
+    private Aggregate run(Circuit circuit, int maxTrajectories, double targetError, Observable observable) {
+        if (maxTrajectories < 1)
+            throw new IllegalArgumentException("Maximum number of trajectories must be greater than 0.");
+        if (targetError < 0)
+            throw new IllegalArgumentException("Target error must not be negative.");
+        int noQubits = circuit.qubitCount();
+        int size = 1 << noQubits;
+        Step[] steps = compile(circuit);
+
+        // State buffers are kept for the following simulations of the same size
+        if (workers == null || workers[0].real.length != size) {
+            workers = new TrajectoryWorker[parallelism];
+            for (int w = 0; w < parallelism; w++)
+                workers[w] = new TrajectoryWorker(steps, size, random.split());
+        } else {
+            for (TrajectoryWorker worker : workers)
+                worker.reset(steps, random.split());
+        }
+        for (TrajectoryWorker worker : workers)
+            worker.observable = observable;
+        if (observable == null)
+            for (TrajectoryWorker worker : workers)
+                worker.counts = new long[size];
+
+        Aggregate aggregate = new Aggregate();
+        while (aggregate.trajectories < maxTrajectories) {
+            int round = Math.min(maxTrajectories - aggregate.trajectories, parallelism * ROUND_TRAJECTORIES);
+            runRound(noQubits, round);
+            aggregate = merge(size, observable == null);
+            if (targetError > 0 && aggregate.trajectories >= MIN_TRAJECTORIES && aggregate.standardError <= targetError)
+                break;
+        }
+        updateStatistics(aggregate.trajectories, aggregate.standardError, aggregate.noiseEvents);
+        for (TrajectoryWorker worker : workers)
+            worker.counts = null;
+        return aggregate;
+    }
+
+    private void runRound(int noQubits, int round) {
+        // Trajectories of the round are evenly split among the workers
+        if (pool == null) {
+            workers[0].run(noQubits, round);
+            return;
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int w = 0; w < parallelism; w++) {
+            TrajectoryWorker worker = workers[w];
+            int quota = round / parallelism + (w < round % parallelism ? 1 : 0);
+            if (quota > 0)
+                tasks.add(ForkJoinTask.adapt(() -> worker.run(noQubits, quota)));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    private Aggregate merge(int size, boolean histogram) {
+        Aggregate aggregate = new Aggregate();
+        for (TrajectoryWorker worker : workers) {
+            aggregate.trajectories += worker.trajectories;
+            aggregate.sum += worker.sum;
+            aggregate.sumSquares += worker.sumSquares;
+            aggregate.noiseEvents += worker.noiseEvents;
+        }
+        int n = aggregate.trajectories;
+        if (histogram) {
+            aggregate.counts = new long[size];
+            for (TrajectoryWorker worker : workers)
+                for (int i = 0; i < size; i++)
+                    aggregate.counts[i] += worker.counts[i];
+            double maxVariance = 0;
+            for (long count : aggregate.counts) {
+                double p = (double) count / n;
+                maxVariance = Math.max(maxVariance, p * (1 - p));
+            }
+            aggregate.standardError = Math.sqrt(maxVariance / n);
+        } else {
+            double mean = aggregate.sum / n;
+            double variance = n > 1 ? Math.max(0, (aggregate.sumSquares - n * mean * mean) / (n - 1)) : 0;
+            aggregate.standardError = Math.sqrt(variance / n);
+        }
+        return aggregate;
+    }
+
+    private void updateStatistics(int trajectories, double error, long events) {
+        trajectoryCount = trajectories;
+        standardError = error;
+        noiseEvents = events;
+    }
+
+    /**
+     * Compiles the operations of the circuit into the steps of a trajectory, the
+     * operation data are shared by all workers.
+     */
+    private Step[] compile(Circuit circuit) {
+        int size = 1 << circuit.qubitCount();
+        List<Operation> operations = dataProvider.getCircuitOperations(circuit);
+        Step[] steps = new Step[operations.size()];
+        for (int i = 0; i < steps.length; i++)
+            steps[i] = compile(size, operations.get(i));
+        return steps;
+    }
+
+    private Step compile(int size, Operation operation) {
+        switch (operation.operationType()) {
+            case Gate:
+                ComplexTensor gateData = dataProvider.getOperationData(operation);
+                float[] gateReal = gateData.getRawRealData();
+                float[] gateImag = gateData.getRawImagData();
+                int target = ((Gate) operation).targetQubit()[0];
+                if (FsvDataProvider.isPhaseGate(gateData))
+                    return new Step(operation.involvedQubits(), (real, imag) -> FsvRangeOperand.applyPhase(target, real, imag, 0, size / 2, gateReal, gateImag));
+                if (FsvDataProvider.isPauliX(gateData) || FsvDataProvider.isPauliY(gateData)) {
+                    boolean flipPhase = FsvDataProvider.isPauliY(gateData);
+                    return new Step(operation.involvedQubits(), (real, imag) -> FsvRangeOperand.applyFlip(target, flipPhase, real, imag, 0, size / 2));
+                }
+                return new Step(operation.involvedQubits(), (real, imag) -> FsvRangeOperand.applyGate(target, real, imag, 0, size / 2, gateReal, gateImag));
+            case ControlGate:
+                ControlGate controlGate = (ControlGate) operation;
+                ComplexTensor controlData = dataProvider.getOperationData(controlGate);
+                float[] controlReal = controlData.getRawRealData();
+                float[] controlImag = controlData.getRawImagData();
+                int controlTarget = controlGate.targetQubit()[0];
+                int control = controlGate.controlQubit()[0];
+                if (FsvDataProvider.isPhaseGate(controlData))
+                    return new Step(operation.involvedQubits(), (real, imag) -> FsvRangeOperand.applyControlPhase(controlTarget, control, real, imag, 0, size / 4, controlReal, controlImag));
+                if (FsvDataProvider.isPauliX(controlData) || FsvDataProvider.isPauliY(controlData)) {
+                    boolean flipPhase = FsvDataProvider.isPauliY(controlData);
+                    return new Step(operation.involvedQubits(), (real, imag) -> FsvRangeOperand.applyControlFlip(controlTarget, control, flipPhase, real, imag, 0, size / 4));
+                }
+                return new Step(operation.involvedQubits(), (real, imag) -> FsvRangeOperand.applyControlGate(controlTarget, control, real, imag, 0, size / 4, controlReal, controlImag));
+            case Function:
+                Function function = (Function) operation;
+                if (function.type() != FunctionType.Swap)
+                    throw new UnsupportedOperationException("Function type '" + function.type() + "' is not supported in a trajectory simulator.");
+                // Swap function exchanges the first and the last qubit of its range
+                int[] qubits = function.targetQubits();
+                int qubitA = qubits[0];
+                int qubitB = qubits[qubits.length - 1];
+                if (qubitA == qubitB)
+                    return new Step(new int[] { qubitA }, (real, imag) -> {});
+                return new Step(new int[] { qubitA, qubitB }, (real, imag) -> FsvRangeOperand.applySwap(qubitA, qubitB, real, imag, 0, size / 4));
+            case CustomFunction:
+                Function customFunction = (Function) operation;
+                ComplexTensor functionData = dataProvider.getOperationData(customFunction);
+                float[] functionReal = functionData.getRawRealData();
+                float[] functionImag = functionData.getRawImagData();
+                int[] blockQubits = customFunction.targetQubits();
+                return new Step(operation.involvedQubits(), (real, imag) -> FsvRangeOperand.applyBlock(blockQubits, real, imag, 0, size >> blockQubits.length, functionReal, functionImag));
+            default:
+                throw new UnsupportedOperationException("Operation type '" + operation.operationType() + "' is not supported in a trajectory simulator.");
+        }
+    }
+
+    private interface StateTask {
+        void apply(float[] real, float[] imag);
+    }
+
+    private static class Step {
+        private final int[] noisyQubits;
+        private final StateTask task;
+
+        private Step(int[] noisyQubits, StateTask task) {
+            this.noisyQubits = noisyQubits;
+            this.task = task;
+        }
+    }
+
+    private static class Observable {
+        private final int mask;
+        private final double[] weights;
+
+        private Observable(int mask, double[] weights) {
+            this.mask = mask;
+            this.weights = weights;
+        }
+    }
+
+    private static class Aggregate {
+        private int trajectories;
+        private double sum,sumSquares,standardError;
+        private long noiseEvents;
+        private long[] counts;
+    }
+
+    /**
+     * Kraus operators of a noise channel prepared for the trajectories. The
+     * probability of the operator K_k is <psi|K_k^dagger K_k|psi>, which only
+     * depends on the reduced 2x2 density matrix of the qubit, so the
+     * probabilities of all operators are computed from a single pass. Channels of
+     * scaled unitaries (e.g. depolarizing) have constant probabilities and their
+     * operators are applied pre-normalized, the identity is skipped.
+     */
+    private static class TrajectoryChannel {
+        private final float[][] operatorReal;
+        private final float[][] operatorImag;
+        private final double[][] products;
+        private final double[] probabilities;
+        private final boolean[] identity;
+
+        private TrajectoryChannel(KrausChannel channel) {
+            int count = channel.operatorCount();
+            operatorReal = new float[count][4];
+            operatorImag = new float[count][4];
+            products = new double[count][];
+            identity = new boolean[count];
+            double[] constant = new double[count];
+            boolean mixedUnitary = true;
+            for (int k = 0; k < count; k++) {
+                DoubleComplexTensor operator = channel.getOperator(k);
+                double[] real = operator.getRawRealData();
+                double[] imag = operator.getRawImagData();
+                // K^dagger K = [[m00, m01], [conj(m01), m11]]
+                double m00 = real[0] * real[0] + imag[0] * imag[0] + real[2] * real[2] + imag[2] * imag[2];
+                double m11 = real[1] * real[1] + imag[1] * imag[1] + real[3] * real[3] + imag[3] * imag[3];
+                double m01Real = real[0] * real[1] + imag[0] * imag[1] + real[2] * real[3] + imag[2] * imag[3];
+                double m01Imag = real[0] * imag[1] - imag[0] * real[1] + real[2] * imag[3] - imag[2] * real[3];
+                products[k] = new double[] { m00, m11, m01Real, m01Imag };
+                constant[k] = m00;
+                if (Math.abs(m00 - m11) > MIXED_UNITARY_TOLERANCE || Math.abs(m01Real) > MIXED_UNITARY_TOLERANCE || Math.abs(m01Imag) > MIXED_UNITARY_TOLERANCE)
+                    mixedUnitary = false;
+                identity[k] = real[1] == 0 && imag[1] == 0 && real[2] == 0 && imag[2] == 0 && real[0] == real[3] && imag[0] == imag[3];
+                for (int i = 0; i < 4; i++) {
+                    operatorReal[k][i] = (float) real[i];
+                    operatorImag[k][i] = (float) imag[i];
+                }
+            }
+            probabilities = mixedUnitary ? constant : null;
+            if (mixedUnitary) {
+                for (int k = 0; k < count; k++) {
+                    float scale = constant[k] > 0 ? (float) (1 / Math.sqrt(constant[k])) : 0;
+                    for (int i = 0; i < 4; i++) {
+                        operatorReal[k][i] *= scale;
+                        operatorImag[k][i] *= scale;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Worker thread state: the state vector buffers reused by its trajectories,
+     * its random generator and its partial results.
+     */
+    private class TrajectoryWorker {
+        private final float[] real;
+        private final float[] imag;
+        private final float[] scaledReal;
+        private final float[] scaledImag;
+        private final double[] pairSums;
+        private final double[] branchProbabilities;
+        private Step[] steps;
+        private SplittableRandom random;
+        private Observable observable;
+        private long[] counts;
+        private int trajectories;
+        private double sum,sumSquares;
+        private long noiseEvents;
+
+        private TrajectoryWorker(Step[] steps, int size, SplittableRandom random) {
+            real = new float[size];
+            imag = new float[size];
+            scaledReal = new float[4];
+            scaledImag = new float[4];
+            pairSums = new double[4];
+            int operators = 0;
+            for (TrajectoryChannel channel : channels)
+                operators = Math.max(operators, channel.identity.length);
+            branchProbabilities = new double[operators];
+            reset(steps, random);
+        }
+
+        protected void reset(Step[] steps, SplittableRandom random) {
+            this.steps = steps;
+            this.random = random;
+            trajectories = 0;
+            sum = 0;
+            sumSquares = 0;
+            noiseEvents = 0;
+        }
+
+        protected void run(int noQubits, int count) {
+            for (int t = 0; t < count; t++) {
+                simulate();
+                if (observable == null) {
+                    counts[measure(noQubits)]++;
+                } else {
+                    double value = expectation();
+                    sum += value;
+                    sumSquares += value * value;
+                }
+                trajectories++;
+            }
+        }
+
+        protected void simulate() {
+            Arrays.fill(real, 0);
+            Arrays.fill(imag, 0);
+            real[0] = 1;
+            for (Step step : steps) {
+                step.task.apply(real, imag);
+                for (TrajectoryChannel channel : channels)
+                    for (int qubit : step.noisyQubits)
+                        applyChannel(channel, qubit);
+            }
+        }
+
+        private void applyChannel(TrajectoryChannel channel, int qubit) {
+            int count = channel.identity.length;
+            double sample = random.nextDouble();
+            if (channel.probabilities != null) {
+                int k = select(channel.probabilities, count, sample, 1);
+                if (!channel.identity[k]) {
+                    FsvRangeOperand.applyGate(qubit, real, imag, 0, real.length / 2, channel.operatorReal[k], channel.operatorImag[k]);
+                    noiseEvents++;
+                }
+                return;
+            }
+
+            // Probabilities of the operators from the reduced density matrix of the qubit
+            reducedDensityMatrix(qubit);
+            double norm = pairSums[0] + pairSums[1];
+            double[] probabilities = branchProbabilities;
+            for (int j = 0; j < count; j++) {
+                double[] m = channel.products[j];
+                probabilities[j] = Math.max(0, m[0] * pairSums[0] + m[1] * pairSums[1] + 2 * (m[2] * pairSums[2] - m[3] * pairSums[3]));
+            }
+            int k = select(probabilities, count, sample, norm);
+            if (channel.identity[k])
+                return;
+            float scale = (float) (1 / Math.sqrt(probabilities[k]));
+            for (int i = 0; i < 4; i++) {
+                scaledReal[i] = channel.operatorReal[k][i] * scale;
+                scaledImag[i] = channel.operatorImag[k][i] * scale;
+            }
+            FsvRangeOperand.applyGate(qubit, real, imag, 0, real.length / 2, scaledReal, scaledImag);
+            noiseEvents++;
+        }
+
+        private int select(double[] probabilities, int count, double sample, double norm) {
+            double threshold = sample * norm;
+            double cumulative = 0;
+            int last = 0;
+            for (int k = 0; k < count; k++) {
+                if (probabilities[k] <= 0)
+                    continue;
+                cumulative += probabilities[k];
+                last = k;
+                if (threshold < cumulative)
+                    return k;
+            }
+            return last;
+        }
+
+        /**
+         * Computes the sums of |a|^2, |b|^2 and conj(a) b over the amplitude pairs
+         * (a, b) of the supplied qubit.
+         */
+        private void reducedDensityMatrix(int qubit) {
+            final int stride = 1 << qubit;
+            final int maskRight = stride - 1;
+            double zero = 0, one = 0, coherenceReal = 0, coherenceImag = 0;
+            for (int i = 0; i < real.length / 2; i++) {
+                int a = (i & maskRight) | ((i & ~maskRight) << 1);
+                int b = a | stride;
+                float aR = real[a], aI = imag[a], bR = real[b], bI = imag[b];
+                zero += aR * aR + aI * aI;
+                one += bR * bR + bI * bI;
+                coherenceReal += aR * bR + aI * bI;
+                coherenceImag += aR * bI - aI * bR;
+            }
+            pairSums[0] = zero;
+            pairSums[1] = one;
+            pairSums[2] = coherenceReal;
+            pairSums[3] = coherenceImag;
+        }
+
+        protected int measure(int noQubits) {
+            double sample = random.nextDouble();
+            double cumulative = 0;
+            int outcome = real.length - 1;
+            for (int i = 0; i < real.length; i++) {
+                cumulative += real[i] * real[i] + imag[i] * imag[i];
+                if (sample < cumulative) {
+                    outcome = i;
+                    break;
+                }
+            }
+            // Readout error flips the measured bits independently
+            double error0to1 = noiseModel.readoutError0to1();
+            double error1to0 = noiseModel.readoutError1to0();
+            if (error0to1 == 0 && error1to0 == 0)
+                return outcome;
+            int measured = outcome;
+            for (int qubit = 0; qubit < noQubits; qubit++) {
+                boolean one = (outcome & (1 << qubit)) != 0;
+                if (random.nextDouble() < (one ? error1to0 : error0to1))
+                    measured ^= 1 << qubit;
+            }
+            return measured;
+        }
+
+        private double expectation() {
+            double value = 0;
+            for (int i = 0; i < real.length; i++)
+                value += (real[i] * real[i] + imag[i] * imag[i]) * observable.weights[Integer.bitCount(i & observable.mask)];
+            return value;
+        }
+    }
+}
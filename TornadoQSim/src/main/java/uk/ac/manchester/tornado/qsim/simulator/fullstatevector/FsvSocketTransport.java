@@ -0,0 +1,229 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents a transport between the ranks of the distributed full state vector
+ * simulator over TCP (NIO socket channels). Each rank listens on its own
+ * address, connects to all lower ranks and accepts the connections of all
+ * higher ranks, so every pair of ranks shares a single connection. A pairwise
+ * exchange sends and receives at the same time (non-blocking channel), so the
+ * two peers never wait for each other on full socket buffers.
+ * 
+ * The loopback constructor places the ranks on consecutive ports of the local
+ * host, so the simulation can be run by several processes on one machine.
+ */
+public class FsvSocketTransport implements FsvTransport {
+    /**
+     * Default port of the rank 0 on the loopback interface (rank r listens on the
+     * port DEFAULT_BASE_PORT + r).
+     */
+    public static final int DEFAULT_BASE_PORT = 47000;
+
+    /**
+     * Time to wait for the peers to start listening.
+     */
+    public static final int CONNECT_TIMEOUT_MILLIS = 30000;
+
+    private static final int CONNECT_RETRY_MILLIS = 50;
+
+    private final int rank;
+    private final SocketChannel[] channels;
+    private final Selector[] selectors;
+
+    /**
+     * Constructs a transport between the supplied number of ranks on the loopback
+     * interface (ports DEFAULT_BASE_PORT to DEFAULT_BASE_PORT + ranks - 1).
+     * 
+     * @param rank
+     *            rank of this process.
+     * @param ranks
+     *            number of ranks.
+     */
+    public FsvSocketTransport(int rank, int ranks) {
+        this(rank, loopbackAddresses(DEFAULT_BASE_PORT, ranks));
+    }
+
+    /**
+     * Constructs a transport between the ranks listening on the supplied
+     * addresses. The call returns once this rank is connected to all peers.
+     * 
+     * @param rank
+     *            rank of this process.
+     * @param addresses
+     *            addresses of all ranks (address of the rank r at the index r).
+     */
+    public FsvSocketTransport(int rank, List<InetSocketAddress> addresses) {
+        if (addresses == null || addresses.isEmpty())
+            throw new IllegalArgumentException("Invalid rank addresses supplied (NULL or empty).");
+        if (rank < 0 || rank >= addresses.size())
+            throw new IllegalArgumentException("Rank must be between 0 and " + (addresses.size() - 1) + ".");
+        this.rank = rank;
+        channels = new SocketChannel[addresses.size()];
+        selectors = new Selector[addresses.size()];
+
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            server.bind(addresses.get(rank));
+            for (int peer = 0; peer < rank; peer++)
+                register(connect(addresses.get(peer)), peer);
+            for (int accepted = rank + 1; accepted < addresses.size(); accepted++) {
+                SocketChannel channel = server.accept();
+                register(channel, readRank(channel));
+            }
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets the loopback addresses of the supplied number of ranks on consecutive
+     * ports.
+     * 
+     * @param basePort
+     *            port of the rank 0.
+     * @param ranks
+     *            number of ranks.
+     * @return list of rank addresses.
+     */
+    public static List<InetSocketAddress> loopbackAddresses(int basePort, int ranks) {
+        if (ranks < 1)
+            throw new IllegalArgumentException("Number of ranks must be greater than 0.");
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (int rank = 0; rank < ranks; rank++)
+            addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), basePort + rank));
+        return addresses;
+    }
+
+    @Override
+    public int rank() {
+        return rank;
+    }
+
+    @Override
+    public int size() {
+        return channels.length;
+    }
+
+    @Override
+    public void exchange(int peer, ByteBuffer outgoing, ByteBuffer incoming) {
+        if (peer < 0 || peer >= channels.length || peer == rank)
+            throw new IllegalArgumentException("Invalid peer rank " + peer + ".");
+        SocketChannel channel = channels[peer];
+        Selector selector = selectors[peer];
+        try {
+            while (outgoing.hasRemaining() || incoming.hasRemaining()) {
+                int progress = 0;
+                if (outgoing.hasRemaining())
+                    progress += channel.write(outgoing);
+                if (incoming.hasRemaining()) {
+                    int read = channel.read(incoming);
+                    if (read < 0)
+                        throw new EOFException("Connection to rank " + peer + " closed during an exchange.");
+                    progress += read;
+                }
+                if (progress == 0) {
+                    // Wait until the socket buffers allow further progress
+                    SelectionKey key = channel.keyFor(selector);
+                    key.interestOps((outgoing.hasRemaining() ? SelectionKey.OP_WRITE : 0) | (incoming.hasRemaining() ? SelectionKey.OP_READ : 0));
+                    selector.select();
+                    selector.selectedKeys().clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (int peer = 0; peer < channels.length; peer++) {
+            try {
+                if (selectors[peer] != null)
+                    selectors[peer].close();
+                if (channels[peer] != null)
+                    channels[peer].close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private SocketChannel connect(InetSocketAddress address) throws IOException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+        while (true) {
+            SocketChannel channel = SocketChannel.open();
+            try {
+                channel.connect(address);
+                // Announce the rank of this process to the peer
+                ByteBuffer message = ByteBuffer.allocate(Integer.BYTES).putInt(0, rank);
+                while (message.hasRemaining())
+                    channel.write(message);
+                return channel;
+            } catch (ConnectException e) {
+                channel.close();
+                if (System.currentTimeMillis() > deadline)
+                    throw e;
+                try {
+                    Thread.sleep(CONNECT_RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private int readRank(SocketChannel channel) throws IOException {
+        ByteBuffer message = ByteBuffer.allocate(Integer.BYTES);
+        while (message.hasRemaining())
+            if (channel.read(message) < 0)
+                throw new EOFException("Connection closed before the peer rank was received.");
+        int peer = message.getInt(0);
+        if (peer <= rank || peer >= channels.length || channels[peer] != null)
+            throw new IOException("Unexpected connection from rank " + peer + ".");
+        return peer;
+    }
+
+    private void register(SocketChannel channel, int peer) throws IOException {
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.configureBlocking(false);
+        channels[peer] = channel;
+        selectors[peer] = Selector.open();
+        channel.register(selectors[peer], 0);
+    }
+}
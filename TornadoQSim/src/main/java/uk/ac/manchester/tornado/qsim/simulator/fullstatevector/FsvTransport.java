@@ -0,0 +1,70 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+
+/**
+ * Represents a transport between the ranks (processes) of the distributed full
+ * state vector simulator (see FsvSimulatorDistributed). Ranks communicate by
+ * pairwise exchanges of equally sized messages.
+ */
+public interface FsvTransport extends Closeable {
+
+    /**
+     * Gets the rank of this process.
+     * 
+     * @return rank (0 to size - 1).
+     */
+    int rank();
+
+    /**
+     * Gets the number of ranks.
+     * 
+     * @return number of ranks.
+     */
+    int size();
+
+    /**
+     * Exchanges a message with the supplied peer. The remaining bytes of the
+     * outgoing buffer are sent to the peer, while the incoming buffer is filled by
+     * the message of the peer. Both ranks must call the exchange with messages of
+     * the same size.
+     * 
+     * @param peer
+     *            rank of the peer.
+     * @param outgoing
+     *            buffer with the message sent to the peer.
+     * @param incoming
+     *            buffer for the message received from the peer.
+     * @throws java.io.UncheckedIOException
+     *             if the exchange fails.
+     */
+    void exchange(int peer, ByteBuffer outgoing, ByteBuffer incoming);
+
+    /**
+     * Closes the connections to all peers.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,710 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.mps;
+
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Represents a state of a quantum system as a matrix product state (MPS). Every
+ * qubit is held in one site, a rank-3 complex tensor of shape [left bond, 2,
+ * right bond], and the amplitude of a basis state is the product of the
+ * matrices selected by the qubit values. The memory grows with the number of
+ * qubits times the square of the bond dimension, which stays small for weakly
+ * entangled states.
+ * 
+ * The state is kept in the mixed canonical form around one site (the center),
+ * so the singular values of a two-site update are the Schmidt coefficients of
+ * the state. Bonds are truncated to the maximum bond dimension and the
+ * smallest singular values, whose discarded weight does not exceed the
+ * truncation threshold, are dropped. The discarded weights are accumulated as
+ * the truncation error (an estimate of 1 - fidelity of the state).
+ * 
+ * Operations on non-adjacent qubits move the qubits next to each other with
+ * adjacent swaps (swap network). The qubits are not moved back, the mapping of
+ * qubits to sites is kept instead, so swap functions only relabel the sites.
+ */
+public class MatrixProductState {
+    /**
+     * Maximum number of qubits of a state, for which the full state vector can be
+     * computed.
+     */
+    public static final int MAX_STATE_VECTOR_QUBITS = 30;
+
+    private static final double NEGLIGIBLE_SINGULAR_VALUE = 1e-14;
+    private static final double[] SWAP_REAL = { 1, 0, 0, 0, 0, 0, 1, 0, 0, 1, 0, 0, 0, 0, 0, 1 };
+    private static final double[] SWAP_IMAG = new double[16];
+
+    private final int noQubits;
+    private final int maxBondDimension;
+    private final double truncationThreshold;
+    private final ComplexTensor[] sites;
+    private final int[] qubitSite;
+    private final int[] siteQubit;
+    private int center;
+    private double truncationError;
+    private int peakBondDimension;
+    private long swapCount;
+
+    /**
+     * Constructs a matrix product state of the state '00...0' without truncation.
+     * 
+     * @param noQubits
+     *            number of qubits.
+     */
+    public MatrixProductState(int noQubits) {
+        this(noQubits, Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * Constructs a matrix product state of the state '00...0'.
+     * 
+     * @param noQubits
+     *            number of qubits.
+     * @param maxBondDimension
+     *            maximum bond dimension kept after an operation.
+     * @param truncationThreshold
+     *            maximum discarded weight (sum of the squares of the dropped
+     *            singular values) per truncated bond.
+     */
+    public MatrixProductState(int noQubits, int maxBondDimension, double truncationThreshold) {
+        if (noQubits < 1)
+            throw new IllegalArgumentException("Number of qubits in a state must be greater than 0.");
+        if (maxBondDimension < 1)
+            throw new IllegalArgumentException("Maximum bond dimension must be greater than 0.");
+        if (!(truncationThreshold >= 0 && truncationThreshold < 1))
+            throw new IllegalArgumentException("Truncation threshold must be in the range [0, 1).");
+        this.noQubits = noQubits;
+        this.maxBondDimension = maxBondDimension;
+        this.truncationThreshold = truncationThreshold;
+        sites = new ComplexTensor[noQubits];
+        qubitSite = new int[noQubits];
+        siteQubit = new int[noQubits];
+        for (int site = 0; site < noQubits; site++) {
+            sites[site] = new ComplexTensor(1, 2, 1);
+            sites[site].insertElement(new Complex(1, 0), 0, 0, 0);
+            qubitSite[site] = site;
+            siteQubit[site] = site;
+        }
+        peakBondDimension = 1;
+    }
+
+    /**
+     * Gets the number of qubits of the state.
+     * 
+     * @return number of qubits.
+     */
+    public int qubitCount() {
+        return noQubits;
+    }
+
+    /**
+     * Gets the site, which currently holds the supplied qubit.
+     * 
+     * @param qubit
+     *            qubit.
+     * @return site of the qubit.
+     */
+    public int siteOf(int qubit) {
+        checkQubit(qubit);
+        return qubitSite[qubit];
+    }
+
+    /**
+     * Gets a copy of the tensor of the supplied site (shape [left bond, 2, right
+     * bond]).
+     * 
+     * @param site
+     *            site (0 to number of qubits - 1).
+     * @return tensor of the site.
+     */
+    public ComplexTensor getSite(int site) {
+        checkQubit(site);
+        return new ComplexTensor(sites[site]);
+    }
+
+    /**
+     * Gets the dimension of the bond between the supplied site and the next site.
+     * 
+     * @param bond
+     *            bond (0 to number of qubits - 2).
+     * @return bond dimension.
+     */
+    public int bondDimension(int bond) {
+        if (bond < 0 || bond >= noQubits - 1)
+            throw new IllegalArgumentException("Invalid bond supplied.");
+        return rightDimension(bond);
+    }
+
+    /**
+     * Gets the largest bond dimension reached since the state was constructed.
+     * 
+     * @return peak bond dimension.
+     */
+    public int peakBondDimension() {
+        return peakBondDimension;
+    }
+
+    /**
+     * Gets the sum of the discarded weights of all truncations since the state was
+     * constructed.
+     * 
+     * @return truncation error.
+     */
+    public double truncationError() {
+        return truncationError;
+    }
+
+    /**
+     * Gets the number of adjacent swaps inserted to bring the qubits of operations
+     * next to each other.
+     * 
+     * @return number of inserted swaps.
+     */
+    public long swapCount() {
+        return swapCount;
+    }
+
+    /**
+     * Applies a single qubit gate (local update of the site of the qubit).
+     * 
+     * @param qubit
+     *            target qubit.
+     * @param gateData
+     *            2x2 unitary matrix of the gate.
+     */
+    public void applyGate(int qubit, ComplexTensor gateData) {
+        checkQubit(qubit);
+        if (gateData == null || gateData.size() != 4)
+            throw new IllegalArgumentException("Invalid gate data supplied (2x2 matrix expected).");
+        float[] gateReal = gateData.getRawRealData();
+        float[] gateImag = gateData.getRawImagData();
+        int site = qubitSite[qubit];
+        float[] real = sites[site].getRawRealData();
+        float[] imag = sites[site].getRawImagData();
+        int left = leftDimension(site);
+        int right = rightDimension(site);
+        for (int a = 0; a < left; a++) {
+            for (int b = 0; b < right; b++) {
+                int i0 = (a * 2) * right + b;
+                int i1 = i0 + right;
+                double real0 = real[i0], imag0 = imag[i0];
+                double real1 = real[i1], imag1 = imag[i1];
+                real[i0] = (float) (gateReal[0] * real0 - gateImag[0] * imag0 + gateReal[1] * real1 - gateImag[1] * imag1);
+                imag[i0] = (float) (gateReal[0] * imag0 + gateImag[0] * real0 + gateReal[1] * imag1 + gateImag[1] * real1);
+                real[i1] = (float) (gateReal[2] * real0 - gateImag[2] * imag0 + gateReal[3] * real1 - gateImag[3] * imag1);
+                imag[i1] = (float) (gateReal[2] * imag0 + gateImag[2] * real0 + gateReal[3] * imag1 + gateImag[3] * real1);
+            }
+        }
+    }
+
+    /**
+     * Applies an operator on the supplied qubits. The qubits are moved to adjacent
+     * sites, their sites are contracted, the operator is applied and the result
+     * is split back into sites with truncated SVDs.
+     * 
+     * @param qubits
+     *            target qubits (bit j of the matrix index belongs to qubits[j]).
+     * @param data
+     *            2^k x 2^k unitary matrix of the operator.
+     */
+    public void applyOperator(int[] qubits, ComplexTensor data) {
+        if (qubits == null || qubits.length < 1 || qubits.length > 16)
+            throw new IllegalArgumentException("Invalid qubits supplied.");
+        int dimension = 1 << qubits.length;
+        if (data == null || data.size() != dimension * dimension)
+            throw new IllegalArgumentException("Operator data do not fit the supplied qubits.");
+        for (int j = 0; j < qubits.length; j++) {
+            checkQubit(qubits[j]);
+            for (int i = 0; i < j; i++)
+                if (qubits[i] == qubits[j])
+                    throw new IllegalArgumentException("Qubits of an operator must be different.");
+        }
+        if (qubits.length == 1) {
+            applyGate(qubits[0], data);
+            return;
+        }
+
+        // Qubits in the order of their sites, the matrix is permuted accordingly
+        int k = qubits.length;
+        int[] order = new int[k];
+        for (int j = 0; j < k; j++)
+            order[j] = j;
+        for (int j = 1; j < k; j++)
+            for (int i = j; i > 0 && qubitSite[qubits[order[i]]] < qubitSite[qubits[order[i - 1]]]; i--) {
+                int swap = order[i];
+                order[i] = order[i - 1];
+                order[i - 1] = swap;
+            }
+        int[] indexMap = new int[dimension];
+        for (int index = 0; index < dimension; index++)
+            for (int j = 0; j < k; j++)
+                indexMap[index] |= ((index >>> j) & 1) << order[j];
+        float[] dataReal = data.getRawRealData();
+        float[] dataImag = data.getRawImagData();
+        double[] matrixReal = new double[dimension * dimension];
+        double[] matrixImag = new double[dimension * dimension];
+        for (int row = 0; row < dimension; row++) {
+            for (int col = 0; col < dimension; col++) {
+                matrixReal[row * dimension + col] = dataReal[indexMap[row] * dimension + indexMap[col]];
+                matrixImag[row * dimension + col] = dataImag[indexMap[row] * dimension + indexMap[col]];
+            }
+        }
+
+        // Swap network: qubit j is moved down right after qubit j - 1
+        int firstSite = qubitSite[qubits[order[0]]];
+        for (int j = 1; j < k; j++)
+            for (int site = qubitSite[qubits[order[j]]]; site > firstSite + j; site--)
+                swapSites(site - 1);
+        applyWindow(firstSite, k, matrixReal, matrixImag, false);
+    }
+
+    /**
+     * Swaps the supplied qubits. Only the mapping of the qubits to sites is
+     * exchanged.
+     * 
+     * @param qubitA
+     *            qubit to be swapped.
+     * @param qubitB
+     *            qubit to be swapped.
+     */
+    public void applySwap(int qubitA, int qubitB) {
+        checkQubit(qubitA);
+        checkQubit(qubitB);
+        int siteA = qubitSite[qubitA];
+        int siteB = qubitSite[qubitB];
+        qubitSite[qubitA] = siteB;
+        qubitSite[qubitB] = siteA;
+        siteQubit[siteA] = qubitB;
+        siteQubit[siteB] = qubitA;
+    }
+
+    /**
+     * Computes the amplitude of the supplied basis state (product of the site
+     * matrices).
+     * 
+     * @param basisState
+     *            basis state (bit q set if the qubit q is 1).
+     * @return amplitude of the basis state.
+     */
+    public Complex getAmplitude(BitSet basisState) {
+        if (basisState == null)
+            throw new IllegalArgumentException("Invalid basis state supplied (NULL).");
+        double[] vectorReal = { 1 };
+        double[] vectorImag = { 0 };
+        for (int site = 0; site < noQubits; site++) {
+            int bit = basisState.get(siteQubit[site]) ? 1 : 0;
+            double[][] vector = multiplyVector(site, bit, vectorReal, vectorImag);
+            vectorReal = vector[0];
+            vectorImag = vector[1];
+        }
+        return new Complex((float) vectorReal[0], (float) vectorImag[0]);
+    }
+
+    /**
+     * Computes the probability of measuring the supplied qubit in the state 1.
+     * 
+     * @param qubit
+     *            measured qubit.
+     * @return probability of the outcome 1.
+     */
+    public float getQubitProbability(int qubit) {
+        checkQubit(qubit);
+        int site = qubitSite[qubit];
+        moveCenterInto(site, site);
+        float[] real = sites[site].getRawRealData();
+        float[] imag = sites[site].getRawImagData();
+        int right = rightDimension(site);
+        double probability = 0, norm = 0;
+        for (int i = 0; i < real.length; i++) {
+            double weight = (double) real[i] * real[i] + (double) imag[i] * imag[i];
+            norm += weight;
+            if ((i / right) % 2 == 1)
+                probability += weight;
+        }
+        return (float) (probability / norm);
+    }
+
+    /**
+     * Samples the outcomes of measuring all qubits without collapsing this state.
+     * The qubits are sampled site by site, conditioned on the outcomes of the
+     * previous sites.
+     * 
+     * @param random
+     *            random generator for the outcomes.
+     * @return outcomes of all qubits (bit q set if the qubit q collapsed to 1).
+     */
+    public BitSet sample(Random random) {
+        if (random == null)
+            throw new IllegalArgumentException("Invalid random generator supplied (NULL).");
+        moveCenterInto(0, 0);
+        BitSet outcomes = new BitSet(noQubits);
+        double[] vectorReal = { 1 };
+        double[] vectorImag = { 0 };
+        for (int site = 0; site < noQubits; site++) {
+            double[][] zero = multiplyVector(site, 0, vectorReal, vectorImag);
+            double[][] one = multiplyVector(site, 1, vectorReal, vectorImag);
+            double zeroWeight = squaredNorm(zero[0], zero[1]);
+            double oneWeight = squaredNorm(one[0], one[1]);
+            boolean outcome = random.nextDouble() * (zeroWeight + oneWeight) < oneWeight;
+            double[][] vector = outcome ? one : zero;
+            double scale = 1 / Math.sqrt(outcome ? oneWeight : zeroWeight);
+            for (int i = 0; i < vector[0].length; i++) {
+                vector[0][i] *= scale;
+                vector[1][i] *= scale;
+            }
+            vectorReal = vector[0];
+            vectorImag = vector[1];
+            if (outcome)
+                outcomes.set(siteQubit[site]);
+        }
+        return outcomes;
+    }
+
+    /**
+     * Contracts all sites into the full state vector (up to
+     * MAX_STATE_VECTOR_QUBITS qubits).
+     * 
+     * @return full state vector.
+     */
+    public ComplexTensor toStateVector() {
+        if (noQubits > MAX_STATE_VECTOR_QUBITS)
+            throw new UnsupportedOperationException("State vector of " + noQubits + " qubits is not supported (maximum " + MAX_STATE_VECTOR_QUBITS + " qubits).");
+        double[] real = { 1 };
+        double[] imag = { 0 };
+        int dimension = 1;
+        int bond = 1;
+        for (int site = 0; site < noQubits; site++) {
+            int right = rightDimension(site);
+            float[] siteReal = sites[site].getRawRealData();
+            float[] siteImag = sites[site].getRawImagData();
+            double[] nextReal = new double[dimension * 2 * right];
+            double[] nextImag = new double[dimension * 2 * right];
+            for (int index = 0; index < dimension; index++) {
+                for (int c = 0; c < bond; c++) {
+                    double vReal = real[index * bond + c];
+                    double vImag = imag[index * bond + c];
+                    if (vReal == 0 && vImag == 0)
+                        continue;
+                    for (int bit = 0; bit < 2; bit++) {
+                        int out = (index + bit * dimension) * right;
+                        int in = (c * 2 + bit) * right;
+                        for (int b = 0; b < right; b++) {
+                            nextReal[out + b] += vReal * siteReal[in + b] - vImag * siteImag[in + b];
+                            nextImag[out + b] += vReal * siteImag[in + b] + vImag * siteReal[in + b];
+                        }
+                    }
+                }
+            }
+            real = nextReal;
+            imag = nextImag;
+            dimension *= 2;
+            bond = right;
+        }
+
+        // Bit s of the contracted index belongs to the qubit of the site s
+        float[] stateReal = new float[dimension];
+        float[] stateImag = new float[dimension];
+        for (int index = 0; index < dimension; index++) {
+            int stateIndex = 0;
+            for (int site = 0; site < noQubits; site++)
+                stateIndex |= ((index >>> site) & 1) << siteQubit[site];
+            stateReal[stateIndex] = (float) real[index];
+            stateImag[stateIndex] = (float) imag[index];
+        }
+        return new ComplexTensor(stateReal, stateImag, dimension);
+    }
+
+    private void swapSites(int site) {
+        applyWindow(site, 2, SWAP_REAL, SWAP_IMAG, true);
+        int qubitA = siteQubit[site];
+        int qubitB = siteQubit[site + 1];
+        siteQubit[site] = qubitB;
+        siteQubit[site + 1] = qubitA;
+        qubitSite[qubitA] = site + 1;
+        qubitSite[qubitB] = site;
+        swapCount++;
+    }
+
+    private void applyWindow(int firstSite, int k, double[] matrixReal, double[] matrixImag, boolean centerLeft) {
+        moveCenterInto(firstSite, firstSite + k - 1);
+
+        // Contraction of the window sites [left, 2^k, right], bit j of the
+        // physical index belongs to the site firstSite + j
+        int left = leftDimension(firstSite);
+        int dimension = 2;
+        int right = rightDimension(firstSite);
+        double[] real = toDouble(sites[firstSite].getRawRealData());
+        double[] imag = toDouble(sites[firstSite].getRawImagData());
+        for (int j = 1; j < k; j++) {
+            int site = firstSite + j;
+            int nextRight = rightDimension(site);
+            float[] siteReal = sites[site].getRawRealData();
+            float[] siteImag = sites[site].getRawImagData();
+            double[] nextReal = new double[left * dimension * 2 * nextRight];
+            double[] nextImag = new double[left * dimension * 2 * nextRight];
+            for (int a = 0; a < left; a++) {
+                for (int p = 0; p < dimension; p++) {
+                    for (int c = 0; c < right; c++) {
+                        double vReal = real[(a * dimension + p) * right + c];
+                        double vImag = imag[(a * dimension + p) * right + c];
+                        if (vReal == 0 && vImag == 0)
+                            continue;
+                        for (int bit = 0; bit < 2; bit++) {
+                            int out = (a * dimension * 2 + p + (bit << j)) * nextRight;
+                            int in = (c * 2 + bit) * nextRight;
+                            for (int b = 0; b < nextRight; b++) {
+                                nextReal[out + b] += vReal * siteReal[in + b] - vImag * siteImag[in + b];
+                                nextImag[out + b] += vReal * siteImag[in + b] + vImag * siteReal[in + b];
+                            }
+                        }
+                    }
+                }
+            }
+            real = nextReal;
+            imag = nextImag;
+            dimension *= 2;
+            right = nextRight;
+        }
+
+        // Operator applied on the physical index
+        double[] resultReal = new double[real.length];
+        double[] resultImag = new double[imag.length];
+        for (int a = 0; a < left; a++) {
+            for (int out = 0; out < dimension; out++) {
+                int outOffset = (a * dimension + out) * right;
+                for (int in = 0; in < dimension; in++) {
+                    double mReal = matrixReal[out * dimension + in];
+                    double mImag = matrixImag[out * dimension + in];
+                    if (mReal == 0 && mImag == 0)
+                        continue;
+                    int inOffset = (a * dimension + in) * right;
+                    for (int b = 0; b < right; b++) {
+                        resultReal[outOffset + b] += mReal * real[inOffset + b] - mImag * imag[inOffset + b];
+                        resultImag[outOffset + b] += mReal * imag[inOffset + b] + mImag * real[inOffset + b];
+                    }
+                }
+            }
+        }
+        real = resultReal;
+        imag = resultImag;
+
+        // Split from the left: rows (left, bit 0), columns (remaining bits, right)
+        for (int j = 0; j < k - 1; j++) {
+            int rows = left * 2;
+            int cols = dimension / 2 * right;
+            double[] splitReal = new double[rows * cols];
+            double[] splitImag = new double[rows * cols];
+            for (int a = 0; a < left; a++) {
+                for (int p = 0; p < dimension; p++) {
+                    int from = (a * dimension + p) * right;
+                    int to = (a * 2 + (p & 1)) * cols + (p >>> 1) * right;
+                    System.arraycopy(real, from, splitReal, to, right);
+                    System.arraycopy(imag, from, splitImag, to, right);
+                }
+            }
+            MpsSvd svd = MpsSvd.decompose(splitReal, splitImag, rows, cols);
+            int keep = truncate(svd, maxBondDimension);
+            boolean last = j == k - 2;
+            double[][] factor = leftFactor(svd, keep, last && centerLeft);
+            sites[firstSite + j] = toTensor(factor[0], factor[1], left, 2, keep);
+            double[][] remainder = rightFactor(svd, keep, !(last && centerLeft));
+            real = remainder[0];
+            imag = remainder[1];
+            left = keep;
+            dimension /= 2;
+        }
+        sites[firstSite + k - 1] = toTensor(real, imag, left, 2, right);
+        center = centerLeft ? firstSite + k - 2 : firstSite + k - 1;
+    }
+
+    private void moveCenterInto(int fromSite, int toSite) {
+        while (center < fromSite)
+            shiftCenterRight();
+        while (center > toSite)
+            shiftCenterLeft();
+    }
+
+    private void shiftCenterRight() {
+        // Site as (left * 2) x right matrix, S V^H is absorbed by the next site
+        int left = leftDimension(center);
+        int right = rightDimension(center);
+        MpsSvd svd = MpsSvd.decompose(toDouble(sites[center].getRawRealData()), toDouble(sites[center].getRawImagData()), left * 2, right);
+        int keep = truncate(svd, Integer.MAX_VALUE);
+        double[][] orthogonal = leftFactor(svd, keep, false);
+        sites[center] = toTensor(orthogonal[0], orthogonal[1], left, 2, keep);
+        double[][] factor = rightFactor(svd, keep, true);
+        int nextRight = rightDimension(center + 1);
+        double[][] next = multiply(factor[0], factor[1], toDouble(sites[center + 1].getRawRealData()), toDouble(sites[center + 1].getRawImagData()), keep, right, 2 * nextRight);
+        sites[center + 1] = toTensor(next[0], next[1], keep, 2, nextRight);
+        center++;
+    }
+
+    private void shiftCenterLeft() {
+        // Site as left x (2 * right) matrix, U S is absorbed by the previous site
+        int left = leftDimension(center);
+        int right = rightDimension(center);
+        MpsSvd svd = MpsSvd.decompose(toDouble(sites[center].getRawRealData()), toDouble(sites[center].getRawImagData()), left, 2 * right);
+        int keep = truncate(svd, Integer.MAX_VALUE);
+        double[][] orthogonal = rightFactor(svd, keep, false);
+        sites[center] = toTensor(orthogonal[0], orthogonal[1], keep, 2, right);
+        double[][] factor = leftFactor(svd, keep, true);
+        int previousLeft = leftDimension(center - 1);
+        double[][] previous = multiply(toDouble(sites[center - 1].getRawRealData()), toDouble(sites[center - 1].getRawImagData()), factor[0], factor[1], previousLeft * 2, left, keep);
+        sites[center - 1] = toTensor(previous[0], previous[1], previousLeft, 2, keep);
+        center--;
+    }
+
+    private int truncate(MpsSvd svd, int maxDimension) {
+        double[] singularValues = svd.singularValues();
+        double total = 0;
+        for (double singularValue : singularValues)
+            total += singularValue * singularValue;
+        int keep = Math.min(singularValues.length, maxDimension);
+        while (keep > 1 && singularValues[keep - 1] <= NEGLIGIBLE_SINGULAR_VALUE * singularValues[0])
+            keep--;
+        double discarded = 0;
+        for (int i = keep; i < singularValues.length; i++)
+            discarded += singularValues[i] * singularValues[i];
+        while (keep > 1 && discarded + singularValues[keep - 1] * singularValues[keep - 1] <= truncationThreshold * total) {
+            discarded += singularValues[keep - 1] * singularValues[keep - 1];
+            keep--;
+        }
+        if (total > 0 && discarded > 0) {
+            truncationError += discarded / total;
+            // Kept singular values are scaled to preserve the norm of the state
+            double scale = Math.sqrt(total / (total - discarded));
+            for (int i = 0; i < keep; i++)
+                singularValues[i] *= scale;
+        }
+        peakBondDimension = Math.max(peakBondDimension, keep);
+        return keep;
+    }
+
+    private static double[][] leftFactor(MpsSvd svd, int keep, boolean withSingularValues) {
+        // U (or U S) restricted to the kept columns, rows x keep
+        int rows = svd.rows();
+        int rank = svd.rank();
+        double[] singularValues = svd.singularValues();
+        double[] real = new double[rows * keep];
+        double[] imag = new double[rows * keep];
+        for (int i = 0; i < rows; i++) {
+            for (int c = 0; c < keep; c++) {
+                double scale = withSingularValues ? singularValues[c] : 1;
+                real[i * keep + c] = svd.uReal()[i * rank + c] * scale;
+                imag[i * keep + c] = svd.uImag()[i * rank + c] * scale;
+            }
+        }
+        return new double[][] { real, imag };
+    }
+
+    private static double[][] rightFactor(MpsSvd svd, int keep, boolean withSingularValues) {
+        // V^H (or S V^H) restricted to the kept rows, keep x cols
+        int cols = svd.cols();
+        double[] singularValues = svd.singularValues();
+        double[] real = new double[keep * cols];
+        double[] imag = new double[keep * cols];
+        for (int c = 0; c < keep; c++) {
+            double scale = withSingularValues ? singularValues[c] : 1;
+            for (int i = 0; i < cols; i++) {
+                real[c * cols + i] = svd.vhReal()[c * cols + i] * scale;
+                imag[c * cols + i] = svd.vhImag()[c * cols + i] * scale;
+            }
+        }
+        return new double[][] { real, imag };
+    }
+
+    private static double[][] multiply(double[] aReal, double[] aImag, double[] bReal, double[] bImag, int rows, int inner, int cols) {
+        double[] real = new double[rows * cols];
+        double[] imag = new double[rows * cols];
+        for (int i = 0; i < rows; i++) {
+            for (int c = 0; c < inner; c++) {
+                double vReal = aReal[i * inner + c];
+                double vImag = aImag[i * inner + c];
+                if (vReal == 0 && vImag == 0)
+                    continue;
+                for (int j = 0; j < cols; j++) {
+                    real[i * cols + j] += vReal * bReal[c * cols + j] - vImag * bImag[c * cols + j];
+                    imag[i * cols + j] += vReal * bImag[c * cols + j] + vImag * bReal[c * cols + j];
+                }
+            }
+        }
+        return new double[][] { real, imag };
+    }
+
+    private double[][] multiplyVector(int site, int bit, double[] vectorReal, double[] vectorImag) {
+        int left = leftDimension(site);
+        int right = rightDimension(site);
+        float[] real = sites[site].getRawRealData();
+        float[] imag = sites[site].getRawImagData();
+        double[] resultReal = new double[right];
+        double[] resultImag = new double[right];
+        for (int a = 0; a < left; a++) {
+            int offset = (a * 2 + bit) * right;
+            for (int b = 0; b < right; b++) {
+                resultReal[b] += vectorReal[a] * real[offset + b] - vectorImag[a] * imag[offset + b];
+                resultImag[b] += vectorReal[a] * imag[offset + b] + vectorImag[a] * real[offset + b];
+            }
+        }
+        return new double[][] { resultReal, resultImag };
+    }
+
+    private static double squaredNorm(double[] real, double[] imag) {
+        double norm = 0;
+        for (int i = 0; i < real.length; i++)
+            norm += real[i] * real[i] + imag[i] * imag[i];
+        return norm;
+    }
+
+    private static ComplexTensor toTensor(double[] real, double[] imag, int... shape) {
+        float[] tensorReal = new float[real.length];
+        float[] tensorImag = new float[imag.length];
+        for (int i = 0; i < real.length; i++) {
+            tensorReal[i] = (float) real[i];
+            tensorImag[i] = (float) imag[i];
+        }
+        return new ComplexTensor(tensorReal, tensorImag, shape);
+    }
+
+    private static double[] toDouble(float[] data) {
+        double[] result = new double[data.length];
+        for (int i = 0; i < data.length; i++)
+            result[i] = data[i];
+        return result;
+    }
+
+    private int leftDimension(int site) {
+        return sites[site].shape()[0];
+    }
+
+    private int rightDimension(int site) {
+        return sites[site].shape()[2];
+    }
+
+    private void checkQubit(int qubit) {
+        if (qubit < 0 || qubit >= noQubits)
+            throw new IllegalArgumentException("Invalid qubit supplied.");
+    }
+}
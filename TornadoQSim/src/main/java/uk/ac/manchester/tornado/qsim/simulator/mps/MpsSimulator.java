@@ -0,0 +1,228 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.mps;
+
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.circuit.Step;
+import uk.ac.manchester.tornado.qsim.circuit.operation.ControlGate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Function;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Gate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Operation;
+import uk.ac.manchester.tornado.qsim.circuit.operation.OperationDataProvider;
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.FunctionType;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.simulator.Simulator;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Represents a quantum circuit simulator, which holds the state as a matrix
+ * product state (see MatrixProductState). Single qubit gates update one site,
+ * controlled gates and custom functions contract the sites of their qubits
+ * (brought next to each other by adjacent swaps) and split them back with a
+ * truncated SVD. Shallow, weakly entangling circuits of 50-100 qubits keep
+ * small bond dimensions, the accuracy is traded for memory by the maximum bond
+ * dimension and the truncation threshold.
+ */
+public class MpsSimulator implements Simulator {
+    /**
+     * Default maximum bond dimension.
+     */
+    public static final int DEFAULT_MAX_BOND_DIMENSION = 64;
+
+    /**
+     * Default maximum discarded weight per truncated bond.
+     */
+    public static final double DEFAULT_TRUNCATION_THRESHOLD = 1e-12;
+
+    private final int maxBondDimension;
+    private final double truncationThreshold;
+    private final Random random;
+    private double truncationError;
+    private int peakBondDimension;
+    private long swapCount;
+
+    /**
+     * Constructs an MPS simulator with the default maximum bond dimension and
+     * truncation threshold.
+     */
+    public MpsSimulator() {
+        this(DEFAULT_MAX_BOND_DIMENSION, DEFAULT_TRUNCATION_THRESHOLD);
+    }
+
+    /**
+     * Constructs an MPS simulator.
+     * 
+     * @param maxBondDimension
+     *            maximum bond dimension kept after an operation.
+     * @param truncationThreshold
+     *            maximum discarded weight (sum of the squares of the dropped
+     *            singular values) per truncated bond.
+     */
+    public MpsSimulator(int maxBondDimension, double truncationThreshold) {
+        if (maxBondDimension < 1)
+            throw new IllegalArgumentException("Maximum bond dimension must be greater than 0.");
+        if (!(truncationThreshold >= 0 && truncationThreshold < 1))
+            throw new IllegalArgumentException("Truncation threshold must be in the range [0, 1).");
+        this.maxBondDimension = maxBondDimension;
+        this.truncationThreshold = truncationThreshold;
+        random = new Random();
+    }
+
+    /**
+     * Gets the sum of the discarded weights of all truncations in the last
+     * simulation (an estimate of 1 - fidelity of the simulated state).
+     * 
+     * @return truncation error.
+     */
+    public double truncationError() {
+        return truncationError;
+    }
+
+    /**
+     * Gets the largest bond dimension reached in the last simulation.
+     * 
+     * @return peak bond dimension.
+     */
+    public int peakBondDimension() {
+        return peakBondDimension;
+    }
+
+    /**
+     * Gets the number of adjacent swaps inserted for operations on non-adjacent
+     * qubits in the last simulation.
+     * 
+     * @return number of inserted swaps.
+     */
+    public long swapCount() {
+        return swapCount;
+    }
+
+    /**
+     * Simulates the supplied circuit and returns the matrix product state of the
+     * final state.
+     * 
+     * @param circuit
+     *            quantum circuit.
+     * @return matrix product state of the simulated circuit.
+     */
+    public MatrixProductState simulateMps(Circuit circuit) {
+        if (circuit == null)
+            throw new IllegalArgumentException("Invalid circuit supplied (NULL).");
+        MatrixProductState state = new MatrixProductState(circuit.qubitCount(), maxBondDimension, truncationThreshold);
+        for (Step step : circuit.getSteps()) {
+            int qubit = 0;
+            while (qubit < circuit.qubitCount()) {
+                if (step.isQubitFree(qubit)) {
+                    qubit++;
+                } else {
+                    Operation operation = step.getOperation(qubit);
+                    applyOperation(state, operation);
+                    qubit += operation.size();
+                }
+            }
+        }
+        truncationError = state.truncationError();
+        peakBondDimension = state.peakBondDimension();
+        swapCount = state.swapCount();
+        return state;
+    }
+
+    /**
+     * Simulates the supplied circuit (up to MatrixProductState.MAX_STATE_VECTOR_QUBITS
+     * qubits) and returns the contracted full state.
+     */
+    @Override
+    public State simulateFullState(Circuit circuit) {
+        return new State(simulateMps(circuit).toStateVector());
+    }
+
+    /**
+     * Simulates the supplied circuit (up to 31 qubits) and returns the collapsed
+     * state of the quantum system.
+     */
+    @Override
+    public int simulateAndCollapse(Circuit circuit) {
+        if (circuit != null && circuit.qubitCount() > 31)
+            throw new UnsupportedOperationException("State of " + circuit.qubitCount() + " qubits does not fit into int (use MatrixProductState.sample).");
+        BitSet outcomes = simulateMps(circuit).sample(random);
+        return outcomes.isEmpty() ? 0 : (int) outcomes.toLongArray()[0];
+    }
+
+    @Override
+    public String describeStatistics() {
+        return String.format("MPS: peak bond dimension %d, truncation error %.3e, %d swaps inserted", peakBondDimension(), truncationError(), swapCount());
+    }
+
+    private void applyOperation(MatrixProductState state, Operation operation) {
+        OperationDataProvider provider = OperationDataProvider.getInstance();
+        switch (operation.operationType()) {
+            case Gate:
+                Gate gate = (Gate) operation;
+                state.applyGate(gate.targetQubit()[0], provider.getData(gate));
+                break;
+            case ControlGate:
+                ControlGate controlGate = (ControlGate) operation;
+                int[] qubits = { controlGate.controlQubit()[0], controlGate.targetQubit()[0] };
+                state.applyOperator(qubits, getControlGateData(provider.getData(controlGate.gate())));
+                break;
+            case Function:
+                Function function = (Function) operation;
+                if (function.type() != FunctionType.Swap)
+                    throw new UnsupportedOperationException("Function type '" + function.type() + "' is not supported in an MPS simulator.");
+                // Swap function exchanges the first and the last qubit of its range
+                int[] targetQubits = function.targetQubits();
+                if (targetQubits.length > 1)
+                    state.applySwap(targetQubits[0], targetQubits[targetQubits.length - 1]);
+                break;
+            case CustomFunction:
+                Function customFunction = (Function) operation;
+                ComplexTensor functionData = provider.getData(customFunction.name());
+                if ((1 << customFunction.size()) != functionData.shape()[0])
+                    throw new IllegalArgumentException("Registered custom function data do not fit the function application.");
+                state.applyOperator(customFunction.targetQubits(), functionData);
+                break;
+            default:
+                throw new UnsupportedOperationException("Operation type '" + operation.operationType() + "' is not supported in an MPS simulator.");
+        }
+    }
+
+    private static ComplexTensor getControlGateData(ComplexTensor gateData) {
+        // Bit 0 of the matrix index is the control qubit, bit 1 the target qubit
+        float[] gateReal = gateData.getRawRealData();
+        float[] gateImag = gateData.getRawImagData();
+        float[] real = new float[16];
+        float[] imag = new float[16];
+        real[0] = 1;
+        real[2 * 4 + 2] = 1;
+        for (int out = 0; out < 2; out++) {
+            for (int in = 0; in < 2; in++) {
+                int index = (1 | out << 1) * 4 + (1 | in << 1);
+                real[index] = gateReal[out * 2 + in];
+                imag[index] = gateImag[out * 2 + in];
+            }
+        }
+        return new ComplexTensor(real, imag, 4, 4);
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.mps;
+
+import java.util.Arrays;
+
+/**
+ * Singular value decomposition of complex matrices in double precision,
+ * computed with the one-sided Jacobi method (Hestenes). Pairs of columns are
+ * rotated until they are orthogonal, the column norms are then the singular
+ * values. The method is accurate for the small singular values, which decide
+ * the truncation of the bond dimension.
+ */
+class MpsSvd {
+    private static final int MAX_SWEEPS = 60;
+    private static final double TOLERANCE = 1e-15;
+
+    private final int rows;
+    private final int cols;
+    private final int rank;
+    private final double[] uReal;
+    private final double[] uImag;
+    private final double[] singularValues;
+    private final double[] vhReal;
+    private final double[] vhImag;
+
+    private MpsSvd(int rows, int cols, double[] uReal, double[] uImag, double[] singularValues, double[] vhReal, double[] vhImag) {
+        this.rows = rows;
+        this.cols = cols;
+        this.rank = singularValues.length;
+        this.uReal = uReal;
+        this.uImag = uImag;
+        this.singularValues = singularValues;
+        this.vhReal = vhReal;
+        this.vhImag = vhImag;
+    }
+
+    /**
+     * Decomposes the supplied matrix M = U S V^H, where the min(rows, cols)
+     * singular values are sorted in descending order.
+     * 
+     * @param real
+     *            real parts of the matrix (row-major, rows x cols).
+     * @param imag
+     *            imaginary parts of the matrix (row-major, rows x cols).
+     * @param rows
+     *            number of rows.
+     * @param cols
+     *            number of columns.
+     * @return decomposition of the matrix.
+     */
+    protected static MpsSvd decompose(double[] real, double[] imag, int rows, int cols) {
+        if (rows >= cols)
+            return decomposeTall(real, imag, rows, cols, false);
+        // M^H = U' S V'^H => M = V' S U'^H (the conjugate transpose is tall)
+        return decomposeTall(real, imag, cols, rows, true);
+    }
+
+    private static MpsSvd decomposeTall(double[] real, double[] imag, int rows, int cols, boolean conjugateTranspose) {
+        // Columns of A (rows x cols) and V (cols x cols) are stored contiguously
+        double[] aReal = new double[rows * cols];
+        double[] aImag = new double[rows * cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (conjugateTranspose) {
+                    aReal[j * rows + i] = real[j * rows + i];
+                    aImag[j * rows + i] = -imag[j * rows + i];
+                } else {
+                    aReal[j * rows + i] = real[i * cols + j];
+                    aImag[j * rows + i] = imag[i * cols + j];
+                }
+            }
+        }
+        double[] vReal = new double[cols * cols];
+        double[] vImag = new double[cols * cols];
+        for (int j = 0; j < cols; j++)
+            vReal[j * cols + j] = 1;
+
+        orthogonalizeColumns(aReal, aImag, rows, cols, vReal, vImag);
+
+        double[] norms = new double[cols];
+        Integer[] order = new Integer[cols];
+        for (int j = 0; j < cols; j++) {
+            norms[j] = Math.sqrt(squaredNorm(aReal, aImag, j * rows, rows));
+            order[j] = j;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(norms[b], norms[a]));
+
+        // U = A V / S, columns of zero singular values are left empty
+        double[] singularValues = new double[cols];
+        double[] uReal = new double[rows * cols];
+        double[] uImag = new double[rows * cols];
+        double[] vhReal = new double[cols * cols];
+        double[] vhImag = new double[cols * cols];
+        for (int k = 0; k < cols; k++) {
+            int j = order[k];
+            double norm = norms[j];
+            singularValues[k] = norm;
+            double scale = norm > 0 ? 1 / norm : 0;
+            for (int i = 0; i < rows; i++) {
+                uReal[i * cols + k] = aReal[j * rows + i] * scale;
+                uImag[i * cols + k] = aImag[j * rows + i] * scale;
+            }
+            for (int i = 0; i < cols; i++) {
+                vhReal[k * cols + i] = vReal[j * cols + i];
+                vhImag[k * cols + i] = -vImag[j * cols + i];
+            }
+        }
+        if (!conjugateTranspose)
+            return new MpsSvd(rows, cols, uReal, uImag, singularValues, vhReal, vhImag);
+
+        // U = V' (cols x cols), V^H = U'^H (cols x rows)
+        double[] transposedUReal = new double[cols * cols];
+        double[] transposedUImag = new double[cols * cols];
+        double[] transposedVhReal = new double[cols * rows];
+        double[] transposedVhImag = new double[cols * rows];
+        for (int k = 0; k < cols; k++) {
+            for (int i = 0; i < cols; i++) {
+                transposedUReal[i * cols + k] = vhReal[k * cols + i];
+                transposedUImag[i * cols + k] = -vhImag[k * cols + i];
+            }
+            for (int i = 0; i < rows; i++) {
+                transposedVhReal[k * rows + i] = uReal[i * cols + k];
+                transposedVhImag[k * rows + i] = -uImag[i * cols + k];
+            }
+        }
+        return new MpsSvd(cols, rows, transposedUReal, transposedUImag, singularValues, transposedVhReal, transposedVhImag);
+    }
+
+    private static void orthogonalizeColumns(double[] aReal, double[] aImag, int rows, int cols, double[] vReal, double[] vImag) {
+        for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+            boolean rotated = false;
+            for (int p = 0; p < cols - 1; p++) {
+                for (int q = p + 1; q < cols; q++) {
+                    int pOffset = p * rows;
+                    int qOffset = q * rows;
+                    double alpha = squaredNorm(aReal, aImag, pOffset, rows);
+                    double beta = squaredNorm(aReal, aImag, qOffset, rows);
+                    // gamma = a_p^H a_q
+                    double gammaReal = 0, gammaImag = 0;
+                    for (int i = 0; i < rows; i++) {
+                        gammaReal += aReal[pOffset + i] * aReal[qOffset + i] + aImag[pOffset + i] * aImag[qOffset + i];
+                        gammaImag += aReal[pOffset + i] * aImag[qOffset + i] - aImag[pOffset + i] * aReal[qOffset + i];
+                    }
+                    double gamma = Math.hypot(gammaReal, gammaImag);
+                    if (gamma == 0 || gamma <= TOLERANCE * Math.sqrt(alpha * beta))
+                        continue;
+                    rotated = true;
+
+                    // Real rotation of a_p and e^{-i phi} a_q, where gamma = |gamma| e^{i phi}
+                    double zeta = (beta - alpha) / (2 * gamma);
+                    double t = Math.signum(zeta) / (Math.abs(zeta) + Math.sqrt(1 + zeta * zeta));
+                    if (zeta == 0)
+                        t = 1;
+                    double c = 1 / Math.sqrt(1 + t * t);
+                    double s = c * t;
+                    double phaseReal = gammaReal / gamma;
+                    double phaseImag = -gammaImag / gamma;
+                    rotate(aReal, aImag, pOffset, qOffset, rows, c, s, phaseReal, phaseImag);
+                    rotate(vReal, vImag, p * cols, q * cols, cols, c, s, phaseReal, phaseImag);
+                }
+            }
+            if (!rotated)
+                return;
+        }
+    }
+
+    private static void rotate(double[] real, double[] imag, int pOffset, int qOffset, int length, double c, double s, double phaseReal, double phaseImag) {
+        for (int i = 0; i < length; i++) {
+            double pReal = real[pOffset + i];
+            double pImag = imag[pOffset + i];
+            double qReal = real[qOffset + i] * phaseReal - imag[qOffset + i] * phaseImag;
+            double qImag = real[qOffset + i] * phaseImag + imag[qOffset + i] * phaseReal;
+            real[pOffset + i] = c * pReal - s * qReal;
+            imag[pOffset + i] = c * pImag - s * qImag;
+            real[qOffset + i] = s * pReal + c * qReal;
+            imag[qOffset + i] = s * pImag + c * qImag;
+        }
+    }
+
+    private static double squaredNorm(double[] real, double[] imag, int offset, int length) {
+        double norm = 0;
+        for (int i = 0; i < length; i++)
+            norm += real[offset + i] * real[offset + i] + imag[offset + i] * imag[offset + i];
+        return norm;
+    }
+
+    /**
+     * Gets the number of rows of the decomposed matrix (rows of U).
+     * 
+     * @return number of rows.
+     */
+    protected int rows() {
+        return rows;
+    }
+
+    /**
+     * Gets the number of columns of the decomposed matrix (columns of V^H).
+     * 
+     * @return number of columns.
+     */
+    protected int cols() {
+        return cols;
+    }
+
+    /**
+     * Gets the number of singular values (min(rows, cols)).
+     * 
+     * @return number of singular values.
+     */
+    protected int rank() {
+        return rank;
+    }
+
+    /**
+     * Gets the singular values in descending order.
+     * 
+     * @return singular values.
+     */
+    protected double[] singularValues() {
+        return singularValues;
+    }
+
+    /**
+     * Gets the real parts of U (row-major, rows x rank).
+     * 
+     * @return real parts of the left singular vectors.
+     */
+    protected double[] uReal() {
+        return uReal;
+    }
+
+    /**
+     * Gets the imaginary parts of U (row-major, rows x rank).
+     * 
+     * @return imaginary parts of the left singular vectors.
+     */
+    protected double[] uImag() {
+        return uImag;
+    }
+
+    /**
+     * Gets the real parts of V^H (row-major, rank x cols).
+     * 
+     * @return real parts of the right singular vectors.
+     */
+    protected double[] vhReal() {
+        return vhReal;
+    }
+
+    /**
+     * Gets the imaginary parts of V^H (row-major, rank x cols).
+     * 
+     * @return imaginary parts of the right singular vectors.
+     */
+    protected double[] vhImag() {
+        return vhImag;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.noise;
+
+import uk.ac.manchester.tornado.qsim.math.DoubleComplexTensor;
+
+/**
+ * Represents a single-qubit noise channel in the Kraus representation, rho ->
+ * sum K_k rho K_k^dagger. The Kraus operators are 2x2 complex matrices, whose
+ * products K_k^dagger K_k sum up to the identity (trace preservation).
+ */
+public class KrausChannel {
+    private static final double COMPLETENESS_TOLERANCE = 1e-6;
+
+    private final DoubleComplexTensor[] operators;
+
+    /**
+     * Constructs a noise channel from its Kraus operators.
+     * 
+     * @param operators
+     *            2x2 Kraus operators (sum of K^dagger K must be the identity).
+     */
+    public KrausChannel(DoubleComplexTensor... operators) {
+        if (operators == null || operators.length == 0)
+            throw new IllegalArgumentException("Invalid Kraus operators supplied (NULL or empty).");
+        double[] sumReal = new double[4];
+        double[] sumImag = new double[4];
+        this.operators = new DoubleComplexTensor[operators.length];
+        for (int k = 0; k < operators.length; k++) {
+            DoubleComplexTensor operator = operators[k];
+            if (operator == null || operator.rank() != 2 || operator.shape()[0] != 2 || operator.shape()[1] != 2)
+                throw new IllegalArgumentException("Kraus operators must be 2x2 matrices.");
+            double[] real = operator.getRawRealData();
+            double[] imag = operator.getRawImagData();
+            // (K^dagger K)[r][c] = sum conj(K[i][r]) K[i][c]
+            for (int r = 0; r < 2; r++) {
+                for (int c = 0; c < 2; c++) {
+                    for (int i = 0; i < 2; i++) {
+                        sumReal[r * 2 + c] += real[i * 2 + r] * real[i * 2 + c] + imag[i * 2 + r] * imag[i * 2 + c];
+                        sumImag[r * 2 + c] += real[i * 2 + r] * imag[i * 2 + c] - imag[i * 2 + r] * real[i * 2 + c];
+                    }
+                }
+            }
+            this.operators[k] = new DoubleComplexTensor(operator);
+        }
+        for (int i = 0; i < 4; i++) {
+            double expected = i == 0 || i == 3 ? 1 : 0;
+            if (Math.abs(sumReal[i] - expected) > COMPLETENESS_TOLERANCE || Math.abs(sumImag[i]) > COMPLETENESS_TOLERANCE)
+                throw new IllegalArgumentException("Kraus operators are not trace preserving (sum of K^dagger K is not the identity).");
+        }
+    }
+
+    /**
+     * Creates a depolarizing channel, rho -> (1 - p) rho + p I / 2, applied as
+     * the Pauli errors X, Y and Z with the probability p / 4 each.
+     * 
+     * @param probability
+     *            depolarizing probability p in the range [0, 1].
+     * @return depolarizing channel.
+     */
+    public static KrausChannel depolarizing(double probability) {
+        checkProbability(probability);
+        double identity = Math.sqrt(1 - 3 * probability / 4);
+        double pauli = Math.sqrt(probability / 4);
+        return new KrausChannel(matrix(identity, 0, 0, 0, 0, 0, identity, 0), matrix(0, 0, pauli, 0, pauli, 0, 0, 0), matrix(0, 0, 0, -pauli, 0, pauli, 0, 0),
+                matrix(pauli, 0, 0, 0, 0, 0, -pauli, 0));
+    }
+
+    /**
+     * Creates an amplitude damping channel (energy relaxation), which decays the
+     * state 1 into the state 0 with the probability gamma.
+     * 
+     * @param gamma
+     *            damping probability in the range [0, 1].
+     * @return amplitude damping channel.
+     */
+    public static KrausChannel amplitudeDamping(double gamma) {
+        checkProbability(gamma);
+        return new KrausChannel(matrix(1, 0, 0, 0, 0, 0, Math.sqrt(1 - gamma), 0), matrix(0, 0, Math.sqrt(gamma), 0, 0, 0, 0, 0));
+    }
+
+    /**
+     * Creates a phase damping channel (dephasing), which scales the coherences
+     * (off-diagonal elements) of the qubit by sqrt(1 - lambda).
+     * 
+     * @param lambda
+     *            damping probability in the range [0, 1].
+     * @return phase damping channel.
+     */
+    public static KrausChannel phaseDamping(double lambda) {
+        checkProbability(lambda);
+        return new KrausChannel(matrix(1, 0, 0, 0, 0, 0, Math.sqrt(1 - lambda), 0), matrix(0, 0, 0, 0, 0, 0, Math.sqrt(lambda), 0));
+    }
+
+    /**
+     * Gets the number of Kraus operators.
+     * 
+     * @return number of Kraus operators.
+     */
+    public int operatorCount() {
+        return operators.length;
+    }
+
+    /**
+     * Gets the Kraus operator at the supplied index.
+     * 
+     * @param index
+     *            index of the Kraus operator.
+     * @return copy of the 2x2 Kraus operator.
+     */
+    public DoubleComplexTensor getOperator(int index) {
+        if (index < 0 || index >= operators.length)
+            throw new IllegalArgumentException("Invalid Kraus operator index supplied.");
+        return new DoubleComplexTensor(operators[index]);
+    }
+
+    /**
+     * Computes the superoperator of the channel, the 4x4 matrix acting on the
+     * vectorized density matrix of the qubit. Bit 0 of the matrix index is the
+     * column qubit, bit 1 the row qubit, so S[(r, c)][(r', c')] = sum K[r][r']
+     * conj(K[c][c']).
+     * 
+     * @return superoperator (row-major, 4x4).
+     */
+    public DoubleComplexTensor getSuperoperator() {
+        double[] real = new double[16];
+        double[] imag = new double[16];
+        for (DoubleComplexTensor operator : operators) {
+            double[] kReal = operator.getRawRealData();
+            double[] kImag = operator.getRawImagData();
+            for (int out = 0; out < 4; out++) {
+                int r = out >> 1, c = out & 1;
+                for (int in = 0; in < 4; in++) {
+                    int rIn = in >> 1, cIn = in & 1;
+                    double aReal = kReal[r * 2 + rIn], aImag = kImag[r * 2 + rIn];
+                    double bReal = kReal[c * 2 + cIn], bImag = -kImag[c * 2 + cIn];
+                    real[out * 4 + in] += aReal * bReal - aImag * bImag;
+                    imag[out * 4 + in] += aReal * bImag + aImag * bReal;
+                }
+            }
+        }
+        return new DoubleComplexTensor(real, imag, 4, 4);
+    }
+
+    private static DoubleComplexTensor matrix(double aReal, double aImag, double bReal, double bImag, double cReal, double cImag, double dReal, double dImag) {
+        return new DoubleComplexTensor(new double[] { aReal, bReal, cReal, dReal }, new double[] { aImag, bImag, cImag, dImag }, 2, 2);
+    }
+
+    private static void checkProbability(double probability) {
+        if (!(probability >= 0 && probability <= 1))
+            throw new IllegalArgumentException("Probability must be in the range [0, 1].");
+    }
+}
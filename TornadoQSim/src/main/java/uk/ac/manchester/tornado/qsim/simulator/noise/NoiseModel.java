@@ -0,0 +1,134 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.noise;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents a noise model of a quantum device. The gate noise channels are
+ * applied (in the order of addition) to every qubit involved in an operation,
+ * right after the operation. The readout error flips the measured value of
+ * every qubit with the supplied probabilities, without affecting the state.
+ */
+public class NoiseModel {
+    private final List<KrausChannel> gateChannels;
+    private double readoutError0to1;
+    private double readoutError1to0;
+
+    /**
+     * Constructs a noise model without any noise.
+     */
+    public NoiseModel() {
+        gateChannels = new ArrayList<>();
+    }
+
+    /**
+     * Adds a noise channel applied to every qubit involved in an operation,
+     * after the operation.
+     * 
+     * @param channel
+     *            single-qubit noise channel.
+     */
+    public void addGateNoise(KrausChannel channel) {
+        if (channel == null)
+            throw new IllegalArgumentException("Invalid noise channel supplied (NULL).");
+        gateChannels.add(channel);
+    }
+
+    /**
+     * Sets the readout error of all qubits.
+     * 
+     * @param probability0to1
+     *            probability of reading 1 when the qubit collapsed to 0.
+     * @param probability1to0
+     *            probability of reading 0 when the qubit collapsed to 1.
+     */
+    public void setReadoutError(double probability0to1, double probability1to0) {
+        if (!(probability0to1 >= 0 && probability0to1 <= 1 && probability1to0 >= 0 && probability1to0 <= 1))
+            throw new IllegalArgumentException("Readout error probabilities must be in the range [0, 1].");
+        readoutError0to1 = probability0to1;
+        readoutError1to0 = probability1to0;
+    }
+
+    /**
+     * Gets the noise channels applied after every operation.
+     * 
+     * @return unmodifiable list of gate noise channels.
+     */
+    public List<KrausChannel> gateChannels() {
+        return Collections.unmodifiableList(gateChannels);
+    }
+
+    /**
+     * Gets the probability of reading 1 when the qubit collapsed to 0.
+     * 
+     * @return readout error 0 -> 1.
+     */
+    public double readoutError0to1() {
+        return readoutError0to1;
+    }
+
+    /**
+     * Gets the probability of reading 0 when the qubit collapsed to 1.
+     * 
+     * @return readout error 1 -> 0.
+     */
+    public double readoutError1to0() {
+        return readoutError1to0;
+    }
+
+    /**
+     * Checks whether the model has any noise.
+     * 
+     * @return true if there are no gate channels and no readout error.
+     */
+    public boolean isNoiseless() {
+        return gateChannels.isEmpty() && readoutError0to1 == 0 && readoutError1to0 == 0;
+    }
+
+    /**
+     * Applies the readout error to a probability distribution of the measured
+     * basis states (qubit q is the bit q of the index).
+     * 
+     * @param probabilities
+     *            probabilities of the basis states, updated in place.
+     * @param noQubits
+     *            number of qubits.
+     */
+    public void applyReadoutError(double[] probabilities, int noQubits) {
+        if (readoutError0to1 == 0 && readoutError1to0 == 0)
+            return;
+        for (int qubit = 0; qubit < noQubits; qubit++) {
+            int bit = 1 << qubit;
+            for (int i = 0; i < probabilities.length; i++) {
+                if ((i & bit) != 0)
+                    continue;
+                double zero = probabilities[i];
+                double one = probabilities[i | bit];
+                probabilities[i] = (1 - readoutError0to1) * zero + readoutError1to0 * one;
+                probabilities[i | bit] = readoutError0to1 * zero + (1 - readoutError1to0) * one;
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.stabilizer;
+
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.Step;
+import uk.ac.manchester.tornado.qsim.circuit.operation.ControlGate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Function;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Gate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Operation;
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.FunctionType;
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.GateType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Provides the operations of a circuit for the stabilizer simulator and checks,
+ * that they belong to the Clifford subset.
+ */
+class StabilizerDataProvider {
+
+    /**
+     * Gets list of all operations in the supplied quantum circuit, in the order of
+     * application (step by step). All operations are checked to be Clifford
+     * operations (or instructions).
+     * 
+     * @param circuit
+     *            quantum circuit.
+     * @return list of all circuit operations.
+     */
+    protected List<Operation> getCircuitOperations(Circuit circuit) {
+        List<Operation> operations = new ArrayList<>();
+        for (Step step : circuit.getSteps()) {
+            int qubit = 0;
+            while (qubit < circuit.qubitCount()) {
+                if (step.isQubitFree(qubit)) {
+                    qubit++;
+                } else {
+                    Operation operation = step.getOperation(qubit);
+                    checkClifford(operation);
+                    operations.add(operation);
+                    qubit += operation.size();
+                }
+            }
+        }
+        return operations;
+    }
+
+    /**
+     * Checks whether the supplied gate type is a Clifford gate (I, X, Y, Z, H,
+     * S).
+     * 
+     * @param type
+     *            gate type.
+     * @return true if the gate is a Clifford gate.
+     */
+    protected static boolean isCliffordGate(GateType type) {
+        switch (type) {
+            case I:
+            case X:
+            case Y:
+            case Z:
+            case H:
+            case S:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks whether the supplied gate type is a Clifford gate when controlled (X,
+     * Y, Z).
+     * 
+     * @param type
+     *            gate type of the controlled gate.
+     * @return true if the controlled gate is a Clifford gate.
+     */
+    protected static boolean isCliffordControlGate(GateType type) {
+        return type == GateType.X || type == GateType.Y || type == GateType.Z;
+    }
+
+    private void checkClifford(Operation operation) {
+        switch (operation.operationType()) {
+            case Gate:
+                GateType type = ((Gate) operation).type();
+                if (!isCliffordGate(type))
+                    throw new UnsupportedOperationException("Gate type '" + type + "' is not a Clifford gate and cannot be simulated in a stabilizer simulator.");
+                return;
+            case ControlGate:
+                GateType controlledType = ((ControlGate) operation).gate().type();
+                if (!isCliffordControlGate(controlledType))
+                    throw new UnsupportedOperationException("Controlled gate type '" + controlledType + "' is not a Clifford gate and cannot be simulated in a stabilizer simulator.");
+                return;
+            case Function:
+                FunctionType functionType = ((Function) operation).type();
+                if (functionType != FunctionType.Swap)
+                    throw new UnsupportedOperationException("Function type '" + functionType + "' is not supported in a stabilizer simulator.");
+                return;
+            case Instruction:
+                return;
+            default:
+                throw new UnsupportedOperationException("Operation type '" + operation.operationType() + "' is not supported in a stabilizer simulator.");
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.stabilizer;
+
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.circuit.operation.ControlGate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Function;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Gate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Instruction;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Operation;
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.InstructionType;
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.OperationType;
+import uk.ac.manchester.tornado.qsim.simulator.Simulator;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Represents a quantum circuit simulator of Clifford circuits (H, S, X, Y, Z,
+ * CNOT, CY, CZ, swap, measure and reset), which tracks the stabilizer tableau
+ * of the state instead of the amplitudes (see StabilizerTableau). The
+ * simulation takes polynomial time and memory, so circuits of thousands of
+ * qubits (eg. error correction codes) can be simulated. Non-Clifford operations
+ * (T, R, custom functions) are rejected before the simulation starts.
+ * 
+ * The full state vector is available for up to
+ * StabilizerTableau.MAX_STATE_VECTOR_QUBITS qubits (up to a global phase),
+ * larger circuits are simulated to the tableau and sampled.
+ */
+public class StabilizerSimulator implements Simulator {
+    private final StabilizerDataProvider dataProvider;
+    private final Random random;
+    private int[] measurements;
+
+    /**
+     * Constructs a stabilizer simulator.
+     */
+    public StabilizerSimulator() {
+        this(new Random());
+    }
+
+    /**
+     * Constructs a stabilizer simulator with a seeded random generator for the
+     * measurement outcomes.
+     * 
+     * @param seed
+     *            random generator seed.
+     */
+    public StabilizerSimulator(long seed) {
+        this(new Random(seed));
+    }
+
+    private StabilizerSimulator(Random random) {
+        dataProvider = new StabilizerDataProvider();
+        this.random = random;
+        measurements = new int[0];
+    }
+
+    /**
+     * Gets the outcomes of the measure instructions of the circuit (in the order
+     * of application, step by step) in the last simulation.
+     * 
+     * @return measurement outcomes (0 or 1).
+     */
+    public int[] measurements() {
+        return measurements.clone();
+    }
+
+    /**
+     * Simulates the supplied circuit and returns the stabilizer tableau of the
+     * final state.
+     * 
+     * @param circuit
+     *            quantum circuit of Clifford operations.
+     * @return stabilizer tableau of the simulated circuit.
+     */
+    public StabilizerTableau simulateTableau(Circuit circuit) {
+        if (circuit == null)
+            throw new IllegalArgumentException("Invalid circuit supplied (NULL).");
+        return simulate(circuit.qubitCount(), dataProvider.getCircuitOperations(circuit));
+    }
+
+    /**
+     * Simulates the supplied circuit (up to StabilizerTableau.MAX_STATE_VECTOR_QUBITS
+     * qubits) and returns the full state, whose global phase is chosen so that
+     * the first non-zero amplitude is real and positive.
+     */
+    @Override
+    public State simulateFullState(Circuit circuit) {
+        return new State(simulateTableau(circuit).toStateVector());
+    }
+
+    /**
+     * Simulates the supplied circuit (up to 31 qubits) and returns the collapsed
+     * state of the quantum system.
+     */
+    @Override
+    public int simulateAndCollapse(Circuit circuit) {
+        if (circuit != null && circuit.qubitCount() > 31)
+            throw new UnsupportedOperationException("State of " + circuit.qubitCount() + " qubits does not fit into int (use sample).");
+        BitSet outcomes = simulateTableau(circuit).sample(random);
+        return outcomes.isEmpty() ? 0 : (int) outcomes.toLongArray()[0];
+    }
+
+    /**
+     * Simulates the supplied circuit and samples the outcomes of measuring all
+     * qubits at the end. The circuit is simulated once, unless it contains
+     * measure or reset instructions, which collapse the state differently in every
+     * shot.
+     * 
+     * @param circuit
+     *            quantum circuit of Clifford operations.
+     * @param shots
+     *            number of samples.
+     * @return outcomes of all qubits for every shot (bit q set if the qubit q
+     *         collapsed to 1).
+     */
+    public List<BitSet> sample(Circuit circuit, int shots) {
+        if (circuit == null)
+            throw new IllegalArgumentException("Invalid circuit supplied (NULL).");
+        if (shots < 1)
+            throw new IllegalArgumentException("Number of shots must be greater than 0.");
+        List<Operation> operations = dataProvider.getCircuitOperations(circuit);
+        boolean collapsing = operations.stream().anyMatch(operation -> operation.operationType() == OperationType.Instruction);
+
+        List<BitSet> samples = new ArrayList<>(shots);
+        StabilizerTableau tableau = simulate(circuit.qubitCount(), operations);
+        for (int shot = 0; shot < shots; shot++) {
+            if (collapsing && shot > 0)
+                tableau = simulate(circuit.qubitCount(), operations);
+            samples.add(tableau.sample(random));
+        }
+        return samples;
+    }
+
+    private StabilizerTableau simulate(int noQubits, List<Operation> operations) {
+        StabilizerTableau tableau = new StabilizerTableau(noQubits);
+        List<Integer> outcomes = new ArrayList<>();
+        for (Operation operation : operations)
+            applyOperation(tableau, operation, outcomes);
+        measurements = outcomes.stream().mapToInt(Integer::intValue).toArray();
+        return tableau;
+    }
+
+    private void applyOperation(StabilizerTableau tableau, Operation operation, List<Integer> outcomes) {
+        switch (operation.operationType()) {
+            case Gate:
+                applyGate(tableau, (Gate) operation);
+                break;
+            case ControlGate:
+                applyControlGate(tableau, (ControlGate) operation);
+                break;
+            case Function:
+                // Swap function exchanges the first and the last qubit of its range
+                int[] qubits = ((Function) operation).targetQubits();
+                if (qubits.length > 1)
+                    tableau.applySwap(qubits[0], qubits[qubits.length - 1]);
+                break;
+            case Instruction:
+                Instruction instruction = (Instruction) operation;
+                if (instruction.type() == InstructionType.Measure)
+                    outcomes.add(tableau.measure(instruction.targetQubit(), random));
+                else
+                    tableau.reset(instruction.targetQubit(), random);
+                break;
+            default:
+                throw new UnsupportedOperationException("Operation type '" + operation.operationType() + "' is not supported in a stabilizer simulator.");
+        }
+    }
+
+    private void applyGate(StabilizerTableau tableau, Gate gate) {
+        int targetQubit = gate.targetQubit()[0];
+        switch (gate.type()) {
+            case X:
+                tableau.applyX(targetQubit);
+                break;
+            case Y:
+                tableau.applyY(targetQubit);
+                break;
+            case Z:
+                tableau.applyZ(targetQubit);
+                break;
+            case H:
+                tableau.applyH(targetQubit);
+                break;
+            case S:
+                tableau.applyS(targetQubit);
+                break;
+            case I:
+                break;
+            default:
+                throw new UnsupportedOperationException("Gate type '" + gate.type() + "' is not a Clifford gate and cannot be simulated in a stabilizer simulator.");
+        }
+    }
+
+    private void applyControlGate(StabilizerTableau tableau, ControlGate controlGate) {
+        int controlQubit = controlGate.controlQubit()[0];
+        int targetQubit = controlGate.targetQubit()[0];
+        switch (controlGate.gate().type()) {
+            case X:
+                tableau.applyCNOT(controlQubit, targetQubit);
+                break;
+            case Y:
+                tableau.applyCY(controlQubit, targetQubit);
+                break;
+            case Z:
+                tableau.applyCZ(controlQubit, targetQubit);
+                break;
+            default:
+                throw new UnsupportedOperationException("Controlled gate type '" + controlGate.gate().type() + "' is not a Clifford gate and cannot be simulated in a stabilizer simulator.");
+        }
+    }
+}
@@ -0,0 +1,519 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.stabilizer;
+
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Represents a stabilizer state of a quantum system as a Clifford tableau (see
+ * Aaronson and Gottesman, Improved simulation of stabilizer circuits, 2004).
+ * The tableau of n qubits has 2n + 1 rows: n destabilizer generators, n
+ * stabilizer generators and a scratch row. Every row is a Pauli string with a
+ * sign, whose X and Z bits are packed into longs (64 qubits per word), so a
+ * gate updates 2n rows in O(n) and a measurement takes O(n^2 / 64) word
+ * operations. The memory of the tableau grows with n^2 / 4 bytes, which allows
+ * thousands of qubits.
+ * 
+ * Only Clifford gates (H, S, X, Y, Z, CNOT, CY, CZ, swap) preserve a stabilizer
+ * state. The global phase of the state is not tracked.
+ */
+public class StabilizerTableau {
+    /**
+     * Maximum number of qubits of a state, for which the full state vector can be
+     * computed.
+     */
+    public static final int MAX_STATE_VECTOR_QUBITS = 20;
+
+    private final int noQubits;
+    private final int words;
+    private final long[] x;
+    private final long[] z;
+    private final boolean[] sign;
+
+    /**
+     * Constructs a tableau of the state '00...0' (stabilized by Z on every qubit).
+     * 
+     * @param noQubits
+     *            number of qubits.
+     */
+    public StabilizerTableau(int noQubits) {
+        if (noQubits < 1)
+            throw new IllegalArgumentException("Number of qubits in a state must be greater than 0.");
+        this.noQubits = noQubits;
+        words = (noQubits + 63) >>> 6;
+        int rows = 2 * noQubits + 1;
+        x = new long[rows * words];
+        z = new long[rows * words];
+        sign = new boolean[rows];
+        for (int qubit = 0; qubit < noQubits; qubit++) {
+            x[qubit * words + (qubit >>> 6)] |= 1L << qubit;
+            z[(noQubits + qubit) * words + (qubit >>> 6)] |= 1L << qubit;
+        }
+    }
+
+    private StabilizerTableau(StabilizerTableau tableau) {
+        noQubits = tableau.noQubits;
+        words = tableau.words;
+        x = tableau.x.clone();
+        z = tableau.z.clone();
+        sign = tableau.sign.clone();
+    }
+
+    /**
+     * Creates an independent copy of this tableau.
+     * 
+     * @return copy of the tableau.
+     */
+    public StabilizerTableau copy() {
+        return new StabilizerTableau(this);
+    }
+
+    /**
+     * Gets the number of qubits of the state.
+     * 
+     * @return number of qubits.
+     */
+    public int qubitCount() {
+        return noQubits;
+    }
+
+    /**
+     * Applies the Hadamard gate.
+     * 
+     * @param qubit
+     *            target qubit.
+     */
+    public void applyH(int qubit) {
+        checkQubit(qubit);
+        int word = qubit >>> 6;
+        long bit = 1L << qubit;
+        for (int row = 0; row < 2 * noQubits; row++) {
+            int i = row * words + word;
+            long xBit = x[i] & bit;
+            long zBit = z[i] & bit;
+            if ((xBit & zBit) != 0)
+                sign[row] = !sign[row];
+            x[i] ^= xBit ^ zBit;
+            z[i] ^= xBit ^ zBit;
+        }
+    }
+
+    /**
+     * Applies the phase gate S.
+     * 
+     * @param qubit
+     *            target qubit.
+     */
+    public void applyS(int qubit) {
+        checkQubit(qubit);
+        int word = qubit >>> 6;
+        long bit = 1L << qubit;
+        for (int row = 0; row < 2 * noQubits; row++) {
+            int i = row * words + word;
+            long xBit = x[i] & bit;
+            if ((xBit & z[i]) != 0)
+                sign[row] = !sign[row];
+            z[i] ^= xBit;
+        }
+    }
+
+    /**
+     * Applies the Pauli-X gate.
+     * 
+     * @param qubit
+     *            target qubit.
+     */
+    public void applyX(int qubit) {
+        applyPauli(qubit, false, true);
+    }
+
+    /**
+     * Applies the Pauli-Y gate.
+     * 
+     * @param qubit
+     *            target qubit.
+     */
+    public void applyY(int qubit) {
+        applyPauli(qubit, true, true);
+    }
+
+    /**
+     * Applies the Pauli-Z gate.
+     * 
+     * @param qubit
+     *            target qubit.
+     */
+    public void applyZ(int qubit) {
+        applyPauli(qubit, true, false);
+    }
+
+    /**
+     * Applies the controlled NOT gate.
+     * 
+     * @param controlQubit
+     *            control qubit.
+     * @param targetQubit
+     *            target qubit.
+     */
+    public void applyCNOT(int controlQubit, int targetQubit) {
+        checkQubit(controlQubit);
+        checkQubit(targetQubit);
+        if (controlQubit == targetQubit)
+            throw new IllegalArgumentException("Control and target qubits must be different.");
+        int controlWord = controlQubit >>> 6;
+        int targetWord = targetQubit >>> 6;
+        int controlShift = controlQubit & 63;
+        int targetShift = targetQubit & 63;
+        for (int row = 0; row < 2 * noQubits; row++) {
+            int c = row * words + controlWord;
+            int t = row * words + targetWord;
+            long xc = (x[c] >>> controlShift) & 1;
+            long zc = (z[c] >>> controlShift) & 1;
+            long xt = (x[t] >>> targetShift) & 1;
+            long zt = (z[t] >>> targetShift) & 1;
+            if ((xc & zt & (xt ^ zc ^ 1)) != 0)
+                sign[row] = !sign[row];
+            x[t] ^= xc << targetShift;
+            z[c] ^= zt << controlShift;
+        }
+    }
+
+    /**
+     * Applies the controlled Y gate (S on the target, CNOT, S^-1 on the target).
+     * 
+     * @param controlQubit
+     *            control qubit.
+     * @param targetQubit
+     *            target qubit.
+     */
+    public void applyCY(int controlQubit, int targetQubit) {
+        // S^-1 = Z S
+        applyZ(targetQubit);
+        applyS(targetQubit);
+        applyCNOT(controlQubit, targetQubit);
+        applyS(targetQubit);
+    }
+
+    /**
+     * Applies the controlled Z gate (Hadamard gates around CNOT on the target).
+     * 
+     * @param controlQubit
+     *            control qubit.
+     * @param targetQubit
+     *            target qubit.
+     */
+    public void applyCZ(int controlQubit, int targetQubit) {
+        applyH(targetQubit);
+        applyCNOT(controlQubit, targetQubit);
+        applyH(targetQubit);
+    }
+
+    /**
+     * Swaps the supplied qubits (exchanges their columns of the tableau).
+     * 
+     * @param qubitA
+     *            qubit to be swapped.
+     * @param qubitB
+     *            qubit to be swapped.
+     */
+    public void applySwap(int qubitA, int qubitB) {
+        checkQubit(qubitA);
+        checkQubit(qubitB);
+        if (qubitA == qubitB)
+            return;
+        for (int row = 0; row < 2 * noQubits; row++) {
+            swapBits(x, row * words, qubitA, qubitB);
+            swapBits(z, row * words, qubitA, qubitB);
+        }
+    }
+
+    /**
+     * Checks whether the measurement of the qubit (in the computational basis)
+     * has a deterministic outcome.
+     * 
+     * @param qubit
+     *            measured qubit.
+     * @return true if the outcome is deterministic.
+     */
+    public boolean isDeterministic(int qubit) {
+        checkQubit(qubit);
+        return stabilizerWithX(qubit) < 0;
+    }
+
+    /**
+     * Measures the qubit in the computational basis and collapses the state.
+     * 
+     * @param qubit
+     *            measured qubit.
+     * @param random
+     *            random generator for the random outcomes.
+     * @return outcome of the measurement (0 or 1).
+     */
+    public int measure(int qubit, Random random) {
+        if (random == null)
+            throw new IllegalArgumentException("Invalid random generator supplied (NULL).");
+        checkQubit(qubit);
+        return measure(qubit, random, false);
+    }
+
+    /**
+     * Measures the qubit and flips it to 0 if the outcome was 1.
+     * 
+     * @param qubit
+     *            reset qubit.
+     * @param random
+     *            random generator for the random outcomes.
+     */
+    public void reset(int qubit, Random random) {
+        if (measure(qubit, random) == 1)
+            applyX(qubit);
+    }
+
+    /**
+     * Samples the outcomes of measuring all qubits without collapsing this state.
+     * 
+     * @param random
+     *            random generator for the random outcomes.
+     * @return outcomes of all qubits (bit q set if the qubit q collapsed to 1).
+     */
+    public BitSet sample(Random random) {
+        if (random == null)
+            throw new IllegalArgumentException("Invalid random generator supplied (NULL).");
+        StabilizerTableau tableau = copy();
+        BitSet outcomes = new BitSet(noQubits);
+        for (int qubit = 0; qubit < noQubits; qubit++)
+            if (tableau.measure(qubit, random, false) == 1)
+                outcomes.set(qubit);
+        return outcomes;
+    }
+
+    /**
+     * Computes the full state vector of the stabilizer state (up to
+     * MAX_STATE_VECTOR_QUBITS qubits) as the projection of a basis state with a
+     * non-zero amplitude onto the stabilized subspace. The global phase is chosen,
+     * so that the first non-zero amplitude is real and positive.
+     * 
+     * @return normalized full state vector.
+     */
+    public ComplexTensor toStateVector() {
+        if (noQubits > MAX_STATE_VECTOR_QUBITS)
+            throw new UnsupportedOperationException("State vector of " + noQubits + " qubits is not supported (maximum " + MAX_STATE_VECTOR_QUBITS + " qubits).");
+        // Basis state with a non-zero amplitude, random outcomes are taken as 0
+        StabilizerTableau tableau = copy();
+        int basisState = 0;
+        for (int qubit = 0; qubit < noQubits; qubit++)
+            basisState |= tableau.measure(qubit, null, true) << qubit;
+
+        int size = 1 << noQubits;
+        double[] real = new double[size];
+        double[] imag = new double[size];
+        real[basisState] = 1;
+        double[] nextReal = new double[size];
+        double[] nextImag = new double[size];
+        for (int row = noQubits; row < 2 * noQubits; row++) {
+            // Projection (I + g) / 2 onto the +1 eigenspace of the generator g
+            int xMask = (int) x[row * words];
+            int zMask = (int) z[row * words];
+            int phase = (Integer.bitCount(xMask & zMask) + (sign[row] ? 2 : 0)) & 3;
+            for (int k = 0; k < size; k++) {
+                int exponent = (phase + 2 * Integer.bitCount(k & zMask)) & 3;
+                double valueReal = exponent == 0 ? real[k] : exponent == 1 ? -imag[k] : exponent == 2 ? -real[k] : imag[k];
+                double valueImag = exponent == 0 ? imag[k] : exponent == 1 ? real[k] : exponent == 2 ? -imag[k] : -real[k];
+                nextReal[k ^ xMask] = (real[k ^ xMask] + valueReal) / 2;
+                nextImag[k ^ xMask] = (imag[k ^ xMask] + valueImag) / 2;
+            }
+            double[] swapped = real;
+            real = nextReal;
+            nextReal = swapped;
+            swapped = imag;
+            imag = nextImag;
+            nextImag = swapped;
+        }
+
+        double norm = 0;
+        int first = -1;
+        for (int k = 0; k < size; k++) {
+            double probability = real[k] * real[k] + imag[k] * imag[k];
+            norm += probability;
+            if (first < 0 && probability > 1e-12)
+                first = k;
+        }
+        // Divides by the norm and rotates the first amplitude to the positive real axis
+        double magnitude = Math.sqrt(real[first] * real[first] + imag[first] * imag[first]);
+        double scale = 1 / (Math.sqrt(norm) * magnitude);
+        double rotationReal = real[first] * scale;
+        double rotationImag = -imag[first] * scale;
+        ComplexTensor stateVector = new ComplexTensor(size);
+        for (int k = 0; k < size; k++) {
+            stateVector.getRawRealData()[k] = (float) (real[k] * rotationReal - imag[k] * rotationImag);
+            stateVector.getRawImagData()[k] = (float) (real[k] * rotationImag + imag[k] * rotationReal);
+        }
+        return stateVector;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        StabilizerTableau that = (StabilizerTableau) o;
+        return noQubits == that.noQubits && Arrays.equals(x, that.x) && Arrays.equals(z, that.z) && Arrays.equals(sign, that.sign);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Integer.hashCode(noQubits);
+        result = 31 * result + Arrays.hashCode(x);
+        result = 31 * result + Arrays.hashCode(z);
+        result = 31 * result + Arrays.hashCode(sign);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        if (noQubits > 16)
+            return "StabilizerTableau { qubits: " + noQubits + " }";
+        StringBuilder result = new StringBuilder();
+        for (int row = noQubits; row < 2 * noQubits; row++) {
+            result.append(sign[row] ? '-' : '+');
+            for (int qubit = 0; qubit < noQubits; qubit++) {
+                boolean xBit = isSet(x, row, qubit);
+                boolean zBit = isSet(z, row, qubit);
+                result.append(xBit ? (zBit ? 'Y' : 'X') : (zBit ? 'Z' : 'I'));
+            }
+            result.append('\n');
+        }
+        return result.toString();
+    }
+
+    /**
+     * Measures the qubit (see Aaronson and Gottesman). If a stabilizer generator
+     * anticommutes with Z of the qubit, the outcome is random and the generator is
+     * replaced by the measured observable. Otherwise the outcome is a product of
+     * the stabilizer generators selected by the destabilizers, which is
+     * accumulated in the scratch row.
+     */
+    private int measure(int qubit, Random random, boolean preferZero) {
+        int word = qubit >>> 6;
+        long bit = 1L << qubit;
+        int p = stabilizerWithX(qubit);
+        if (p >= 0) {
+            for (int row = 0; row < 2 * noQubits; row++)
+                if (row != p && (x[row * words + word] & bit) != 0)
+                    rowMultiply(row, p);
+            // Destabilizer takes the old generator, the generator becomes +-Z
+            copyRow(p, p - noQubits);
+            Arrays.fill(x, p * words, (p + 1) * words, 0);
+            Arrays.fill(z, p * words, (p + 1) * words, 0);
+            z[p * words + word] = bit;
+            sign[p] = !preferZero && random.nextBoolean();
+            return sign[p] ? 1 : 0;
+        }
+
+        int scratch = 2 * noQubits;
+        Arrays.fill(x, scratch * words, (scratch + 1) * words, 0);
+        Arrays.fill(z, scratch * words, (scratch + 1) * words, 0);
+        sign[scratch] = false;
+        for (int row = 0; row < noQubits; row++)
+            if ((x[row * words + word] & bit) != 0)
+                rowMultiply(scratch, row + noQubits);
+        return sign[scratch] ? 1 : 0;
+    }
+
+    private int stabilizerWithX(int qubit) {
+        int word = qubit >>> 6;
+        long bit = 1L << qubit;
+        for (int row = noQubits; row < 2 * noQubits; row++)
+            if ((x[row * words + word] & bit) != 0)
+                return row;
+        return -1;
+    }
+
+    /**
+     * Multiplies the target row by the source row (rowsum). The exponent of i of
+     * the product is accumulated word by word from the qubits, where the product
+     * of the Pauli matrices contributes +i or -i.
+     */
+    private void rowMultiply(int target, int source) {
+        int sum = (sign[target] ? 2 : 0) + (sign[source] ? 2 : 0);
+        int t = target * words;
+        int s = source * words;
+        for (int w = 0; w < words; w++) {
+            long x1 = x[s + w];
+            long z1 = z[s + w];
+            long x2 = x[t + w];
+            long z2 = z[t + w];
+            long pauliX = x1 & ~z1;
+            long pauliY = x1 & z1;
+            long pauliZ = ~x1 & z1;
+            long plus = (pauliY & z2 & ~x2) | (pauliX & z2 & x2) | (pauliZ & x2 & ~z2);
+            long minus = (pauliY & x2 & ~z2) | (pauliX & z2 & ~x2) | (pauliZ & x2 & z2);
+            sum += Long.bitCount(plus) - Long.bitCount(minus);
+            x[t + w] = x2 ^ x1;
+            z[t + w] = z2 ^ z1;
+        }
+        sign[target] = (sum & 3) == 2;
+    }
+
+    private void copyRow(int source, int target) {
+        System.arraycopy(x, source * words, x, target * words, words);
+        System.arraycopy(z, source * words, z, target * words, words);
+        sign[target] = sign[source];
+    }
+
+    private void applyPauli(int qubit, boolean flipOnX, boolean flipOnZ) {
+        checkQubit(qubit);
+        int word = qubit >>> 6;
+        long bit = 1L << qubit;
+        // Conjugation by a Pauli matrix only flips the signs of the anticommuting rows
+        for (int row = 0; row < 2 * noQubits; row++) {
+            int i = row * words + word;
+            boolean hasX = (x[i] & bit) != 0;
+            boolean hasZ = (z[i] & bit) != 0;
+            if ((flipOnX && hasX) ^ (flipOnZ && hasZ))
+                sign[row] = !sign[row];
+        }
+    }
+
+    private boolean isSet(long[] bits, int row, int qubit) {
+        return (bits[row * words + (qubit >>> 6)] & (1L << qubit)) != 0;
+    }
+
+    private void swapBits(long[] bits, int offset, int qubitA, int qubitB) {
+        long a = (bits[offset + (qubitA >>> 6)] >>> qubitA) & 1;
+        long b = (bits[offset + (qubitB >>> 6)] >>> qubitB) & 1;
+        if (a != b) {
+            bits[offset + (qubitA >>> 6)] ^= 1L << qubitA;
+            bits[offset + (qubitB >>> 6)] ^= 1L << qubitB;
+        }
+    }
+
+    private void checkQubit(int qubit) {
+        if (qubit < 0 || qubit >= noQubits)
+            throw new IllegalArgumentException("Invalid qubit supplied.");
+    }
+}
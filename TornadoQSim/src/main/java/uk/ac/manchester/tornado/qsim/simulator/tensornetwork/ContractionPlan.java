@@ -0,0 +1,347 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.tensornetwork;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Represents an order of pairwise contractions of a tensor network, found by a
+ * greedy cost-based optimizer. At every step the pair of tensors sharing an
+ * index, whose contraction grows the total size of the tensors the least
+ * (size of the result minus the sizes of both operands), is contracted, ties
+ * are broken by the number of operations. Unconnected tensors are multiplied
+ * at the end, starting with the smallest. The optimizer repeats the greedy
+ * search with randomized costs and keeps the cheapest plan, because a single
+ * greedy run is often far from the best order.
+ * 
+ * The plan is found from the indices only, so the estimated floating point
+ * operations and the peak intermediate size are known before the contraction.
+ */
+public class ContractionPlan {
+    /**
+     * Estimated floating point operations of a plan, below which no further plans
+     * are searched for.
+     */
+    public static final double CHEAP_PLAN_FLOPS = 8 * (1 << 20);
+
+    private final int tensorCount;
+    private final int[] lefts;
+    private final int[] rights;
+    private final int[][] resultIndices;
+    private final double flops;
+    private final int peakRank;
+
+    private ContractionPlan(int tensorCount, int[] lefts, int[] rights, int[][] resultIndices, double flops, int peakRank) {
+        this.tensorCount = tensorCount;
+        this.lefts = lefts;
+        this.rights = rights;
+        this.resultIndices = resultIndices;
+        this.flops = flops;
+        this.peakRank = peakRank;
+    }
+
+    /**
+     * Finds a contraction order of the supplied tensor network with the greedy
+     * optimizer.
+     * 
+     * @param network
+     *            tensor network.
+     * @return contraction plan.
+     */
+    public static ContractionPlan greedy(TensorNetwork network) {
+        if (network == null)
+            throw new IllegalArgumentException("Invalid tensor network supplied (NULL).");
+        return greedy(network, null, 1, 0);
+    }
+
+    /**
+     * Finds a contraction order of the supplied tensor network as the cheapest
+     * (fewest floating point operations, then smallest peak intermediate) of one
+     * greedy search and trials - 1 greedy searches with randomized costs. The
+     * randomized searches weight the sizes of the operands by a random factor in
+     * [0, 1] and add Gumbel noise to the logarithm of the cost. The search stops
+     * early once a plan is cheaper than CHEAP_PLAN_FLOPS, whose contraction takes
+     * less time than another search.
+     * 
+     * @param network
+     *            tensor network.
+     * @param trials
+     *            number of greedy searches.
+     * @param seed
+     *            random generator seed.
+     * @return cheapest contraction plan.
+     */
+    public static ContractionPlan optimize(TensorNetwork network, int trials, long seed) {
+        if (network == null)
+            throw new IllegalArgumentException("Invalid tensor network supplied (NULL).");
+        if (trials < 1)
+            throw new IllegalArgumentException("Number of trials must be greater than 0.");
+        Random random = new Random(seed);
+        ContractionPlan best = greedy(network, null, 1, 0);
+        for (int trial = 1; trial < trials && best.flops > CHEAP_PLAN_FLOPS; trial++) {
+            ContractionPlan plan = greedy(network, random, random.nextDouble(), 0.2 + 0.8 * random.nextDouble());
+            if (plan.flops < best.flops || (plan.flops == best.flops && plan.peakRank < best.peakRank))
+                best = plan;
+        }
+        return best;
+    }
+
+    private static ContractionPlan greedy(TensorNetwork network, Random random, double alpha, double temperature) {
+        int tensorCount = network.tensorCount();
+        int nodeCount = 2 * tensorCount - 1;
+        int[][] indices = new int[nodeCount][];
+        boolean[] active = new boolean[nodeCount];
+        // Every index belongs to at most two tensors
+        int[][] owners = new int[network.indexCount()][];
+        int peakRank = 0;
+        for (int tensor = 0; tensor < tensorCount; tensor++) {
+            indices[tensor] = network.getIndices(tensor);
+            active[tensor] = true;
+            peakRank = Math.max(peakRank, indices[tensor].length);
+            for (int index : indices[tensor])
+                addOwner(owners, index, tensor);
+        }
+
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+        for (int[] indexOwners : owners)
+            if (indexOwners != null && indexOwners.length == 2)
+                candidates.add(new Candidate(indexOwners[0], indexOwners[1], indices, random, alpha, temperature));
+
+        int steps = tensorCount - 1;
+        int[] lefts = new int[steps];
+        int[] rights = new int[steps];
+        int[][] resultIndices = new int[steps][];
+        double flops = 0;
+        for (int step = 0; step < steps; step++) {
+            Candidate candidate = candidates.poll();
+            while (candidate != null && !(active[candidate.left] && active[candidate.right]))
+                candidate = candidates.poll();
+            int left, right;
+            if (candidate != null) {
+                left = candidate.left;
+                right = candidate.right;
+            } else {
+                // No shared indices left, outer product of the two smallest tensors
+                left = -1;
+                right = -1;
+                for (int node = 0; node < tensorCount + step; node++) {
+                    if (!active[node])
+                        continue;
+                    if (left < 0 || indices[node].length < indices[left].length) {
+                        right = left;
+                        left = node;
+                    } else if (right < 0 || indices[node].length < indices[right].length)
+                        right = node;
+                }
+            }
+            int node = tensorCount + step;
+            lefts[step] = left;
+            rights[step] = right;
+            resultIndices[step] = contractedIndices(indices[left], indices[right]);
+            indices[node] = resultIndices[step];
+            flops += 8 * Math.pow(2, unionRank(indices[left], indices[right]));
+            peakRank = Math.max(peakRank, indices[node].length);
+            active[left] = false;
+            active[right] = false;
+            active[node] = true;
+            for (int index : indices[node]) {
+                replaceOwner(owners, index, left, node);
+                replaceOwner(owners, index, right, node);
+                int neighbour = otherOwner(owners, index, node);
+                if (neighbour >= 0)
+                    candidates.add(new Candidate(neighbour, node, indices, random, alpha, temperature));
+            }
+        }
+        return new ContractionPlan(tensorCount, lefts, rights, resultIndices, flops, peakRank);
+    }
+
+    /**
+     * Gets the number of tensors of the planned network.
+     * 
+     * @return number of tensors.
+     */
+    public int tensorCount() {
+        return tensorCount;
+    }
+
+    /**
+     * Gets the number of pairwise contractions (number of tensors - 1). The result
+     * of the contraction s is the node tensorCount() + s.
+     * 
+     * @return number of contractions.
+     */
+    public int steps() {
+        return lefts.length;
+    }
+
+    /**
+     * Gets the left operand of the supplied contraction (a tensor of the network if
+     * lower than tensorCount(), otherwise the result of an earlier contraction).
+     * 
+     * @param step
+     *            contraction step.
+     * @return node of the left operand.
+     */
+    public int left(int step) {
+        return lefts[step];
+    }
+
+    /**
+     * Gets the right operand of the supplied contraction.
+     * 
+     * @param step
+     *            contraction step.
+     * @return node of the right operand.
+     */
+    public int right(int step) {
+        return rights[step];
+    }
+
+    /**
+     * Gets the indices of the result of the supplied contraction (free indices of
+     * the left operand followed by the free indices of the right operand).
+     * 
+     * @param step
+     *            contraction step.
+     * @return indices of the result.
+     */
+    public int[] resultIndices(int step) {
+        return resultIndices[step].clone();
+    }
+
+    /**
+     * Gets the estimated number of real floating point operations of the
+     * contraction (8 per complex multiply-add).
+     * 
+     * @return estimated floating point operations.
+     */
+    public double flops() {
+        return flops;
+    }
+
+    /**
+     * Gets the largest rank of a tensor during the contraction (all dimensions
+     * are 2).
+     * 
+     * @return peak rank.
+     */
+    public int peakRank() {
+        return peakRank;
+    }
+
+    /**
+     * Gets the number of elements of the largest tensor during the contraction,
+     * which bounds the memory of the contraction.
+     * 
+     * @return peak intermediate size.
+     */
+    public double peakSize() {
+        return Math.pow(2, peakRank);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d contractions, %.3e flops, peak intermediate 2^%d elements", steps(), flops, peakRank);
+    }
+
+    private static int[] contractedIndices(int[] left, int[] right) {
+        List<Integer> result = new ArrayList<>();
+        for (int index : left)
+            if (!contains(right, index))
+                result.add(index);
+        for (int index : right)
+            if (!contains(left, index))
+                result.add(index);
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int unionRank(int[] left, int[] right) {
+        return left.length + right.length - sharedCount(left, right);
+    }
+
+    private static int sharedCount(int[] left, int[] right) {
+        int shared = 0;
+        for (int index : right)
+            if (contains(left, index))
+                shared++;
+        return shared;
+    }
+
+    private static boolean contains(int[] indices, int index) {
+        for (int i : indices)
+            if (i == index)
+                return true;
+        return false;
+    }
+
+    private static void addOwner(int[][] owners, int index, int node) {
+        if (owners[index] == null)
+            owners[index] = new int[] { node };
+        else if (owners[index].length == 1)
+            owners[index] = new int[] { owners[index][0], node };
+        else
+            throw new IllegalArgumentException("Index " + index + " is shared by more than two tensors.");
+    }
+
+    private static void replaceOwner(int[][] owners, int index, int node, int replacement) {
+        for (int i = 0; i < owners[index].length; i++)
+            if (owners[index][i] == node)
+                owners[index][i] = replacement;
+    }
+
+    private static int otherOwner(int[][] owners, int index, int node) {
+        for (int owner : owners[index])
+            if (owner != node)
+                return owner;
+        return -1;
+    }
+
+    private static class Candidate implements Comparable<Candidate> {
+        private final int left;
+        private final int right;
+        private final double cost;
+        private final int unionRank;
+
+        private Candidate(int left, int right, int[][] indices, Random random, double alpha, double temperature) {
+            this.left = left;
+            this.right = right;
+            int shared = sharedCount(indices[left], indices[right]);
+            int resultRank = indices[left].length + indices[right].length - 2 * shared;
+            double sizeCost = Math.pow(2, resultRank) - alpha * (Math.pow(2, indices[left].length) + Math.pow(2, indices[right].length));
+            if (random == null)
+                cost = sizeCost;
+            else
+                cost = Math.signum(sizeCost) * Math.log1p(Math.abs(sizeCost)) - temperature * Math.log(-Math.log(random.nextDouble()));
+            unionRank = indices[left].length + indices[right].length - shared;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (cost != other.cost)
+                return Double.compare(cost, other.cost);
+            return Integer.compare(unionRank, other.unionRank);
+        }
+    }
+}
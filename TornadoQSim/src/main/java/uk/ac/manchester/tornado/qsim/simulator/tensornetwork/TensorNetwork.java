@@ -0,0 +1,363 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.tensornetwork;
+
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.Step;
+import uk.ac.manchester.tornado.qsim.circuit.operation.ControlGate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Function;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Gate;
+import uk.ac.manchester.tornado.qsim.circuit.operation.Operation;
+import uk.ac.manchester.tornado.qsim.circuit.operation.OperationDataProvider;
+import uk.ac.manchester.tornado.qsim.circuit.operation.enums.FunctionType;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Represents a quantum circuit as a tensor network. Every operation is one
+ * tensor (a gate on k qubits has k output and k input indices of dimension 2),
+ * the initial state '00...0' is one vector per qubit and the qubit wires are
+ * the indices shared by consecutive tensors. Output wires are either closed by
+ * basis vectors (amplitude of a basis state) or left open, the open indices
+ * are the indices of the contracted result.
+ * 
+ * Swap functions only exchange the wires of the qubits, no tensor is added.
+ */
+public class TensorNetwork {
+    private final List<ComplexTensor> tensors;
+    private final List<int[]> tensorIndices;
+    private final int[] openIndices;
+    private final int indexCount;
+
+    private TensorNetwork(List<ComplexTensor> tensors, List<int[]> tensorIndices, int[] openIndices, int indexCount) {
+        this.tensors = tensors;
+        this.tensorIndices = tensorIndices;
+        this.openIndices = openIndices;
+        this.indexCount = indexCount;
+    }
+
+    /**
+     * Builds the tensor network of the amplitude of the supplied basis state.
+     * 
+     * @param circuit
+     *            quantum circuit.
+     * @param basisState
+     *            basis state (bit q set if the qubit q is 1).
+     * @return tensor network without open indices.
+     */
+    public static TensorNetwork forAmplitude(Circuit circuit, BitSet basisState) {
+        return forAmplitudes(circuit, new int[0], basisState);
+    }
+
+    /**
+     * Builds the tensor network of the amplitudes of all basis states of the open
+     * qubits, with the remaining qubits fixed to the supplied basis state.
+     * 
+     * @param circuit
+     *            quantum circuit.
+     * @param openQubits
+     *            open qubits (qubit openQubits[j] is the bit j of the result
+     *            index).
+     * @param fixedState
+     *            basis state of the remaining qubits (bit q set if the qubit q is
+     *            1).
+     * @return tensor network with one open index per open qubit.
+     */
+    public static TensorNetwork forAmplitudes(Circuit circuit, int[] openQubits, BitSet fixedState) {
+        if (fixedState == null)
+            throw new IllegalArgumentException("Invalid basis state supplied (NULL).");
+        Builder builder = new Builder(circuit);
+        boolean[] open = checkQubits(circuit, openQubits);
+        builder.addCircuit(circuit, false);
+        for (int qubit = 0; qubit < circuit.qubitCount(); qubit++)
+            if (!open[qubit])
+                builder.addBasisVector(builder.wires[qubit], fixedState.get(qubit) ? 1 : 0);
+        // Last open qubit is the most significant position of the result
+        int[] openIndices = new int[openQubits.length];
+        for (int j = 0; j < openQubits.length; j++)
+            openIndices[openQubits.length - 1 - j] = builder.wires[openQubits[j]];
+        return builder.build(openIndices);
+    }
+
+    /**
+     * Builds the tensor network of the full state vector (all qubits open).
+     * 
+     * @param circuit
+     *            quantum circuit.
+     * @return tensor network with one open index per qubit.
+     */
+    public static TensorNetwork forState(Circuit circuit) {
+        if (circuit == null)
+            throw new IllegalArgumentException("Invalid circuit supplied (NULL).");
+        int[] qubits = new int[circuit.qubitCount()];
+        for (int qubit = 0; qubit < qubits.length; qubit++)
+            qubits[qubit] = qubit;
+        return forAmplitudes(circuit, qubits, new BitSet());
+    }
+
+    /**
+     * Builds the tensor network of the reduced density matrix of the supplied
+     * qubits. The circuit network is joined with its complex conjugate, the
+     * output wires of the remaining qubits are traced out.
+     * 
+     * @param circuit
+     *            quantum circuit.
+     * @param qubits
+     *            kept qubits (qubit qubits[j] is the bit j of the row and column
+     *            index).
+     * @return tensor network with two open indices per kept qubit (row indices
+     *         first).
+     */
+    public static TensorNetwork forReducedDensityMatrix(Circuit circuit, int[] qubits) {
+        Builder builder = new Builder(circuit);
+        boolean[] kept = checkQubits(circuit, qubits);
+        builder.addCircuit(circuit, false);
+        int[] ketWires = builder.wires.clone();
+        builder.addCircuit(circuit, true);
+        int[] braWires = builder.wires;
+        for (int qubit = 0; qubit < circuit.qubitCount(); qubit++)
+            if (!kept[qubit])
+                builder.joinIndices(braWires[qubit], ketWires[qubit]);
+        int[] openIndices = new int[2 * qubits.length];
+        for (int j = 0; j < qubits.length; j++) {
+            openIndices[qubits.length - 1 - j] = ketWires[qubits[j]];
+            openIndices[2 * qubits.length - 1 - j] = braWires[qubits[j]];
+        }
+        return builder.build(openIndices);
+    }
+
+    private static boolean[] checkQubits(Circuit circuit, int[] qubits) {
+        if (circuit == null)
+            throw new IllegalArgumentException("Invalid circuit supplied (NULL).");
+        if (qubits == null)
+            throw new IllegalArgumentException("Invalid qubits supplied (NULL).");
+        boolean[] selected = new boolean[circuit.qubitCount()];
+        for (int qubit : qubits) {
+            if (qubit < 0 || qubit >= circuit.qubitCount() || selected[qubit])
+                throw new IllegalArgumentException("Invalid qubits supplied.");
+            selected[qubit] = true;
+        }
+        return selected;
+    }
+
+    /**
+     * Gets the number of tensors in the network.
+     * 
+     * @return number of tensors.
+     */
+    public int tensorCount() {
+        return tensors.size();
+    }
+
+    /**
+     * Gets the number of distinct indices in the network.
+     * 
+     * @return number of indices.
+     */
+    public int indexCount() {
+        return indexCount;
+    }
+
+    /**
+     * Gets the supplied tensor (all dimensions are 2).
+     * 
+     * @param tensor
+     *            tensor number.
+     * @return tensor data.
+     */
+    public ComplexTensor getTensor(int tensor) {
+        return tensors.get(tensor);
+    }
+
+    /**
+     * Gets the indices of the supplied tensor, in the order of its dimensions.
+     * 
+     * @param tensor
+     *            tensor number.
+     * @return indices of the tensor.
+     */
+    public int[] getIndices(int tensor) {
+        return tensorIndices.get(tensor).clone();
+    }
+
+    /**
+     * Gets the open indices in the order of the dimensions of the contracted
+     * result (the first index is the most significant).
+     * 
+     * @return open indices.
+     */
+    public int[] openIndices() {
+        return openIndices.clone();
+    }
+
+    private static class Builder {
+        private final List<ComplexTensor> tensors = new ArrayList<>();
+        private final List<int[]> tensorIndices = new ArrayList<>();
+        private int[] wires;
+        private int indexCount;
+
+        private Builder(Circuit circuit) {
+            if (circuit == null)
+                throw new IllegalArgumentException("Invalid circuit supplied (NULL).");
+            wires = new int[circuit.qubitCount()];
+        }
+
+        private void addCircuit(Circuit circuit, boolean conjugate) {
+            for (int qubit = 0; qubit < wires.length; qubit++) {
+                wires[qubit] = indexCount++;
+                addBasisVector(wires[qubit], 0);
+            }
+            for (Step step : circuit.getSteps()) {
+                int qubit = 0;
+                while (qubit < circuit.qubitCount()) {
+                    if (step.isQubitFree(qubit)) {
+                        qubit++;
+                    } else {
+                        Operation operation = step.getOperation(qubit);
+                        addOperation(operation, conjugate);
+                        qubit += operation.size();
+                    }
+                }
+            }
+        }
+
+        private void addOperation(Operation operation, boolean conjugate) {
+            OperationDataProvider provider = OperationDataProvider.getInstance();
+            switch (operation.operationType()) {
+                case Gate:
+                    Gate gate = (Gate) operation;
+                    addOperator(gate.targetQubit(), provider.getData(gate), conjugate);
+                    break;
+                case ControlGate:
+                    ControlGate controlGate = (ControlGate) operation;
+                    addControlGate(controlGate.controlQubit()[0], controlGate.targetQubit()[0], provider.getData(controlGate.gate()), conjugate);
+                    break;
+                case Function:
+                    Function function = (Function) operation;
+                    if (function.type() != FunctionType.Swap)
+                        throw new UnsupportedOperationException("Function type '" + function.type() + "' is not supported in a tensor network simulator.");
+                    // Swap function exchanges the wires of the first and the last qubit
+                    int[] targetQubits = function.targetQubits();
+                    int first = targetQubits[0];
+                    int last = targetQubits[targetQubits.length - 1];
+                    int wire = wires[first];
+                    wires[first] = wires[last];
+                    wires[last] = wire;
+                    break;
+                case CustomFunction:
+                    Function customFunction = (Function) operation;
+                    ComplexTensor functionData = provider.getData(customFunction.name());
+                    if ((1 << customFunction.size()) != functionData.shape()[0])
+                        throw new IllegalArgumentException("Registered custom function data do not fit the function application.");
+                    addOperator(customFunction.targetQubits(), functionData, conjugate);
+                    break;
+                default:
+                    throw new UnsupportedOperationException("Operation type '" + operation.operationType() + "' is not supported in a tensor network simulator.");
+            }
+        }
+
+        private void addOperator(int[] qubits, ComplexTensor data, boolean conjugate) {
+            // Tensor [out_0, ..., out_k-1, in_0, ..., in_k-1], bit j of the matrix
+            // row / column index belongs to qubits[j]
+            int k = qubits.length;
+            int dimension = 1 << k;
+            float[] dataReal = data.getRawRealData();
+            float[] dataImag = data.getRawImagData();
+            float[] real = new float[dimension * dimension];
+            float[] imag = new float[dimension * dimension];
+            for (int flat = 0; flat < real.length; flat++) {
+                int row = 0, col = 0;
+                for (int j = 0; j < k; j++) {
+                    row |= ((flat >>> (2 * k - 1 - j)) & 1) << j;
+                    col |= ((flat >>> (k - 1 - j)) & 1) << j;
+                }
+                real[flat] = dataReal[row * dimension + col];
+                imag[flat] = conjugate ? -dataImag[row * dimension + col] : dataImag[row * dimension + col];
+            }
+            int[] indices = new int[2 * k];
+            for (int j = 0; j < k; j++) {
+                indices[k + j] = wires[qubits[j]];
+                indices[j] = indexCount++;
+                wires[qubits[j]] = indices[j];
+            }
+            tensors.add(new ComplexTensor(real, imag, shape(2 * k)));
+            tensorIndices.add(indices);
+        }
+
+        private void addControlGate(int controlQubit, int targetQubit, ComplexTensor gateData, boolean conjugate) {
+            // Controlled gate |0><0| x I + |1><1| x U is split into two tensors joined
+            // by the control value k: C[out][in][k] = (out == in == k) on the control
+            // qubit and T[out][in][k] = (k == 0 ? I : U) on the target qubit
+            int controlValue = indexCount++;
+            ComplexTensor control = new ComplexTensor(2, 2, 2);
+            control.insertElement(new Complex(1, 0), 0, 0, 0);
+            control.insertElement(new Complex(1, 0), 1, 1, 1);
+            int controlOut = indexCount++;
+            tensors.add(control);
+            tensorIndices.add(new int[] { controlOut, wires[controlQubit], controlValue });
+            wires[controlQubit] = controlOut;
+
+            float[] gateReal = gateData.getRawRealData();
+            float[] gateImag = gateData.getRawImagData();
+            ComplexTensor target = new ComplexTensor(2, 2, 2);
+            target.insertElement(new Complex(1, 0), 0, 0, 0);
+            target.insertElement(new Complex(1, 0), 1, 1, 0);
+            for (int out = 0; out < 2; out++)
+                for (int in = 0; in < 2; in++)
+                    target.insertElement(new Complex(gateReal[out * 2 + in], conjugate ? -gateImag[out * 2 + in] : gateImag[out * 2 + in]), out, in, 1);
+            int targetOut = indexCount++;
+            tensors.add(target);
+            tensorIndices.add(new int[] { targetOut, wires[targetQubit], controlValue });
+            wires[targetQubit] = targetOut;
+        }
+
+        private void addBasisVector(int index, int bit) {
+            ComplexTensor vector = new ComplexTensor(2);
+            vector.insertElement(new Complex(1, 0), bit);
+            tensors.add(vector);
+            tensorIndices.add(new int[] { index });
+        }
+
+        private void joinIndices(int index, int replacement) {
+            // Both ends of the traced wire are the same index
+            for (int[] indices : tensorIndices)
+                for (int i = 0; i < indices.length; i++)
+                    if (indices[i] == index)
+                        indices[i] = replacement;
+        }
+
+        private TensorNetwork build(int[] openIndices) {
+            return new TensorNetwork(tensors, tensorIndices, openIndices, indexCount);
+        }
+
+        private static int[] shape(int rank) {
+            int[] shape = new int[rank];
+            for (int i = 0; i < rank; i++)
+                shape[i] = 2;
+            return shape;
+        }
+    }
+}
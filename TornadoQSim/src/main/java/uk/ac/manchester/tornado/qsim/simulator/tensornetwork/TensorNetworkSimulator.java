@@ -0,0 +1,426 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.tensornetwork;
+
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.simulator.Simulator;
+import uk.ac.manchester.tornado.qsim.simulator.WorkerPools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Represents a quantum circuit simulator, which contracts the tensor network of
+ * the circuit (see TensorNetwork) in the order of a contraction plan (see
+ * ContractionPlan). Single amplitudes, batches of amplitudes and marginal
+ * probabilities of small sets of qubits are computed without the full state
+ * vector, the memory is bounded by the largest intermediate tensor of the plan
+ * instead of 2^n amplitudes, so wide and shallow circuits can be simulated.
+ * 
+ * Contractions, whose operands are ready at the same time, run in parallel on
+ * a fork-join pool, large contractions are further split across the workers.
+ * Every pairwise contraction permutes the operands into matrices (free indices
+ * x shared indices) and multiplies them in double precision.
+ */
+public class TensorNetworkSimulator implements Simulator {
+    /**
+     * Maximum rank of a tensor during the contraction (2^28 amplitudes).
+     */
+    public static final int MAX_INTERMEDIATE_RANK = 28;
+
+    /**
+     * Default number of complex multiply-adds below which a contraction is
+     * computed on one thread only.
+     */
+    public static final int DEFAULT_SEQUENTIAL_CUTOFF = 1 << 16;
+
+    /**
+     * Default number of greedy searches of the contraction plan.
+     */
+    public static final int DEFAULT_PLAN_TRIALS = 16;
+
+    private final ForkJoinPool pool;
+    private final int sequentialCutoff;
+    private final int planTrials;
+    private ContractionPlan lastPlan;
+
+    /**
+     * Constructs a tensor network simulator that uses all available processors.
+     */
+    public TensorNetworkSimulator() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_SEQUENTIAL_CUTOFF);
+    }
+
+    /**
+     * Constructs a tensor network simulator.
+     * 
+     * @param parallelism
+     *            number of worker threads.
+     * @param sequentialCutoff
+     *            number of complex multiply-adds below which a contraction is
+     *            computed sequentially (also the smallest partition size).
+     */
+    public TensorNetworkSimulator(int parallelism, int sequentialCutoff) {
+        this(parallelism, sequentialCutoff, DEFAULT_PLAN_TRIALS);
+    }
+
+    /**
+     * Constructs a tensor network simulator.
+     * 
+     * @param parallelism
+     *            number of worker threads.
+     * @param sequentialCutoff
+     *            number of complex multiply-adds below which a contraction is
+     *            computed sequentially (also the smallest partition size).
+     * @param planTrials
+     *            number of greedy searches of the contraction plan (see
+     *            ContractionPlan.optimize).
+     */
+    public TensorNetworkSimulator(int parallelism, int sequentialCutoff, int planTrials) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be greater than 0.");
+        if (sequentialCutoff < 1)
+            throw new IllegalArgumentException("Sequential cutoff must be greater than 0.");
+        if (planTrials < 1)
+            throw new IllegalArgumentException("Number of plan trials must be greater than 0.");
+        pool = WorkerPools.forParallelism(parallelism);
+        this.sequentialCutoff = sequentialCutoff;
+        this.planTrials = planTrials;
+    }
+
+    /**
+     * Gets the contraction plan of the last contracted tensor network.
+     * 
+     * @return last contraction plan (NULL if no network was contracted).
+     */
+    public ContractionPlan lastPlan() {
+        return lastPlan;
+    }
+
+    /**
+     * Finds the contraction plan of the supplied network (estimated floating
+     * point operations and peak intermediate size are known before the
+     * contraction).
+     * 
+     * @param network
+     *            tensor network.
+     * @return contraction plan.
+     */
+    public ContractionPlan plan(TensorNetwork network) {
+        return ContractionPlan.optimize(network, planTrials, 0);
+    }
+
+    /**
+     * Computes the amplitude of the supplied basis state.
+     * 
+     * @param circuit
+     *            quantum circuit.
+     * @param basisState
+     *            basis state (bit q set if the qubit q is 1).
+     * @return amplitude of the basis state.
+     */
+    public Complex amplitude(Circuit circuit, BitSet basisState) {
+        return contract(TensorNetwork.forAmplitude(circuit, basisState)).getElement(0);
+    }
+
+    /**
+     * Computes the amplitudes of all basis states of the open qubits, with the
+     * remaining qubits fixed to the supplied basis state.
+     * 
+     * @param circuit
+     *            quantum circuit.
+     * @param openQubits
+     *            open qubits (qubit openQubits[j] is the bit j of the result
+     *            index).
+     * @param fixedState
+     *            basis state of the remaining qubits.
+     * @return vector of 2^openQubits.length amplitudes.
+     */
+    public ComplexTensor amplitudes(Circuit circuit, int[] openQubits, BitSet fixedState) {
+        return contract(TensorNetwork.forAmplitudes(circuit, openQubits, fixedState));
+    }
+
+    /**
+     * Computes the marginal probabilities of the supplied qubits (diagonal of
+     * their reduced density matrix).
+     * 
+     * @param circuit
+     *            quantum circuit.
+     * @param qubits
+     *            qubits (qubit qubits[j] is the bit j of the result index).
+     * @return probabilities of the 2^qubits.length basis states of the qubits.
+     */
+    public float[] marginal(Circuit circuit, int... qubits) {
+        ComplexTensor densityMatrix = contract(TensorNetwork.forReducedDensityMatrix(circuit, qubits));
+        int dimension = 1 << qubits.length;
+        float[] probabilities = new float[dimension];
+        for (int state = 0; state < dimension; state++)
+            probabilities[state] = densityMatrix.getRawRealData()[state * dimension + state];
+        return probabilities;
+    }
+
+    /**
+     * Plans and contracts the supplied tensor network.
+     * 
+     * @param network
+     *            tensor network.
+     * @return contracted vector (2^k elements of the k open indices, the first
+     *         open index is the most significant).
+     */
+    public ComplexTensor contract(TensorNetwork network) {
+        return contract(network, plan(network));
+    }
+
+    /**
+     * Contracts the supplied tensor network in the order of the supplied plan.
+     * 
+     * @param network
+     *            tensor network.
+     * @param plan
+     *            contraction plan of the network.
+     * @return contracted vector (2^k elements of the k open indices, the first
+     *         open index is the most significant).
+     */
+    public ComplexTensor contract(TensorNetwork network, ContractionPlan plan) {
+        if (network == null || plan == null || plan.tensorCount() != network.tensorCount())
+            throw new IllegalArgumentException("Invalid tensor network or contraction plan supplied.");
+        if (plan.peakRank() > MAX_INTERMEDIATE_RANK)
+            throw new UnsupportedOperationException("Contraction plan needs intermediate tensors of rank " + plan.peakRank() + " (maximum " + MAX_INTERMEDIATE_RANK + ").");
+        lastPlan = plan;
+
+        int tensorCount = network.tensorCount();
+        Tensor[] nodes = new Tensor[tensorCount + plan.steps()];
+        int[] levels = new int[nodes.length];
+        for (int tensor = 0; tensor < tensorCount; tensor++)
+            nodes[tensor] = new Tensor(network.getTensor(tensor), network.getIndices(tensor));
+
+        // Contractions of the same level only depend on the earlier levels
+        List<List<Integer>> levelSteps = new ArrayList<>();
+        for (int step = 0; step < plan.steps(); step++) {
+            int level = Math.max(levels[plan.left(step)], levels[plan.right(step)]);
+            levels[tensorCount + step] = level + 1;
+            if (levelSteps.size() == level)
+                levelSteps.add(new ArrayList<>());
+            levelSteps.get(level).add(step);
+        }
+        for (List<Integer> steps : levelSteps) {
+            if (steps.size() == 1) {
+                contractStep(nodes, plan, tensorCount, steps.get(0));
+                continue;
+            }
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int step : steps)
+                tasks.add(() -> {
+                    contractStep(nodes, plan, tensorCount, step);
+                    return null;
+                });
+            pool.invokeAll(tasks);
+        }
+
+        Tensor result = permute(nodes[nodes.length - 1], network.openIndices());
+        float[] real = new float[result.real.length];
+        float[] imag = new float[result.imag.length];
+        for (int i = 0; i < real.length; i++) {
+            real[i] = (float) result.real[i];
+            imag[i] = (float) result.imag[i];
+        }
+        return new ComplexTensor(real, imag, real.length);
+    }
+
+    /**
+     * Simulates the supplied circuit (up to MAX_INTERMEDIATE_RANK qubits) by
+     * contracting the network with all qubits open.
+     */
+    @Override
+    public State simulateFullState(Circuit circuit) {
+        if (circuit != null && circuit.qubitCount() > MAX_INTERMEDIATE_RANK)
+            throw new UnsupportedOperationException("State vector of " + circuit.qubitCount() + " qubits is not supported (maximum " + MAX_INTERMEDIATE_RANK + " qubits).");
+        return new State(contract(TensorNetwork.forState(circuit)));
+    }
+
+    @Override
+    public int simulateAndCollapse(Circuit circuit) {
+        return simulateFullState(circuit).collapse();
+    }
+
+    @Override
+    public String describeStatistics() {
+        return String.format("Tensor network: %s", lastPlan());
+    }
+
+    private void contractStep(Tensor[] nodes, ContractionPlan plan, int tensorCount, int step) {
+        Tensor left = nodes[plan.left(step)];
+        Tensor right = nodes[plan.right(step)];
+        // Operands are released, memory is bounded by the live intermediates
+        nodes[plan.left(step)] = null;
+        nodes[plan.right(step)] = null;
+        nodes[tensorCount + step] = contractPair(left, right);
+    }
+
+    private Tensor contractPair(Tensor left, Tensor right) {
+        int[] shared = Arrays.stream(left.indices).filter(index -> contains(right.indices, index)).toArray();
+        int[] freeLeft = Arrays.stream(left.indices).filter(index -> !contains(shared, index)).toArray();
+        int[] freeRight = Arrays.stream(right.indices).filter(index -> !contains(shared, index)).toArray();
+        Tensor leftMatrix = permute(left, concat(freeLeft, shared));
+        Tensor rightMatrix = permute(right, concat(shared, freeRight));
+        int rows = 1 << freeLeft.length;
+        int inner = 1 << shared.length;
+        int cols = 1 << freeRight.length;
+
+        double[] real = new double[rows * cols];
+        double[] imag = new double[rows * cols];
+        MultiplyTask task = new MultiplyTask(leftMatrix, rightMatrix, real, imag, inner, cols, 0, rows, 0, cols);
+        if ((long) rows * inner * cols <= sequentialCutoff)
+            task.compute();
+        else if (ForkJoinTask.inForkJoinPool())
+            task.invoke();
+        else
+            pool.invoke(task);
+        return new Tensor(real, imag, concat(freeLeft, freeRight));
+    }
+
+    private static Tensor permute(Tensor tensor, int[] order) {
+        if (Arrays.equals(tensor.indices, order))
+            return tensor;
+        // Position p is the bit (rank - 1 - p) of the flat index
+        int rank = order.length;
+        int[] sourceBits = new int[rank];
+        for (int p = 0; p < rank; p++) {
+            int position = 0;
+            while (tensor.indices[position] != order[p])
+                position++;
+            sourceBits[p] = rank - 1 - position;
+        }
+        double[] real = new double[tensor.real.length];
+        double[] imag = new double[tensor.imag.length];
+        for (int flat = 0; flat < real.length; flat++) {
+            int source = 0;
+            for (int p = 0; p < rank; p++)
+                source |= ((flat >>> (rank - 1 - p)) & 1) << sourceBits[p];
+            real[flat] = tensor.real[source];
+            imag[flat] = tensor.imag[source];
+        }
+        return new Tensor(real, imag, order);
+    }
+
+    private static int[] concat(int[] first, int[] second) {
+        int[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private static boolean contains(int[] indices, int index) {
+        for (int i : indices)
+            if (i == index)
+                return true;
+        return false;
+    }
+
+    private static class Tensor {
+        private final double[] real;
+        private final double[] imag;
+        private final int[] indices;
+
+        private Tensor(double[] real, double[] imag, int[] indices) {
+            this.real = real;
+            this.imag = imag;
+            this.indices = indices;
+        }
+
+        private Tensor(ComplexTensor tensor, int[] indices) {
+            this(new double[tensor.size()], new double[tensor.size()], indices);
+            float[] tensorReal = tensor.getRawRealData();
+            float[] tensorImag = tensor.getRawImagData();
+            for (int i = 0; i < tensorReal.length; i++) {
+                real[i] = tensorReal[i];
+                imag[i] = tensorImag[i];
+            }
+        }
+    }
+
+    private class MultiplyTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Tensor left;
+        private final Tensor right;
+        private final double[] real;
+        private final double[] imag;
+        private final int inner;
+        private final int cols;
+        private final int fromRow;
+        private final int toRow;
+        private final int fromCol;
+        private final int toCol;
+
+        private MultiplyTask(Tensor left, Tensor right, double[] real, double[] imag, int inner, int cols, int fromRow, int toRow, int fromCol, int toCol) {
+            this.left = left;
+            this.right = right;
+            this.real = real;
+            this.imag = imag;
+            this.inner = inner;
+            this.cols = cols;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.fromCol = fromCol;
+            this.toCol = toCol;
+        }
+
+        @Override
+        protected void compute() {
+            int rows = toRow - fromRow;
+            int width = toCol - fromCol;
+            if ((long) rows * inner * width > sequentialCutoff && (rows > 1 || width > 1)) {
+                // Larger range is split in halves
+                if (rows >= width) {
+                    int middle = fromRow + rows / 2;
+                    invokeAll(new MultiplyTask(left, right, real, imag, inner, cols, fromRow, middle, fromCol, toCol), new MultiplyTask(left, right, real, imag, inner, cols, middle, toRow, fromCol, toCol));
+                } else {
+                    int middle = fromCol + width / 2;
+                    invokeAll(new MultiplyTask(left, right, real, imag, inner, cols, fromRow, toRow, fromCol, middle), new MultiplyTask(left, right, real, imag, inner, cols, fromRow, toRow, middle, toCol));
+                }
+                return;
+            }
+            for (int row = fromRow; row < toRow; row++) {
+                int out = row * cols;
+                for (int k = 0; k < inner; k++) {
+                    double aReal = left.real[row * inner + k];
+                    double aImag = left.imag[row * inner + k];
+                    if (aReal == 0 && aImag == 0)
+                        continue;
+                    int in = k * cols;
+                    for (int col = fromCol; col < toCol; col++) {
+                        real[out + col] += aReal * right.real[in + col] - aImag * right.imag[in + col];
+                        imag[out + col] += aReal * right.imag[in + col] + aImag * right.real[in + col];
+                    }
+                }
+            }
+        }
+    }
+}
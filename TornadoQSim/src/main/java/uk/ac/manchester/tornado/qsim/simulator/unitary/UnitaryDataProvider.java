@@ -28,6 +28,7 @@ import uk.ac.manchester.tornado.qsim.circuit.Step;
 import uk.ac.manchester.tornado.qsim.circuit.operation.*;
 import uk.ac.manchester.tornado.qsim.circuit.operation.enums.GateType;
 import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.math.DoubleComplexTensor;
 
 import java.util.LinkedList;
 import java.util.List;
@@ -102,6 +103,66 @@ class UnitaryDataProvider {
         return operationData;
     }
 
+    /**
+     * Gets list of all double precision unitary matrices of the operations present
+     * in the supplied quantum step. Standard gate coefficients are computed in
+     * double precision, registered custom function data are widened.
+     * 
+     * @param noQubits
+     *            number of qubits in the supplied step.
+     * @param step
+     *            single step in a quantum circuit.
+     * @return list of all double precision unitary matrices of the step operations.
+     */
+    protected List<DoubleComplexTensor> getStepOperationDoubleData(int noQubits, Step step) {
+        LinkedList<DoubleComplexTensor> operationData = new LinkedList<>();
+
+        int qubit = 0;
+        while (qubit < noQubits) {
+            if (step.isQubitFree(qubit)) {
+                Gate identity = new Gate(GateType.I, qubit);
+                operationData.add(OperationDataProvider.getInstance().getDoubleData(identity));
+                qubit++;
+            } else {
+                Operation operation = step.getOperation(qubit);
+                operationData.add(getOperationDoubleData(operation));
+                qubit += operation.size();
+            }
+        }
+        return operationData;
+    }
+
+    private DoubleComplexTensor getOperationDoubleData(Operation operation) {
+        switch (operation.operationType()) {
+            case Gate:
+                return OperationDataProvider.getInstance().getDoubleData((Gate) operation);
+            case ControlGate:
+                return constructControlGateDoubleData((ControlGate) operation);
+            case Function:
+                return new DoubleComplexTensor(constructFunctionData((Function) operation));
+            case CustomFunction:
+                return new DoubleComplexTensor(constructCustomFunctionData((Function) operation));
+            default:
+                throw new UnsupportedOperationException("Operation type '" + operation.operationType() + "' is not supported in a unitary simulator.");
+        }
+    }
+
+    private DoubleComplexTensor constructControlGateDoubleData(ControlGate controlGate) {
+        int finalSize = 1 << controlGate.size();
+        DoubleComplexTensor controlGateData = new DoubleComplexTensor(finalSize, finalSize);
+        DoubleComplexTensor gateData = OperationDataProvider.getInstance().getDoubleData(controlGate.gate());
+        int control,target;
+        if (controlGate.controlQubit()[0] > controlGate.targetQubit()[0]) {
+            control = controlGate.size() - 1;
+            target = 0;
+        } else {
+            control = 0;
+            target = controlGate.size() - 1;
+        }
+        UnitaryOperand.buildControlGate(gateData.getRawRealData(), gateData.getRawImagData(), control, target, controlGateData.getRawRealData(), controlGateData.getRawImagData(), finalSize);
+        return controlGateData;
+    }
+
     private ComplexTensor constructGateData(Gate gate) {
         return OperationDataProvider.getInstance().getData(gate);
     }
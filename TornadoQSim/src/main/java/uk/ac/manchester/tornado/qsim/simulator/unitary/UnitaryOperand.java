@@ -222,4 +222,114 @@ class UnitaryOperand {
         }
     }
 
+    /**
+     * Performs a complex matrix multiplication on the supplied double precision
+     * complex matrices (see the single precision variant for the parameters).
+     */
+    protected static void matrixProduct(double[] realA, double[] imagA, final int rowsA, final int colsA, double[] realB, double[] imagB, final int colsB, double[] realC, double[] imagC) {
+        for (@Parallel int i = 0; i < rowsA; i++) {
+            for (@Parallel int j = 0; j < colsB; j++) {
+                int indexC = (i * rowsA) + j;
+                realC[indexC] = 0;
+                imagC[indexC] = 0;
+                // Note: rowsB = colsA
+                for (int k = 0; k < colsA; k++) {
+                    int indexA = (i * colsA) + k;
+                    int indexB = (k * colsB) + j;
+                    realC[indexC] += (realA[indexA] * realB[indexB]) - (imagA[indexA] * imagB[indexB]);
+                    imagC[indexC] += (realA[indexA] * imagB[indexB]) + (imagA[indexA] * realB[indexB]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Performs a complex multiplication of the double precision complex matrix
+     * with a transpose of the supplied row vector (see the single precision variant
+     * for the parameters).
+     */
+    protected static void matrixVectorProduct(double[] realA, double[] imagA, final int rowsA, final int colsA, double[] realB, double[] imagB, double[] realC, double[] imagC) {
+        for (@Parallel int i = 0; i < rowsA; i++) {
+            int indexC = i;
+            realC[indexC] = 0;
+            imagC[indexC] = 0;
+            for (int j = 0; j < colsA; j++) {
+                int indexA = (i * colsA) + j;
+                int indexB = j;
+                realC[indexC] += (realA[indexA] * realB[indexB]) - (imagA[indexA] * imagB[indexB]);
+                imagC[indexC] += (realA[indexA] * imagB[indexB]) + (imagA[indexA] * realB[indexB]);
+            }
+        }
+    }
+
+    /**
+     * Performs Kronecker product operation on the supplied double precision complex
+     * matrices (see the single precision variant for the parameters).
+     */
+    protected static void kroneckerProduct(double[] realA, double[] imagA, final int rowsA, final int colsA, double[] realB, double[] imagB, final int rowsB, final int colsB, double[] realC,
+            double[] imagC) {
+        final int colsC = colsA * colsB;
+        // For every element of A
+        for (@Parallel int ia = 0; ia < rowsA; ia++) {
+            for (@Parallel int ja = 0; ja < colsA; ja++) {
+                int indexA = (ia * colsA) + ja;
+                // For every element of B
+                for (@Parallel int ib = 0; ib < rowsB; ib++) {
+                    for (int jb = 0; jb < colsB; jb++) {
+                        int indexB = (ib * colsB) + jb;
+                        int indexC = (((ia * rowsB) + ib) * colsC) + ((ja * colsB) + jb);
+                        realC[indexC] = (realA[indexA] * realB[indexB]) - (imagA[indexA] * imagB[indexB]);
+                        imagC[indexC] = (realA[indexA] * imagB[indexB]) + (imagA[indexA] * realB[indexB]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds double precision control gate unitary matrix that spans across
+     * multiple qubits (see the single precision variant for the parameters).
+     */
+    protected static void buildControlGate(double[] realGate, double[] imagGate, int control, int target, double[] realResult, double[] imagResult, int rowsResult) {
+        // Note: rowsResult = colsResult
+        for (@Parallel int qRow = 0; qRow < rowsResult; qRow++) {
+            // Control bit is 1 (apply gate)
+            if ((qRow & (1 << control)) != 0) {
+                // Target bit is 1 (apply gate[10] and gate[11])
+                if ((qRow & (1 << target)) != 0) {
+                    int target0 = qRow & ~(1 << target);
+                    int target1 = qRow;
+
+                    int index10 = (qRow * rowsResult) + target0;
+                    int index11 = (qRow * rowsResult) + target1;
+
+                    realResult[index10] = realGate[2];
+                    imagResult[index10] = imagGate[2];
+
+                    realResult[index11] = realGate[3];
+                    imagResult[index11] = imagGate[3];
+                }
+                // Target bit is 0 (apply gate[00] and gate[01])
+                else {
+                    int target0 = qRow;
+                    int target1 = qRow | (1 << target);
+
+                    int index00 = (qRow * rowsResult) + target0;
+                    int index01 = (qRow * rowsResult) + target1;
+
+                    realResult[index00] = realGate[0];
+                    imagResult[index00] = imagGate[0];
+
+                    realResult[index01] = realGate[1];
+                    imagResult[index01] = imagGate[1];
+                }
+            }
+            // Control bit is 0 (apply identity)
+            else {
+                int indexResult = (qRow * rowsResult) + qRow;
+                realResult[indexResult] = 1;
+            }
+        }
+    }
+
 }
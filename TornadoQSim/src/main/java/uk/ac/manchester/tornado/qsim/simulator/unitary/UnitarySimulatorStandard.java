@@ -22,9 +22,12 @@
 package uk.ac.manchester.tornado.qsim.simulator.unitary;
 
 import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.DoubleState;
 import uk.ac.manchester.tornado.qsim.circuit.State;
 import uk.ac.manchester.tornado.qsim.circuit.Step;
 import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.math.DoubleComplexTensor;
+import uk.ac.manchester.tornado.qsim.simulator.Precision;
 import uk.ac.manchester.tornado.qsim.simulator.Simulator;
 
 import java.util.List;
@@ -35,24 +38,51 @@ import java.util.ListIterator;
  * each step of the circuit in order to simulated the final state. The
  * simulation process is not accelerated on any heterogeneous hardware. This
  * simulation process follows the standard mathematical model of quantum
- * computation.
+ * computation. The unitary matrices are composed either in single precision
+ * (State) or in double precision (DoubleState).
  * 
  * @author Ales Kubicek
  */
 public class UnitarySimulatorStandard implements Simulator {
     private final UnitaryDataProvider dataProvider;
+    private final Precision precision;
 
     /**
      * Constructs a unitary matrix simulator.
      */
     public UnitarySimulatorStandard() {
+        this(Precision.SINGLE);
+    }
+
+    /**
+     * Constructs a unitary matrix simulator.
+     * 
+     * @param precision
+     *            precision of the unitary matrices and of the simulated state
+     *            (SINGLE - State, DOUBLE - DoubleState).
+     */
+    public UnitarySimulatorStandard(Precision precision) {
+        if (precision == null)
+            throw new IllegalArgumentException("Invalid precision supplied (NULL).");
         dataProvider = new UnitaryDataProvider(false);
+        this.precision = precision;
+    }
+
+    /**
+     * Gets the precision of the unitary matrices and of the simulated state.
+     * 
+     * @return simulation precision.
+     */
+    public Precision precision() {
+        return precision;
     }
 
     @Override
     public State simulateFullState(Circuit circuit) {
         if (circuit == null)
             throw new IllegalArgumentException("Invalid circuit supplied (NULL).");
+        if (precision == Precision.DOUBLE)
+            return simulateFullStateDouble(circuit);
 
         List<Step> steps = circuit.getSteps();
         ListIterator<Step> iterator = steps.listIterator(steps.size());
@@ -76,6 +106,33 @@ public class UnitarySimulatorStandard implements Simulator {
         return simulateFullState(circuit).collapse();
     }
 
+    private DoubleState simulateFullStateDouble(Circuit circuit) {
+        List<Step> steps = circuit.getSteps();
+        ListIterator<Step> iterator = steps.listIterator(steps.size());
+
+        DoubleComplexTensor unitaryA,unitaryB;
+
+        unitaryA = prepareStepUnitaryDouble(circuit.qubitCount(), iterator.previous());
+        while (iterator.hasPrevious()) {
+            unitaryB = prepareStepUnitaryDouble(circuit.qubitCount(), iterator.previous());
+            unitaryA = matrixMultiplication(unitaryA, unitaryB);
+        }
+
+        DoubleState resultState = new DoubleState(circuit.qubitCount());
+        resultState.setDoubleStateVector(matrixVectorMultiplication(unitaryA, resultState.getDoubleStateVector()));
+
+        return resultState;
+    }
+
+    private DoubleComplexTensor prepareStepUnitaryDouble(int noQubits, Step step) {
+        List<DoubleComplexTensor> stepOperationData = dataProvider.getStepOperationDoubleData(noQubits, step);
+        ListIterator<DoubleComplexTensor> iterator = stepOperationData.listIterator(stepOperationData.size());
+        DoubleComplexTensor stepUnitary = iterator.previous();
+        while (iterator.hasPrevious())
+            stepUnitary = kroneckerProduct(stepUnitary, iterator.previous());
+        return stepUnitary;
+    }
+
     private ComplexTensor prepareStepUnitary(int noQubits, Step step) {
         List<ComplexTensor> stepOperationData = dataProvider.getStepOperationData(noQubits, step);
         ListIterator<ComplexTensor> iterator = stepOperationData.listIterator(stepOperationData.size());
@@ -110,4 +167,29 @@ public class UnitarySimulatorStandard implements Simulator {
         return result;
     }
 
+    private DoubleComplexTensor matrixMultiplication(DoubleComplexTensor a, DoubleComplexTensor b) {
+        int resultRows = a.shape()[0];
+        int resultCols = b.shape()[1];
+        DoubleComplexTensor result = new DoubleComplexTensor(resultRows, resultCols);
+        UnitaryOperand.matrixProduct(a.getRawRealData(), a.getRawImagData(), a.shape()[0], a.shape()[1], b.getRawRealData(), b.getRawImagData(), b.shape()[1], result.getRawRealData(),
+                result.getRawImagData());
+        return result;
+    }
+
+    private DoubleComplexTensor kroneckerProduct(DoubleComplexTensor a, DoubleComplexTensor b) {
+        int resultRows = a.shape()[0] * b.shape()[0];
+        int resultCols = a.shape()[1] * b.shape()[1];
+        DoubleComplexTensor result = new DoubleComplexTensor(resultRows, resultCols);
+        UnitaryOperand.kroneckerProduct(a.getRawRealData(), a.getRawImagData(), a.shape()[0], a.shape()[1], b.getRawRealData(), b.getRawImagData(), b.shape()[0], b.shape()[1], result.getRawRealData(),
+                result.getRawImagData());
+        return result;
+    }
+
+    private DoubleComplexTensor matrixVectorMultiplication(DoubleComplexTensor matrix, DoubleComplexTensor vector) {
+        DoubleComplexTensor result = new DoubleComplexTensor(vector.size());
+        UnitaryOperand.matrixVectorProduct(matrix.getRawRealData(), matrix.getRawImagData(), matrix.shape()[0], matrix.shape()[1], vector.getRawRealData(), vector.getRawImagData(),
+                result.getRawRealData(), result.getRawImagData());
+        return result;
+    }
+
 }
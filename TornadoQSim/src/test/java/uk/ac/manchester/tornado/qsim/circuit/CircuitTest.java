@@ -209,6 +209,31 @@ public class CircuitTest {
         assertThrows(IllegalArgumentException.class, () -> circuit.appendCircuit(new Circuit(5)));
     }
 
+    @Test
+    public void testCircuitConditional() {
+        Circuit circuit = new Circuit(3);
+        circuit.H(0);
+        circuit.measure(0);
+
+        Circuit correction = new Circuit(3);
+        correction.X(2);
+        correction.CZ(1, 2);
+        circuit.conditional(0, 1, correction);
+
+        assertEquals(4, circuit.depth());
+        List<Step> steps = circuit.getSteps();
+        assertEquals(new ConditionalOperation(new Gate(GateType.X, 2), 0, 1), steps.get(2).getOperation(0));
+        assertEquals(new ConditionalOperation(new ControlGate(new Gate(GateType.Z, 2), 1, 2), 0, 1), steps.get(3).getOperation(0));
+
+        Circuit measured = new Circuit(3);
+        measured.measure(2);
+        assertThrows(IllegalArgumentException.class, () -> circuit.conditional(0, 1, measured));
+        assertThrows(IllegalArgumentException.class, () -> circuit.conditional(0, 1, null));
+        assertThrows(IllegalArgumentException.class, () -> circuit.conditional(0, 1, new Circuit(2)));
+        assertThrows(IllegalArgumentException.class, () -> circuit.conditional(3, 1, correction));
+        assertThrows(IllegalArgumentException.class, () -> circuit.conditional(0, 2, correction));
+    }
+
     @Test
     public void testCircuitEquality() {
         Circuit a = new Circuit(3);
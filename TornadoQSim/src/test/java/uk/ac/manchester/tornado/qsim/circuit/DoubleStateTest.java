@@ -0,0 +1,96 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.circuit;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.math.DoubleComplexTensor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DoubleStateTest {
+
+    private static final double HALF = 1 / Math.sqrt(2);
+
+    @Test
+    public void testStateDefinition() {
+        DoubleState qState = new DoubleState(5);
+        assertEquals(1, qState.getDoubleStateVector().rank());
+        assertEquals(32, qState.size());
+        assertEquals(new Complex(1, 0), qState.getStateAmplitude(0));
+        assertTrue(qState.isNormalized());
+
+        // Single precision view is a rounded copy
+        qState.getStateVector().insertElement(new Complex(1, 0), 1);
+        assertTrue(qState.isNormalized());
+
+        assertThrows(IllegalArgumentException.class, () -> new DoubleState(0));
+        assertThrows(IllegalArgumentException.class, () -> new DoubleState(new DoubleComplexTensor(4)));
+        assertThrows(IllegalArgumentException.class, () -> new DoubleState(new DoubleComplexTensor(5)));
+    }
+
+    @Test
+    public void testStateVectorUpdate() {
+        DoubleState qState = new DoubleState(2);
+
+        DoubleComplexTensor valid = new DoubleComplexTensor(4);
+        valid.insertElement(HALF, 0, 0);
+        valid.insertElement(0, HALF, 3);
+        qState.setDoubleStateVector(valid);
+        assertEquals(valid, qState.getDoubleStateVector());
+
+        ComplexTensor single = new ComplexTensor(4);
+        single.insertElement(new Complex(1, 0), 2);
+        qState.setStateVector(single);
+        assertEquals(single, qState.getStateVector());
+
+        assertThrows(IllegalArgumentException.class, () -> qState.setDoubleStateVector(new DoubleComplexTensor(4)));
+        assertThrows(IllegalArgumentException.class, () -> qState.setDoubleStateVector(new DoubleComplexTensor(8)));
+        assertThrows(IllegalArgumentException.class, () -> qState.setStateVector(null));
+        assertEquals(single, qState.getStateVector());
+    }
+
+    @Test
+    public void testProbabilities() {
+        DoubleComplexTensor vector = new DoubleComplexTensor(8);
+        vector.insertElement(HALF, 0, 1);
+        vector.insertElement(0, -HALF, 6);
+        DoubleState qState = new DoubleState(vector);
+        qState.setSeed(7);
+
+        assertEquals(0.5, qState.getDoubleStateProbability(1), 1e-15);
+        assertEquals(0.5, qState.getDoubleStateProbability(6), 1e-15);
+        assertEquals(0.5, qState.getDoubleQubitProbability(0), 1e-15);
+        assertEquals(0.5, qState.getDoubleQubitProbability(1), 1e-15);
+        assertEquals(0.5f, qState.getQubitProbability(2), 1e-7f);
+
+        for (int i = 0; i < 20; i++) {
+            int collapsed = qState.collapse();
+            assertTrue(collapsed == 1 || collapsed == 6);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> qState.getDoubleQubitProbability(3));
+        assertThrows(IllegalArgumentException.class, () -> qState.getDoubleStateProbability(8));
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.circuit;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.math.OffHeapComplexVector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapStateTest {
+
+    private static final float HALF = (float) (1 / Math.sqrt(2));
+
+    @Test
+    public void testStateDefinition() {
+        OffHeapState qState = new OffHeapState(5, 2);
+        assertEquals(5, qState.qubitCount());
+        assertEquals(32, qState.size());
+        assertEquals(32, qState.longSize());
+        assertEquals(8, qState.getOffHeapStateVector().chunkCount());
+        assertEquals(new Complex(1, 0), qState.getStateAmplitude(0));
+        assertTrue(qState.isNormalized());
+
+        // Heap view is a copy
+        qState.getStateVector().insertElement(new Complex(1, 0), 1);
+        assertEquals(new Complex(0, 0), qState.getStateAmplitude(1));
+
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapState(0));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapState(OffHeapState.MAX_QUBITS + 1));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapState(4, OffHeapComplexVector.MAX_CHUNK_BITS + 1));
+    }
+
+    @Test
+    public void testStateVectorUpdate() {
+        OffHeapState qState = new OffHeapState(3, 1);
+
+        ComplexTensor valid = new ComplexTensor(8);
+        valid.insertElement(new Complex(HALF, 0), 1);
+        valid.insertElement(new Complex(0, -HALF), 6);
+        qState.setStateVector(valid);
+        assertEquals(valid, qState.getStateVector());
+
+        assertThrows(IllegalArgumentException.class, () -> qState.setStateVector(new ComplexTensor(8)));
+        assertThrows(IllegalArgumentException.class, () -> qState.setStateVector(new ComplexTensor(4)));
+        assertThrows(IllegalArgumentException.class, () -> qState.setStateVector(null));
+        assertEquals(valid, qState.getStateVector());
+    }
+
+    @Test
+    public void testProbabilities() {
+        ComplexTensor vector = new ComplexTensor(8);
+        vector.insertElement(new Complex(HALF, 0), 1);
+        vector.insertElement(new Complex(0, -HALF), 6);
+        OffHeapState qState = new OffHeapState(3, 1);
+        qState.setStateVector(vector);
+        qState.setSeed(7);
+
+        assertEquals(0.5f, qState.getStateProbability(1), 1e-6f);
+        assertEquals(0.5f, qState.getStateProbability(6L), 1e-6f);
+        assertEquals(0.5f, qState.getQubitProbability(0), 1e-6f);
+        assertEquals(0.5f, qState.getQubitProbability(1), 1e-6f);
+        assertEquals(0.5f, qState.getQubitProbability(2), 1e-6f);
+        for (int i = 0; i < 20; i++) {
+            int collapsed = qState.collapse();
+            assertTrue(collapsed == 1 || collapsed == 6);
+        }
+        assertThrows(IllegalArgumentException.class, () -> qState.getStateAmplitude(8L));
+        assertThrows(IllegalArgumentException.class, () -> qState.getQubitProbability(3));
+    }
+
+    @Test
+    public void testChunkLayoutIndependence() {
+        ComplexTensor vector = new ComplexTensor(16);
+        vector.insertElement(new Complex(0.5f, 0), 0);
+        vector.insertElement(new Complex(0, 0.5f), 5);
+        vector.insertElement(new Complex(-0.5f, 0), 10);
+        vector.insertElement(new Complex(0, -0.5f), 15);
+
+        OffHeapState small = new OffHeapState(4, 1);
+        OffHeapState large = new OffHeapState(4);
+        small.setStateVector(vector);
+        large.setStateVector(vector);
+        assertEquals(small, large);
+        assertEquals(small.hashCode(), large.hashCode());
+        assertNotEquals(small, new OffHeapState(4));
+    }
+
+}
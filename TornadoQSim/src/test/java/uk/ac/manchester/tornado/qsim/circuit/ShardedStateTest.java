@@ -0,0 +1,115 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.circuit;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedStateTest {
+
+    private static final float HALF = (float) (1 / Math.sqrt(2));
+
+    @Test
+    public void testStateDefinition() {
+        ShardedState qState = new ShardedState(5, 4);
+        assertEquals(5, qState.qubitCount());
+        assertEquals(32, qState.size());
+        assertEquals(4, qState.shardCount());
+        assertEquals(3, qState.shardQubits());
+        assertEquals(8, qState.getShardReal(3).length);
+        assertEquals(new Complex(1, 0), qState.getStateAmplitude(0));
+        assertTrue(qState.isNormalized());
+
+        // Shards are used directly, the full state vector is a copy
+        qState.getShardImag(2)[1] = 1;
+        assertEquals(new Complex(0, 1), qState.getStateAmplitude(17));
+        qState.getStateVector().insertElement(new Complex(1, 0), 1);
+        assertEquals(new Complex(0, 0), qState.getStateAmplitude(1));
+
+        assertThrows(IllegalArgumentException.class, () -> new ShardedState(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ShardedState(ShardedState.MAX_QUBITS + 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ShardedState(3, 3));
+        assertThrows(IllegalArgumentException.class, () -> new ShardedState(2, 8));
+        assertThrows(IllegalArgumentException.class, () -> new ShardedState(3, new float[][] { new float[4], new float[4] }, new float[][] { new float[4], new float[2] }));
+        assertThrows(IllegalArgumentException.class, () -> new ShardedState(3, new float[][] { new float[8] }, null));
+    }
+
+    @Test
+    public void testStateVectorUpdate() {
+        ShardedState qState = new ShardedState(3, 2);
+
+        ComplexTensor valid = new ComplexTensor(8);
+        valid.insertElement(new Complex(HALF, 0), 1);
+        valid.insertElement(new Complex(0, -HALF), 6);
+        qState.setStateVector(valid);
+        assertEquals(valid, qState.getStateVector());
+        assertEquals(-HALF, qState.getShardImag(1)[2], 1e-6f);
+
+        assertThrows(IllegalArgumentException.class, () -> qState.setStateVector(new ComplexTensor(8)));
+        assertThrows(IllegalArgumentException.class, () -> qState.setStateVector(new ComplexTensor(4)));
+        assertThrows(IllegalArgumentException.class, () -> qState.setStateVector(null));
+        assertEquals(valid, qState.getStateVector());
+    }
+
+    @Test
+    public void testProbabilities() {
+        ComplexTensor vector = new ComplexTensor(8);
+        vector.insertElement(new Complex(HALF, 0), 1);
+        vector.insertElement(new Complex(0, -HALF), 6);
+        ShardedState qState = new ShardedState(3, 4);
+        qState.setStateVector(vector);
+        qState.setSeed(7);
+
+        assertEquals(0.5f, qState.getStateProbability(1), 1e-6f);
+        assertEquals(0.5f, qState.getStateProbability(6), 1e-6f);
+        assertEquals(0.5f, qState.getQubitProbability(0), 1e-6f);
+        assertEquals(0.5f, qState.getQubitProbability(1), 1e-6f);
+        assertEquals(0.5f, qState.getQubitProbability(2), 1e-6f);
+        for (int i = 0; i < 20; i++) {
+            int collapsed = qState.collapse();
+            assertTrue(collapsed == 1 || collapsed == 6);
+        }
+        assertThrows(IllegalArgumentException.class, () -> qState.getStateAmplitude(8));
+        assertThrows(IllegalArgumentException.class, () -> qState.getQubitProbability(3));
+    }
+
+    @Test
+    public void testShardLayoutIndependence() {
+        ComplexTensor vector = new ComplexTensor(16);
+        vector.insertElement(new Complex(0.5f, 0), 0);
+        vector.insertElement(new Complex(0, 0.5f), 5);
+        vector.insertElement(new Complex(-0.5f, 0), 10);
+        vector.insertElement(new Complex(0, -0.5f), 15);
+
+        ShardedState few = new ShardedState(4, 1);
+        ShardedState many = new ShardedState(4, 8);
+        few.setStateVector(vector);
+        many.setStateVector(vector);
+        assertEquals(few, many);
+        assertEquals(few.hashCode(), many.hashCode());
+        assertNotEquals(few, new ShardedState(4, 2));
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.circuit;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.math.SparseComplexVector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SparseStateTest {
+
+    private static final float HALF = (float) (1 / Math.sqrt(2));
+
+    @Test
+    public void testStateDefinition() {
+        SparseState qState = new SparseState(5);
+        assertEquals(5, qState.qubitCount());
+        assertEquals(32, qState.size());
+        assertEquals(32, qState.longSize());
+        assertEquals(1, qState.nonZeroCount());
+        assertEquals(new Complex(1, 0), qState.getStateAmplitude(0));
+        assertEquals(new Complex(0, 0), qState.getStateAmplitude(31));
+        assertTrue(qState.isNormalized());
+
+        // Dense view is a copy
+        qState.getStateVector().insertElement(new Complex(1, 0), 1);
+        assertEquals(new Complex(0, 0), qState.getStateAmplitude(1));
+
+        SparseState large = new SparseState(SparseState.MAX_QUBITS);
+        assertEquals(1L << SparseState.MAX_QUBITS, large.longSize());
+        assertThrows(UnsupportedOperationException.class, large::size);
+        assertThrows(UnsupportedOperationException.class, large::collapse);
+        assertEquals(0, large.collapseLong());
+
+        assertThrows(IllegalArgumentException.class, () -> new SparseState(0));
+        assertThrows(IllegalArgumentException.class, () -> new SparseState(SparseState.MAX_QUBITS + 1));
+        assertThrows(IllegalArgumentException.class, () -> new SparseState(3, new SparseComplexVector(8)));
+        assertThrows(IllegalArgumentException.class, () -> new SparseState(3, new SparseComplexVector(4)));
+    }
+
+    @Test
+    public void testStateVectorUpdate() {
+        SparseState qState = new SparseState(3);
+
+        ComplexTensor valid = new ComplexTensor(8);
+        valid.insertElement(new Complex(HALF, 0), 1);
+        valid.insertElement(new Complex(0, -HALF), 6);
+        qState.setStateVector(valid);
+        assertEquals(valid, qState.getStateVector());
+        assertEquals(2, qState.nonZeroCount());
+
+        assertThrows(IllegalArgumentException.class, () -> qState.setStateVector(new ComplexTensor(8)));
+        assertThrows(IllegalArgumentException.class, () -> qState.setStateVector(new ComplexTensor(4)));
+        assertThrows(IllegalArgumentException.class, () -> qState.setStateVector(null));
+        assertEquals(valid, qState.getStateVector());
+    }
+
+    @Test
+    public void testProbabilities() {
+        ComplexTensor vector = new ComplexTensor(8);
+        vector.insertElement(new Complex(HALF, 0), 1);
+        vector.insertElement(new Complex(0, -HALF), 6);
+        SparseState qState = new SparseState(3);
+        qState.setStateVector(vector);
+        qState.setSeed(7);
+
+        assertEquals(0.5f, qState.getStateProbability(1), 1e-6f);
+        assertEquals(0.5f, qState.getStateProbability(6L), 1e-6f);
+        assertEquals(0.5f, qState.getQubitProbability(0), 1e-6f);
+        assertEquals(0.5f, qState.getQubitProbability(1), 1e-6f);
+        assertEquals(0.5f, qState.getQubitProbability(2), 1e-6f);
+        for (int i = 0; i < 20; i++) {
+            int collapsed = qState.collapse();
+            assertTrue(collapsed == 1 || collapsed == 6);
+        }
+        assertThrows(IllegalArgumentException.class, () -> qState.getStateAmplitude(8L));
+        assertThrows(IllegalArgumentException.class, () -> qState.getQubitProbability(3));
+    }
+
+    @Test
+    public void testStoredZerosAndGrowth() {
+        SparseComplexVector vector = new SparseComplexVector(1L << 40);
+        for (long index = 0; index < 1000; index++)
+            vector.put(index << 20, index == 0 ? 1 : 0, 0);
+        // Zero elements are not stored unless they were stored before
+        assertEquals(1, vector.count());
+        for (long index = 0; index < 1000; index++)
+            vector.put(index << 20, 1e-3f, 0);
+        assertEquals(1000, vector.count());
+        assertTrue(vector.capacity() >= 2000);
+        assertEquals(1e-3f, vector.getReal(999L << 20));
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.getReal(1L << 40));
+
+        SparseComplexVector other = new SparseComplexVector(1L << 40, 1000);
+        for (long index = 999; index >= 0; index--)
+            other.put(index << 20, 1e-3f, 0);
+        other.put(7, 0, 0);
+        assertEquals(vector, other);
+        assertEquals(vector.hashCode(), other.hashCode());
+        vector.put(1, 0, 0);
+        vector.put(1L << 20, 0, 0);
+        assertNotEquals(vector, other);
+    }
+
+}
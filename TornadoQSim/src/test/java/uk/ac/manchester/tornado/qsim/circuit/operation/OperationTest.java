@@ -114,4 +114,25 @@ public class OperationTest {
 
         assertThrows(IllegalArgumentException.class, () -> new Instruction(InstructionType.Measure, -1));
     }
+
+    @Test
+    public void testConditionalOperation() {
+        ConditionalOperation conditional = new ConditionalOperation(new Gate(GateType.X, 3), 1, 1);
+        assertEquals(new Gate(GateType.X, 3), conditional.operation());
+        assertEquals(1, conditional.conditionQubit());
+        assertEquals(1, conditional.value());
+        assertArrayEquals(new int[] { 1, 2, 3 }, conditional.involvedQubits());
+        assertEquals(3, conditional.size());
+        assertTrue(conditional.isSatisfied(new int[] { 0, 1, 0, 0 }));
+        assertFalse(conditional.isSatisfied(new int[] { 1, 0, 1, 1 }));
+
+        assertEquals(new ConditionalOperation(new Gate(GateType.X, 3), 1, 1), conditional);
+        assertNotEquals(new ConditionalOperation(new Gate(GateType.X, 3), 1, 0), conditional);
+
+        assertThrows(IllegalArgumentException.class, () -> new ConditionalOperation(null, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ConditionalOperation(new Instruction(InstructionType.Reset, 1), 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ConditionalOperation(conditional, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ConditionalOperation(new Gate(GateType.X, 1), -1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ConditionalOperation(new Gate(GateType.X, 1), 0, 2));
+    }
 }
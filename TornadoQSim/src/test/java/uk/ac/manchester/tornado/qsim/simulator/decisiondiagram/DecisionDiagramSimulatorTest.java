@@ -0,0 +1,135 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.decisiondiagram;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.circuit.operation.OperationDataProvider;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSimulatorStandard;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DecisionDiagramSimulatorTest {
+
+    private static final float HALF = (float) (1 / Math.sqrt(2));
+
+    @Test
+    public void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new DecisionDiagramSimulator(0));
+        assertThrows(IllegalArgumentException.class, () -> new DecisionDiagramSimulator().simulateDiagram(null));
+        assertThrows(UnsupportedOperationException.class, () -> new DecisionDiagramSimulator().simulateFullState(new Circuit(StateDiagram.MAX_STATE_VECTOR_QUBITS + 1)));
+        Circuit measured = new Circuit(2);
+        measured.measure(0);
+        assertThrows(UnsupportedOperationException.class, () -> new DecisionDiagramSimulator().simulateDiagram(measured));
+    }
+
+    @Test
+    public void testMatchesStandardSimulator() {
+        ComplexTensor qftData = new ComplexTensor(4, 4);
+        for (int r = 0; r < 4; r++)
+            for (int c = 0; c < 4; c++)
+                qftData.insertElement(new Complex((float) (Math.cos(Math.PI * r * c / 2) / 2), (float) (Math.sin(Math.PI * r * c / 2) / 2)), r, c);
+        OperationDataProvider.getInstance().registerFunctionData("ddTestQft", qftData);
+
+        int noQubits = 7;
+        Circuit circuit = new Circuit(noQubits);
+        circuit.H(0, noQubits - 1);
+        circuit.CNOT(6, 0);
+        circuit.CR(1, 5, (float) (Math.PI / 3));
+        circuit.customFunction("ddTestQft", 2, 3);
+        circuit.swap(0, 4);
+        circuit.CY(4, 2);
+        circuit.T(1, 6);
+        circuit.CNOT(3, 1);
+        circuit.R((float) 0.7, 5);
+        circuit.CZ(5, 0);
+        circuit.customFunction("ddTestQft", 4, 5);
+        circuit.Y(3);
+        State expectedState = new FsvSimulatorStandard().simulateFullState(circuit);
+
+        // Small threshold, so the dead nodes are collected during the simulation
+        DecisionDiagramSimulator simulator = new DecisionDiagramSimulator(16);
+        State state = simulator.simulateFullState(circuit);
+        assertTrue(state.isNormalized());
+        for (int i = 0; i < state.size(); i++) {
+            assertEquals(expectedState.getStateAmplitude(i).real(), state.getStateAmplitude(i).real(), 1e-5f);
+            assertEquals(expectedState.getStateAmplitude(i).imag(), state.getStateAmplitude(i).imag(), 1e-5f);
+        }
+        assertTrue(simulator.garbageCollections() > 0);
+        assertTrue(simulator.collectedNodes() > 0);
+        assertTrue(simulator.nodeCount() <= (1 << noQubits) - 1);
+        assertTrue(simulator.peakNodeCount() >= simulator.nodeCount());
+    }
+
+    @Test
+    public void testGhzState() {
+        int noQubits = 300;
+        Circuit circuit = new Circuit(noQubits);
+        circuit.H(0);
+        for (int target = 1; target < noQubits; target++)
+            circuit.CNOT(target - 1, target);
+
+        DecisionDiagramSimulator simulator = new DecisionDiagramSimulator();
+        StateDiagram state = simulator.simulateDiagram(circuit);
+        // Two branches (all zeros and all ones) below the root
+        assertEquals(2 * noQubits - 1, simulator.nodeCount());
+        assertEquals(simulator.nodeCount(), state.nodeCount());
+        assertTrue(simulator.uniqueTableHitRate() > 0);
+        assertTrue(simulator.multiplyCacheHitRate() >= 0 && simulator.multiplyCacheHitRate() <= 1);
+        BitSet ones = new BitSet(noQubits);
+        ones.set(0, noQubits);
+        assertEquals(HALF, state.getAmplitude(new BitSet()).abs(), 1e-5f);
+        assertEquals(HALF, state.getAmplitude(ones).abs(), 1e-5f);
+        assertEquals(0, state.getAmplitude(BitSet.valueOf(new long[] { 1 })).abs(), 1e-5f);
+        assertEquals(0.5f, state.getQubitProbability(noQubits / 2), 1e-5f);
+        Random random = new Random(3);
+        for (int shot = 0; shot < 10; shot++) {
+            BitSet sample = state.sample(random);
+            assertTrue(sample.isEmpty() || sample.cardinality() == noQubits);
+        }
+    }
+
+    @Test
+    public void testRedundantState() {
+        // Uniform superposition is a chain of one node per qubit
+        int noQubits = 20;
+        Circuit circuit = new Circuit(noQubits);
+        for (int qubit = 0; qubit < noQubits; qubit++)
+            circuit.H(qubit);
+        circuit.X(3);
+        circuit.H(3);
+
+        DecisionDiagramSimulator simulator = new DecisionDiagramSimulator();
+        StateDiagram state = simulator.simulateDiagram(circuit);
+        assertEquals(noQubits, simulator.nodeCount());
+        assertEquals(0, state.getQubitProbability(3), 1e-5f);
+        assertEquals(0.5f, state.getQubitProbability(7), 1e-5f);
+        assertEquals(0, new DecisionDiagramSimulator().simulateAndCollapse(circuit) & 8);
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.operation.OperationDataProvider;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FsvCompiledCircuitTest {
+
+    @Test
+    public void testOperationTable() {
+        FsvDataProvider dataProvider = new FsvDataProvider();
+        Circuit circuit = new Circuit(4);
+        circuit.H(0);
+        circuit.T(1);
+        circuit.Y(2);
+        circuit.CNOT(0, 3);
+        circuit.CNOT(3, 0);
+        circuit.CNOT(0, 3);
+        circuit.CZ(1, 2);
+        circuit.CH(2, 1);
+
+        FsvCompiledCircuit compiledCircuit = new FsvCompiledCircuit(dataProvider, dataProvider.getCircuitOperations(circuit));
+        int[] operations = compiledCircuit.operations();
+        int[] expectedKinds = { FsvOperand.INIT, FsvOperand.GATE, FsvOperand.PHASE, FsvOperand.FLIP, FsvOperand.SWAP, FsvOperand.CONTROL_PHASE, FsvOperand.CONTROL_GATE };
+
+        assertEquals(expectedKinds.length, compiledCircuit.size());
+        for (int i = 0; i < expectedKinds.length; i++)
+            assertEquals(expectedKinds[i], operations[i * FsvOperand.OPERATION_LENGTH]);
+
+        // Pauli Y flip flag, swapped qubits and matrix offsets (H, T, CZ, CH)
+        assertEquals(1, operations[3 * FsvOperand.OPERATION_LENGTH + 3]);
+        assertEquals(0, operations[4 * FsvOperand.OPERATION_LENGTH + 1]);
+        assertEquals(3, operations[4 * FsvOperand.OPERATION_LENGTH + 2]);
+        assertEquals(0, operations[FsvOperand.OPERATION_LENGTH + 4]);
+        assertEquals(4, operations[2 * FsvOperand.OPERATION_LENGTH + 4]);
+        assertEquals(8, operations[5 * FsvOperand.OPERATION_LENGTH + 4]);
+        assertEquals(12, operations[6 * FsvOperand.OPERATION_LENGTH + 4]);
+        assertEquals(16, compiledCircuit.operationReal().length);
+        assertFalse(compiledCircuit.usesResultVector());
+    }
+
+    @Test
+    public void testResultVector() {
+        ComplexTensor swapData = new ComplexTensor(4, 4);
+        swapData.insertElement(new Complex(1, 0), 0, 0);
+        swapData.insertElement(new Complex(1, 0), 1, 2);
+        swapData.insertElement(new Complex(1, 0), 2, 1);
+        swapData.insertElement(new Complex(1, 0), 3, 3);
+        OperationDataProvider.getInstance().registerFunctionData("compiledTestSwap", swapData);
+
+        FsvDataProvider dataProvider = new FsvDataProvider();
+        Circuit circuit = new Circuit(3);
+        circuit.H(0);
+        circuit.customFunction("compiledTestSwap", 0, 1);
+
+        FsvCompiledCircuit compiledCircuit = new FsvCompiledCircuit(dataProvider, dataProvider.getCircuitOperations(circuit));
+        int[] operations = compiledCircuit.operations();
+
+        assertEquals(4, compiledCircuit.size());
+        assertEquals(FsvOperand.FUNCTION, operations[2 * FsvOperand.OPERATION_LENGTH]);
+        assertEquals(FsvOperand.COPY_RESULT, operations[3 * FsvOperand.OPERATION_LENGTH]);
+        assertTrue(compiledCircuit.usesResultVector());
+    }
+
+}
@@ -0,0 +1,323 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FsvRangeOperandTest {
+    private static final int NO_QUBITS = 6;
+    private static final int SIZE = 1 << NO_QUBITS;
+
+    private final Random random = new Random(7);
+
+    @Test
+    public void testGateKernels() {
+        // Target 0 (interleaved), 1-2 (pair by pair) and >= 3 (runs)
+        for (int target = 0; target < NO_QUBITS; target++) {
+            int t = target;
+            float[][] gate = randomMatrix(2);
+            double[][] doubleGate = widen(gate);
+            assertKernel(SIZE / 2, (real, imag, fromRow, toRow) -> FsvRangeOperand.applyGate(t, real, imag, fromRow, toRow, gate[0], gate[1]),
+                    (real, imag, fromRow, toRow) -> FsvRangeOperand.applyGate(t, real, imag, fromRow, toRow, doubleGate[0], doubleGate[1]), (real, imag) -> referenceGate(t, -1, doubleGate, real, imag));
+
+            float[][] phase = { { 1, 0, 0, gate[0][3] }, { 0, 0, 0, gate[1][3] } };
+            double[][] doublePhase = widen(phase);
+            assertKernel(SIZE / 2, (real, imag, fromRow, toRow) -> FsvRangeOperand.applyPhase(t, real, imag, fromRow, toRow, phase[0], phase[1]),
+                    (real, imag, fromRow, toRow) -> FsvRangeOperand.applyPhase(t, real, imag, fromRow, toRow, doublePhase[0], doublePhase[1]), (real, imag) -> referenceGate(t, -1, doublePhase, real, imag));
+
+            for (boolean flipPhase : new boolean[] { false, true }) {
+                double[][] flip = flipPhase ? new double[][] { { 0, 0, 0, 0 }, { 0, -1, 1, 0 } } : new double[][] { { 0, 1, 1, 0 }, { 0, 0, 0, 0 } };
+                assertKernel(SIZE / 2, (real, imag, fromRow, toRow) -> FsvRangeOperand.applyFlip(t, flipPhase, real, imag, fromRow, toRow),
+                        (real, imag, fromRow, toRow) -> FsvRangeOperand.applyFlip(t, flipPhase, real, imag, fromRow, toRow), (real, imag) -> referenceGate(t, -1, flip, real, imag));
+            }
+        }
+    }
+
+    @Test
+    public void testControlGateKernels() {
+        // Control below / above the target, both below / above the run threshold
+        for (int target = 0; target < NO_QUBITS; target++) {
+            for (int control = 0; control < NO_QUBITS; control++) {
+                if (control == target)
+                    continue;
+                int t = target;
+                int c = control;
+                float[][] gate = randomMatrix(2);
+                double[][] doubleGate = widen(gate);
+                assertKernel(SIZE / 4, (real, imag, fromRow, toRow) -> FsvRangeOperand.applyControlGate(t, c, real, imag, fromRow, toRow, gate[0], gate[1]),
+                        (real, imag, fromRow, toRow) -> FsvRangeOperand.applyControlGate(t, c, real, imag, fromRow, toRow, doubleGate[0], doubleGate[1]),
+                        (real, imag) -> referenceGate(t, c, doubleGate, real, imag));
+
+                float[][] phase = { { 1, 0, 0, gate[0][3] }, { 0, 0, 0, gate[1][3] } };
+                double[][] doublePhase = widen(phase);
+                assertKernel(SIZE / 4, (real, imag, fromRow, toRow) -> FsvRangeOperand.applyControlPhase(t, c, real, imag, fromRow, toRow, phase[0], phase[1]),
+                        (real, imag, fromRow, toRow) -> FsvRangeOperand.applyControlPhase(t, c, real, imag, fromRow, toRow, doublePhase[0], doublePhase[1]),
+                        (real, imag) -> referenceGate(t, c, doublePhase, real, imag));
+
+                for (boolean flipPhase : new boolean[] { false, true }) {
+                    double[][] flip = flipPhase ? new double[][] { { 0, 0, 0, 0 }, { 0, -1, 1, 0 } } : new double[][] { { 0, 1, 1, 0 }, { 0, 0, 0, 0 } };
+                    assertKernel(SIZE / 4, (real, imag, fromRow, toRow) -> FsvRangeOperand.applyControlFlip(t, c, flipPhase, real, imag, fromRow, toRow),
+                            (real, imag, fromRow, toRow) -> FsvRangeOperand.applyControlFlip(t, c, flipPhase, real, imag, fromRow, toRow), (real, imag) -> referenceGate(t, c, flip, real, imag));
+                }
+
+                assertKernel(SIZE / 4, (real, imag, fromRow, toRow) -> FsvRangeOperand.applySwap(t, c, real, imag, fromRow, toRow),
+                        (real, imag, fromRow, toRow) -> FsvRangeOperand.applySwap(t, c, real, imag, fromRow, toRow), (real, imag) -> referenceSwap(t, c, real, imag));
+            }
+        }
+    }
+
+    @Test
+    public void testBlockKernels() {
+        for (int qubitA = 0; qubitA < NO_QUBITS; qubitA++) {
+            for (int qubitB = qubitA + 1; qubitB < NO_QUBITS; qubitB++) {
+                int[] qubits = { qubitA, qubitB };
+                float[][] block = randomMatrix(4);
+                double[][] doubleBlock = widen(block);
+                assertKernel(SIZE / 4, (real, imag, fromRow, toRow) -> FsvRangeOperand.applyBlock(qubits, real, imag, fromRow, toRow, block[0], block[1]),
+                        (real, imag, fromRow, toRow) -> FsvRangeOperand.applyBlock(qubits, real, imag, fromRow, toRow, doubleBlock[0], doubleBlock[1]),
+                        (real, imag) -> referenceBlock(qubits, doubleBlock, real, imag));
+                assertKernel(SIZE / 4, (real, imag, fromRow, toRow) -> FsvRangeOperand.applyTwoQubitBlock(qubits[0], qubits[1], real, imag, fromRow, toRow, block[0], block[1]), null,
+                        (real, imag) -> referenceBlock(qubits, doubleBlock, real, imag));
+
+                // Split block ignores the entries mixing populations and coherences
+                float[][] splitBlock = randomMatrix(4);
+                for (int entry : new int[] { 1, 2, 4, 7, 8, 11, 13, 14 }) {
+                    splitBlock[0][entry] = 0;
+                    splitBlock[1][entry] = 0;
+                }
+                double[][] doubleSplitBlock = widen(splitBlock);
+                assertKernel(SIZE / 4, (real, imag, fromRow, toRow) -> FsvRangeOperand.applyTwoQubitSplitBlock(qubits[0], qubits[1], real, imag, fromRow, toRow, splitBlock[0], splitBlock[1]), null,
+                        (real, imag) -> referenceBlock(qubits, doubleSplitBlock, real, imag));
+            }
+        }
+
+        int[] qubits = { 0, 2, 4 };
+        float[][] block = randomMatrix(8);
+        double[][] doubleBlock = widen(block);
+        assertKernel(SIZE / 8, (real, imag, fromRow, toRow) -> FsvRangeOperand.applyBlock(qubits, real, imag, fromRow, toRow, block[0], block[1]),
+                (real, imag, fromRow, toRow) -> FsvRangeOperand.applyBlock(qubits, real, imag, fromRow, toRow, doubleBlock[0], doubleBlock[1]), (real, imag) -> referenceBlock(qubits, doubleBlock, real, imag));
+    }
+
+    @Test
+    public void testQubitSwapKernels() {
+        // Lowest swapped qubit 0 (masked) and above (runs)
+        int[][][] swaps = { { { 0 }, { 5 } }, { { 1, 2 }, { 4, 3 } }, { { 3 }, { 4 } }, { { 5, 0, 2 }, { 1, 4, 3 } } };
+        for (int[][] swap : swaps) {
+            int[] qubitsA = swap[0];
+            int[] qubitsB = swap[1];
+            assertKernel(SIZE >> (2 * qubitsA.length), (real, imag, fromRow, toRow) -> FsvRangeOperand.applyQubitSwaps(qubitsA, qubitsB, real, imag, fromRow, toRow),
+                    (real, imag, fromRow, toRow) -> FsvRangeOperand.applyQubitSwaps(qubitsA, qubitsB, real, imag, fromRow, toRow), (real, imag) -> {
+                        for (int k = 0; k < qubitsA.length; k++)
+                            referenceSwap(qubitsA[k], qubitsB[k], real, imag);
+                    });
+        }
+    }
+
+    @Test
+    public void testMeasurementKernels() {
+        for (int target = 0; target < NO_QUBITS; target++) {
+            int t = target;
+            double[][] state = randomState();
+            double expected = 0;
+            for (int i = 0; i < SIZE; i++)
+                if (((i >> t) & 1) == 1)
+                    expected += state[0][i] * state[0][i] + state[1][i] * state[1][i];
+            float[] real = narrow(state[0]);
+            float[] imag = narrow(state[1]);
+            for (int cut : cuts(SIZE / 2)) {
+                assertEquals(expected, FsvRangeOperand.measureProbability(t, real, imag, 0, cut) + FsvRangeOperand.measureProbability(t, real, imag, cut, SIZE / 2), 1e-5);
+                assertEquals(expected, FsvRangeOperand.measureProbability(t, state[0], state[1], 0, cut) + FsvRangeOperand.measureProbability(t, state[0], state[1], cut, SIZE / 2), 1e-12);
+            }
+
+            for (int outcome = 0; outcome < 2; outcome++) {
+                for (boolean reset : new boolean[] { false, true }) {
+                    int o = outcome;
+                    assertKernel(SIZE / 2, (r, i, fromRow, toRow) -> FsvRangeOperand.applyCollapse(t, o, reset, 1.5f, r, i, fromRow, toRow),
+                            (r, i, fromRow, toRow) -> FsvRangeOperand.applyCollapse(t, o, reset, 1.5, r, i, fromRow, toRow), (r, i) -> referenceCollapse(t, o, reset, 1.5, r, i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the kernel to a random state in two ranges split at several points
+     * (inside and at the boundaries of the runs) and compares the result with the
+     * reference (baseline) computation.
+     */
+    private void assertKernel(int rows, FloatKernel floatKernel, DoubleKernel doubleKernel, Reference reference) {
+        double[][] state = randomState();
+        double[] expectedReal = state[0].clone();
+        double[] expectedImag = state[1].clone();
+        reference.apply(expectedReal, expectedImag);
+
+        for (int cut : cuts(rows)) {
+            float[] real = narrow(state[0]);
+            float[] imag = narrow(state[1]);
+            floatKernel.apply(real, imag, 0, cut);
+            floatKernel.apply(real, imag, cut, rows);
+            for (int i = 0; i < SIZE; i++) {
+                assertEquals(expectedReal[i], real[i], 1e-5);
+                assertEquals(expectedImag[i], imag[i], 1e-5);
+            }
+
+            if (doubleKernel == null)
+                continue;
+            double[] doubleReal = state[0].clone();
+            double[] doubleImag = state[1].clone();
+            doubleKernel.apply(doubleReal, doubleImag, 0, cut);
+            doubleKernel.apply(doubleReal, doubleImag, cut, rows);
+            for (int i = 0; i < SIZE; i++) {
+                assertEquals(expectedReal[i], doubleReal[i], 1e-12);
+                assertEquals(expectedImag[i], doubleImag[i], 1e-12);
+            }
+        }
+    }
+
+    private static int[] cuts(int rows) {
+        return IntStream.of(rows, 1, 3, rows / 2 + 1, rows - 1).filter(cut -> cut <= rows).distinct().toArray();
+    }
+
+    private static void referenceGate(int target, int control, double[][] gate, double[] real, double[] imag) {
+        for (int a = 0; a < SIZE; a++) {
+            if (((a >> target) & 1) == 1 || (control >= 0 && ((a >> control) & 1) == 0))
+                continue;
+            int b = a | (1 << target);
+            double aReal = real[a], aImag = imag[a], bReal = real[b], bImag = imag[b];
+            real[a] = gate[0][0] * aReal - gate[1][0] * aImag + gate[0][1] * bReal - gate[1][1] * bImag;
+            imag[a] = gate[0][0] * aImag + gate[1][0] * aReal + gate[0][1] * bImag + gate[1][1] * bReal;
+            real[b] = gate[0][2] * aReal - gate[1][2] * aImag + gate[0][3] * bReal - gate[1][3] * bImag;
+            imag[b] = gate[0][2] * aImag + gate[1][2] * aReal + gate[0][3] * bImag + gate[1][3] * bReal;
+        }
+    }
+
+    private static void referenceSwap(int qubitA, int qubitB, double[] real, double[] imag) {
+        for (int a = 0; a < SIZE; a++) {
+            if (((a >> qubitA) & 1) != 1 || ((a >> qubitB) & 1) != 0)
+                continue;
+            int b = a ^ (1 << qubitA) ^ (1 << qubitB);
+            double valueReal = real[a], valueImag = imag[a];
+            real[a] = real[b];
+            imag[a] = imag[b];
+            real[b] = valueReal;
+            imag[b] = valueImag;
+        }
+    }
+
+    private static void referenceBlock(int[] qubits, double[][] block, double[] real, double[] imag) {
+        int dimension = 1 << qubits.length;
+        double[] valueReal = new double[dimension];
+        double[] valueImag = new double[dimension];
+        for (int base = 0; base < SIZE; base++) {
+            boolean groupBase = true;
+            for (int qubit : qubits)
+                groupBase &= ((base >> qubit) & 1) == 0;
+            if (!groupBase)
+                continue;
+            for (int s = 0; s < dimension; s++) {
+                valueReal[s] = real[base | offset(qubits, s)];
+                valueImag[s] = imag[base | offset(qubits, s)];
+            }
+            for (int r = 0; r < dimension; r++) {
+                double sumReal = 0, sumImag = 0;
+                for (int s = 0; s < dimension; s++) {
+                    int m = r * dimension + s;
+                    sumReal += block[0][m] * valueReal[s] - block[1][m] * valueImag[s];
+                    sumImag += block[0][m] * valueImag[s] + block[1][m] * valueReal[s];
+                }
+                real[base | offset(qubits, r)] = sumReal;
+                imag[base | offset(qubits, r)] = sumImag;
+            }
+        }
+    }
+
+    private static void referenceCollapse(int target, int outcome, boolean reset, double scale, double[] real, double[] imag) {
+        for (int a = 0; a < SIZE; a++) {
+            if (((a >> target) & 1) == 1)
+                continue;
+            int b = a | (1 << target);
+            int kept = outcome == 0 ? a : b;
+            int into = outcome == 0 || reset ? a : b;
+            double keptReal = real[kept] * scale, keptImag = imag[kept] * scale;
+            real[a] = real[b] = imag[a] = imag[b] = 0;
+            real[into] = keptReal;
+            imag[into] = keptImag;
+        }
+    }
+
+    private static int offset(int[] qubits, int s) {
+        int offset = 0;
+        for (int j = 0; j < qubits.length; j++)
+            offset |= ((s >> j) & 1) << qubits[j];
+        return offset;
+    }
+
+    private double[][] randomState() {
+        double[][] state = new double[2][SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            state[0][i] = (float) (random.nextDouble() - 0.5);
+            state[1][i] = (float) (random.nextDouble() - 0.5);
+        }
+        return state;
+    }
+
+    private float[][] randomMatrix(int dimension) {
+        float[][] matrix = new float[2][dimension * dimension];
+        for (int m = 0; m < matrix[0].length; m++) {
+            matrix[0][m] = (float) (random.nextDouble() - 0.5);
+            matrix[1][m] = (float) (random.nextDouble() - 0.5);
+        }
+        return matrix;
+    }
+
+    private static double[][] widen(float[][] matrix) {
+        double[][] result = new double[2][matrix[0].length];
+        for (int m = 0; m < matrix[0].length; m++) {
+            result[0][m] = matrix[0][m];
+            result[1][m] = matrix[1][m];
+        }
+        return result;
+    }
+
+    private static float[] narrow(double[] values) {
+        float[] result = new float[values.length];
+        for (int i = 0; i < values.length; i++)
+            result[i] = (float) values[i];
+        return result;
+    }
+
+    private interface FloatKernel {
+        void apply(float[] real, float[] imag, int fromRow, int toRow);
+    }
+
+    private interface DoubleKernel {
+        void apply(double[] real, double[] imag, int fromRow, int toRow);
+    }
+
+    private interface Reference {
+        void apply(double[] real, double[] imag);
+    }
+}
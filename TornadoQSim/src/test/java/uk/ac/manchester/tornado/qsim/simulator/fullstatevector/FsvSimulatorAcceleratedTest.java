@@ -0,0 +1,304 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.DoubleState;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.circuit.operation.OperationDataProvider;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.math.DoubleComplexTensor;
+import uk.ac.manchester.tornado.qsim.simulator.Precision;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FsvSimulatorAcceleratedTest {
+
+    @Test
+    public void testGatesAndSwaps() {
+        Circuit circuit = new Circuit(5);
+        circuit.H(0, 1, 2, 3, 4);
+        circuit.X(1);
+        circuit.Y(2);
+        circuit.Z(3);
+        circuit.S(4);
+        circuit.T(0);
+        circuit.R((float) 0.3, 2);
+        circuit.CNOT(0, 4);
+        circuit.CY(3, 1);
+        circuit.CZ(1, 2);
+        circuit.CH(4, 0);
+        circuit.CS(2, 3);
+        circuit.CT(0, 1);
+        circuit.CR(1, 4, (float) 1.2);
+        circuit.swap(0, 3);
+        // Swap sequence of CNOT gates applied as a single swap
+        circuit.CNOT(1, 4);
+        circuit.CNOT(4, 1);
+        circuit.CNOT(1, 4);
+
+        assertStateEquals(new FsvSimulatorStandard().simulateFullState(circuit), new FsvSimulatorAccelerated().simulateFullState(circuit));
+    }
+
+    @Test
+    public void testRandomCircuits() {
+        Random random = new Random(3);
+        FsvSimulatorAccelerated simulator = new FsvSimulatorAccelerated();
+        FsvSimulatorAccelerated fusedSimulator = new FsvSimulatorAccelerated(new FsvOptions().fuseGates(3));
+        for (int trial = 0; trial < 4; trial++) {
+            Circuit circuit = randomCircuit(random, 6, 40);
+            State expectedState = new FsvSimulatorStandard().simulateFullState(circuit);
+            assertStateEquals(expectedState, simulator.simulateFullState(circuit));
+            assertStateEquals(expectedState, fusedSimulator.simulateFullState(circuit));
+            assertTrue(fusedSimulator.passesSaved() > 0);
+        }
+    }
+
+    @Test
+    public void testCustomFunction() {
+        // 3 qubit quantum Fourier transform as a custom function
+        ComplexTensor qftData = new ComplexTensor(8, 8);
+        for (int r = 0; r < 8; r++) {
+            for (int c = 0; c < 8; c++) {
+                double angle = 2 * Math.PI * r * c / 8;
+                qftData.insertElement(new Complex((float) (Math.cos(angle) / Math.sqrt(8)), (float) (Math.sin(angle) / Math.sqrt(8))), r, c);
+            }
+        }
+        OperationDataProvider.getInstance().registerFunctionData("fsvAccelTestQft", qftData);
+
+        Circuit circuit = new Circuit(5);
+        circuit.H(0, 3);
+        circuit.X(4);
+        circuit.customFunction("fsvAccelTestQft", 1, 3);
+        circuit.CNOT(2, 4);
+        circuit.customFunction("fsvAccelTestQft", 2, 4);
+
+        assertStateEquals(new FsvSimulatorStandard().simulateFullState(circuit), new FsvSimulatorAccelerated().simulateFullState(circuit));
+        assertStateEquals(new FsvSimulatorStandard().simulateFullState(circuit), new FsvSimulatorAccelerated(new FsvOptions().fuseGates(2)).simulateFullState(circuit));
+    }
+
+    @Test
+    public void testPlanReuse() {
+        Circuit circuit = randomCircuit(new Random(5), 4, 20);
+        Circuit anotherCircuit = randomCircuit(new Random(6), 4, 20);
+        State expectedState = new FsvSimulatorStandard().simulateFullState(circuit);
+        State anotherExpectedState = new FsvSimulatorStandard().simulateFullState(anotherCircuit);
+
+        FsvSimulatorAccelerated simulator = new FsvSimulatorAccelerated();
+        assertStateEquals(expectedState, simulator.simulateFullState(circuit));
+        assertFalse(simulator.planReused());
+        assertStateEquals(expectedState, simulator.simulateFullState(circuit));
+        assertTrue(simulator.planReused());
+        assertStateEquals(anotherExpectedState, simulator.simulateFullState(anotherCircuit));
+        assertFalse(simulator.planReused());
+        assertStateEquals(expectedState, simulator.simulateFullState(circuit));
+        assertTrue(simulator.planReused());
+
+        // Without caching every simulation compiles its plan
+        FsvSimulatorAccelerated uncachedSimulator = new FsvSimulatorAccelerated(new FsvOptions().cachedPlans(0));
+        assertStateEquals(expectedState, uncachedSimulator.simulateFullState(circuit));
+        assertStateEquals(expectedState, uncachedSimulator.simulateFullState(circuit));
+        assertFalse(uncachedSimulator.planReused());
+    }
+
+    @Test
+    public void testReturnedStates() {
+        Circuit circuit = randomCircuit(new Random(10), 4, 20);
+        Circuit anotherCircuit = randomCircuit(new Random(11), 4, 20);
+        for (Precision precision : Precision.values()) {
+            FsvOptions options = new FsvOptions().precision(precision);
+            State expectedState = new FsvSimulatorStandard(options).simulateFullState(circuit);
+            State anotherExpectedState = new FsvSimulatorStandard(options).simulateFullState(anotherCircuit);
+
+            // States of earlier simulations keep their amplitudes when the state buffers are reused
+            FsvSimulatorAccelerated simulator = new FsvSimulatorAccelerated(options);
+            State state = simulator.simulateFullState(circuit);
+            State anotherState = simulator.simulateFullState(anotherCircuit);
+            State repeatedState = simulator.simulateFullState(circuit);
+            assertStateEquals(expectedState, state);
+            assertStateEquals(anotherExpectedState, anotherState);
+            assertStateEquals(expectedState, repeatedState);
+        }
+    }
+
+    @Test
+    public void testPlanEviction() {
+        Circuit circuit = randomCircuit(new Random(7), 4, 20);
+        Circuit anotherCircuit = randomCircuit(new Random(8), 4, 20);
+        Circuit widerCircuit = randomCircuit(new Random(9), 5, 20);
+        FsvSimulatorStandard standard = new FsvSimulatorStandard();
+
+        // Plans of the same and of different state sizes evict each other
+        FsvSimulatorAccelerated simulator = new FsvSimulatorAccelerated(new FsvOptions().cachedPlans(1));
+        for (int run = 0; run < 2; run++) {
+            assertStateEquals(standard.simulateFullState(circuit), simulator.simulateFullState(circuit));
+            assertStateEquals(standard.simulateFullState(anotherCircuit), simulator.simulateFullState(anotherCircuit));
+            assertStateEquals(standard.simulateFullState(widerCircuit), simulator.simulateFullState(widerCircuit));
+            assertFalse(simulator.planReused());
+        }
+        assertStateEquals(standard.simulateFullState(widerCircuit), simulator.simulateFullState(widerCircuit));
+        assertTrue(simulator.planReused());
+    }
+
+    @Test
+    public void testDoublePrecision() {
+        Circuit circuit = randomCircuit(new Random(9), 5, 40);
+        DoubleState expectedState = (DoubleState) new FsvSimulatorStandard(new FsvOptions().precision(Precision.DOUBLE)).simulateFullState(circuit);
+        for (int maxFusedQubits : new int[] { 0, 1, 3 }) {
+            FsvSimulatorAccelerated simulator = new FsvSimulatorAccelerated(new FsvOptions().fuseGates(maxFusedQubits).precision(Precision.DOUBLE));
+            for (int run = 0; run < 2; run++) {
+                State state = simulator.simulateFullState(circuit);
+                assertTrue(state instanceof DoubleState);
+                DoubleComplexTensor vector = ((DoubleState) state).getDoubleStateVector();
+                DoubleComplexTensor expectedVector = expectedState.getDoubleStateVector();
+                for (int i = 0; i < expectedState.size(); i++) {
+                    assertEquals(expectedVector.getRawRealData()[i], vector.getRawRealData()[i], 1e-12);
+                    assertEquals(expectedVector.getRawImagData()[i], vector.getRawImagData()[i], 1e-12);
+                }
+            }
+            assertTrue(simulator.planReused());
+        }
+    }
+
+    @Test
+    public void testDynamicCircuit() {
+        // Teleportation of qubit 0 to qubit 2 with classically conditioned corrections
+        Circuit circuit = new Circuit(3);
+        circuit.H(0);
+        circuit.R((float) 1.1, 0);
+        circuit.H(0);
+        circuit.H(1);
+        circuit.CNOT(1, 2);
+        circuit.CNOT(0, 1);
+        circuit.H(0);
+        circuit.measure(0, 1);
+        Circuit xCorrection = new Circuit(3);
+        xCorrection.X(2);
+        Circuit zCorrection = new Circuit(3);
+        zCorrection.Z(2);
+        circuit.conditional(1, 1, xCorrection);
+        circuit.conditional(0, 1, zCorrection);
+        circuit.reset(0);
+
+        FsvSimulatorStandard standard = new FsvSimulatorStandard();
+        FsvSimulatorAccelerated accelerated = new FsvSimulatorAccelerated(new FsvOptions().cachedPlans(8));
+        standard.setSeed(13);
+        accelerated.setSeed(13);
+        boolean[] corrected = new boolean[2];
+        for (int run = 0; run < 16; run++) {
+            State expectedState = standard.simulateFullState(circuit);
+            assertStateEquals(expectedState, accelerated.simulateFullState(circuit));
+            assertArrayEquals(standard.measurements(), accelerated.measurements());
+            corrected[accelerated.measurements()[1]] = true;
+        }
+        assertTrue(corrected[0] && corrected[1]);
+
+        // Segments of an already simulated branch reuse their plans
+        standard.setSeed(13);
+        accelerated.setSeed(13);
+        assertStateEquals(standard.simulateFullState(circuit), accelerated.simulateFullState(circuit));
+        assertTrue(accelerated.planReused());
+
+        // Circuit without instructions takes no measurements
+        Circuit unitaryCircuit = new Circuit(3);
+        unitaryCircuit.H(0);
+        accelerated.simulateFullState(unitaryCircuit);
+        assertEquals(0, accelerated.measurements().length);
+        assertEquals(0, new FsvSimulatorAccelerated().measurements().length);
+    }
+
+    @Test
+    public void testReregisteredFunctionData() {
+        // Plan captures the function data, registering new data must not reuse it
+        ComplexTensor identity = new ComplexTensor(2, 2);
+        identity.insertElement(new Complex(1, 0), 0, 0);
+        identity.insertElement(new Complex(1, 0), 1, 1);
+        ComplexTensor flip = new ComplexTensor(2, 2);
+        flip.insertElement(new Complex(1, 0), 0, 1);
+        flip.insertElement(new Complex(1, 0), 1, 0);
+
+        OperationDataProvider.getInstance().registerFunctionData("fsvAccelTestReregistered", identity);
+        Circuit circuit = new Circuit(2);
+        circuit.customFunction("fsvAccelTestReregistered", 0, 0);
+        FsvSimulatorAccelerated simulator = new FsvSimulatorAccelerated();
+
+        assertStateEquals(new FsvSimulatorStandard().simulateFullState(circuit), simulator.simulateFullState(circuit));
+        assertEquals(1, simulator.simulateFullState(circuit).getStateAmplitude(0).real());
+        assertTrue(simulator.planReused());
+
+        OperationDataProvider.getInstance().registerFunctionData("fsvAccelTestReregistered", flip);
+        State state = simulator.simulateFullState(circuit);
+        assertFalse(simulator.planReused());
+        assertStateEquals(new FsvSimulatorStandard().simulateFullState(circuit), state);
+        assertEquals(1, state.getStateAmplitude(1).real());
+    }
+
+    private static Circuit randomCircuit(Random random, int noQubits, int noGates) {
+        Circuit circuit = new Circuit(noQubits);
+        for (int g = 0; g < noGates; g++) {
+            int qubit = random.nextInt(noQubits);
+            int other = (qubit + 1 + random.nextInt(noQubits - 1)) % noQubits;
+            switch (random.nextInt(8)) {
+                case 0:
+                    circuit.H(qubit);
+                    break;
+                case 1:
+                    circuit.Y(qubit);
+                    break;
+                case 2:
+                    circuit.T(qubit);
+                    break;
+                case 3:
+                    circuit.R(random.nextFloat() * 3, qubit);
+                    break;
+                case 4:
+                    circuit.CNOT(qubit, other);
+                    break;
+                case 5:
+                    circuit.CH(qubit, other);
+                    break;
+                case 6:
+                    circuit.CR(qubit, other, random.nextFloat() * 3);
+                    break;
+                default:
+                    circuit.swap(Math.min(qubit, other), Math.max(qubit, other));
+                    break;
+            }
+        }
+        return circuit;
+    }
+
+    private static void assertStateEquals(State expectedState, State state) {
+        assertEquals(expectedState.size(), state.size());
+        for (int i = 0; i < expectedState.size(); i++) {
+            assertEquals(expectedState.getStateAmplitude(i).real(), state.getStateAmplitude(i).real(), 1e-5);
+            assertEquals(expectedState.getStateAmplitude(i).imag(), state.getStateAmplitude(i).imag(), 1e-5);
+        }
+    }
+}
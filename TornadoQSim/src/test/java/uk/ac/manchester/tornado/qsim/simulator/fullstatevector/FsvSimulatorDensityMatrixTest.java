@@ -0,0 +1,152 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.circuit.operation.OperationDataProvider;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.math.DoubleComplexTensor;
+import uk.ac.manchester.tornado.qsim.simulator.noise.KrausChannel;
+import uk.ac.manchester.tornado.qsim.simulator.noise.NoiseModel;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FsvSimulatorDensityMatrixTest {
+
+    @Test
+    public void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorDensityMatrix(null));
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorDensityMatrix(new NoiseModel(), 0));
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorDensityMatrix().simulateDensityMatrix(null));
+        assertThrows(UnsupportedOperationException.class, () -> new FsvSimulatorDensityMatrix().simulateDensityMatrix(new Circuit(FsvSimulatorDensityMatrix.MAX_QUBITS + 1)));
+        assertThrows(IllegalArgumentException.class, () -> KrausChannel.depolarizing(1.5));
+        assertThrows(IllegalArgumentException.class, () -> new NoiseModel().setReadoutError(-0.1, 0));
+        // Not trace preserving
+        assertThrows(IllegalArgumentException.class, () -> new KrausChannel(new DoubleComplexTensor(new double[] { 1, 0, 0, 1 }, new double[4], 2, 2), new DoubleComplexTensor(new double[] { 0, 1, 0, 0 }, new double[4], 2, 2)));
+        assertEquals(8L << 20, FsvSimulatorDensityMatrix.memoryFootprint(10));
+    }
+
+    @Test
+    public void testNoiselessMatchesStandardSimulator() {
+        ComplexTensor qftData = new ComplexTensor(4, 4);
+        for (int r = 0; r < 4; r++)
+            for (int c = 0; c < 4; c++)
+                qftData.insertElement(new Complex((float) (Math.cos(Math.PI * r * c / 2) / 2), (float) (Math.sin(Math.PI * r * c / 2) / 2)), r, c);
+        OperationDataProvider.getInstance().registerFunctionData("densityTestQft", qftData);
+
+        // 8 qubits, so the passes over 4^8 entries are split across the workers
+        int noQubits = 8;
+        Circuit circuit = new Circuit(noQubits);
+        circuit.H(0, 7);
+        circuit.CNOT(7, 0);
+        circuit.CR(1, 5, (float) (Math.PI / 3));
+        circuit.customFunction("densityTestQft", 2, 3);
+        circuit.swap(0, 4);
+        circuit.CY(4, 2);
+        circuit.T(1, 6);
+        circuit.CNOT(3, 1);
+        circuit.R((float) 0.7, 5);
+        circuit.CZ(5, 0);
+        circuit.customFunction("densityTestQft", 4, 5);
+        circuit.Y(3);
+        State expectedState = new FsvSimulatorStandard().simulateFullState(circuit);
+
+        FsvSimulatorDensityMatrix simulator = new FsvSimulatorDensityMatrix(new NoiseModel(), 2);
+        State state = simulator.simulateFullState(circuit);
+        assertEquals(1, simulator.purity(), 1e-4);
+        // Pure state is recovered up to a global phase
+        double overlapReal = 0, overlapImag = 0;
+        for (int i = 0; i < state.size(); i++) {
+            Complex expected = expectedState.getStateAmplitude(i);
+            Complex actual = state.getStateAmplitude(i);
+            overlapReal += expected.real() * actual.real() + expected.imag() * actual.imag();
+            overlapImag += expected.real() * actual.imag() - expected.imag() * actual.real();
+        }
+        assertEquals(1, overlapReal * overlapReal + overlapImag * overlapImag, 1e-4);
+    }
+
+    @Test
+    public void testNoiseChannels() {
+        Circuit circuit = new Circuit(1);
+        circuit.H(0);
+
+        // rho = (1 - p) |+><+| + p I / 2
+        NoiseModel depolarizing = new NoiseModel();
+        depolarizing.addGateNoise(KrausChannel.depolarizing(0.2));
+        FsvSimulatorDensityMatrix simulator = new FsvSimulatorDensityMatrix(depolarizing);
+        ComplexTensor rho = simulator.simulateDensityMatrix(circuit);
+        assertEquals(0.5f, rho.getElement(0, 0).real(), 1e-5f);
+        assertEquals(0.4f, rho.getElement(0, 1).real(), 1e-5f);
+        assertEquals(0.4f, rho.getElement(1, 0).real(), 1e-5f);
+        assertEquals(0.5 * (1 + 0.8 * 0.8), simulator.purity(), 1e-5);
+        assertThrows(UnsupportedOperationException.class, () -> simulator.simulateFullState(circuit));
+
+        // Coherences are scaled by sqrt(1 - lambda)
+        NoiseModel phaseDamping = new NoiseModel();
+        phaseDamping.addGateNoise(KrausChannel.phaseDamping(0.36));
+        rho = new FsvSimulatorDensityMatrix(phaseDamping).simulateDensityMatrix(circuit);
+        assertEquals(0.5f, rho.getElement(1, 1).real(), 1e-5f);
+        assertEquals(0.4f, rho.getElement(0, 1).real(), 1e-5f);
+
+        // State 1 decays into 0 with the probability gamma after each gate
+        Circuit excited = new Circuit(2);
+        excited.X(0);
+        excited.Z(0);
+        NoiseModel amplitudeDamping = new NoiseModel();
+        amplitudeDamping.addGateNoise(KrausChannel.amplitudeDamping(0.1));
+        double[] probabilities = new FsvSimulatorDensityMatrix(amplitudeDamping).simulateProbabilities(excited);
+        assertEquals(0.81, probabilities[1], 1e-5);
+        assertEquals(0.19, probabilities[0], 1e-5);
+        assertEquals(0, probabilities[2] + probabilities[3], 1e-6);
+
+        // Custom channel mixing the populations and the coherences: rho -> 0.8 rho + 0.2 H rho H
+        double identity = Math.sqrt(0.8), hadamard = Math.sqrt(0.2 / 2);
+        NoiseModel custom = new NoiseModel();
+        custom.addGateNoise(new KrausChannel(new DoubleComplexTensor(new double[] { identity, 0, 0, identity }, new double[4], 2, 2),
+                new DoubleComplexTensor(new double[] { hadamard, hadamard, hadamard, -hadamard }, new double[4], 2, 2)));
+        Circuit flipped = new Circuit(1);
+        flipped.X(0);
+        rho = new FsvSimulatorDensityMatrix(custom).simulateDensityMatrix(flipped);
+        assertEquals(0.1f, rho.getElement(0, 0).real(), 1e-5f);
+        assertEquals(-0.1f, rho.getElement(0, 1).real(), 1e-5f);
+        assertEquals(0.9f, rho.getElement(1, 1).real(), 1e-5f);
+    }
+
+    @Test
+    public void testReadoutError() {
+        Circuit circuit = new Circuit(2);
+        circuit.X(0);
+        NoiseModel readout = new NoiseModel();
+        readout.setReadoutError(0.1, 0.2);
+        double[] probabilities = new FsvSimulatorDensityMatrix(readout).simulateProbabilities(circuit);
+        assertEquals(0.18, probabilities[0], 1e-6);
+        assertEquals(0.72, probabilities[1], 1e-6);
+        assertEquals(0.02, probabilities[2], 1e-6);
+        assertEquals(0.08, probabilities[3], 1e-6);
+        // Readout error does not affect the state
+        assertEquals(1, new FsvSimulatorDensityMatrix(readout).simulateFullState(circuit).getStateAmplitude(1).abs(), 1e-6f);
+    }
+
+}
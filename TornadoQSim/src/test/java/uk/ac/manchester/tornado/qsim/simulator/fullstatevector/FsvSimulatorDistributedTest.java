@@ -0,0 +1,184 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.circuit.operation.OperationDataProvider;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FsvSimulatorDistributedTest {
+
+    @Test
+    public void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorDistributed(null));
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorDistributed(new UnconnectedTransport(3)));
+        FsvSimulatorDistributed simulator = new FsvSimulatorDistributed(new UnconnectedTransport(4));
+        assertThrows(IllegalArgumentException.class, () -> simulator.simulateFullState(new Circuit(3)));
+        assertThrows(IllegalArgumentException.class, () -> new FsvSocketTransport(2, FsvSocketTransport.loopbackAddresses(FsvSocketTransport.DEFAULT_BASE_PORT, 2)));
+    }
+
+    @Test
+    public void testMatchesStandardSimulator() throws Exception {
+        ComplexTensor qftData = new ComplexTensor(4, 4);
+        for (int r = 0; r < 4; r++)
+            for (int c = 0; c < 4; c++)
+                qftData.insertElement(new Complex((float) (Math.cos(Math.PI * r * c / 2) / 2), (float) (Math.sin(Math.PI * r * c / 2) / 2)), r, c);
+        OperationDataProvider.getInstance().registerFunctionData("fsvTestDistributed", qftData);
+
+        int noQubits = 8;
+        Circuit circuit = new Circuit(noQubits);
+        circuit.X(0, noQubits - 1);
+        for (int targetQubit = noQubits - 1; targetQubit >= 0; targetQubit--) {
+            circuit.H(targetQubit);
+            for (int controlQubit = 0; controlQubit < targetQubit; controlQubit++)
+                circuit.CR(controlQubit, targetQubit, (float) (Math.PI / Math.pow(2, targetQubit - controlQubit)));
+        }
+        circuit.Y(7);
+        circuit.CY(6, 7);
+        circuit.CNOT(5, 7);
+        circuit.CNOT(2, 6);
+        circuit.CNOT(7, 1);
+        circuit.customFunction("fsvTestDistributed", 6, 7);
+        circuit.swap(0, 7);
+        circuit.CNOT(3, 6);
+        circuit.CNOT(6, 3);
+        circuit.CNOT(3, 6);
+        circuit.T(0, 6);
+        circuit.H(0, 7);
+        State expectedState = new FsvSimulatorStandard().simulateFullState(circuit);
+
+        for (int ranks = 1; ranks <= 4; ranks *= 2) {
+            List<FsvSimulatorDistributed> simulators = new ArrayList<>();
+            for (State state : simulate(circuit, ranks, simulators)) {
+                assertTrue(state.isNormalized());
+                for (int i = 0; i < state.size(); i++) {
+                    assertEquals(expectedState.getStateAmplitude(i).real(), state.getStateAmplitude(i).real(), 1e-6f);
+                    assertEquals(expectedState.getStateAmplitude(i).imag(), state.getStateAmplitude(i).imag(), 1e-6f);
+                }
+            }
+            for (FsvSimulatorDistributed simulator : simulators)
+                assertEquals(ranks == 1, simulator.bytesSent() == 0);
+        }
+    }
+
+    @Test
+    public void testCommunicationVolume() throws Exception {
+        // Two ranks, qubit 5 is global, each chunk holds 32 amplitudes (256 bytes)
+        Circuit circuit = new Circuit(6);
+        circuit.H(0);
+        circuit.Z(5);
+        circuit.CR(0, 5, (float) (Math.PI / 4));
+        circuit.H(5);
+        circuit.swap(0, 5);
+
+        List<FsvSimulatorDistributed> simulators = new ArrayList<>();
+        List<State> states = simulate(circuit, 2, simulators);
+        assertEquals(states.get(0), states.get(1));
+        for (FsvSimulatorDistributed simulator : simulators) {
+            // Only H(5) exchanges the half-chunks (twice), the swap is a relabeling
+            assertArrayEquals(new long[] { 0, 0, 0, 256, 0 }, simulator.operationBytes());
+            // Restoration of the layout swaps the global and the local qubit
+            assertEquals(256 + 128, simulator.bytesSent());
+            assertEquals(256, simulator.bytesGathered());
+            assertEquals(3, simulator.exchanges());
+            assertEquals(384.0 / 5, simulator.bytesPerGate(), 1e-9);
+        }
+    }
+
+    private static List<State> simulate(Circuit circuit, int ranks, List<FsvSimulatorDistributed> simulators) throws Exception {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (int rank = 0; rank < ranks; rank++)
+            addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), freePort()));
+
+        FsvSimulatorDistributed[] rankSimulators = new FsvSimulatorDistributed[ranks];
+        ExecutorService executor = Executors.newFixedThreadPool(ranks);
+        try {
+            List<Future<State>> results = new ArrayList<>();
+            for (int rank = 0; rank < ranks; rank++) {
+                int r = rank;
+                results.add(executor.submit(() -> {
+                    try (FsvSocketTransport transport = new FsvSocketTransport(r, addresses)) {
+                        rankSimulators[r] = new FsvSimulatorDistributed(transport);
+                        return rankSimulators[r].simulateFullState(circuit);
+                    }
+                }));
+            }
+            List<State> states = new ArrayList<>();
+            for (Future<State> result : results)
+                states.add(result.get());
+            simulators.addAll(Arrays.asList(rankSimulators));
+            return states;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static class UnconnectedTransport implements FsvTransport {
+        private final int size;
+
+        private UnconnectedTransport(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public int rank() {
+            return 0;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void exchange(int peer, ByteBuffer outgoing, ByteBuffer incoming) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.OffHeapState;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.circuit.operation.OperationDataProvider;
+import uk.ac.manchester.tornado.qsim.circuit.utils.StateConverter;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.simulator.Simulator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FsvSimulatorOffHeapTest {
+
+    @Test
+    public void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorOffHeap(0, 8));
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorOffHeap(2, 0));
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorOffHeap().simulateFullState(null));
+    }
+
+    @Test
+    public void testEntanglement() {
+        // Large enough for the gates to be partitioned across the worker threads
+        int noQubits = 16;
+        Simulator offHeapSimulator = new FsvSimulatorOffHeap(2, 10);
+
+        Circuit circuit = new Circuit(noQubits);
+        circuit.H(0);
+        for (int target = noQubits - 1; target > 0; target--)
+            circuit.CNOT(0, target);
+        State state = offHeapSimulator.simulateFullState(circuit);
+
+        assertTrue(state instanceof OffHeapState);
+        assertTrue(state.isNormalized());
+        assertEquals(0.5f, state.getStateProbability(0), 1e-6f);
+        assertEquals(0.5f, ((OffHeapState) state).getStateProbability((long) StateConverter.stateFromBitstring("1111111111111111")), 1e-6f);
+    }
+
+    @Test
+    public void testMatchesStandardSimulator() {
+        int noQubits = 10;
+        Circuit circuit = new Circuit(noQubits);
+        circuit.X(0, noQubits - 1);
+        for (int targetQubit = noQubits - 1; targetQubit >= 0; targetQubit--) {
+            circuit.H(targetQubit);
+            for (int controlQubit = 0; controlQubit < targetQubit; controlQubit++)
+                circuit.CR(controlQubit, targetQubit, (float) (Math.PI / Math.pow(2, targetQubit - controlQubit)));
+        }
+        circuit.T(3);
+        circuit.Y(7);
+        circuit.CY(5, 2);
+        circuit.CNOT(8, 4);
+        circuit.CH(1, 9);
+        // Swap sequences on low, mixed and high qubits
+        for (int[] qubits : new int[][] { { 0, 1 }, { 2, 8 }, { 9, 5 } }) {
+            circuit.CNOT(qubits[0], qubits[1]);
+            circuit.CNOT(qubits[1], qubits[0]);
+            circuit.CNOT(qubits[0], qubits[1]);
+        }
+        circuit.swap(3, 6);
+
+        assertMatchesStandard(circuit);
+    }
+
+    @Test
+    public void testCustomFunctions() {
+        ComplexTensor qftData = new ComplexTensor(8, 8);
+        for (int r = 0; r < 8; r++) {
+            for (int c = 0; c < 8; c++) {
+                double angle = 2 * Math.PI * r * c / 8;
+                qftData.insertElement(new Complex((float) (Math.cos(angle) / Math.sqrt(8)), (float) (Math.sin(angle) / Math.sqrt(8))), r, c);
+            }
+        }
+        OperationDataProvider.getInstance().registerFunctionData("offHeapTestQft", qftData);
+
+        Circuit circuit = new Circuit(9);
+        circuit.H(0, 2, 5, 8);
+        circuit.customFunction("offHeapTestQft", 1, 3);
+        circuit.CNOT(5, 0);
+        circuit.customFunction("offHeapTestQft", 6, 8);
+
+        assertMatchesStandard(circuit);
+    }
+
+    private static void assertMatchesStandard(Circuit circuit) {
+        State expected = new FsvSimulatorStandard().simulateFullState(circuit);
+
+        // Chunks smaller than the runs of high qubits, parallel and sequential
+        for (Simulator simulator : new Simulator[] { new FsvSimulatorOffHeap(1, 2), new FsvSimulatorOffHeap(2, 4), new FsvSimulatorOffHeap() }) {
+            State state = simulator.simulateFullState(circuit);
+            assertTrue(state.isNormalized());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.getStateAmplitude(i).real(), state.getStateAmplitude(i).real(), 1e-5f);
+                assertEquals(expected.getStateAmplitude(i).imag(), state.getStateAmplitude(i).imag(), 1e-5f);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.OffHeapState;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FsvSimulatorOutOfCoreTest {
+
+    @TempDir
+    Path stateDirectory;
+
+    @Test
+    public void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorOutOfCore(null));
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorOutOfCore(stateDirectory.resolve("missing")));
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorOutOfCore(stateDirectory, 1, 0));
+    }
+
+    @Test
+    public void testMatchesStandardSimulator() {
+        int noQubits = 10;
+        Circuit circuit = new Circuit(noQubits);
+        circuit.X(0, noQubits - 1);
+        for (int targetQubit = noQubits - 1; targetQubit >= 0; targetQubit--) {
+            circuit.H(targetQubit);
+            for (int controlQubit = 0; controlQubit < targetQubit; controlQubit++)
+                circuit.CR(controlQubit, targetQubit, (float) (Math.PI / Math.pow(2, targetQubit - controlQubit)));
+        }
+        circuit.Y(7);
+        circuit.CY(5, 2);
+        circuit.CNOT(8, 4);
+        circuit.CNOT(9, 1);
+        circuit.CNOT(1, 9);
+        circuit.CNOT(9, 1);
+        circuit.swap(3, 6);
+
+        State expected = new FsvSimulatorStandard().simulateFullState(circuit);
+        for (int chunkBits : new int[] { 2, 4, 12 }) {
+            State state = new FsvSimulatorOutOfCore(stateDirectory, 2, chunkBits).simulateFullState(circuit);
+            assertTrue(state instanceof OffHeapState);
+            assertTrue(state.isNormalized());
+            assertAmplitudesEqual(expected, state);
+        }
+    }
+
+    @Test
+    public void testStateFileTraffic() {
+        FsvSimulatorOutOfCore simulator = new FsvSimulatorOutOfCore(stateDirectory, 1, 4);
+        long stateBytes = (1 << 8) * 8;
+
+        // Low qubit gates form a single block, the last H(0) is moved ahead of the
+        // high qubit operations (disjoint qubits)
+        Circuit circuit = new Circuit(8);
+        circuit.H(0, 1, 6);
+        circuit.Z(7);
+        circuit.CNOT(6, 2);
+        circuit.H(0);
+        State state = simulator.simulateFullState(circuit);
+
+        assertEquals(4, simulator.passes());
+        // Block + H(6) read and write the whole state, Z(7) and CNOT(6,2) half
+        assertEquals(3 * stateBytes, simulator.bytesRead());
+        assertEquals(3 * stateBytes, simulator.bytesWritten());
+        assertAmplitudesEqual(new FsvSimulatorStandard().simulateFullState(circuit), state);
+
+        // Dependent low qubit gate splits the blocks
+        circuit = new Circuit(8);
+        circuit.H(0);
+        circuit.CNOT(0, 5);
+        circuit.H(0);
+        simulator.simulateFullState(circuit);
+        assertEquals(3, simulator.passes());
+        assertEquals(3 * stateBytes, simulator.bytesRead());
+    }
+
+    private static void assertAmplitudesEqual(State expected, State state) {
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getStateAmplitude(i).real(), state.getStateAmplitude(i).real(), 1e-5f);
+            assertEquals(expected.getStateAmplitude(i).imag(), state.getStateAmplitude(i).imag(), 1e-5f);
+        }
+    }
+
+}
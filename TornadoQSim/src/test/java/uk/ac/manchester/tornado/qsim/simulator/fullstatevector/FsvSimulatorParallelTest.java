@@ -0,0 +1,85 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.circuit.utils.StateConverter;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.simulator.Simulator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FsvSimulatorParallelTest {
+
+    private static Complex HALF;
+
+    @BeforeAll
+    public static void prepareConstants() {
+        HALF = new Complex((float) (1 / Math.sqrt(2)), 0);
+    }
+
+    @Test
+    public void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorParallel(0, 16));
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorParallel(4, 0));
+    }
+
+    @Test
+    public void testEntanglement() {
+        int noQubits = 12;
+        Simulator fsvSimulator = new FsvSimulatorParallel(4, 64);
+
+        Circuit circuit = new Circuit(noQubits);
+        circuit.H(0);
+        for (int target = noQubits - 1; target > 0; target--)
+            circuit.CNOT(0, target);
+        State state = fsvSimulator.simulateFullState(circuit);
+
+        assertTrue(state.isNormalized());
+        assertEquals(HALF, state.getStateAmplitude(0));
+        assertEquals(HALF, state.getStateAmplitude(StateConverter.stateFromBitstring("111111111111")));
+    }
+
+    @Test
+    public void testMatchesStandardSimulator() {
+        int noQubits = 12;
+        Circuit circuit = new Circuit(noQubits);
+        circuit.X(0, noQubits - 1);
+        for (int targetQubit = noQubits - 1; targetQubit >= 0; targetQubit--) {
+            circuit.H(targetQubit);
+            for (int controlQubit = 0; controlQubit < targetQubit; controlQubit++)
+                circuit.CR(controlQubit, targetQubit, (float) (Math.PI / Math.pow(2, targetQubit - controlQubit)));
+        }
+        circuit.T(3);
+        circuit.CY(5, 2);
+
+        State expected = new FsvSimulatorStandard().simulateFullState(circuit);
+
+        // Partitions smaller than the state (parallel) and larger (sequential)
+        assertEquals(expected, new FsvSimulatorParallel(4, 16).simulateFullState(circuit));
+        assertEquals(expected, new FsvSimulatorParallel(3, 1 << 12).simulateFullState(circuit));
+    }
+
+}
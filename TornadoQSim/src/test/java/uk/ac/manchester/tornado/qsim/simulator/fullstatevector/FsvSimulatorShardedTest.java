@@ -0,0 +1,166 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.ShardedState;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.circuit.operation.OperationDataProvider;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FsvSimulatorShardedTest {
+
+    @Test
+    public void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorSharded(0));
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorSharded(3));
+        assertTrue(Integer.bitCount(new FsvSimulatorSharded().shards()) == 1);
+        FsvSimulatorSharded simulator = new FsvSimulatorSharded(4);
+        assertThrows(IllegalArgumentException.class, () -> simulator.simulateFullState(null));
+    }
+
+    @Test
+    public void testSmallCircuits() {
+        FsvSimulatorSharded[] simulators = { new FsvSimulatorSharded(), new FsvSimulatorSharded(8) };
+        for (int noQubits = 1; noQubits <= 4; noQubits++) {
+            Circuit circuit = new Circuit(noQubits);
+            for (int qubit = 0; qubit < noQubits; qubit++) {
+                circuit.H(qubit);
+                circuit.T(qubit);
+                if (qubit > 0)
+                    circuit.CR(qubit - 1, qubit, (float) (Math.PI / 3));
+            }
+            if (noQubits > 1) {
+                circuit.CNOT(noQubits - 1, 0);
+                circuit.Y(noQubits - 1);
+            }
+            State expectedState = new FsvSimulatorStandard().simulateFullState(circuit);
+
+            for (FsvSimulatorSharded simulator : simulators) {
+                State state = simulator.simulateFullState(circuit);
+                // At least 2 local qubits are kept in every shard
+                assertEquals(Math.min(simulator.shards(), Math.max(1, 1 << (noQubits - 2))), simulator.usedShards());
+                assertEquals(simulator.usedShards(), ((ShardedState) state).shardCount());
+                for (int i = 0; i < state.size(); i++) {
+                    assertEquals(expectedState.getStateAmplitude(i).real(), state.getStateAmplitude(i).real(), 1e-6f);
+                    assertEquals(expectedState.getStateAmplitude(i).imag(), state.getStateAmplitude(i).imag(), 1e-6f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWideCustomFunction() {
+        // QFT on 4 qubits does not fit into the 2 local qubits of 8 shards of 5 qubits
+        ComplexTensor qftData = new ComplexTensor(16, 16);
+        for (int r = 0; r < 16; r++)
+            for (int c = 0; c < 16; c++)
+                qftData.insertElement(new Complex((float) (Math.cos(Math.PI * r * c / 8) / 4), (float) (Math.sin(Math.PI * r * c / 8) / 4)), r, c);
+        OperationDataProvider.getInstance().registerFunctionData("fsvTestShardedWide", qftData);
+
+        Circuit circuit = new Circuit(5);
+        circuit.H(0, 2, 4);
+        circuit.CNOT(4, 1);
+        circuit.customFunction("fsvTestShardedWide", 1, 4);
+        circuit.H(0);
+        State expectedState = new FsvSimulatorStandard().simulateFullState(circuit);
+
+        FsvSimulatorSharded simulator = new FsvSimulatorSharded(8);
+        State state = simulator.simulateFullState(circuit);
+        assertEquals(2, simulator.usedShards());
+        for (int i = 0; i < state.size(); i++) {
+            assertEquals(expectedState.getStateAmplitude(i).real(), state.getStateAmplitude(i).real(), 1e-6f);
+            assertEquals(expectedState.getStateAmplitude(i).imag(), state.getStateAmplitude(i).imag(), 1e-6f);
+        }
+    }
+
+    @Test
+    public void testMatchesStandardSimulator() {
+        ComplexTensor qftData = new ComplexTensor(4, 4);
+        for (int r = 0; r < 4; r++)
+            for (int c = 0; c < 4; c++)
+                qftData.insertElement(new Complex((float) (Math.cos(Math.PI * r * c / 2) / 2), (float) (Math.sin(Math.PI * r * c / 2) / 2)), r, c);
+        OperationDataProvider.getInstance().registerFunctionData("fsvTestSharded", qftData);
+
+        int noQubits = 8;
+        Circuit circuit = new Circuit(noQubits);
+        circuit.X(0, noQubits - 1);
+        for (int targetQubit = noQubits - 1; targetQubit >= 0; targetQubit--) {
+            circuit.H(targetQubit);
+            for (int controlQubit = 0; controlQubit < targetQubit; controlQubit++)
+                circuit.CR(controlQubit, targetQubit, (float) (Math.PI / Math.pow(2, targetQubit - controlQubit)));
+        }
+        circuit.Y(7);
+        circuit.CY(6, 7);
+        circuit.CNOT(5, 7);
+        circuit.CNOT(2, 6);
+        circuit.CNOT(7, 1);
+        circuit.CNOT(6, 7);
+        circuit.customFunction("fsvTestSharded", 6, 7);
+        circuit.swap(0, 7);
+        circuit.swap(6, 7);
+        circuit.CNOT(3, 6);
+        circuit.CNOT(6, 3);
+        circuit.CNOT(3, 6);
+        circuit.T(0, 6);
+        circuit.H(0, 7);
+        State expectedState = new FsvSimulatorStandard().simulateFullState(circuit);
+
+        for (int shards = 1; shards <= 8; shards *= 2) {
+            FsvSimulatorSharded simulator = new FsvSimulatorSharded(shards);
+            State state = simulator.simulateFullState(circuit);
+            assertEquals(shards, ((ShardedState) state).shardCount());
+            assertTrue(state.isNormalized());
+            for (int i = 0; i < state.size(); i++) {
+                assertEquals(expectedState.getStateAmplitude(i).real(), state.getStateAmplitude(i).real(), 1e-6f);
+                assertEquals(expectedState.getStateAmplitude(i).imag(), state.getStateAmplitude(i).imag(), 1e-6f);
+            }
+            assertEquals(shards == 1, simulator.bytesExchanged() == 0);
+        }
+    }
+
+    @Test
+    public void testExchangeVolume() {
+        // Two shards, qubit 5 is global, each shard holds 32 amplitudes (256 bytes)
+        Circuit circuit = new Circuit(6);
+        circuit.H(0);
+        circuit.Z(5);
+        circuit.CR(0, 5, (float) (Math.PI / 4));
+        circuit.H(5);
+        circuit.swap(0, 5);
+
+        FsvSimulatorSharded simulator = new FsvSimulatorSharded(2);
+        State state = simulator.simulateFullState(circuit);
+        assertEquals(new FsvSimulatorStandard().simulateFullState(circuit).getStateVector(), state.getStateVector());
+        // Only H(5) exchanges the half-shards of the pair (twice), the swap is a relabeling
+        assertArrayEquals(new long[] { 0, 0, 0, 512, 0 }, simulator.operationBytes());
+        // Restoration of the layout swaps the global and the local qubit
+        assertEquals(512 + 256, simulator.bytesExchanged());
+        assertEquals(3, simulator.exchanges());
+        assertEquals(768.0 / 5, simulator.bytesPerGate(), 1e-9);
+    }
+
+}
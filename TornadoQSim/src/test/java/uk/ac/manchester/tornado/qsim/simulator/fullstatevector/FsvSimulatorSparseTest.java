@@ -0,0 +1,110 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.SparseState;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.circuit.operation.OperationDataProvider;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FsvSimulatorSparseTest {
+
+    private static final float HALF = (float) (1 / Math.sqrt(2));
+
+    @Test
+    public void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorSparse(0));
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorSparse(1.5));
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorSparse(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorSparse().simulateFullState(null));
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorSparse().simulateFullState(new Circuit(SparseState.MAX_QUBITS + 1)));
+    }
+
+    @Test
+    public void testGhzState() {
+        int noQubits = SparseState.MAX_QUBITS;
+        Circuit circuit = new Circuit(noQubits);
+        circuit.H(0);
+        for (int qubit = 1; qubit < noQubits; qubit++)
+            circuit.CNOT(qubit - 1, qubit);
+        circuit.T(noQubits - 1);
+        circuit.swap(0, noQubits - 1);
+
+        FsvSimulatorSparse simulator = new FsvSimulatorSparse();
+        SparseState state = (SparseState) simulator.simulateFullState(circuit);
+        assertEquals(2, state.nonZeroCount());
+        assertEquals(2, simulator.peakNonZeroCount());
+        assertEquals(-1, simulator.denseFromOperation());
+        assertEquals(new Complex(HALF, 0), state.getStateAmplitude(0L));
+        assertEquals(HALF * HALF, state.getStateAmplitude(Long.MAX_VALUE >>> 1).real(), 1e-6f);
+        assertEquals(HALF * HALF, state.getStateAmplitude(Long.MAX_VALUE >>> 1).imag(), 1e-6f);
+        assertEquals(0.5f, state.getQubitProbability(noQubits - 1), 1e-6f);
+        assertTrue(state.isNormalized());
+        long collapsed = state.collapseLong();
+        assertTrue(collapsed == 0 || collapsed == Long.MAX_VALUE >>> 1);
+    }
+
+    @Test
+    public void testMatchesStandardSimulator() {
+        ComplexTensor qftData = new ComplexTensor(4, 4);
+        for (int r = 0; r < 4; r++)
+            for (int c = 0; c < 4; c++)
+                qftData.insertElement(new Complex((float) (Math.cos(Math.PI * r * c / 2) / 2), (float) (Math.sin(Math.PI * r * c / 2) / 2)), r, c);
+        OperationDataProvider.getInstance().registerFunctionData("fsvTestSparse", qftData);
+
+        int noQubits = 8;
+        Circuit circuit = new Circuit(noQubits);
+        circuit.X(0, 2);
+        circuit.CNOT(2, 5);
+        circuit.customFunction("fsvTestSparse", 3, 4);
+        circuit.H(7);
+        circuit.CY(7, 6);
+        circuit.CR(6, 3, (float) (Math.PI / 4));
+        circuit.swap(1, 6);
+        circuit.CNOT(0, 7);
+        circuit.CNOT(7, 0);
+        circuit.CNOT(0, 7);
+        circuit.H(0, noQubits - 1);
+        circuit.T(0, 3);
+        circuit.Y(5);
+        State expectedState = new FsvSimulatorStandard().simulateFullState(circuit);
+
+        // Sparse until the end, switch to dense before the H gates
+        for (double denseThreshold : new double[] { 1, FsvSimulatorSparse.DEFAULT_DENSE_THRESHOLD }) {
+            FsvSimulatorSparse simulator = new FsvSimulatorSparse(denseThreshold);
+            State state = simulator.simulateFullState(circuit);
+            assertEquals(denseThreshold == 1, state instanceof SparseState);
+            assertEquals(denseThreshold == 1, simulator.denseFromOperation() < 0);
+            assertTrue(state.isNormalized());
+            for (int i = 0; i < state.size(); i++) {
+                assertEquals(expectedState.getStateAmplitude(i).real(), state.getStateAmplitude(i).real(), 1e-6f);
+                assertEquals(expectedState.getStateAmplitude(i).imag(), state.getStateAmplitude(i).imag(), 1e-6f);
+            }
+        }
+    }
+
+}
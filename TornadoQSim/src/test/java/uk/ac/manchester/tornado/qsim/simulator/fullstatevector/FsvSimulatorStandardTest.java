@@ -24,12 +24,19 @@ package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.DoubleState;
 import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.circuit.operation.OperationDataProvider;
 import uk.ac.manchester.tornado.qsim.circuit.utils.StateConverter;
 import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.simulator.Precision;
 import uk.ac.manchester.tornado.qsim.simulator.Simulator;
+import uk.ac.manchester.tornado.qsim.simulator.unitary.UnitarySimulatorStandard;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class FsvSimulatorStandardTest {
@@ -100,4 +107,457 @@ public class FsvSimulatorStandardTest {
         assertEquals(iHALF, state.getStateAmplitude(StateConverter.stateFromBitstring("101")));
     }
 
+    @Test
+    public void testControlGates() {
+        Simulator fsvSimulator = new FsvSimulatorStandard();
+        Simulator parallelSimulator = new FsvSimulatorParallel(4, 4);
+        Simulator unitarySimulator = new UnitarySimulatorStandard();
+        Circuit circuit = new Circuit(8);
+        for (int i = 0; i < 8; i++) {
+            circuit.H(i);
+            circuit.T(i);
+        }
+        for (int control = 0; control < 8; control++)
+            for (int target = 0; target < 8; target++)
+                if (control != target)
+                    circuit.CR(control, target, (float) Math.PI / (control + target + 1));
+        circuit.CNOT(7, 0);
+        circuit.CY(0, 7);
+
+        State state = fsvSimulator.simulateFullState(circuit);
+        State expectedState = unitarySimulator.simulateFullState(circuit);
+
+        assertTrue(state.isNormalized());
+        assertEquals(state, parallelSimulator.simulateFullState(circuit));
+        for (int i = 0; i < state.size(); i++) {
+            assertEquals(expectedState.getStateAmplitude(i).real(), state.getStateAmplitude(i).real(), 1e-5f);
+            assertEquals(expectedState.getStateAmplitude(i).imag(), state.getStateAmplitude(i).imag(), 1e-5f);
+        }
+    }
+
+    @Test
+    public void testPhaseGates() {
+        Simulator fsvSimulator = new FsvSimulatorStandard();
+        Simulator parallelSimulator = new FsvSimulatorParallel(4, 4);
+        Simulator unitarySimulator = new UnitarySimulatorStandard();
+        Circuit circuit = new Circuit(7);
+        circuit.H(0, 1, 2, 3, 4, 5, 6);
+        circuit.Y(2);
+        circuit.Z(0, 3, 6);
+        circuit.S(1, 4);
+        circuit.T(2, 5, 6);
+        circuit.R((float) Math.PI / 5, 0, 3, 5);
+        circuit.CZ(0, 6);
+        circuit.CS(6, 1);
+        circuit.CT(3, 5);
+        circuit.CZ(4, 3);
+        circuit.CR(1, 2, (float) Math.PI / 7);
+        circuit.H(0, 1, 2, 3, 4, 5, 6);
+
+        State state = fsvSimulator.simulateFullState(circuit);
+        State expectedState = unitarySimulator.simulateFullState(circuit);
+
+        assertTrue(state.isNormalized());
+        assertEquals(state, parallelSimulator.simulateFullState(circuit));
+        for (int i = 0; i < state.size(); i++) {
+            assertEquals(expectedState.getStateAmplitude(i).real(), state.getStateAmplitude(i).real(), 1e-5f);
+            assertEquals(expectedState.getStateAmplitude(i).imag(), state.getStateAmplitude(i).imag(), 1e-5f);
+        }
+    }
+
+    @Test
+    public void testPermutationGates() {
+        Simulator fsvSimulator = new FsvSimulatorStandard();
+        Simulator parallelSimulator = new FsvSimulatorParallel(4, 4);
+        Simulator unitarySimulator = new UnitarySimulatorStandard();
+        Circuit circuit = new Circuit(7);
+        circuit.H(0, 2, 3, 5);
+        circuit.T(0, 2, 3, 5);
+        circuit.X(1, 4, 6);
+        circuit.Y(0, 3, 5);
+        circuit.CNOT(0, 6);
+        circuit.CNOT(5, 1);
+        circuit.CY(6, 2);
+        circuit.CY(1, 4);
+        // Swap sequences on low, mixed and high qubits
+        for (int[] qubits : new int[][] { { 0, 1 }, { 2, 6 }, { 5, 3 } }) {
+            circuit.CNOT(qubits[0], qubits[1]);
+            circuit.CNOT(qubits[1], qubits[0]);
+            circuit.CNOT(qubits[0], qubits[1]);
+        }
+        circuit.S(0, 1, 2, 3, 4, 5, 6);
+
+        State state = fsvSimulator.simulateFullState(circuit);
+        State expectedState = unitarySimulator.simulateFullState(circuit);
+
+        assertTrue(state.isNormalized());
+        assertEquals(state, parallelSimulator.simulateFullState(circuit));
+        for (int i = 0; i < state.size(); i++) {
+            assertEquals(expectedState.getStateAmplitude(i).real(), state.getStateAmplitude(i).real(), 1e-5f);
+            assertEquals(expectedState.getStateAmplitude(i).imag(), state.getStateAmplitude(i).imag(), 1e-5f);
+        }
+    }
+
+    @Test
+    public void testFunctions() {
+        // 3 qubit quantum Fourier transform as a custom function
+        ComplexTensor qftData = new ComplexTensor(8, 8);
+        for (int r = 0; r < 8; r++) {
+            for (int c = 0; c < 8; c++) {
+                double angle = 2 * Math.PI * r * c / 8;
+                qftData.insertElement(new Complex((float) (Math.cos(angle) / Math.sqrt(8)), (float) (Math.sin(angle) / Math.sqrt(8))), r, c);
+            }
+        }
+        OperationDataProvider.getInstance().registerFunctionData("fsvTestQft", qftData);
+
+        Simulator fsvSimulator = new FsvSimulatorStandard();
+        Simulator unitarySimulator = new UnitarySimulatorStandard();
+        Circuit circuit = new Circuit(6);
+        circuit.H(0, 2, 5);
+        circuit.T(0, 1, 2, 3, 4, 5);
+        circuit.customFunction("fsvTestQft", 1, 3);
+        circuit.CNOT(5, 0);
+        circuit.customFunction("fsvTestQft", 3, 5);
+
+        State state = fsvSimulator.simulateFullState(circuit);
+        State expectedState = unitarySimulator.simulateFullState(circuit);
+
+        assertTrue(state.isNormalized());
+        assertEquals(state, new FsvSimulatorParallel(4, 4).simulateFullState(circuit));
+        for (int i = 0; i < state.size(); i++) {
+            assertEquals(expectedState.getStateAmplitude(i).real(), state.getStateAmplitude(i).real(), 1e-5f);
+            assertEquals(expectedState.getStateAmplitude(i).imag(), state.getStateAmplitude(i).imag(), 1e-5f);
+        }
+
+        // Swap function exchanges the first and the last qubit of its range
+        Circuit swapCircuit = new Circuit(6);
+        swapCircuit.appendCircuit(circuit);
+        swapCircuit.swap(1, 4);
+        Circuit cnotCircuit = new Circuit(6);
+        cnotCircuit.appendCircuit(circuit);
+        cnotCircuit.CNOT(1, 4);
+        cnotCircuit.X(0);
+        cnotCircuit.CNOT(4, 1);
+        cnotCircuit.X(0);
+        cnotCircuit.CNOT(1, 4);
+        assertEquals(fsvSimulator.simulateFullState(cnotCircuit), fsvSimulator.simulateFullState(swapCircuit));
+    }
+
+    @Test
+    public void testGateFusion() {
+        FsvSimulatorStandard fusedSimulator = new FsvSimulatorStandard(new FsvOptions().fuseGates(1));
+        Simulator fsvSimulator = new FsvSimulatorStandard();
+        Circuit circuit = new Circuit(3);
+        circuit.H(0, 1, 2);
+        circuit.CNOT(0, 2);
+        circuit.H(0);
+        circuit.Y(0);
+        circuit.Z(0);
+        circuit.T(1);
+        circuit.S(1);
+        circuit.CNOT(1, 2);
+        circuit.R((float) Math.PI / 3, 1);
+        circuit.X(2);
+
+        State fusedState = fusedSimulator.simulateFullState(circuit);
+        State state = fsvSimulator.simulateFullState(circuit);
+
+        // H,Y,Z on 0 (2 passes saved) and H,T,S on 1 (2 passes saved)
+        assertEquals(4, fusedSimulator.passesSaved());
+        assertTrue(fusedState.isNormalized());
+        for (int i = 0; i < state.size(); i++) {
+            assertEquals(state.getStateAmplitude(i).real(), fusedState.getStateAmplitude(i).real(), 1e-6f);
+            assertEquals(state.getStateAmplitude(i).imag(), fusedState.getStateAmplitude(i).imag(), 1e-6f);
+        }
+
+        // Gates on the same qubit interrupted by a controlled gate are not fused
+        circuit = new Circuit(2);
+        circuit.H(0);
+        circuit.CNOT(0, 1);
+        circuit.H(0);
+        state = fusedSimulator.simulateFullState(circuit);
+        assertEquals(0, fusedSimulator.passesSaved());
+        assertEquals(fsvSimulator.simulateFullState(circuit), state);
+    }
+
+    @Test
+    public void testBlockFusion() {
+        Simulator fsvSimulator = new FsvSimulatorStandard();
+        Circuit circuit = new Circuit(6);
+        for (int i = 0; i < 6; i++) {
+            circuit.H(i);
+            for (int j = i + 1; j < 6; j++)
+                circuit.CR(j, i, (float) (Math.PI / (1 << (j - i))));
+        }
+        circuit.CNOT(5, 0);
+        circuit.T(2, 3);
+        circuit.CY(1, 4);
+        State state = fsvSimulator.simulateFullState(circuit);
+
+        for (int k = 2; k <= FsvOperand.MAX_BLOCK_QUBITS; k++) {
+            FsvSimulatorStandard blockSimulator = new FsvSimulatorStandard(new FsvOptions().fuseGates(k));
+            State blockState = blockSimulator.simulateFullState(circuit);
+            State parallelState = new FsvSimulatorParallel(4, 4, new FsvOptions().fuseGates(k)).simulateFullState(circuit);
+
+            assertTrue(blockSimulator.passesSaved() > 0);
+            assertTrue(blockState.isNormalized());
+            assertEquals(blockState, parallelState);
+            for (int i = 0; i < state.size(); i++) {
+                assertEquals(state.getStateAmplitude(i).real(), blockState.getStateAmplitude(i).real(), 1e-5f);
+                assertEquals(state.getStateAmplitude(i).imag(), blockState.getStateAmplitude(i).imag(), 1e-5f);
+            }
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new FsvOptions().fuseGates(FsvOperand.MAX_BLOCK_QUBITS + 1));
+    }
+
+    @Test
+    public void testDoublePrecision() {
+        Simulator fsvSimulator = new FsvSimulatorStandard(new FsvOptions().precision(Precision.DOUBLE));
+        Simulator unitarySimulator = new UnitarySimulatorStandard(Precision.DOUBLE);
+        Simulator singleSimulator = new FsvSimulatorStandard();
+        Circuit circuit = new Circuit(6);
+        for (int i = 0; i < 6; i++) {
+            circuit.H(i);
+            for (int j = i + 1; j < 6; j++)
+                circuit.CR(j, i, (float) (Math.PI / (1 << (j - i))));
+        }
+        circuit.X(1, 4);
+        circuit.Y(0, 5);
+        circuit.CY(2, 3);
+        circuit.CNOT(0, 5);
+        circuit.CNOT(5, 0);
+        circuit.CNOT(0, 5);
+        circuit.T(0, 1, 2, 3, 4, 5);
+
+        DoubleState state = (DoubleState) fsvSimulator.simulateFullState(circuit);
+        DoubleState expectedState = (DoubleState) unitarySimulator.simulateFullState(circuit);
+        State singleState = singleSimulator.simulateFullState(circuit);
+
+        assertTrue(state.isNormalized());
+        assertEquals(state, new FsvSimulatorParallel(4, 4, new FsvOptions().precision(Precision.DOUBLE)).simulateFullState(circuit));
+        double[] real = state.getDoubleStateVector().getRawRealData();
+        double[] imag = state.getDoubleStateVector().getRawImagData();
+        for (int i = 0; i < state.size(); i++) {
+            assertEquals(expectedState.getDoubleStateVector().getRawRealData()[i], real[i], 1e-12);
+            assertEquals(expectedState.getDoubleStateVector().getRawImagData()[i], imag[i], 1e-12);
+            assertEquals(singleState.getStateAmplitude(i).real(), real[i], 1e-5);
+            assertEquals(singleState.getStateAmplitude(i).imag(), imag[i], 1e-5);
+        }
+
+        // Fused gates keep double precision matrices
+        for (int maxFusedQubits = 1; maxFusedQubits <= FsvOperand.MAX_BLOCK_QUBITS; maxFusedQubits++) {
+            FsvSimulatorStandard fusedSimulator = new FsvSimulatorStandard(new FsvOptions().fuseGates(maxFusedQubits).precision(Precision.DOUBLE));
+            DoubleState fusedState = (DoubleState) fusedSimulator.simulateFullState(circuit);
+            assertTrue(fusedSimulator.passesSaved() > 0);
+            for (int i = 0; i < state.size(); i++) {
+                assertEquals(real[i], fusedState.getDoubleStateVector().getRawRealData()[i], 1e-12);
+                assertEquals(imag[i], fusedState.getDoubleStateVector().getRawImagData()[i], 1e-12);
+            }
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new FsvOptions().precision(null));
+        assertThrows(IllegalArgumentException.class, () -> new FsvOptions().cachedPlans(-1));
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorStandard(null));
+    }
+
+    @Test
+    public void testCacheBlocking() {
+        FsvSimulatorStandard blockedSimulator = new FsvSimulatorStandard(new FsvOptions().blockQubits(4));
+        FsvSimulatorStandard unblockedSimulator = new FsvSimulatorStandard(new FsvOptions().blockQubits(0));
+        assertEquals(4, blockedSimulator.blockQubits());
+        assertEquals(0, unblockedSimulator.blockQubits());
+
+        // Gates below qubit 4 form a single pass, H(8) and CNOT(0,1) are passes of their own
+        Circuit circuit = new Circuit(10);
+        circuit.H(0, 1, 2, 3, 8);
+        circuit.CNOT(0, 1);
+        State state = blockedSimulator.simulateFullState(circuit);
+        assertEquals(3, blockedSimulator.passes());
+        assertEquals(0.5, blockedSimulator.passesPerGate(), 1e-9);
+        assertEquals(unblockedSimulator.simulateFullState(circuit), state);
+        assertEquals(6, unblockedSimulator.passes());
+        assertEquals(1.0, unblockedSimulator.passesPerGate(), 1e-9);
+
+        // Blocked groups of all operation types match the unblocked simulation exactly
+        circuit = new Circuit(10);
+        for (int i = 9; i >= 0; i--) {
+            circuit.H(i);
+            for (int j = i - 1; j >= 0; j--)
+                circuit.CR(j, i, (float) (Math.PI / (1 << (i - j))));
+        }
+        circuit.Y(0, 5);
+        circuit.CY(2, 3);
+        circuit.CNOT(0, 2);
+        circuit.CNOT(2, 0);
+        circuit.CNOT(0, 2);
+        circuit.swap(1, 3);
+        state = blockedSimulator.simulateFullState(circuit);
+        assertEquals(unblockedSimulator.simulateFullState(circuit), state);
+        assertTrue(blockedSimulator.passes() < unblockedSimulator.passes());
+        assertEquals(state, new FsvSimulatorParallel(4, 4, new FsvOptions().blockQubits(4)).simulateFullState(circuit));
+        assertEquals(state, new FsvSimulatorStandard(new FsvOptions().blockQubits(FsvOptions.AUTO_BLOCK_QUBITS)).simulateFullState(circuit));
+
+        assertThrows(IllegalArgumentException.class, () -> new FsvOptions().blockQubits(-2));
+        assertThrows(IllegalArgumentException.class, () -> new FsvOptions().blockQubits(31));
+    }
+
+    @Test
+    public void testQubitRemapping() {
+        // 2 qubit quantum Fourier transform as a custom function (not symmetric in its qubits)
+        ComplexTensor qftData = new ComplexTensor(4, 4);
+        for (int r = 0; r < 4; r++)
+            for (int c = 0; c < 4; c++)
+                qftData.insertElement(new Complex((float) (Math.cos(Math.PI * r * c / 2) / 2), (float) (Math.sin(Math.PI * r * c / 2) / 2)), r, c);
+        OperationDataProvider.getInstance().registerFunctionData("fsvTestRemap", qftData);
+
+        Circuit circuit = new Circuit(10);
+        for (int i = 9; i >= 0; i--) {
+            circuit.H(i);
+            for (int j = i - 1; j >= 0; j--)
+                circuit.CR(j, i, (float) (Math.PI / (1 << (i - j))));
+        }
+        circuit.customFunction("fsvTestRemap", 6, 7);
+        circuit.Y(0, 5);
+        circuit.CY(2, 9);
+        circuit.CNOT(1, 8);
+        circuit.CNOT(8, 1);
+        circuit.CNOT(1, 8);
+        circuit.swap(3, 9);
+        circuit.T(0, 9);
+
+        FsvSimulatorStandard remapSimulator = new FsvSimulatorStandard(new FsvOptions().blockQubits(4).remapQubits(true));
+        FsvSimulatorStandard blockedSimulator = new FsvSimulatorStandard(new FsvOptions().blockQubits(4));
+        State state = remapSimulator.simulateFullState(circuit);
+        State expectedState = new FsvSimulatorStandard(new FsvOptions().blockQubits(0)).simulateFullState(circuit);
+        blockedSimulator.simulateFullState(circuit);
+
+        // Permutation passes are included, the layout is restored to the identity
+        assertTrue(remapSimulator.remapPasses() > 0);
+        assertTrue(remapSimulator.passes() < blockedSimulator.passes());
+        assertEquals(0, blockedSimulator.remapPasses());
+        assertEquals(state, new FsvSimulatorParallel(4, 4, new FsvOptions().blockQubits(4).remapQubits(true)).simulateFullState(circuit));
+        for (int i = 0; i < state.size(); i++) {
+            assertEquals(expectedState.getStateAmplitude(i).real(), state.getStateAmplitude(i).real(), 1e-6f);
+            assertEquals(expectedState.getStateAmplitude(i).imag(), state.getStateAmplitude(i).imag(), 1e-6f);
+        }
+
+        // Remapped dense blocks of fused gates and double precision
+        State fusedState = new FsvSimulatorStandard(new FsvOptions().fuseGates(3).blockQubits(4).remapQubits(true)).simulateFullState(circuit);
+        DoubleState doubleState = (DoubleState) new FsvSimulatorStandard(new FsvOptions().precision(Precision.DOUBLE).blockQubits(4).remapQubits(true)).simulateFullState(circuit);
+        DoubleState expectedDoubleState = (DoubleState) new FsvSimulatorStandard(new FsvOptions().precision(Precision.DOUBLE).blockQubits(0)).simulateFullState(circuit);
+        for (int i = 0; i < state.size(); i++) {
+            assertEquals(expectedState.getStateAmplitude(i).real(), fusedState.getStateAmplitude(i).real(), 1e-5f);
+            assertEquals(expectedState.getStateAmplitude(i).imag(), fusedState.getStateAmplitude(i).imag(), 1e-5f);
+            assertEquals(expectedDoubleState.getDoubleStateVector().getRawRealData()[i], doubleState.getDoubleStateVector().getRawRealData()[i], 1e-12);
+            assertEquals(expectedDoubleState.getDoubleStateVector().getRawImagData()[i], doubleState.getDoubleStateVector().getRawImagData()[i], 1e-12);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorStandard(new FsvOptions().blockQubits(0).remapQubits(true)));
+    }
+
+    @Test
+    public void testMeasureAndReset() {
+        // Bell pair collapses to 00 or 11, both outcomes appear over the seeds
+        boolean[] seen = new boolean[2];
+        Circuit bell = new Circuit(2);
+        bell.H(0);
+        bell.CNOT(0, 1);
+        bell.measure(0);
+        FsvSimulatorStandard bellSimulator = new FsvSimulatorStandard();
+        bellSimulator.setSeed(7);
+        for (int run = 0; run < 32; run++) {
+            State state = bellSimulator.simulateFullState(bell);
+            int outcome = bellSimulator.measurements()[0];
+            seen[outcome] = true;
+            assertEquals(1, state.getStateAmplitude(outcome == 1 ? 3 : 0).abs(), 1e-6f);
+            assertEquals(0, state.getStateAmplitude(outcome == 1 ? 0 : 3).abs(), 1e-6f);
+        }
+        assertTrue(seen[0] && seen[1]);
+
+        // Reset returns the qubits to 0 and keeps the rest of the state
+        Circuit circuit = new Circuit(3);
+        circuit.H(0);
+        circuit.X(1);
+        circuit.H(2);
+        circuit.reset(0, 1);
+        circuit.measure(1);
+        FsvSimulatorStandard simulator = new FsvSimulatorStandard(new FsvOptions().precision(Precision.DOUBLE));
+        State state = simulator.simulateFullState(circuit);
+        assertEquals(0, simulator.measurements()[0]);
+        assertEquals((float) Math.sqrt(0.5), state.getStateAmplitude(0).real(), 1e-6f);
+        assertEquals((float) Math.sqrt(0.5), state.getStateAmplitude(4).real(), 1e-6f);
+    }
+
+    @Test
+    public void testTeleportation() {
+        float theta = 1.1f;
+        Circuit prepared = new Circuit(1);
+        prepared.H(0);
+        prepared.R(theta, 0);
+        prepared.H(0);
+        State expectedState = new FsvSimulatorStandard().simulateFullState(prepared);
+
+        // Qubit 0 is teleported to qubit 2 with the corrections of the measured bits
+        Circuit circuit = new Circuit(3);
+        circuit.H(0);
+        circuit.R(theta, 0);
+        circuit.H(0);
+        circuit.H(1);
+        circuit.CNOT(1, 2);
+        circuit.CNOT(0, 1);
+        circuit.H(0);
+        circuit.measure(0, 1);
+        Circuit xCorrection = new Circuit(3);
+        xCorrection.X(2);
+        Circuit zCorrection = new Circuit(3);
+        zCorrection.Z(2);
+        circuit.conditional(1, 1, xCorrection);
+        circuit.conditional(0, 1, zCorrection);
+
+        FsvSimulatorStandard[] simulators = { new FsvSimulatorStandard(), new FsvSimulatorStandard(new FsvOptions().fuseGates(1)), new FsvSimulatorStandard(new FsvOptions().precision(Precision.DOUBLE).blockQubits(2).remapQubits(true)), new FsvSimulatorParallel(2, 1) };
+        for (FsvSimulatorStandard simulator : simulators) {
+            simulator.setSeed(11);
+            for (int run = 0; run < 8; run++) {
+                State state = simulator.simulateFullState(circuit);
+                int[] outcomes = simulator.measurements();
+                int measured = outcomes[0] | (outcomes[1] << 1);
+                for (int k = 0; k < 2; k++) {
+                    assertEquals(expectedState.getStateAmplitude(k).real(), state.getStateAmplitude(measured | (k << 2)).real(), 1e-5f);
+                    assertEquals(expectedState.getStateAmplitude(k).imag(), state.getStateAmplitude(measured | (k << 2)).imag(), 1e-5f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParallelMeasurement() {
+        // Reduction is split across the workers, the outcomes follow the seed
+        int noQubits = 12;
+        Circuit circuit = new Circuit(noQubits);
+        for (int qubit = 0; qubit < noQubits; qubit++)
+            circuit.H(qubit);
+        circuit.CR(3, 11, (float) 0.4);
+        circuit.measure(0, 5, 11);
+        circuit.H(5);
+        circuit.reset(11);
+        circuit.measure(5);
+
+        FsvSimulatorStandard standard = new FsvSimulatorStandard();
+        FsvSimulatorParallel parallel = new FsvSimulatorParallel(4, 16);
+        standard.setSeed(5);
+        parallel.setSeed(5);
+        State expectedState = standard.simulateFullState(circuit);
+        State state = parallel.simulateFullState(circuit);
+        assertEquals(4, standard.measurements().length);
+        assertArrayEquals(standard.measurements(), parallel.measurements());
+        double norm = 0;
+        for (int i = 0; i < state.size(); i++) {
+            assertEquals(expectedState.getStateAmplitude(i).real(), state.getStateAmplitude(i).real(), 1e-6f);
+            assertEquals(expectedState.getStateAmplitude(i).imag(), state.getStateAmplitude(i).imag(), 1e-6f);
+            norm += Math.pow(state.getStateAmplitude(i).abs(), 2);
+        }
+        assertEquals(1, norm, 1e-5);
+    }
+
 }
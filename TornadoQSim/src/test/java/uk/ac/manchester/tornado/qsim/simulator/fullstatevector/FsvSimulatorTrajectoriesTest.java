@@ -0,0 +1,132 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.fullstatevector;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.simulator.noise.KrausChannel;
+import uk.ac.manchester.tornado.qsim.simulator.noise.NoiseModel;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FsvSimulatorTrajectoriesTest {
+
+    private static Circuit createCircuit() {
+        Circuit circuit = new Circuit(3);
+        circuit.H(0);
+        circuit.CNOT(0, 1);
+        circuit.R((float) 0.9, 1);
+        circuit.CNOT(1, 2);
+        circuit.swap(0, 2);
+        circuit.Y(1);
+        return circuit;
+    }
+
+    private static NoiseModel createNoiseModel() {
+        NoiseModel noiseModel = new NoiseModel();
+        noiseModel.addGateNoise(KrausChannel.depolarizing(0.05));
+        noiseModel.addGateNoise(KrausChannel.amplitudeDamping(0.1));
+        noiseModel.setReadoutError(0.02, 0.05);
+        return noiseModel;
+    }
+
+    @Test
+    public void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorTrajectories(null));
+        assertThrows(IllegalArgumentException.class, () -> new FsvSimulatorTrajectories(new NoiseModel(), 0));
+        FsvSimulatorTrajectories simulator = new FsvSimulatorTrajectories(new NoiseModel(), 1, 1);
+        assertThrows(IllegalArgumentException.class, () -> simulator.sampleHistogram(null, 10, 0));
+        assertThrows(IllegalArgumentException.class, () -> simulator.sampleHistogram(new Circuit(2), 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> simulator.sampleHistogram(new Circuit(2), 10, -1));
+        assertThrows(UnsupportedOperationException.class, () -> simulator.sampleHistogram(new Circuit(FsvSimulatorTrajectories.HISTOGRAM_MAX_QUBITS + 1), 10, 0));
+        assertThrows(IllegalArgumentException.class, () -> simulator.estimateExpectation(new Circuit(2), 10, 0));
+        assertThrows(IllegalArgumentException.class, () -> simulator.estimateExpectation(new Circuit(2), 10, 0, 2));
+    }
+
+    @Test
+    public void testNoiselessMatchesStandardSimulator() {
+        Circuit circuit = createCircuit();
+        State expectedState = new FsvSimulatorStandard().simulateFullState(circuit);
+        FsvSimulatorTrajectories simulator = new FsvSimulatorTrajectories(new NoiseModel(), 2, 7);
+        State state = simulator.simulateFullState(circuit);
+        for (int i = 0; i < state.size(); i++) {
+            assertEquals(expectedState.getStateAmplitude(i).real(), state.getStateAmplitude(i).real(), 1e-6f);
+            assertEquals(expectedState.getStateAmplitude(i).imag(), state.getStateAmplitude(i).imag(), 1e-6f);
+        }
+        assertEquals(0, simulator.noiseEvents());
+
+        // Every trajectory is the same pure state, so the estimate is exact
+        assertEquals(1, simulator.estimateExpectation(circuit, 1000, 1e-3, 0, 2), 1e-5);
+        assertEquals(FsvSimulatorTrajectories.MIN_TRAJECTORIES, simulator.trajectoryCount());
+        assertEquals(0, simulator.standardError(), 1e-6);
+    }
+
+    @Test
+    public void testHistogramConvergesToDensityMatrix() {
+        Circuit circuit = createCircuit();
+        NoiseModel noiseModel = createNoiseModel();
+        double[] expected = new FsvSimulatorDensityMatrix(noiseModel).simulateProbabilities(circuit);
+
+        FsvSimulatorTrajectories simulator = new FsvSimulatorTrajectories(noiseModel, 2, 42);
+        long[] counts = simulator.sampleHistogram(circuit, 20000, 0);
+        assertEquals(20000, simulator.trajectoryCount());
+        assertEquals(20000, Arrays.stream(counts).sum());
+        assertTrue(simulator.noiseEvents() > 0);
+        for (int i = 0; i < counts.length; i++)
+            assertEquals(expected[i], (double) counts[i] / 20000, 5 * simulator.standardError());
+
+        // Sampling stops once the target error is reached
+        simulator.sampleHistogram(circuit, 20000, 0.02);
+        assertTrue(simulator.trajectoryCount() < 20000);
+        assertTrue(simulator.standardError() <= 0.02);
+    }
+
+    @Test
+    public void testExpectationIsReproducible() {
+        // State 1 decays with the probability gamma after each of the 3 gates
+        Circuit circuit = new Circuit(2);
+        circuit.X(0);
+        circuit.Z(0);
+        circuit.H(1);
+        circuit.H(1);
+        NoiseModel noiseModel = new NoiseModel();
+        noiseModel.addGateNoise(KrausChannel.amplitudeDamping(0.2));
+        noiseModel.addGateNoise(KrausChannel.phaseDamping(0.1));
+        noiseModel.setReadoutError(0.01, 0.03);
+        double[] probabilities = new FsvSimulatorDensityMatrix(noiseModel).simulateProbabilities(circuit);
+        double expected = probabilities[0] + probabilities[2] - probabilities[1] - probabilities[3];
+
+        FsvSimulatorTrajectories first = new FsvSimulatorTrajectories(noiseModel, 3, 11);
+        double estimate = first.estimateExpectation(circuit, 50000, 0.005, 0);
+        assertTrue(first.trajectoryCount() < 50000);
+        assertTrue(first.standardError() <= 0.005);
+        assertEquals(expected, estimate, 5 * first.standardError());
+
+        FsvSimulatorTrajectories second = new FsvSimulatorTrajectories(noiseModel, 3, 11);
+        assertEquals(estimate, second.estimateExpectation(circuit, 50000, 0.005, 0));
+        assertEquals(first.trajectoryCount(), second.trajectoryCount());
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.mps;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.circuit.operation.OperationDataProvider;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSimulatorStandard;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MpsSimulatorTest {
+
+    private static final float HALF = (float) (1 / Math.sqrt(2));
+
+    @Test
+    public void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new MpsSimulator(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new MpsSimulator(8, 1));
+        assertThrows(IllegalArgumentException.class, () -> new MpsSimulator(8, Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> new MpsSimulator().simulateMps(null));
+        assertThrows(UnsupportedOperationException.class, () -> new MpsSimulator().simulateFullState(new Circuit(MatrixProductState.MAX_STATE_VECTOR_QUBITS + 1)));
+        Circuit measured = new Circuit(2);
+        measured.measure(0);
+        assertThrows(UnsupportedOperationException.class, () -> new MpsSimulator().simulateMps(measured));
+    }
+
+    @Test
+    public void testMatchesStandardSimulator() {
+        ComplexTensor qftData = new ComplexTensor(4, 4);
+        for (int r = 0; r < 4; r++)
+            for (int c = 0; c < 4; c++)
+                qftData.insertElement(new Complex((float) (Math.cos(Math.PI * r * c / 2) / 2), (float) (Math.sin(Math.PI * r * c / 2) / 2)), r, c);
+        OperationDataProvider.getInstance().registerFunctionData("mpsTestQft", qftData);
+
+        int noQubits = 7;
+        Circuit circuit = new Circuit(noQubits);
+        circuit.H(0, noQubits - 1);
+        circuit.CNOT(6, 0);
+        circuit.CR(1, 5, (float) (Math.PI / 3));
+        circuit.customFunction("mpsTestQft", 2, 3);
+        circuit.swap(0, 4);
+        circuit.CY(4, 2);
+        circuit.T(1, 6);
+        circuit.CNOT(3, 1);
+        circuit.R((float) 0.7, 5);
+        circuit.CZ(5, 0);
+        circuit.customFunction("mpsTestQft", 4, 5);
+        circuit.Y(3);
+        State expectedState = new FsvSimulatorStandard().simulateFullState(circuit);
+
+        MpsSimulator simulator = new MpsSimulator();
+        State state = simulator.simulateFullState(circuit);
+        assertTrue(state.isNormalized());
+        for (int i = 0; i < state.size(); i++) {
+            assertEquals(expectedState.getStateAmplitude(i).real(), state.getStateAmplitude(i).real(), 1e-5f);
+            assertEquals(expectedState.getStateAmplitude(i).imag(), state.getStateAmplitude(i).imag(), 1e-5f);
+        }
+        assertTrue(simulator.swapCount() > 0);
+        assertTrue(simulator.peakBondDimension() <= 8);
+        assertEquals(0, simulator.truncationError(), 1e-10);
+    }
+
+    @Test
+    public void testGhzState() {
+        int noQubits = 100;
+        Circuit circuit = new Circuit(noQubits);
+        circuit.H(0);
+        for (int target = 1; target < noQubits; target++)
+            circuit.CNOT(0, target);
+
+        MpsSimulator simulator = new MpsSimulator();
+        MatrixProductState state = simulator.simulateMps(circuit);
+        assertEquals(2, simulator.peakBondDimension());
+        assertEquals(0, simulator.truncationError(), 1e-10);
+        BitSet ones = new BitSet(noQubits);
+        ones.set(0, noQubits);
+        assertEquals(HALF, state.getAmplitude(new BitSet()).abs(), 1e-5f);
+        assertEquals(HALF, state.getAmplitude(ones).abs(), 1e-5f);
+        assertEquals(0, state.getAmplitude(BitSet.valueOf(new long[] { 1 })).abs(), 1e-5f);
+        assertEquals(0.5f, state.getQubitProbability(noQubits / 2), 1e-5f);
+        Random random = new Random(3);
+        for (int shot = 0; shot < 10; shot++) {
+            BitSet sample = state.sample(random);
+            assertTrue(sample.isEmpty() || sample.cardinality() == noQubits);
+        }
+    }
+
+    @Test
+    public void testTruncation() {
+        // Brickwork of random rotations, entangling all qubits
+        int noQubits = 10;
+        Random random = new Random(5);
+        Circuit circuit = new Circuit(noQubits);
+        for (int layer = 0; layer < 8; layer++) {
+            for (int qubit = 0; qubit < noQubits; qubit++) {
+                circuit.R((float) (random.nextDouble() * 3), qubit);
+                circuit.H(qubit);
+            }
+            for (int qubit = layer % 2; qubit + 1 < noQubits; qubit += 2)
+                circuit.CNOT(qubit, qubit + 1);
+        }
+        State expectedState = new FsvSimulatorStandard().simulateFullState(circuit);
+
+        MpsSimulator exact = new MpsSimulator();
+        exact.simulateMps(circuit);
+        assertEquals(0, exact.truncationError(), 1e-10);
+        assertTrue(exact.peakBondDimension() > 4);
+
+        MpsSimulator truncated = new MpsSimulator(2, 0);
+        State state = truncated.simulateFullState(circuit);
+        assertEquals(2, truncated.peakBondDimension());
+        assertTrue(truncated.truncationError() > 0.01);
+        assertTrue(state.isNormalized());
+        // Fidelity is estimated by the truncation error
+        float overlapReal = 0, overlapImag = 0;
+        for (int i = 0; i < state.size(); i++) {
+            Complex expected = expectedState.getStateAmplitude(i);
+            Complex actual = state.getStateAmplitude(i);
+            overlapReal += expected.real() * actual.real() + expected.imag() * actual.imag();
+            overlapImag += expected.real() * actual.imag() - expected.imag() * actual.real();
+        }
+        double fidelity = overlapReal * overlapReal + overlapImag * overlapImag;
+        assertTrue(fidelity < 1 - truncated.truncationError() / 4);
+        assertTrue(fidelity > 1 - 2 * truncated.truncationError());
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.stabilizer;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSimulatorStandard;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StabilizerSimulatorTest {
+
+    @Test
+    public void testNonCliffordRejected() {
+        Circuit tCircuit = new Circuit(2);
+        tCircuit.H(0);
+        tCircuit.T(1);
+        Circuit rCircuit = new Circuit(2);
+        rCircuit.R((float) Math.PI, 0);
+        Circuit csCircuit = new Circuit(2);
+        csCircuit.CS(0, 1);
+
+        StabilizerSimulator simulator = new StabilizerSimulator();
+        assertThrows(UnsupportedOperationException.class, () -> simulator.simulateTableau(tCircuit));
+        assertThrows(UnsupportedOperationException.class, () -> simulator.simulateFullState(rCircuit));
+        assertThrows(UnsupportedOperationException.class, () -> simulator.sample(csCircuit, 1));
+        assertThrows(IllegalArgumentException.class, () -> simulator.simulateTableau(null));
+        assertThrows(IllegalArgumentException.class, () -> simulator.sample(new Circuit(2), 0));
+    }
+
+    @Test
+    public void testMatchesStandardSimulator() {
+        int noQubits = 6;
+        Circuit circuit = new Circuit(noQubits);
+        circuit.H(0, 3);
+        circuit.S(1);
+        circuit.CNOT(1, 4);
+        circuit.CY(2, 5);
+        circuit.Y(0);
+        circuit.CZ(4, 0);
+        circuit.swap(0, 5);
+        circuit.H(2);
+        circuit.S(2, 4);
+        circuit.CNOT(5, 3);
+        circuit.X(1);
+        circuit.Z(3);
+        State expectedState = new FsvSimulatorStandard().simulateFullState(circuit);
+        State state = new StabilizerSimulator().simulateFullState(circuit);
+
+        // Stabilizer state is determined up to a global phase
+        float overlapReal = 0, overlapImag = 0;
+        for (int i = 0; i < state.size(); i++) {
+            Complex expected = expectedState.getStateAmplitude(i);
+            Complex actual = state.getStateAmplitude(i);
+            assertEquals(expected.abs(), actual.abs(), 1e-5f);
+            overlapReal += expected.real() * actual.real() + expected.imag() * actual.imag();
+            overlapImag += expected.real() * actual.imag() - expected.imag() * actual.real();
+        }
+        assertEquals(1, Math.sqrt(overlapReal * overlapReal + overlapImag * overlapImag), 1e-5);
+    }
+
+    @Test
+    public void testGhzSampling() {
+        int noQubits = 1500;
+        Circuit circuit = new Circuit(noQubits);
+        circuit.H(0);
+        for (int qubit = 1; qubit < noQubits; qubit++)
+            circuit.CNOT(qubit - 1, qubit);
+
+        List<BitSet> samples = new StabilizerSimulator(7).sample(circuit, 8);
+        int ones = 0;
+        for (BitSet sample : samples) {
+            assertTrue(sample.isEmpty() || sample.cardinality() == noQubits);
+            if (!sample.isEmpty())
+                ones++;
+        }
+        assertTrue(ones > 0 && ones < samples.size());
+    }
+
+    @Test
+    public void testMeasureAndReset() {
+        Circuit circuit = new Circuit(3);
+        circuit.X(0);
+        circuit.H(1);
+        circuit.CNOT(1, 2);
+        circuit.measure(0, 1, 2);
+        circuit.reset(0);
+
+        StabilizerSimulator simulator = new StabilizerSimulator(11);
+        for (BitSet sample : simulator.sample(circuit, 10)) {
+            int[] measurements = simulator.measurements();
+            assertEquals(3, measurements.length);
+            assertEquals(1, measurements[0]);
+            assertEquals(measurements[1], measurements[2]);
+            assertFalse(sample.get(0));
+            assertEquals(sample.get(1), sample.get(2));
+        }
+        int collapsed = simulator.simulateAndCollapse(circuit);
+        assertTrue(collapsed == 0 || collapsed == 6);
+    }
+
+}
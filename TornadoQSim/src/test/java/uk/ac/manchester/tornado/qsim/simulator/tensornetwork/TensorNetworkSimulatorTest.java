@@ -0,0 +1,129 @@
+/*
+ * This file is part of TornadoQSim:
+ * A Java-based quantum computing framework accelerated with TornadoVM.
+ *
+ * URL: https://github.com/beehive-lab/TornadoQSim
+ *
+ * Copyright (c) 2021-2023, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.manchester.tornado.qsim.simulator.tensornetwork;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.State;
+import uk.ac.manchester.tornado.qsim.circuit.operation.OperationDataProvider;
+import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.math.ComplexTensor;
+import uk.ac.manchester.tornado.qsim.simulator.fullstatevector.FsvSimulatorStandard;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TensorNetworkSimulatorTest {
+
+    private static final float HALF = (float) (1 / Math.sqrt(2));
+
+    @Test
+    public void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new TensorNetworkSimulator(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TensorNetworkSimulator(1, 0));
+        TensorNetworkSimulator simulator = new TensorNetworkSimulator();
+        assertThrows(IllegalArgumentException.class, () -> simulator.amplitude(null, new BitSet()));
+        assertThrows(IllegalArgumentException.class, () -> simulator.marginal(new Circuit(2), 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> simulator.marginal(new Circuit(2), 2));
+        Circuit measured = new Circuit(2);
+        measured.measure(1);
+        assertThrows(UnsupportedOperationException.class, () -> simulator.amplitude(measured, new BitSet()));
+        // Planned intermediate exceeds the limit before any contraction
+        TensorNetwork network = TensorNetwork.forState(new Circuit(TensorNetworkSimulator.MAX_INTERMEDIATE_RANK + 1));
+        assertEquals(TensorNetworkSimulator.MAX_INTERMEDIATE_RANK + 1, simulator.plan(network).peakRank());
+        assertThrows(UnsupportedOperationException.class, () -> simulator.contract(network));
+    }
+
+    @Test
+    public void testMatchesStandardSimulator() {
+        ComplexTensor qftData = new ComplexTensor(4, 4);
+        for (int r = 0; r < 4; r++)
+            for (int c = 0; c < 4; c++)
+                qftData.insertElement(new Complex((float) (Math.cos(Math.PI * r * c / 2) / 2), (float) (Math.sin(Math.PI * r * c / 2) / 2)), r, c);
+        OperationDataProvider.getInstance().registerFunctionData("tnTestQft", qftData);
+
+        int noQubits = 7;
+        Circuit circuit = new Circuit(noQubits);
+        circuit.H(0, noQubits - 1);
+        circuit.CNOT(6, 0);
+        circuit.CR(1, 5, (float) (Math.PI / 3));
+        circuit.customFunction("tnTestQft", 2, 3);
+        circuit.swap(0, 4);
+        circuit.CY(4, 2);
+        circuit.T(1, 6);
+        circuit.CNOT(3, 1);
+        circuit.R((float) 0.7, 5);
+        circuit.CZ(5, 0);
+        circuit.Y(3);
+        State expectedState = new FsvSimulatorStandard().simulateFullState(circuit);
+
+        // Small cutoff splits the contractions across the workers
+        TensorNetworkSimulator simulator = new TensorNetworkSimulator(4, 4);
+        State state = simulator.simulateFullState(circuit);
+        for (int i = 0; i < state.size(); i++) {
+            assertEquals(expectedState.getStateAmplitude(i).real(), state.getStateAmplitude(i).real(), 1e-5f);
+            assertEquals(expectedState.getStateAmplitude(i).imag(), state.getStateAmplitude(i).imag(), 1e-5f);
+        }
+
+        Complex amplitude = simulator.amplitude(circuit, BitSet.valueOf(new long[] { 0b1010011 }));
+        assertEquals(expectedState.getStateAmplitude(0b1010011).real(), amplitude.real(), 1e-5f);
+        assertEquals(expectedState.getStateAmplitude(0b1010011).imag(), amplitude.imag(), 1e-5f);
+
+        // Qubits 5 and 2 open, remaining qubits fixed to 1000001
+        ComplexTensor amplitudes = simulator.amplitudes(circuit, new int[] { 5, 2 }, BitSet.valueOf(new long[] { 0b1000001 }));
+        for (int open = 0; open < 4; open++) {
+            int basisState = 0b1000001 | (open & 1) << 5 | (open >>> 1) << 2;
+            assertEquals(expectedState.getStateAmplitude(basisState).real(), amplitudes.getElement(open).real(), 1e-5f);
+            assertEquals(expectedState.getStateAmplitude(basisState).imag(), amplitudes.getElement(open).imag(), 1e-5f);
+        }
+
+        float[] marginal = simulator.marginal(circuit, 6, 1);
+        float[] expectedMarginal = new float[4];
+        for (int i = 0; i < expectedState.size(); i++)
+            expectedMarginal[(i >>> 6 & 1) | (i >>> 1 & 1) << 1] += expectedState.getStateProbability(i);
+        assertArrayEquals(expectedMarginal, marginal, 1e-5f);
+    }
+
+    @Test
+    public void testWideCircuit() {
+        int noQubits = 200;
+        Circuit circuit = new Circuit(noQubits);
+        circuit.H(0);
+        for (int qubit = 1; qubit < noQubits; qubit++)
+            circuit.CNOT(qubit - 1, qubit);
+
+        TensorNetworkSimulator simulator = new TensorNetworkSimulator();
+        BitSet ones = new BitSet(noQubits);
+        ones.set(0, noQubits);
+        assertEquals(HALF, simulator.amplitude(circuit, ones).real(), 1e-5f);
+        assertEquals(0, simulator.amplitude(circuit, BitSet.valueOf(new long[] { 1 })).abs(), 1e-5f);
+        ContractionPlan plan = simulator.lastPlan();
+        assertEquals(plan.tensorCount() - 1, plan.steps());
+        assertTrue(plan.peakRank() <= 4);
+        assertTrue(plan.flops() > 0);
+
+        assertArrayEquals(new float[] { 0.5f, 0, 0, 0.5f }, simulator.marginal(circuit, 0, noQubits - 1), 1e-5f);
+        assertTrue(simulator.lastPlan().peakRank() <= 8);
+    }
+
+}
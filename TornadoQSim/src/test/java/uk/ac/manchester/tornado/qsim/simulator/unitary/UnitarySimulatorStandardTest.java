@@ -24,9 +24,11 @@ package uk.ac.manchester.tornado.qsim.simulator.unitary;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import uk.ac.manchester.tornado.qsim.circuit.Circuit;
+import uk.ac.manchester.tornado.qsim.circuit.DoubleState;
 import uk.ac.manchester.tornado.qsim.circuit.State;
 import uk.ac.manchester.tornado.qsim.circuit.utils.StateConverter;
 import uk.ac.manchester.tornado.qsim.math.Complex;
+import uk.ac.manchester.tornado.qsim.simulator.Precision;
 import uk.ac.manchester.tornado.qsim.simulator.Simulator;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -100,4 +102,22 @@ public class UnitarySimulatorStandardTest {
         assertEquals(iHALF, state.getStateAmplitude(StateConverter.stateFromBitstring("101")));
     }
 
+    @Test
+    public void testDoublePrecision() {
+        Simulator unitarySimulator = new UnitarySimulatorStandard(Precision.DOUBLE);
+        Circuit circuit = new Circuit(3);
+        circuit.H(0);
+        circuit.CNOT(0, 2);
+        circuit.T(0);
+        circuit.T(0);
+
+        DoubleState state = (DoubleState) unitarySimulator.simulateFullState(circuit);
+
+        // T * T = S, amplitudes exact to double precision
+        assertTrue(state.isNormalized());
+        assertEquals(1 / Math.sqrt(2), state.getDoubleStateVector().getRawRealData()[StateConverter.stateFromBitstring("000")], 1e-15);
+        assertEquals(1 / Math.sqrt(2), state.getDoubleStateVector().getRawImagData()[StateConverter.stateFromBitstring("101")], 1e-15);
+        assertEquals(0.5, state.getDoubleStateProbability(StateConverter.stateFromBitstring("101")), 1e-15);
+    }
+
 }